@@ -0,0 +1,125 @@
+package org.apache.directmemory.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.apache.directmemory.memory.buffer.MemoryBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Allocation and release of buffers, the {@link Allocator} being shared by all the benchmark threads.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = { "-Xmx1g", "-XX:MaxDirectMemorySize=1g" } )
+public class AllocatorBenchmark
+{
+
+    private static final int CAPACITY = Ram.Mb( 64 );
+
+    private static final int BATCH_SIZE = 64;
+
+    @Param( { Allocators.MERGING, Allocators.FIXED, Allocators.SLAB, Allocators.UNSAFE_FIXED,
+        Allocators.UNSAFE_LAZY, Allocators.UNSAFE_MERGING } )
+    public String allocator;
+
+    @Param( { "16", "512", "8192" } )
+    public int payloadSize;
+
+    private Allocator instance;
+
+    @State( Scope.Thread )
+    public static class Batch
+    {
+
+        final MemoryBuffer[] buffers = new MemoryBuffer[BATCH_SIZE];
+
+    }
+
+    @Setup
+    public void setup()
+    {
+        instance = Allocators.newAllocator( allocator, CAPACITY, payloadSize );
+    }
+
+    @TearDown
+    public void tearDown()
+        throws IOException
+    {
+        instance.close();
+    }
+
+    /**
+     * Allocates a buffer and releases it immediately, the best case for all allocators.
+     */
+    @Benchmark
+    public MemoryBuffer allocateAndFree()
+    {
+        final MemoryBuffer buffer = instance.allocate( payloadSize );
+        if ( buffer != null )
+        {
+            instance.free( buffer );
+        }
+        return buffer;
+    }
+
+    /**
+     * Allocates several buffers before releasing them, which makes the merging allocator split and merge its free
+     * buffers.
+     */
+    @Benchmark
+    @OperationsPerInvocation( BATCH_SIZE )
+    public void allocateBatchAndFree( Batch batch )
+    {
+        final MemoryBuffer[] buffers = batch.buffers;
+        for ( int i = 0; i < BATCH_SIZE; i++ )
+        {
+            buffers[i] = instance.allocate( payloadSize );
+        }
+        for ( int i = 0; i < BATCH_SIZE; i++ )
+        {
+            if ( buffers[i] != null )
+            {
+                instance.free( buffers[i] );
+                buffers[i] = null;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+package org.apache.directmemory.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.apache.directmemory.memory.allocator.FixedSizeByteBufferAllocatorImpl;
+import org.apache.directmemory.memory.allocator.FixedSizeUnsafeAllocator;
+import org.apache.directmemory.memory.allocator.LazyUnsafeAllocator;
+import org.apache.directmemory.memory.allocator.MergingByteBufferAllocator;
+import org.apache.directmemory.memory.allocator.MergingUnsafeAllocator;
+import org.apache.directmemory.memory.allocator.SlabByteBufferAllocator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+/**
+ * Creates the {@link Allocator} implementations by the name used in the benchmarks parameters.
+ */
+public final class Allocators
+{
+
+    public static final String MERGING = "merging";
+
+    public static final String FIXED = "fixed";
+
+    public static final String SLAB = "slab";
+
+    public static final String UNSAFE_FIXED = "unsafe-fixed";
+
+    public static final String UNSAFE_LAZY = "unsafe-lazy";
+
+    public static final String UNSAFE_MERGING = "unsafe-merging";
+
+    private Allocators()
+    {
+        // no op
+    }
+
+    /**
+     * @param name : one of the constants of this class
+     * @param capacity : total capacity of the allocator
+     * @param blockSize : size of the buffers the benchmark will allocate, used to size the slices of the fixed size
+     *            allocators
+     */
+    public static Allocator newAllocator( String name, long capacity, int blockSize )
+    {
+        if ( MERGING.equals( name ) )
+        {
+            return new MergingByteBufferAllocator( 0, toInt( name, capacity ) );
+        }
+        if ( FIXED.equals( name ) )
+        {
+            return new FixedSizeByteBufferAllocatorImpl( 0, toInt( name, capacity ), blockSize, 1 );
+        }
+        if ( SLAB.equals( name ) )
+        {
+            // 3 slabs, the requested size falls in the middle one
+            final int slabCapacity = toInt( name, capacity / 3 );
+            List<FixedSizeByteBufferAllocatorImpl> slabs = new ArrayList<FixedSizeByteBufferAllocatorImpl>( 3 );
+            slabs.add( new FixedSizeByteBufferAllocatorImpl( 0, slabCapacity, Math.max( 1, blockSize / 2 ), 1 ) );
+            slabs.add( new FixedSizeByteBufferAllocatorImpl( 1, slabCapacity, blockSize, 1 ) );
+            slabs.add( new FixedSizeByteBufferAllocatorImpl( 2, slabCapacity, blockSize * 2, 1 ) );
+            return new SlabByteBufferAllocator( 0, slabs, true );
+        }
+        if ( UNSAFE_FIXED.equals( name ) )
+        {
+            return new FixedSizeUnsafeAllocator( toInt( name, capacity / blockSize ), blockSize );
+        }
+        if ( UNSAFE_LAZY.equals( name ) )
+        {
+            return new LazyUnsafeAllocator( 0, capacity );
+        }
+        if ( UNSAFE_MERGING.equals( name ) )
+        {
+            return new MergingUnsafeAllocator( 0, capacity );
+        }
+        throw new IllegalArgumentException( format( "Unknown allocator '%s'", name ) );
+    }
+
+    /**
+     * Creates an allocator able to serve any size between <code>minSize</code> and <code>maxSize</code> : the slices
+     * of the fixed size allocators are <code>maxSize</code> bytes, and the slab allocator gets one slab per power of
+     * two between both sizes, each slab having the same share of the capacity.
+     *
+     * @param name : one of the constants of this class
+     * @param capacity : total capacity of the allocator
+     * @param minSize : smallest size the allocator will be asked for
+     * @param maxSize : biggest size the allocator will be asked for
+     */
+    public static Allocator newAllocator( String name, long capacity, int minSize, int maxSize )
+    {
+        if ( SLAB.equals( name ) )
+        {
+            final List<Integer> sliceSizes = new ArrayList<Integer>();
+            int sliceSize = Integer.highestOneBit( Math.max( 1, minSize ) );
+            while ( sliceSize < maxSize )
+            {
+                sliceSizes.add( sliceSize );
+                sliceSize <<= 1;
+            }
+            sliceSizes.add( maxSize );
+
+            final int slabCapacity = toInt( name, capacity / sliceSizes.size() );
+            List<FixedSizeByteBufferAllocatorImpl> slabs =
+                new ArrayList<FixedSizeByteBufferAllocatorImpl>( sliceSizes.size() );
+            for ( int i = 0; i < sliceSizes.size(); i++ )
+            {
+                slabs.add( new FixedSizeByteBufferAllocatorImpl( i, slabCapacity, sliceSizes.get( i ), 1 ) );
+            }
+            return new SlabByteBufferAllocator( 0, slabs, true );
+        }
+        return newAllocator( name, capacity, maxSize );
+    }
+
+    /**
+     * The allocators backed by a {@link java.nio.ByteBuffer} and the slots of the fixed size unsafe allocator are
+     * addressed with an int.
+     */
+    private static int toInt( String name, long value )
+    {
+        checkArgument( value <= Integer.MAX_VALUE, "The capacity is too big for the '%s' allocator", name );
+        return (int) value;
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.apache.directmemory.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Accepts the usual JMH command line options, and by default :
+ * <ul>
+ * <li>runs every selected benchmark once per thread count listed in the <code>directmemory.benchmark.threads</code>
+ * system property (<code>1,2,4</code> if not set), unless <code>-t</code> is given</li>
+ * <li>writes the results as JSON in <code>jmh-result-&lt;threads&gt;-threads.json</code>, unless <code>-rf</code> or
+ * <code>-rff</code> are given</li>
+ * </ul>
+ * For instance <code>java -Ddirectmemory.benchmark.threads=1,8 -jar target/benchmarks.jar CacheServiceBenchmark
+ * -p payloadSize=512</code>
+ */
+public class BenchmarkRunner
+{
+
+    public static final String THREADS_PROPERTY = "directmemory.benchmark.threads";
+
+    private static final String DEFAULT_THREADS = "1,2,4";
+
+    public static void main( String[] args )
+        throws Exception
+    {
+        final CommandLineOptions commandLineOptions = new CommandLineOptions( args );
+
+        if ( commandLineOptions.shouldHelp() || commandLineOptions.shouldList() )
+        {
+            Main.main( args );
+            return;
+        }
+
+        if ( commandLineOptions.getThreads().hasValue() )
+        {
+            run( commandLineOptions, commandLineOptions.getThreads().get() );
+            return;
+        }
+
+        for ( String threads : System.getProperty( THREADS_PROPERTY, DEFAULT_THREADS ).split( "," ) )
+        {
+            run( commandLineOptions, Integer.parseInt( threads.trim() ) );
+        }
+    }
+
+    private static void run( CommandLineOptions commandLineOptions, int threads )
+        throws Exception
+    {
+        final ChainedOptionsBuilder builder = new OptionsBuilder().parent( commandLineOptions ).threads( threads );
+
+        if ( !commandLineOptions.getResultFormat().hasValue() )
+        {
+            builder.resultFormat( ResultFormatType.JSON );
+        }
+        if ( !commandLineOptions.getResult().hasValue() )
+        {
+            builder.result( "jmh-result-" + threads + "-threads."
+                + commandLineOptions.getResultFormat().orElse( ResultFormatType.JSON ).toString().toLowerCase() );
+        }
+
+        new Runner( builder.build() ).run();
+    }
+
+}
@@ -0,0 +1,170 @@
+package org.apache.directmemory.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.memory.MemoryManagerService;
+import org.apache.directmemory.memory.MemoryManagerServiceImpl;
+import org.apache.directmemory.memory.Pointer;
+import org.apache.directmemory.memory.UnsafeMemoryManagerServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.lang.String.format;
+
+/**
+ * {@link CacheService} byte array operations, the cache being shared by all the benchmark threads. The cache is
+ * filled with <code>entries</code> keys before measuring, and is big enough to never evict them.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = { "-Xmx1g", "-XX:MaxDirectMemorySize=1g" } )
+public class CacheServiceBenchmark
+{
+
+    private static final int NUMBER_OF_BUFFERS = 8;
+
+    @Param( { "default", "unsafe" } )
+    public String memoryManager;
+
+    @Param( { "16", "512", "8192" } )
+    public int payloadSize;
+
+    @Param( { "10000" } )
+    public int entries;
+
+    private CacheService<String, Object> cacheService;
+
+    private byte[] payload;
+
+    private String[] keys;
+
+    private final AtomicInteger threadCounter = new AtomicInteger();
+
+    @State( Scope.Thread )
+    public static class ThreadState
+    {
+
+        final Random random = new Random();
+
+        String prefix;
+
+        long counter;
+
+        @Setup
+        public void setup( CacheServiceBenchmark benchmark )
+        {
+            prefix = "thread-" + benchmark.threadCounter.incrementAndGet() + "-";
+        }
+
+    }
+
+    @Setup
+    public void setup()
+    {
+        // twice the size of the pre-filled entries, to leave room to the put benchmarks
+        final int size = Math.max( Ram.Mb( 1 ), 2 * entries * payloadSize / NUMBER_OF_BUFFERS );
+
+        cacheService = new DirectMemory<String, Object>()
+            .setMemoryManager( newMemoryManager() )
+            .setNumberOfBuffers( NUMBER_OF_BUFFERS )
+            .setSize( size )
+            .setInitialCapacity( entries * 2 )
+            .newCacheService();
+
+        payload = new byte[payloadSize];
+        new Random( 42 ).nextBytes( payload );
+
+        keys = new String[entries];
+        for ( int i = 0; i < entries; i++ )
+        {
+            keys[i] = "key-" + i;
+            cacheService.putByteArray( keys[i], payload );
+        }
+    }
+
+    private MemoryManagerService<Object> newMemoryManager()
+    {
+        if ( "default".equals( memoryManager ) )
+        {
+            return new MemoryManagerServiceImpl<Object>();
+        }
+        if ( "unsafe".equals( memoryManager ) )
+        {
+            return new UnsafeMemoryManagerServiceImpl<Object>();
+        }
+        throw new IllegalArgumentException( format( "Unknown memory manager '%s'", memoryManager ) );
+    }
+
+    @TearDown
+    public void tearDown()
+        throws IOException
+    {
+        cacheService.close();
+    }
+
+    /**
+     * Replaces the value of an existing key.
+     */
+    @Benchmark
+    public Pointer<Object> put( ThreadState state )
+    {
+        return cacheService.putByteArray( keys[state.random.nextInt( entries )], payload );
+    }
+
+    @Benchmark
+    public byte[] get( ThreadState state )
+    {
+        return cacheService.retrieveByteArray( keys[state.random.nextInt( entries )] );
+    }
+
+    /**
+     * Stores a new key and frees it, so the cache size remains stable.
+     */
+    @Benchmark
+    public Pointer<Object> putAndFree( ThreadState state )
+    {
+        final String key = state.prefix + state.counter++;
+        final Pointer<Object> pointer = cacheService.putByteArray( key, payload );
+        cacheService.free( key );
+        return pointer;
+    }
+
+}
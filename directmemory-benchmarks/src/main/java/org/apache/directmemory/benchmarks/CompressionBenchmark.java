@@ -0,0 +1,186 @@
+package org.apache.directmemory.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directmemory.compression.Codec;
+import org.apache.directmemory.compression.Compression;
+import org.apache.directmemory.compression.DeflateCodec;
+import org.apache.directmemory.compression.DictionaryCodec;
+import org.apache.directmemory.compression.DictionaryTrainer;
+import org.apache.directmemory.compression.LzfCodec;
+import org.apache.directmemory.serialization.StandardSerializer;
+import org.apache.directmemory.test.Wine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CPU cost of the {@link Compression} stage of the cache for each codec, on payloads of <code>payloadSize</code>
+ * bytes : <code>json</code> documents, <code>serialized</code> objects and incompressible <code>random</code> bytes.
+ * The <code>dictionary</code> codec is trained beforehand on other payloads of the same kind.
+ * The memory saved is not measured by JMH, {@link #main(String[])} prints the compression ratio of the same
+ * payloads.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = { "-Xmx1g" } )
+public class CompressionBenchmark
+{
+
+    private static final String[] CODECS = { "lzf", "deflate-1", "deflate-6", "dictionary" };
+
+    private static final String[] DATA = { "json", "serialized", "random" };
+
+    private static final int[] PAYLOAD_SIZES = { 256, 512, 8192 };
+
+    @Param( { "lzf", "deflate-1", "deflate-6", "dictionary" } )
+    public String codec;
+
+    @Param( { "json", "serialized", "random" } )
+    public String data;
+
+    @Param( { "256", "512", "8192" } )
+    public int payloadSize;
+
+    private Compression compression;
+
+    private byte[] payload;
+
+    private byte[] stored;
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        compression = new Compression( codec( codec, data, payloadSize ), 0 );
+        payload = payload( data, payloadSize, 42 );
+        stored = compression.encode( payload );
+    }
+
+    @Benchmark
+    public byte[] encode()
+    {
+        return compression.encode( payload );
+    }
+
+    @Benchmark
+    public byte[] decode()
+        throws IOException
+    {
+        return compression.decode( stored );
+    }
+
+    static Codec codec( String name, String data, int size )
+        throws IOException
+    {
+        if ( "lzf".equals( name ) )
+        {
+            return new LzfCodec();
+        }
+        if ( "dictionary".equals( name ) )
+        {
+            final List<byte[]> samples = new ArrayList<byte[]>();
+            for ( int seed = 0; seed < 256; seed++ )
+            {
+                samples.add( payload( data, size, seed ) );
+            }
+            final DictionaryCodec codec = new DictionaryCodec().setRetrainEvery( 0 );
+            final byte[] dictionary = DictionaryTrainer.train( samples, DictionaryCodec.DEFAULT_DICTIONARY_SIZE );
+            if ( dictionary.length > 0 )
+            {
+                codec.useDictionary( dictionary );
+            }
+            return codec;
+        }
+        return new DeflateCodec( Integer.parseInt( name.substring( "deflate-".length() ) ) );
+    }
+
+    static byte[] payload( String data, int size, long seed )
+        throws IOException
+    {
+        final Random random = new Random( seed );
+        if ( "random".equals( data ) )
+        {
+            final byte[] payload = new byte[size];
+            random.nextBytes( payload );
+            return payload;
+        }
+
+        final StringBuilder builder = new StringBuilder();
+        while ( builder.length() < size )
+        {
+            builder.append( "{\"id\":" ).append( random.nextInt( 1000000 ) ).append( ",\"name\":\"customer-" )
+                .append( Long.toString( random.nextLong(), 36 ) ).append( "\",\"score\":" )
+                .append( random.nextDouble() ).append( ",\"active\":" ).append( random.nextBoolean() ).append( "}," );
+        }
+        if ( "json".equals( data ) )
+        {
+            return builder.substring( 0, size ).getBytes( "UTF-8" );
+        }
+
+        // the object header and the class descriptor of the standard serialization are part of the payload
+        final byte[] serialized =
+            new StandardSerializer().serialize( new Wine( "Gevrey-Chambertin", builder.toString() ) );
+        final byte[] payload = new byte[size];
+        System.arraycopy( serialized, 0, payload, 0, Math.min( size, serialized.length ) );
+        return payload;
+    }
+
+    /**
+     * Prints the ratio between the payload size and the stored size for each codec, data and payload size.
+     */
+    public static void main( String[] args )
+        throws IOException
+    {
+        System.out.println( String.format( "%-10s %-12s %8s %8s %7s", "codec", "data", "payload", "stored",
+                                           "ratio" ) );
+        for ( String codec : CODECS )
+        {
+            for ( String data : DATA )
+            {
+                for ( int payloadSize : PAYLOAD_SIZES )
+                {
+                    final Compression compression = new Compression( codec( codec, data, payloadSize ), 0 );
+                    final int stored = compression.encode( payload( data, payloadSize, 42 ) ).length;
+                    System.out.println( String.format( "%-10s %-12s %8d %8d %7.2f", codec, data, payloadSize,
+                                                       stored, payloadSize / (double) stored ) );
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+package org.apache.directmemory.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.cache.journal.FsyncPolicy;
+import org.apache.directmemory.cache.journal.Journal;
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.memory.Pointer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the puts of a {@link CacheService} journaled with each {@link FsyncPolicy}, <code>none</code> being
+ * the same cache without journal. The {@link FsyncPolicy#BATCH} policy is expected to keep more than half the
+ * throughput of the cache without journal once enough threads share the forces, for instance with
+ * <code>-Ddirectmemory.benchmark.threads=8</code>. The journal is written to a temporary directory, which is best on
+ * the disk the journal would use in production.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = { "-Xmx1g", "-XX:MaxDirectMemorySize=1g" } )
+public class JournalingBenchmark
+{
+
+    @Param( { "none", "NEVER", "INTERVAL", "BATCH" } )
+    public String fsyncPolicy;
+
+    @Param( { "512" } )
+    public int payloadSize;
+
+    @Param( { "10000" } )
+    public int entries;
+
+    private File directory;
+
+    private CacheService<String, Object> cacheService;
+
+    private byte[] payload;
+
+    private String[] keys;
+
+    @State( Scope.Thread )
+    public static class ThreadState
+    {
+
+        final Random random = new Random();
+
+    }
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        directory = File.createTempFile( "journal", "" );
+        directory.delete();
+
+        final DirectMemory<String, Object> directMemory = new DirectMemory<String, Object>()
+            .setNumberOfBuffers( 8 )
+            .setSize( Math.max( Ram.Mb( 1 ), 2 * entries * payloadSize / 8 ) )
+            .setInitialCapacity( entries * 2 );
+        if ( !"none".equals( fsyncPolicy ) )
+        {
+            directMemory.setJournal( new Journal<String, Object>( directory )
+                .setFsyncPolicy( FsyncPolicy.valueOf( fsyncPolicy ) ) );
+        }
+        cacheService = directMemory.newCacheService();
+
+        payload = new byte[payloadSize];
+        new Random( 42 ).nextBytes( payload );
+
+        keys = new String[entries];
+        for ( int i = 0; i < entries; i++ )
+        {
+            keys[i] = "key-" + i;
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+        throws IOException
+    {
+        cacheService.close();
+        final File[] files = directory.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public Pointer<Object> put( ThreadState state )
+    {
+        return cacheService.putByteArray( keys[state.random.nextInt( entries )], payload );
+    }
+
+}
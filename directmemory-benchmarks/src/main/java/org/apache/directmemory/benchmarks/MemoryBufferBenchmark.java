@@ -0,0 +1,151 @@
+package org.apache.directmemory.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.apache.directmemory.memory.buffer.MemoryBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads and writes of a {@link MemoryBuffer}, each benchmark thread working on its own buffer. The
+ * {@link MemoryBuffer} implementation is chosen through the allocator creating it : NIO for the merging allocator,
+ * the Unsafe based ones for the unsafe allocators.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = { "-Xmx1g", "-XX:MaxDirectMemorySize=1g" } )
+public class MemoryBufferBenchmark
+{
+
+    @Param( { Allocators.MERGING, Allocators.UNSAFE_FIXED, Allocators.UNSAFE_LAZY } )
+    public String allocator;
+
+    @Param( { "16", "512", "8192" } )
+    public int payloadSize;
+
+    private Allocator instance;
+
+    private MemoryBuffer buffer;
+
+    private byte[] payload;
+
+    private byte[] target;
+
+    private int[] values;
+
+    @Setup
+    public void setup()
+    {
+        // room for payloadSize bytes, or payloadSize ints
+        final int bufferSize = payloadSize * 4;
+
+        instance = Allocators.newAllocator( allocator, bufferSize * 2, bufferSize );
+        buffer = instance.allocate( bufferSize );
+
+        final Random random = new Random( 42 );
+        payload = new byte[payloadSize];
+        random.nextBytes( payload );
+        target = new byte[payloadSize];
+
+        values = new int[payloadSize / 4];
+        for ( int i = 0; i < values.length; i++ )
+        {
+            // mix of small and big values to exercise all the compressed int encodings
+            values[i] = random.nextInt() >>> random.nextInt( 32 );
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+        throws IOException
+    {
+        instance.free( buffer );
+        instance.close();
+    }
+
+    @Benchmark
+    public long writeBytes()
+    {
+        buffer.writerIndex( 0 );
+        buffer.writeBytes( payload );
+        return buffer.writerIndex();
+    }
+
+    @Benchmark
+    public byte[] readBytes()
+    {
+        buffer.readerIndex( 0 );
+        buffer.readBytes( target );
+        return target;
+    }
+
+    @Benchmark
+    public int writeAndReadInts()
+    {
+        buffer.writerIndex( 0 );
+        for ( int value : values )
+        {
+            buffer.writeInt( value );
+        }
+        buffer.readerIndex( 0 );
+        int sum = 0;
+        for ( int i = 0; i < values.length; i++ )
+        {
+            sum += buffer.readInt();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int writeAndReadCompressedInts()
+    {
+        buffer.writerIndex( 0 );
+        for ( int value : values )
+        {
+            buffer.writeCompressedInt( value );
+        }
+        buffer.readerIndex( 0 );
+        int sum = 0;
+        for ( int i = 0; i < values.length; i++ )
+        {
+            sum += buffer.readCompressedInt();
+        }
+        return sum;
+    }
+
+}
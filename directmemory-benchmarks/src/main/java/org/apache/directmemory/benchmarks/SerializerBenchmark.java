@@ -0,0 +1,124 @@
+package org.apache.directmemory.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directmemory.serialization.Serializer;
+import org.apache.directmemory.serialization.SerializerFactory;
+import org.apache.directmemory.serialization.StandardSerializer;
+import org.apache.directmemory.serialization.kryo.KryoSerializer;
+import org.apache.directmemory.serialization.msgpack.MessagePackSerializer;
+import org.apache.directmemory.serialization.protobuf.ProtobufSerializer;
+import org.apache.directmemory.serialization.protostuff.ProtoStuffWithLinkedBufferSerializer;
+import org.apache.directmemory.test.Wine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+
+/**
+ * Serialization and deserialization of an object holding a string of <code>payloadSize</code> characters, for each
+ * serializer module. Protobuf can only serialize generated messages, a {@link FileDescriptorProto} shipped with
+ * protobuf-java is used instead of a {@link Wine} for it.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( value = 1, jvmArgsAppend = { "-Xmx1g", "-XX:MaxDirectMemorySize=1g" } )
+public class SerializerBenchmark
+{
+
+    private static final Map<String, String> SERIALIZERS = new HashMap<String, String>();
+
+    static
+    {
+        SERIALIZERS.put( "standard", StandardSerializer.class.getName() );
+        SERIALIZERS.put( "kryo", KryoSerializer.class.getName() );
+        SERIALIZERS.put( "msgpack", MessagePackSerializer.class.getName() );
+        SERIALIZERS.put( "protostuff", ProtoStuffWithLinkedBufferSerializer.class.getName() );
+        SERIALIZERS.put( "protobuf", ProtobufSerializer.class.getName() );
+    }
+
+    @Param( { "standard", "kryo", "msgpack", "protostuff", "protobuf" } )
+    public String serializer;
+
+    @Param( { "16", "512", "8192" } )
+    public int payloadSize;
+
+    private Serializer instance;
+
+    private Object object;
+
+    private Class<?> type;
+
+    private byte[] serialized;
+
+    @Setup
+    public void setup()
+        throws Exception
+    {
+        instance = SerializerFactory.createNewSerializer( SERIALIZERS.get( serializer ) );
+
+        final char[] chars = new char[payloadSize];
+        Arrays.fill( chars, 'a' );
+        final String description = new String( chars );
+
+        if ( "protobuf".equals( serializer ) )
+        {
+            object = FileDescriptorProto.newBuilder().setName( "Gevrey-Chambertin" ).setPackage( description ).build();
+        }
+        else
+        {
+            object = new Wine( "Gevrey-Chambertin", description );
+        }
+        type = object.getClass();
+        serialized = instance.serialize( object );
+    }
+
+    @Benchmark
+    public byte[] serialize()
+        throws Exception
+    {
+        return instance.serialize( object );
+    }
+
+    @Benchmark
+    public Object deserialize()
+        throws Exception
+    {
+        return instance.deserialize( serialized, type );
+    }
+
+}
@@ -0,0 +1,147 @@
+package org.apache.directmemory.benchmarks.fragmentation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Properties;
+
+import org.apache.directmemory.benchmarks.Allocators;
+import org.apache.directmemory.benchmarks.workload.LongDistribution;
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.memory.allocator.Allocator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+/**
+ * Settings of a fragmentation simulation, read from properties :
+ * <table>
+ * <tr><th>property</th><th>default</th><th>meaning</th></tr>
+ * <tr><td>allocator</td><td>merging</td><td><code>merging</code>, <code>fixed</code>, <code>slab</code>,
+ * <code>unsafe-fixed</code>, <code>unsafe-lazy</code> or <code>unsafe-merging</code>, see {@link Allocators}</td></tr>
+ * <tr><td>capacity</td><td>64 MB</td><td>capacity in bytes of the simulated allocator</td></tr>
+ * <tr><td>size</td><td>64-4096</td><td>sizes of the allocated blocks in bytes, see {@link LongDistribution}</td></tr>
+ * <tr><td>lifetime</td><td>1000-50000</td><td>number of operations a block lives before being freed, see
+ * {@link LongDistribution}</td></tr>
+ * <tr><td>operations</td><td>100000000</td><td>number of allocations simulated</td></tr>
+ * <tr><td>reportEvery</td><td>1000000</td><td>operations between two samples</td></tr>
+ * <tr><td>reportFile</td><td></td><td>CSV file the samples are also written to</td></tr>
+ * <tr><td>seed</td><td>0</td><td>seed of the random sizes and lifetimes, so that runs can be compared</td></tr>
+ * </table>
+ * As every operation allocates one block, the simulated population is about the mean lifetime times the mean size
+ * bytes : the defaults ask for about 80% of the capacity, without counting the fragmentation.
+ */
+public final class FragmentationConfiguration
+{
+
+    private final String allocator;
+
+    private final long capacity;
+
+    private final LongDistribution size;
+
+    private final LongDistribution lifetime;
+
+    private final long operations;
+
+    private final long reportEvery;
+
+    private final String reportFile;
+
+    private final long seed;
+
+    private FragmentationConfiguration( Properties properties )
+    {
+        allocator = properties.getProperty( "allocator", Allocators.MERGING );
+        capacity = Long.parseLong( properties.getProperty( "capacity", Long.toString( Ram.Mb( 64 ) ) ) );
+        size = LongDistribution.parse( properties.getProperty( "size", "64-4096" ) );
+        lifetime = LongDistribution.parse( properties.getProperty( "lifetime", "1000-50000" ) );
+        operations = Long.parseLong( properties.getProperty( "operations", "100000000" ) );
+        reportEvery = Long.parseLong( properties.getProperty( "reportEvery", "1000000" ) );
+        reportFile = properties.getProperty( "reportFile" );
+        seed = Long.parseLong( properties.getProperty( "seed", "0" ) );
+
+        checkArgument( capacity > 0, "The capacity must be positive" );
+        checkArgument( size.getMin() > 0, "Block sizes must be positive" );
+        checkArgument( size.getMax() <= capacity, "Block sizes can not exceed the capacity of %s bytes", capacity );
+        checkArgument( lifetime.getMin() > 0, "Lifetimes must be positive" );
+        checkArgument( lifetime.getMax() < Integer.MAX_VALUE, "Lifetimes can not exceed %s operations",
+                       Integer.MAX_VALUE - 1 );
+        checkArgument( operations > 0, "The number of operations must be positive" );
+        checkArgument( reportEvery > 0, "The number of operations between two samples must be positive" );
+    }
+
+    public static FragmentationConfiguration fromProperties( Properties properties )
+    {
+        return new FragmentationConfiguration( properties );
+    }
+
+    public Allocator newAllocator()
+    {
+        return Allocators.newAllocator( allocator, capacity, (int) size.getMin(), (int) size.getMax() );
+    }
+
+    public String getAllocator()
+    {
+        return allocator;
+    }
+
+    public long getCapacity()
+    {
+        return capacity;
+    }
+
+    public LongDistribution getSize()
+    {
+        return size;
+    }
+
+    public LongDistribution getLifetime()
+    {
+        return lifetime;
+    }
+
+    public long getOperations()
+    {
+        return operations;
+    }
+
+    public long getReportEvery()
+    {
+        return reportEvery;
+    }
+
+    public String getReportFile()
+    {
+        return reportFile;
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    @Override
+    public String toString()
+    {
+        return format( "allocator=%s capacity=%d size=%s lifetime=%s operations=%d reportEvery=%d seed=%d",
+                       allocator, capacity, size, lifetime, operations, reportEvery, seed );
+    }
+
+}
@@ -0,0 +1,145 @@
+package org.apache.directmemory.benchmarks.fragmentation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.String.format;
+
+/**
+ * State of the simulated allocator after a given number of operations, the rates being computed over the operations
+ * run since the previous sample.
+ */
+public final class FragmentationSample
+{
+
+    static final String CSV_HEADER =
+        "operations,ops_per_s,utilisation,payload_utilisation,live_blocks,failure_rate,free_bytes,"
+            + "largest_free_block,fragmentation";
+
+    private final long operations;
+
+    private final double opsPerSecond;
+
+    private final long capacity;
+
+    private final long freeCapacity;
+
+    private final long payload;
+
+    private final long liveBlocks;
+
+    private final double failureRate;
+
+    private final long largestFreeBlock;
+
+    FragmentationSample( long operations, double opsPerSecond, long capacity, long freeCapacity, long payload,
+                         long liveBlocks, double failureRate, long largestFreeBlock )
+    {
+        this.operations = operations;
+        this.opsPerSecond = opsPerSecond;
+        this.capacity = capacity;
+        this.freeCapacity = freeCapacity;
+        this.payload = payload;
+        this.liveBlocks = liveBlocks;
+        this.failureRate = failureRate;
+        this.largestFreeBlock = largestFreeBlock;
+    }
+
+    /**
+     * @return the number of operations simulated so far
+     */
+    public long getOperations()
+    {
+        return operations;
+    }
+
+    public double getOpsPerSecond()
+    {
+        return opsPerSecond;
+    }
+
+    /**
+     * @return the bytes the allocator reports as free
+     */
+    public long getFreeCapacity()
+    {
+        return freeCapacity;
+    }
+
+    /**
+     * @return the share of the capacity the allocator reports as allocated
+     */
+    public double getUtilisation()
+    {
+        return ( capacity - freeCapacity ) / (double) capacity;
+    }
+
+    /**
+     * @return the share of the capacity used by the requested sizes of the live blocks, lower than
+     *         {@link #getUtilisation()} when the allocator rounds the sizes up
+     */
+    public double getPayloadUtilisation()
+    {
+        return payload / (double) capacity;
+    }
+
+    public long getLiveBlocks()
+    {
+        return liveBlocks;
+    }
+
+    /**
+     * @return the share of the allocations which failed since the previous sample
+     */
+    public double getFailureRate()
+    {
+        return failureRate;
+    }
+
+    public long getLargestFreeBlock()
+    {
+        return largestFreeBlock;
+    }
+
+    /**
+     * @return <code>1 - largest free block / free bytes</code> : 0 when the free space is contiguous, close to 1 when
+     *         it is scattered in small blocks
+     */
+    public double getFragmentation()
+    {
+        return freeCapacity == 0 ? 0 : 1 - largestFreeBlock / (double) freeCapacity;
+    }
+
+    String toCsv()
+    {
+        return format( "%d,%.0f,%.4f,%.4f,%d,%.6f,%d,%d,%.4f", operations, opsPerSecond, getUtilisation(),
+                       getPayloadUtilisation(), liveBlocks, failureRate, freeCapacity, largestFreeBlock,
+                       getFragmentation() );
+    }
+
+    @Override
+    public String toString()
+    {
+        return format( "%12d ops %10.0f ops/s | used %5.1f%% payload %5.1f%% | %8d blocks | failures %7.3f%% | "
+                           + "largest free %10d | fragmentation %.4f", operations, opsPerSecond,
+                       100 * getUtilisation(), 100 * getPayloadUtilisation(), liveBlocks, 100 * failureRate,
+                       largestFreeBlock, getFragmentation() );
+    }
+
+}
@@ -0,0 +1,257 @@
+package org.apache.directmemory.benchmarks.fragmentation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.BufferOverflowException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.directmemory.benchmarks.workload.WorkloadDriver;
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.apache.directmemory.memory.buffer.MemoryBuffer;
+
+/**
+ * Drives an {@link Allocator} with the allocation churn of a cache : every operation frees the blocks whose lifetime
+ * is over, then allocates a new block, its size and lifetime being drawn from the configured distributions. The time
+ * is counted in operations, so that a run is deterministic for a given seed and can be replayed against every
+ * allocator. A {@link FragmentationSample} of the utilisation, the failure rate, the largest free block and the
+ * throughput is taken every <code>reportEvery</code> operations.
+ * <p>
+ * Every argument is either a <code>name=value</code> setting or the path of a properties file, see
+ * {@link FragmentationConfiguration} for the settings. For instance
+ * <code>java -cp target/benchmarks.jar org.apache.directmemory.benchmarks.fragmentation.FragmentationSimulator
+ * allocator=slab size=32-512:80,4096-65536:20 lifetime=100-200000 reportFile=slab.csv</code>
+ */
+public class FragmentationSimulator
+{
+
+    private final FragmentationConfiguration configuration;
+
+    private final Allocator allocator;
+
+    private final PrintStream out;
+
+    /**
+     * Blocks to free by operation, modulo the length of the wheel which is longer than the longest lifetime.
+     */
+    private final Expiration[] wheel;
+
+    private long operations;
+
+    private long liveBlocks;
+
+    private long payload;
+
+    public FragmentationSimulator( FragmentationConfiguration configuration, Allocator allocator, PrintStream out )
+    {
+        this.configuration = configuration;
+        this.allocator = allocator;
+        this.out = out;
+        this.wheel = new Expiration[(int) configuration.getLifetime().getMax() + 1];
+        for ( int i = 0; i < wheel.length; i++ )
+        {
+            wheel[i] = new Expiration();
+        }
+    }
+
+    public static void main( String[] args )
+        throws Exception
+    {
+        final FragmentationConfiguration configuration =
+            FragmentationConfiguration.fromProperties( WorkloadDriver.parseArguments( args ) );
+
+        final Allocator allocator = configuration.newAllocator();
+        try
+        {
+            final FragmentationSimulator simulator = new FragmentationSimulator( configuration, allocator, System.out );
+            simulator.run();
+            System.out.println( "Drained " + simulator.drain() );
+        }
+        finally
+        {
+            allocator.close();
+        }
+    }
+
+    /**
+     * Runs the configured number of operations, the allocated blocks still alive at the end being kept.
+     *
+     * @return the samples taken every <code>reportEvery</code> operations, and at the last operation
+     */
+    public List<FragmentationSample> run()
+        throws IOException
+    {
+        out.println( "Fragmentation " + configuration );
+
+        final PrintStream csv =
+            configuration.getReportFile() != null ? new PrintStream( new FileOutputStream( configuration.getReportFile() ),
+                                                                     false, "UTF-8" ) : null;
+        try
+        {
+            if ( csv != null )
+            {
+                csv.println( FragmentationSample.CSV_HEADER );
+            }
+
+            final Random random = new Random( configuration.getSeed() );
+            final List<FragmentationSample> samples = new ArrayList<FragmentationSample>();
+
+            long intervalStart = System.nanoTime();
+            long intervalOperations = 0;
+            long intervalFailures = 0;
+
+            for ( long i = 0; i < configuration.getOperations(); i++ )
+            {
+                if ( !step( random ) )
+                {
+                    intervalFailures++;
+                }
+                intervalOperations++;
+
+                if ( intervalOperations == configuration.getReportEvery() || i == configuration.getOperations() - 1 )
+                {
+                    final long now = System.nanoTime();
+                    final FragmentationSample sample =
+                        sample( intervalOperations * 1e9d / Math.max( 1, now - intervalStart ),
+                                intervalFailures / (double) intervalOperations );
+                    samples.add( sample );
+                    out.println( sample );
+                    if ( csv != null )
+                    {
+                        csv.println( sample.toCsv() );
+                        csv.flush();
+                    }
+
+                    intervalStart = now;
+                    intervalOperations = 0;
+                    intervalFailures = 0;
+                }
+            }
+            return samples;
+        }
+        finally
+        {
+            if ( csv != null )
+            {
+                csv.close();
+            }
+        }
+    }
+
+    /**
+     * Frees every block still alive.
+     *
+     * @return the state of the allocator once empty, which should have all its capacity free in one block
+     */
+    public FragmentationSample drain()
+    {
+        for ( Expiration expiration : wheel )
+        {
+            free( expiration );
+        }
+        return sample( 0, 0 );
+    }
+
+    /**
+     * Simulates one operation.
+     *
+     * @return false if the allocation failed
+     */
+    boolean step( Random random )
+    {
+        free( wheel[(int) ( operations % wheel.length )] );
+
+        final int size = (int) configuration.getSize().next( random );
+        final long lifetime = configuration.getLifetime().next( random );
+        operations++;
+
+        MemoryBuffer buffer;
+        try
+        {
+            buffer = allocator.allocate( size );
+        }
+        catch ( BufferOverflowException e )
+        {
+            buffer = null;
+        }
+        if ( buffer == null )
+        {
+            return false;
+        }
+
+        // the block is freed at the beginning of the operation ending its lifetime
+        wheel[(int) ( ( operations - 1 + lifetime ) % wheel.length )].add( buffer, size );
+        liveBlocks++;
+        payload += size;
+        return true;
+    }
+
+    private void free( Expiration expiration )
+    {
+        for ( int i = 0; i < expiration.count; i++ )
+        {
+            allocator.free( expiration.buffers[i] );
+            payload -= expiration.sizes[i];
+            expiration.buffers[i] = null;
+        }
+        liveBlocks -= expiration.count;
+        expiration.count = 0;
+    }
+
+    private FragmentationSample sample( double opsPerSecond, double failureRate )
+    {
+        return new FragmentationSample( operations, opsPerSecond, configuration.getCapacity(),
+                                        allocator.getFreeCapacity(), payload, liveBlocks, failureRate,
+                                        allocator.getLargestFreeBlock() );
+    }
+
+    /**
+     * Blocks reaching the end of their lifetime at the same operation, with their requested sizes as the allocators
+     * may return bigger buffers.
+     */
+    private static final class Expiration
+    {
+
+        private MemoryBuffer[] buffers = new MemoryBuffer[1];
+
+        private int[] sizes = new int[1];
+
+        private int count;
+
+        void add( MemoryBuffer buffer, int size )
+        {
+            if ( count == buffers.length )
+            {
+                buffers = Arrays.copyOf( buffers, count * 2 );
+                sizes = Arrays.copyOf( sizes, count * 2 );
+            }
+            buffers[count] = buffer;
+            sizes[count] = size;
+            count++;
+        }
+
+    }
+
+}
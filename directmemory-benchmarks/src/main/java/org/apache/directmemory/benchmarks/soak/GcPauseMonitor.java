@@ -0,0 +1,136 @@
+package org.apache.directmemory.benchmarks.soak;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Closeable;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.apache.directmemory.benchmarks.workload.LatencyHistogram;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Records the duration of every garbage collection, as notified by the {@link GarbageCollectorMXBean}s. The cycles of
+ * the concurrent collectors (CMS, G1 concurrent marking, ZGC and Shenandoah cycles) run alongside the application,
+ * so they are not counted as pauses.
+ */
+public class GcPauseMonitor
+    implements NotificationListener, Closeable
+{
+
+    private final List<NotificationEmitter> emitters = new ArrayList<NotificationEmitter>();
+
+    private final LatencyHistogram pauses = new LatencyHistogram();
+
+    private final AtomicLong totalPauseMillis = new AtomicLong();
+
+    public GcPauseMonitor()
+    {
+        for ( GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans() )
+        {
+            if ( collector instanceof NotificationEmitter )
+            {
+                final NotificationEmitter emitter = (NotificationEmitter) collector;
+                emitter.addNotificationListener( this, null, null );
+                emitters.add( emitter );
+            }
+        }
+    }
+
+    /**
+     * @return false when the JVM does not notify the garbage collections, in which case no pause is ever recorded
+     */
+    public boolean isSupported()
+    {
+        return !emitters.isEmpty();
+    }
+
+    @Override
+    public void handleNotification( Notification notification, Object handback )
+    {
+        if ( !GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals( notification.getType() ) )
+        {
+            return;
+        }
+
+        final GarbageCollectionNotificationInfo info =
+            GarbageCollectionNotificationInfo.from( (CompositeData) notification.getUserData() );
+        if ( isConcurrent( info.getGcName() ) )
+        {
+            return;
+        }
+
+        final long millis = info.getGcInfo().getDuration();
+        pauses.record( TimeUnit.MILLISECONDS.toNanos( millis ) );
+        totalPauseMillis.addAndGet( millis );
+    }
+
+    static boolean isConcurrent( String gcName )
+    {
+        return gcName.contains( "Concurrent" ) || gcName.contains( "Cycles" );
+    }
+
+    /**
+     * @return the pauses recorded so far, in nanoseconds with a millisecond resolution
+     */
+    public LatencyHistogram getPauses()
+    {
+        return pauses;
+    }
+
+    public long getPauseCount()
+    {
+        return pauses.getCount();
+    }
+
+    public long getTotalPauseMillis()
+    {
+        return totalPauseMillis.get();
+    }
+
+    @Override
+    public void close()
+    {
+        for ( NotificationEmitter emitter : emitters )
+        {
+            try
+            {
+                emitter.removeNotificationListener( this );
+            }
+            catch ( ListenerNotFoundException e )
+            {
+                // already removed
+            }
+        }
+        emitters.clear();
+    }
+
+}
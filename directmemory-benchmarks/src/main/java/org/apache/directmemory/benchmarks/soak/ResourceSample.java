@@ -0,0 +1,142 @@
+package org.apache.directmemory.benchmarks.soak;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.String.format;
+
+/**
+ * Memory footprint of the process and garbage collection counters at a given time of a soak run. The sizes are in
+ * bytes, -1 when unknown.
+ */
+public final class ResourceSample
+{
+
+    static final String CSV_HEADER =
+        "target,elapsed_s,heap_used_bytes,heap_committed_bytes,rss_bytes,direct_used_bytes,direct_buffers,"
+            + "offheap_used_bytes,gc_pauses,gc_pause_ms";
+
+    private final long elapsedMillis;
+
+    private final long heapUsed;
+
+    private final long heapCommitted;
+
+    private final long rss;
+
+    private final long directUsed;
+
+    private final long directBuffers;
+
+    private final long offHeapUsed;
+
+    private final long gcPauses;
+
+    private final long gcPauseMillis;
+
+    ResourceSample( long elapsedMillis, long heapUsed, long heapCommitted, long rss, long directUsed,
+                    long directBuffers, long offHeapUsed, long gcPauses, long gcPauseMillis )
+    {
+        this.elapsedMillis = elapsedMillis;
+        this.heapUsed = heapUsed;
+        this.heapCommitted = heapCommitted;
+        this.rss = rss;
+        this.directUsed = directUsed;
+        this.directBuffers = directBuffers;
+        this.offHeapUsed = offHeapUsed;
+        this.gcPauses = gcPauses;
+        this.gcPauseMillis = gcPauseMillis;
+    }
+
+    public long getElapsedMillis()
+    {
+        return elapsedMillis;
+    }
+
+    public long getHeapUsed()
+    {
+        return heapUsed;
+    }
+
+    public long getHeapCommitted()
+    {
+        return heapCommitted;
+    }
+
+    /**
+     * @return the resident set size of the process, only known on Linux
+     */
+    public long getRss()
+    {
+        return rss;
+    }
+
+    /**
+     * @return the memory used by the direct {@link java.nio.ByteBuffer}s, which does not include the memory allocated
+     *         through <code>sun.misc.Unsafe</code> by the unsafe memory manager
+     */
+    public long getDirectUsed()
+    {
+        return directUsed;
+    }
+
+    public long getDirectBuffers()
+    {
+        return directBuffers;
+    }
+
+    /**
+     * @return the off-heap memory the cache reports as used by its entries
+     */
+    public long getOffHeapUsed()
+    {
+        return offHeapUsed;
+    }
+
+    /**
+     * @return the number of garbage collection pauses since the beginning of the run
+     */
+    public long getGcPauses()
+    {
+        return gcPauses;
+    }
+
+    /**
+     * @return the time spent in garbage collection pauses since the beginning of the run
+     */
+    public long getGcPauseMillis()
+    {
+        return gcPauseMillis;
+    }
+
+    String toCsv( String target )
+    {
+        return format( "%s,%.1f,%d,%d,%d,%d,%d,%d,%d,%d", target, elapsedMillis / 1e3d, heapUsed, heapCommitted, rss,
+                       directUsed, directBuffers, offHeapUsed, gcPauses, gcPauseMillis );
+    }
+
+    @Override
+    public String toString()
+    {
+        return format( "%8.1f s | heap %d/%d MB | rss %d MB | direct %d MB in %d buffers | gc %d pauses, %d ms",
+                       elapsedMillis / 1e3d, heapUsed >> 20, heapCommitted >> 20, rss >> 20, directUsed >> 20,
+                       directBuffers, gcPauses, gcPauseMillis );
+    }
+
+}
@@ -0,0 +1,167 @@
+package org.apache.directmemory.benchmarks.soak;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directmemory.benchmarks.workload.CacheTarget;
+
+/**
+ * Periodically samples the heap occupancy, the resident set size, the direct buffers usage and the garbage collection
+ * pauses while a soak run goes on, printing every sample and optionally writing it as CSV.
+ */
+public class ResourceSampler
+    implements Runnable
+{
+
+    private static final File PROC_STATUS = new File( "/proc/self/status" );
+
+    private final String name;
+
+    private final CacheTarget target;
+
+    private final GcPauseMonitor gcPauses;
+
+    private final PrintStream out;
+
+    private final PrintStream csv;
+
+    private final BufferPoolMXBean directPool;
+
+    private final List<ResourceSample> samples = new ArrayList<ResourceSample>();
+
+    private long startMillis = System.currentTimeMillis();
+
+    /**
+     * @param name name of the sampled target in the CSV rows
+     * @param csv where the CSV rows are written, <code>null</code> for none
+     */
+    public ResourceSampler( String name, CacheTarget target, GcPauseMonitor gcPauses, PrintStream out,
+                            PrintStream csv )
+    {
+        this.name = name;
+        this.target = target;
+        this.gcPauses = gcPauses;
+        this.out = out;
+        this.csv = csv;
+        this.directPool = directPool();
+    }
+
+    private static BufferPoolMXBean directPool()
+    {
+        for ( BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans( BufferPoolMXBean.class ) )
+        {
+            if ( "direct".equals( pool.getName() ) )
+            {
+                return pool;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Marks the beginning of the run.
+     */
+    public synchronized void start()
+    {
+        startMillis = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void run()
+    {
+        final MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        final ResourceSample sample =
+            new ResourceSample( System.currentTimeMillis() - startMillis, heap.getUsed(), heap.getCommitted(),
+                                readRss(), directPool != null ? directPool.getMemoryUsed() : -1,
+                                directPool != null ? directPool.getCount() : -1, target.getOffHeapUsed(),
+                                gcPauses.getPauseCount(), gcPauses.getTotalPauseMillis() );
+        samples.add( sample );
+
+        out.println( "[" + name + "] " + sample );
+        if ( csv != null )
+        {
+            csv.println( sample.toCsv( name ) );
+            csv.flush();
+        }
+    }
+
+    /**
+     * @return the samples taken so far
+     */
+    public synchronized List<ResourceSample> getSamples()
+    {
+        return new ArrayList<ResourceSample>( samples );
+    }
+
+    /**
+     * @return the resident set size of the process read from <code>/proc/self/status</code>, -1 where it does not
+     *         exist
+     */
+    static long readRss()
+    {
+        if ( !PROC_STATUS.canRead() )
+        {
+            return -1;
+        }
+        try
+        {
+            final BufferedReader reader =
+                new BufferedReader( new InputStreamReader( new FileInputStream( PROC_STATUS ), "US-ASCII" ) );
+            try
+            {
+                String line;
+                while ( ( line = reader.readLine() ) != null )
+                {
+                    if ( line.startsWith( "VmRSS:" ) )
+                    {
+                        // VmRSS:	  123456 kB
+                        final String[] fields = line.substring( "VmRSS:".length() ).trim().split( "\\s+" );
+                        return Long.parseLong( fields[0] ) * 1024;
+                    }
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            // unknown
+        }
+        catch ( NumberFormatException e )
+        {
+            // unknown
+        }
+        return -1;
+    }
+
+}
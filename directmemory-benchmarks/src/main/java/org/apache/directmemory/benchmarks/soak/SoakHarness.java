@@ -0,0 +1,219 @@
+package org.apache.directmemory.benchmarks.soak;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directmemory.benchmarks.workload.CacheTarget;
+import org.apache.directmemory.benchmarks.workload.LatencyHistogram;
+import org.apache.directmemory.benchmarks.workload.WorkloadConfiguration;
+import org.apache.directmemory.benchmarks.workload.WorkloadDriver;
+import org.apache.directmemory.benchmarks.workload.WorkloadStatistics;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+/**
+ * Runs the same {@link WorkloadDriver} workload against several targets one after the other, by default the
+ * <code>heap</code> map baseline then the <code>embedded</code> DirectMemory cache, while sampling the garbage
+ * collection pauses, the heap occupancy, the resident set size and the direct buffers usage. Once every target has
+ * run, a comparison report is printed.
+ * <p>
+ * The settings are the ones of {@link WorkloadConfiguration}, the <code>target</code> being replaced by :
+ * <table>
+ * <tr><th>property</th><th>default</th><th>meaning</th></tr>
+ * <tr><td>targets</td><td>heap,embedded</td><td>comma separated targets run one after the other</td></tr>
+ * <tr><td>sampleInterval</td><td>10</td><td>seconds between two resource samples</td></tr>
+ * <tr><td>sampleFile</td><td></td><td>CSV file the resource samples of every target are also appended to</td></tr>
+ * </table>
+ * A full garbage collection is requested between two targets, but what the previous target left in the heap, the
+ * JIT compilation and the heap sizing still carry over : for runs of several hours, prefer running every target in
+ * its own JVM, with the same heap settings, and append their samples to the same file. For instance
+ * <code>java -Xmx4g -XX:MaxDirectMemorySize=4g -cp target/benchmarks.jar
+ * org.apache.directmemory.benchmarks.soak.SoakHarness duration=14400 recordCount=2000000 valueSize=128-8192
+ * bufferSize=1073741824 numberOfBuffers=2 sampleFile=soak.csv</code>
+ */
+public class SoakHarness
+{
+
+    private final Properties properties;
+
+    private final List<String> targets = new ArrayList<String>();
+
+    private final long sampleInterval;
+
+    private final String sampleFile;
+
+    private final PrintStream out;
+
+    public SoakHarness( Properties properties, PrintStream out )
+    {
+        this.properties = properties;
+        this.out = out;
+        for ( String target : properties.getProperty( "targets", WorkloadConfiguration.HEAP + ","
+            + WorkloadConfiguration.EMBEDDED ).split( "," ) )
+        {
+            if ( target.trim().length() > 0 )
+            {
+                targets.add( target.trim() );
+            }
+        }
+        sampleInterval = Long.parseLong( properties.getProperty( "sampleInterval", "10" ) );
+        sampleFile = properties.getProperty( "sampleFile" );
+
+        checkArgument( !targets.isEmpty(), "At least one target must be given" );
+        checkArgument( sampleInterval > 0, "The sample interval must be positive" );
+    }
+
+    public static void main( String[] args )
+        throws Exception
+    {
+        new SoakHarness( WorkloadDriver.parseArguments( args ), System.out ).run();
+    }
+
+    /**
+     * Runs every target then prints the comparison report.
+     *
+     * @return the results of the targets, in the order they ran
+     */
+    public List<SoakResult> run()
+        throws Exception
+    {
+        // the samples are appended, so that the runs of several JVMs end up in the same file
+        final boolean header = sampleFile != null && new File( sampleFile ).length() == 0;
+        final PrintStream csv =
+            sampleFile != null ? new PrintStream( new FileOutputStream( sampleFile, true ), false, "UTF-8" ) : null;
+        final List<SoakResult> results = new ArrayList<SoakResult>();
+        try
+        {
+            if ( header )
+            {
+                csv.println( ResourceSample.CSV_HEADER );
+            }
+            for ( String target : targets )
+            {
+                results.add( soak( target, csv ) );
+            }
+        }
+        finally
+        {
+            if ( csv != null )
+            {
+                csv.close();
+            }
+        }
+
+        report( results, out );
+        return results;
+    }
+
+    private SoakResult soak( String name, PrintStream csv )
+        throws Exception
+    {
+        final Properties targetProperties = new Properties();
+        targetProperties.putAll( properties );
+        targetProperties.setProperty( "target", name );
+        final WorkloadConfiguration configuration = WorkloadConfiguration.fromProperties( targetProperties );
+
+        settle();
+
+        final GcPauseMonitor gcPauses = new GcPauseMonitor();
+        final CacheTarget target = WorkloadDriver.newTarget( configuration );
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try
+        {
+            final ResourceSampler sampler = new ResourceSampler( name, target, gcPauses, out, csv );
+            sampler.start();
+            sampler.run();
+            scheduler.scheduleAtFixedRate( sampler, sampleInterval, sampleInterval, TimeUnit.SECONDS );
+
+            final long start = System.nanoTime();
+            final WorkloadStatistics statistics = new WorkloadDriver( configuration, target, out ).run();
+            final long elapsed = System.nanoTime() - start;
+
+            scheduler.shutdown();
+            scheduler.awaitTermination( Long.MAX_VALUE, TimeUnit.SECONDS );
+            sampler.run();
+
+            return new SoakResult( name, elapsed, statistics, gcPauses.getPauses(), gcPauses.getTotalPauseMillis(),
+                                   sampler.getSamples() );
+        }
+        finally
+        {
+            scheduler.shutdownNow();
+            target.close();
+            gcPauses.close();
+        }
+    }
+
+    /**
+     * Collects the garbage left by the previous target, so that it is not accounted to the next one.
+     */
+    private static void settle()
+        throws InterruptedException
+    {
+        for ( int i = 0; i < 3; i++ )
+        {
+            System.gc();
+            Thread.sleep( 100 );
+        }
+    }
+
+    /**
+     * Prints one line per target : throughput, 99th percentile latency, garbage collection pauses and peak memory
+     * footprint.
+     */
+    public static void report( List<SoakResult> results, PrintStream out )
+    {
+        out.println( format( "%-10s %12s %10s %8s %10s %7s %9s %9s %9s %10s %10s %10s", "target", "ops/s",
+                             "p99(us)", "pauses", "pause(ms)", "gc(%)", "p50(ms)", "p99(ms)", "max(ms)",
+                             "heap(MB)", "rss(MB)", "direct(MB)" ) );
+        for ( SoakResult result : results )
+        {
+            final LatencyHistogram pauses = result.getGcPauses();
+            out.println( format( "%-10s %12.0f %10.1f %8d %10d %7.3f %9d %9d %9d %10s %10s %10s", result.getTarget(),
+                                 result.getOpsPerSecond(), result.getP99Latency() / 1e3d, pauses.getCount(),
+                                 result.getGcPauseMillis(), 100 * result.getGcOverhead(),
+                                 millis( pauses.getValueAtPercentile( 50 ) ),
+                                 millis( pauses.getValueAtPercentile( 99 ) ), millis( pauses.getMax() ),
+                                 megabytes( result.getMaxHeapUsed() ), megabytes( result.getMaxRss() ),
+                                 megabytes( result.getMaxDirectUsed() ) ) );
+        }
+    }
+
+    private static long millis( long nanos )
+    {
+        return TimeUnit.NANOSECONDS.toMillis( nanos );
+    }
+
+    private static String megabytes( long bytes )
+    {
+        return bytes < 0 ? "n/a" : Long.toString( bytes >> 20 );
+    }
+
+}
@@ -0,0 +1,142 @@
+package org.apache.directmemory.benchmarks.soak;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+
+import org.apache.directmemory.benchmarks.workload.LatencyHistogram;
+import org.apache.directmemory.benchmarks.workload.Operation;
+import org.apache.directmemory.benchmarks.workload.WorkloadStatistics;
+
+/**
+ * Outcome of the soak run of one target : the workload statistics, the garbage collection pauses and the resource
+ * samples.
+ */
+public final class SoakResult
+{
+
+    private final String target;
+
+    private final long elapsedNanos;
+
+    private final WorkloadStatistics statistics;
+
+    private final LatencyHistogram gcPauses;
+
+    private final long gcPauseMillis;
+
+    private final List<ResourceSample> samples;
+
+    SoakResult( String target, long elapsedNanos, WorkloadStatistics statistics, LatencyHistogram gcPauses,
+                long gcPauseMillis, List<ResourceSample> samples )
+    {
+        this.target = target;
+        this.elapsedNanos = elapsedNanos;
+        this.statistics = statistics;
+        this.gcPauses = gcPauses;
+        this.gcPauseMillis = gcPauseMillis;
+        this.samples = samples;
+    }
+
+    public String getTarget()
+    {
+        return target;
+    }
+
+    public WorkloadStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    public double getOpsPerSecond()
+    {
+        return statistics.getOperations() * 1e9d / elapsedNanos;
+    }
+
+    /**
+     * @return the 99th percentile latency of the operations, in nanoseconds
+     */
+    public long getP99Latency()
+    {
+        final LatencyHistogram latencies = new LatencyHistogram();
+        for ( Operation operation : Operation.values() )
+        {
+            latencies.add( statistics.getLatencies( operation ) );
+        }
+        return latencies.getValueAtPercentile( 99 );
+    }
+
+    /**
+     * @return the garbage collection pauses of the run, in nanoseconds with a millisecond resolution
+     */
+    public LatencyHistogram getGcPauses()
+    {
+        return gcPauses;
+    }
+
+    public long getGcPauseMillis()
+    {
+        return gcPauseMillis;
+    }
+
+    /**
+     * @return the share of the run spent in garbage collection pauses
+     */
+    public double getGcOverhead()
+    {
+        return gcPauseMillis * 1e6d / elapsedNanos;
+    }
+
+    public List<ResourceSample> getSamples()
+    {
+        return samples;
+    }
+
+    public long getMaxHeapUsed()
+    {
+        long max = -1;
+        for ( ResourceSample sample : samples )
+        {
+            max = Math.max( max, sample.getHeapUsed() );
+        }
+        return max;
+    }
+
+    public long getMaxRss()
+    {
+        long max = -1;
+        for ( ResourceSample sample : samples )
+        {
+            max = Math.max( max, sample.getRss() );
+        }
+        return max;
+    }
+
+    public long getMaxDirectUsed()
+    {
+        long max = -1;
+        for ( ResourceSample sample : samples )
+        {
+            max = Math.max( max, sample.getDirectUsed() );
+        }
+        return max;
+    }
+
+}
@@ -0,0 +1,326 @@
+package org.apache.directmemory.benchmarks.trace;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.benchmarks.workload.LatencyHistogram;
+import org.apache.directmemory.benchmarks.workload.Operation;
+import org.apache.directmemory.benchmarks.workload.WorkloadDriver;
+import org.apache.directmemory.benchmarks.workload.WorkloadStatistics;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.cache.trace.TraceReader;
+import org.apache.directmemory.cache.trace.TraceRecord;
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.memory.FragmentationStatistics;
+import org.apache.directmemory.memory.MemoryManagerService;
+import org.apache.directmemory.memory.MemoryManagerServiceImpl;
+import org.apache.directmemory.memory.Pointer;
+import org.apache.directmemory.memory.UnsafeMemoryManagerServiceImpl;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+/**
+ * Replays a trace recorded by {@link org.apache.directmemory.cache.trace.TracingCacheService} against a
+ * {@link CacheService}, the key hashes of the trace being used as keys and zero filled values of the recorded sizes
+ * as values. Every <code>reportEvery</code> records, and at the end of the trace, the hit ratio, the latency
+ * percentiles and the memory efficiency, that is the share of the allocated off-heap memory holding payload, are
+ * printed, so that buffer sizes, allocators and eviction settings can be compared on real access patterns.
+ * <p>
+ * The trace is replayed as fast as possible by default, or at <code>speed</code> times the recorded pace, the times
+ * to live being divided by the speed too.
+ * <p>
+ * Every argument is either a <code>name=value</code> setting or the path of a properties file :
+ * <table>
+ * <tr><th>property</th><th>default</th><th>meaning</th></tr>
+ * <tr><td>trace</td><td></td><td>trace file to replay</td></tr>
+ * <tr><td>speed</td><td>0</td><td>replay pace relative to the recorded one, 0 for as fast as possible</td></tr>
+ * <tr><td>reportEvery</td><td>1000000</td><td>records between two progress reports</td></tr>
+ * <tr><td>memoryManager</td><td>default</td><td><code>default</code> or <code>unsafe</code> memory manager</td></tr>
+ * <tr><td>numberOfBuffers</td><td>1</td><td>number of buffers of the cache</td></tr>
+ * <tr><td>bufferSize</td><td>256 MB</td><td>size in bytes of each buffer</td></tr>
+ * <tr><td>initialCapacity</td><td>100000</td><td>initial capacity of the key map</td></tr>
+ * <tr><td>disposalTime</td><td>10000</td><td>milliseconds between two collections of the expired and least
+ * frequently used entries</td></tr>
+ * </table>
+ */
+public class TraceReplayer
+{
+
+    private static final double[] PERCENTILES = { 50, 99, 99.9 };
+
+    private final CacheService<Integer, byte[]> cache;
+
+    private final double speed;
+
+    private final long reportEvery;
+
+    private final PrintStream out;
+
+    /**
+     * @param speed replay pace relative to the recorded one, 0 for as fast as possible
+     * @param reportEvery records between two progress reports
+     */
+    public TraceReplayer( CacheService<Integer, byte[]> cache, double speed, long reportEvery, PrintStream out )
+    {
+        checkArgument( speed >= 0, "The speed can not be negative" );
+        checkArgument( reportEvery > 0, "The number of records between two reports must be positive" );
+
+        this.cache = cache;
+        this.speed = speed;
+        this.reportEvery = reportEvery;
+        this.out = out;
+    }
+
+    public static void main( String[] args )
+        throws Exception
+    {
+        final Properties properties = WorkloadDriver.parseArguments( args );
+        final String trace = properties.getProperty( "trace" );
+        checkArgument( trace != null, "The trace to replay must be given" );
+
+        final CacheService<Integer, byte[]> cache = new DirectMemory<Integer, byte[]>()
+            .setMemoryManager( newMemoryManager( properties.getProperty( "memoryManager", "default" ) ) )
+            .setNumberOfBuffers( Integer.parseInt( properties.getProperty( "numberOfBuffers", "1" ) ) )
+            .setSize( Long.parseLong( properties.getProperty( "bufferSize", Integer.toString( Ram.Mb( 256 ) ) ) ) )
+            .setInitialCapacity( Integer.parseInt( properties.getProperty( "initialCapacity", "100000" ) ) )
+            .setDisposalTime( Long.parseLong( properties.getProperty( "disposalTime", "10000" ) ) )
+            .newCacheService();
+        try
+        {
+            final TraceReader reader = new TraceReader( new File( trace ) );
+            try
+            {
+                new TraceReplayer( cache, Double.parseDouble( properties.getProperty( "speed", "0" ) ),
+                                   Long.parseLong( properties.getProperty( "reportEvery", "1000000" ) ),
+                                   System.out ).replay( reader );
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        finally
+        {
+            cache.close();
+        }
+    }
+
+    private static MemoryManagerService<byte[]> newMemoryManager( String memoryManager )
+    {
+        if ( "default".equals( memoryManager ) )
+        {
+            return new MemoryManagerServiceImpl<byte[]>();
+        }
+        if ( "unsafe".equals( memoryManager ) )
+        {
+            return new UnsafeMemoryManagerServiceImpl<byte[]>();
+        }
+        throw new IllegalArgumentException( format( "Unknown memory manager '%s'", memoryManager ) );
+    }
+
+    /**
+     * Replays every record of the trace.
+     *
+     * @return the statistics of the whole replay, the gets being counted as reads, the puts as writes and the frees
+     *         as deletes
+     */
+    public WorkloadStatistics replay( TraceReader reader )
+        throws IOException
+    {
+        final WorkloadStatistics statistics = new WorkloadStatistics();
+        WorkloadStatistics previous = new WorkloadStatistics();
+
+        final TraceRecord record = new TraceRecord();
+        byte[] values = new byte[0];
+
+        final long start = System.nanoTime();
+        long previousReport = start;
+        long records = 0;
+        while ( reader.next( record ) )
+        {
+            if ( speed > 0 )
+            {
+                pace( start, record.getTimestamp() );
+            }
+
+            final Integer key = record.getKeyHash();
+            switch ( record.getOperation() )
+            {
+                case PUT:
+                {
+                    if ( values.length < record.getValueSize() )
+                    {
+                        values = new byte[Math.max( record.getValueSize(), values.length * 2 )];
+                    }
+                    // the written value is prepared before the operation is timed
+                    final byte[] value = Arrays.copyOf( values, record.getValueSize() );
+                    final long expiresIn = speed > 0 ? (long) ( record.getExpiresIn() / speed ) : record.getExpiresIn();
+
+                    final long begin = System.nanoTime();
+                    final Pointer<byte[]> pointer = cache.putByteArray( key, value, expiresIn );
+                    statistics.record( Operation.WRITE, System.nanoTime() - begin );
+                    if ( pointer == null )
+                    {
+                        statistics.failure();
+                    }
+                    break;
+                }
+                case GET:
+                {
+                    final long begin = System.nanoTime();
+                    final byte[] value = cache.retrieveByteArray( key );
+                    statistics.record( Operation.READ, System.nanoTime() - begin );
+                    if ( value != null )
+                    {
+                        statistics.hit();
+                    }
+                    else
+                    {
+                        statistics.miss();
+                    }
+                    break;
+                }
+                case FREE:
+                {
+                    final long begin = System.nanoTime();
+                    cache.free( key );
+                    statistics.record( Operation.DELETE, System.nanoTime() - begin );
+                    break;
+                }
+                default:
+                    throw new IllegalStateException( "Unknown operation " + record.getOperation() );
+            }
+
+            if ( ++records % reportEvery == 0 )
+            {
+                final long now = System.nanoTime();
+                report( records, statistics.since( previous ), now - previousReport );
+                previous = copy( statistics );
+                previousReport = now;
+            }
+        }
+
+        final long elapsed = System.nanoTime() - start;
+        out.println( format( "Replayed %d records in %.1f s (%.0f ops/s) : hit ratio %.4f, %d failed puts", records,
+                             elapsed / 1e9d, records * 1e9d / Math.max( 1, elapsed ), statistics.getHitRatio(),
+                             statistics.getFailures() ) );
+        for ( Operation operation : Operation.values() )
+        {
+            final LatencyHistogram latencies = statistics.getLatencies( operation );
+            if ( latencies.getCount() > 0 )
+            {
+                out.println( format( "  %-6s %10d ops %s", operation, latencies.getCount(), latencies( latencies ) ) );
+            }
+        }
+        out.println( format( "  memory %s", memory() ) );
+        return statistics;
+    }
+
+    private void pace( long start, long timestampMicros )
+    {
+        final long due = start + (long) ( TimeUnit.MICROSECONDS.toNanos( timestampMicros ) / speed );
+        long wait;
+        while ( ( wait = due - System.nanoTime() ) > 0 )
+        {
+            LockSupport.parkNanos( wait );
+        }
+    }
+
+    private static WorkloadStatistics copy( WorkloadStatistics statistics )
+    {
+        final WorkloadStatistics copy = new WorkloadStatistics();
+        copy.add( statistics );
+        return copy;
+    }
+
+    private void report( long records, WorkloadStatistics interval, long intervalNanos )
+    {
+        final StringBuilder line = new StringBuilder( format( "%12d records %10.0f ops/s | hit %.4f", records,
+                                                              interval.getOperations() * 1e9d / intervalNanos,
+                                                              interval.getHitRatio() ) );
+        for ( Operation operation : Operation.values() )
+        {
+            final LatencyHistogram latencies = interval.getLatencies( operation );
+            if ( latencies.getCount() > 0 )
+            {
+                line.append( format( " | %s %s", operation.name().toLowerCase(), latencies( latencies ) ) );
+            }
+        }
+        line.append( " | " ).append( memory() );
+        out.println( line );
+    }
+
+    private String memory()
+    {
+        final MemoryManagerService<byte[]> memoryManager = cache.getMemoryManager();
+        final FragmentationStatistics fragmentation = memoryManager.getFragmentationStatistics();
+        final long allocated = fragmentation.getCapacity() - fragmentation.getFreeCapacity();
+        return format( "%d entries, %d/%d MB allocated (%.1f%%), efficiency %.4f, fragmentation %.4f, %d expired, "
+                           + "%d evicted", cache.entries(), allocated >> 20, fragmentation.getCapacity() >> 20,
+                       100d * allocated / Math.max( 1, fragmentation.getCapacity() ), getMemoryEfficiency(),
+                       fragmentation.getFragmentation(), memoryManager.getExpiredCount(),
+                       memoryManager.getEvictedCount() );
+    }
+
+    /**
+     * @return the share of the memory allocated by the allocators of the cache which holds the payload of live
+     *         entries, lower than 1 when the allocators round the sizes up, 1 when nothing is allocated
+     */
+    public double getMemoryEfficiency()
+    {
+        final FragmentationStatistics fragmentation = cache.getMemoryManager().getFragmentationStatistics();
+        final long allocated = fragmentation.getCapacity() - fragmentation.getFreeCapacity();
+        if ( allocated <= 0 )
+        {
+            return 1;
+        }
+        long payload = 0;
+        for ( Pointer<byte[]> pointer : cache.getMap().values() )
+        {
+            if ( !pointer.isFree() )
+            {
+                payload += pointer.getSize();
+            }
+        }
+        return payload / (double) allocated;
+    }
+
+    private static String latencies( LatencyHistogram latencies )
+    {
+        final StringBuilder sb = new StringBuilder();
+        for ( double percentile : PERCENTILES )
+        {
+            sb.append( format( "p%s=%.1fus ", percentile == Math.floor( percentile ) ? Long.toString(
+                (long) percentile ) : Double.toString( percentile ), latencies.getValueAtPercentile( percentile ) / 1e3d ) );
+        }
+        sb.append( format( "max=%.1fus", latencies.getMax() / 1e3d ) );
+        return sb.toString();
+    }
+
+}
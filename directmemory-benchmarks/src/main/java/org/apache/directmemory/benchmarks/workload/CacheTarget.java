@@ -0,0 +1,61 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * The cache the workload is run against. Implementations are called concurrently by all the worker threads.
+ */
+public interface CacheTarget
+    extends Closeable
+{
+
+    /**
+     * @return the stored value, <code>null</code> if the key is not in the cache
+     */
+    byte[] get( String key )
+        throws IOException;
+
+    /**
+     * @param expiresIn time to live in milliseconds, 0 for no expiration
+     * @return <code>true</code> if the value has been stored
+     */
+    boolean put( String key, byte[] value, long expiresIn )
+        throws IOException;
+
+    /**
+     * @return <code>true</code> if the key was in the cache
+     */
+    boolean delete( String key )
+        throws IOException;
+
+    /**
+     * @return the off-heap memory used by the cache entries in bytes, -1 if unknown
+     */
+    long getOffHeapUsed();
+
+    /**
+     * @return the off-heap memory reserved by the cache in bytes, -1 if unknown
+     */
+    long getOffHeapCapacity();
+
+}
@@ -0,0 +1,112 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.memory.MemoryManagerService;
+import org.apache.directmemory.memory.MemoryManagerServiceImpl;
+import org.apache.directmemory.memory.UnsafeMemoryManagerServiceImpl;
+
+import static java.lang.String.format;
+
+/**
+ * Runs the workload against a {@link CacheService} living in the driver's JVM.
+ */
+public class EmbeddedCacheTarget
+    implements CacheTarget
+{
+
+    private final CacheService<String, Object> cacheService;
+
+    public EmbeddedCacheTarget( CacheService<String, Object> cacheService )
+    {
+        this.cacheService = cacheService;
+    }
+
+    public EmbeddedCacheTarget( WorkloadConfiguration configuration )
+    {
+        this( new DirectMemory<String, Object>()
+                  .setMemoryManager( newMemoryManager( configuration.getMemoryManager() ) )
+                  .setNumberOfBuffers( configuration.getNumberOfBuffers() )
+                  .setSize( configuration.getBufferSize() )
+                  .setInitialCapacity( (int) Math.min( Integer.MAX_VALUE, configuration.getRecordCount() ) )
+                  .setConcurrencyLevel( configuration.getThreads() )
+                  .newCacheService() );
+    }
+
+    private static MemoryManagerService<Object> newMemoryManager( String memoryManager )
+    {
+        if ( "default".equals( memoryManager ) )
+        {
+            return new MemoryManagerServiceImpl<Object>();
+        }
+        if ( "unsafe".equals( memoryManager ) )
+        {
+            return new UnsafeMemoryManagerServiceImpl<Object>();
+        }
+        throw new IllegalArgumentException( format( "Unknown memory manager '%s'", memoryManager ) );
+    }
+
+    @Override
+    public byte[] get( String key )
+    {
+        return cacheService.retrieveByteArray( key );
+    }
+
+    @Override
+    public boolean put( String key, byte[] value, long expiresIn )
+    {
+        return cacheService.putByteArray( key, value, expiresIn ) != null;
+    }
+
+    @Override
+    public boolean delete( String key )
+    {
+        if ( cacheService.getPointer( key ) == null )
+        {
+            return false;
+        }
+        cacheService.free( key );
+        return true;
+    }
+
+    @Override
+    public long getOffHeapUsed()
+    {
+        return cacheService.getMemoryManager().used();
+    }
+
+    @Override
+    public long getOffHeapCapacity()
+    {
+        return cacheService.getMemoryManager().capacity();
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        cacheService.close();
+    }
+
+}
@@ -0,0 +1,103 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * On-heap baseline : the values are kept in a {@link ConcurrentHashMap}, expiring lazily when read after their time
+ * to live, so that the garbage collector has to trace and copy them like any heap cache.
+ */
+public class HeapMapTarget
+    implements CacheTarget
+{
+
+    private final ConcurrentMap<String, Entry> map;
+
+    public HeapMapTarget( WorkloadConfiguration configuration )
+    {
+        map = new ConcurrentHashMap<String, Entry>( (int) Math.min( Integer.MAX_VALUE, configuration.getRecordCount() ),
+                                                    0.75f, configuration.getThreads() );
+    }
+
+    @Override
+    public byte[] get( String key )
+    {
+        final Entry entry = map.get( key );
+        if ( entry == null )
+        {
+            return null;
+        }
+        if ( entry.expires != 0 && entry.expires < System.currentTimeMillis() )
+        {
+            map.remove( key, entry );
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public boolean put( String key, byte[] value, long expiresIn )
+    {
+        map.put( key, new Entry( value, expiresIn > 0 ? System.currentTimeMillis() + expiresIn : 0 ) );
+        return true;
+    }
+
+    @Override
+    public boolean delete( String key )
+    {
+        return map.remove( key ) != null;
+    }
+
+    @Override
+    public long getOffHeapUsed()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getOffHeapCapacity()
+    {
+        return 0;
+    }
+
+    @Override
+    public void close()
+    {
+        map.clear();
+    }
+
+    private static final class Entry
+    {
+
+        private final byte[] value;
+
+        private final long expires;
+
+        Entry( byte[] value, long expires )
+        {
+            this.value = value;
+            this.expires = expires;
+        }
+
+    }
+
+}
@@ -0,0 +1,177 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+
+import org.apache.directmemory.serialization.StandardSerializer;
+import org.apache.directmemory.server.client.DirectMemoryClient;
+import org.apache.directmemory.server.client.DirectMemoryClientBuilder;
+import org.apache.directmemory.server.commons.DirectMemoryException;
+import org.apache.directmemory.server.commons.DirectMemoryRequest;
+import org.apache.directmemory.server.commons.DirectMemoryResponse;
+import org.apache.directmemory.server.commons.ExchangeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the workload against a DirectMemory server through the {@link DirectMemoryClient}. The off-heap usage is
+ * scraped from the metrics endpoint of the server when its url is configured.
+ */
+public class HttpCacheTarget
+    implements CacheTarget
+{
+
+    private static final String USED_METRIC = "directmemory_memory_used_bytes";
+
+    private static final String CAPACITY_METRIC = "directmemory_memory_capacity_bytes";
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final DirectMemoryClient client;
+
+    private final String metricsUrl;
+
+    public HttpCacheTarget( WorkloadConfiguration configuration )
+        throws DirectMemoryException
+    {
+        client = DirectMemoryClientBuilder.newBuilder()
+            .toHost( configuration.getHost() )
+            .onPort( configuration.getPort() )
+            .toHttpPath( configuration.getHttpPath() )
+            .withMaxConcurentConnections( configuration.getThreads() )
+            .withSerializer( new StandardSerializer() )
+            .forExchangeType( ExchangeType.JAVA_SERIALIZED_OBJECT )
+            .buildClient();
+        metricsUrl = configuration.getMetricsUrl();
+    }
+
+    @Override
+    public byte[] get( String key )
+        throws IOException
+    {
+        try
+        {
+            DirectMemoryResponse response = client.retrieve( new DirectMemoryRequest<byte[]>( key, byte[].class ) );
+            return response.isFound() ? (byte[]) response.getResponse() : null;
+        }
+        catch ( DirectMemoryException e )
+        {
+            throw new IOException( e.getMessage(), e );
+        }
+        catch ( ClassNotFoundException e )
+        {
+            throw new IOException( e.getMessage(), e );
+        }
+        catch ( InstantiationException e )
+        {
+            throw new IOException( e.getMessage(), e );
+        }
+        catch ( IllegalAccessException e )
+        {
+            throw new IOException( e.getMessage(), e );
+        }
+    }
+
+    @Override
+    public boolean put( String key, byte[] value, long expiresIn )
+        throws IOException
+    {
+        try
+        {
+            return client.put( new DirectMemoryRequest<byte[]>( key, value ).setExpiresIn( (int) expiresIn ) )
+                .isStored();
+        }
+        catch ( DirectMemoryException e )
+        {
+            throw new IOException( e.getMessage(), e );
+        }
+    }
+
+    @Override
+    public boolean delete( String key )
+        throws IOException
+    {
+        try
+        {
+            return client.delete( new DirectMemoryRequest<byte[]>( key ) ).isDeleted();
+        }
+        catch ( DirectMemoryException e )
+        {
+            throw new IOException( e.getMessage(), e );
+        }
+    }
+
+    @Override
+    public long getOffHeapUsed()
+    {
+        return scrape( USED_METRIC );
+    }
+
+    @Override
+    public long getOffHeapCapacity()
+    {
+        return scrape( CAPACITY_METRIC );
+    }
+
+    private long scrape( String metric )
+    {
+        if ( metricsUrl == null )
+        {
+            return -1;
+        }
+
+        try
+        {
+            final BufferedReader reader =
+                new BufferedReader( new InputStreamReader( new URL( metricsUrl ).openStream(), "UTF-8" ) );
+            try
+            {
+                String line;
+                while ( ( line = reader.readLine() ) != null )
+                {
+                    if ( line.startsWith( metric + " " ) )
+                    {
+                        return (long) Double.parseDouble( line.substring( metric.length() + 1 ).trim() );
+                    }
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            logger.warn( "Could not read the metrics from {} : {}", metricsUrl, e.getMessage() );
+        }
+        return -1;
+    }
+
+    @Override
+    public void close()
+    {
+        // the client does not hold resources to release
+    }
+
+}
@@ -0,0 +1,209 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+/**
+ * Chooses the index of the key targeted by the next operation, among the <code>keyCount</code> keys inserted so far.
+ * Implementations are immutable and can be shared by all the worker threads, each of them giving its own
+ * {@link Random}.
+ */
+public abstract class KeyChooser
+{
+
+    public static final String UNIFORM = "uniform";
+
+    public static final String ZIPFIAN = "zipfian";
+
+    public static final String LATEST = "latest";
+
+    /**
+     * @param random the random source of the calling thread
+     * @param keyCount the number of keys inserted so far, at least the record count the chooser was created with
+     * @return a key index in <code>[0, keyCount)</code>
+     */
+    public abstract long nextKey( Random random, long keyCount );
+
+    /**
+     * @return <code>true</code> if the writes of the workload should insert new keys rather than update existing ones
+     */
+    public boolean isInserting()
+    {
+        return false;
+    }
+
+    /**
+     * @param name one of {@link #UNIFORM}, {@link #ZIPFIAN} or {@link #LATEST}
+     * @param recordCount number of keys loaded before running the workload
+     * @param zipfianConstant skew of the zipfian and latest distributions
+     */
+    public static KeyChooser newKeyChooser( String name, long recordCount, double zipfianConstant )
+    {
+        if ( UNIFORM.equals( name ) )
+        {
+            return new UniformKeyChooser();
+        }
+        if ( ZIPFIAN.equals( name ) )
+        {
+            return new ZipfianKeyChooser( recordCount, zipfianConstant, true );
+        }
+        if ( LATEST.equals( name ) )
+        {
+            return new LatestKeyChooser( new ZipfianKeyChooser( recordCount, zipfianConstant, false ) );
+        }
+        throw new IllegalArgumentException( format( "Unknown key distribution '%s'", name ) );
+    }
+
+    /**
+     * Every key has the same probability to be chosen.
+     */
+    static class UniformKeyChooser
+        extends KeyChooser
+    {
+
+        @Override
+        public long nextKey( Random random, long keyCount )
+        {
+            return ( random.nextLong() >>> 1 ) % keyCount;
+        }
+
+    }
+
+    /**
+     * Zipfian distribution of the first <code>itemCount</code> keys, following "Quickly Generating Billion-Record
+     * Synthetic Databases" (Gray et al, SIGMOD 1994). Key 0 is the most popular unless the ranks are scrambled, in
+     * which case the popular keys are spread over the key space rather than being clustered at its beginning.
+     */
+    static class ZipfianKeyChooser
+        extends KeyChooser
+    {
+
+        private static final long FNV_OFFSET_BASIS_64 = 0xCBF29CE484222325L;
+
+        private static final long FNV_PRIME_64 = 1099511628211L;
+
+        private final long itemCount;
+
+        private final double theta;
+
+        private final double zetan;
+
+        private final double alpha;
+
+        private final double eta;
+
+        private final boolean scrambled;
+
+        ZipfianKeyChooser( long itemCount, double theta, boolean scrambled )
+        {
+            checkArgument( itemCount > 0, "The item count must be positive" );
+            checkArgument( theta > 0 && theta < 1, "The zipfian constant must be in ]0, 1[" );
+
+            this.itemCount = itemCount;
+            this.theta = theta;
+            this.scrambled = scrambled;
+
+            zetan = zeta( itemCount, theta );
+            alpha = 1d / ( 1d - theta );
+            eta = ( 1d - Math.pow( 2d / itemCount, 1d - theta ) ) / ( 1d - zeta( 2, theta ) / zetan );
+        }
+
+        private static double zeta( long n, double theta )
+        {
+            double sum = 0;
+            for ( long i = 1; i <= n; i++ )
+            {
+                sum += 1d / Math.pow( i, theta );
+            }
+            return sum;
+        }
+
+        /**
+         * @return the rank of the chosen item, 0 being the most popular one
+         */
+        long nextRank( Random random )
+        {
+            final double u = random.nextDouble();
+            final double uz = u * zetan;
+
+            if ( uz < 1d )
+            {
+                return 0;
+            }
+            if ( uz < 1d + Math.pow( 0.5d, theta ) )
+            {
+                return Math.min( 1, itemCount - 1 );
+            }
+            return Math.min( (long) ( itemCount * Math.pow( eta * u - eta + 1d, alpha ) ), itemCount - 1 );
+        }
+
+        @Override
+        public long nextKey( Random random, long keyCount )
+        {
+            final long rank = nextRank( random );
+            return scrambled ? ( fnvHash( rank ) >>> 1 ) % itemCount : rank;
+        }
+
+        private static long fnvHash( long value )
+        {
+            long hash = FNV_OFFSET_BASIS_64;
+            for ( int i = 0; i < 8; i++ )
+            {
+                hash ^= ( value >>> ( i * 8 ) ) & 0xFF;
+                hash *= FNV_PRIME_64;
+            }
+            return hash;
+        }
+
+    }
+
+    /**
+     * The most recently inserted keys are the most popular ones, the writes inserting new keys.
+     */
+    static class LatestKeyChooser
+        extends KeyChooser
+    {
+
+        private final ZipfianKeyChooser recency;
+
+        LatestKeyChooser( ZipfianKeyChooser recency )
+        {
+            this.recency = recency;
+        }
+
+        @Override
+        public long nextKey( Random random, long keyCount )
+        {
+            return Math.max( 0, keyCount - 1 - recency.nextRank( random ) );
+        }
+
+        @Override
+        public boolean isInserting()
+        {
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,153 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Log-linear histogram of latencies in nanoseconds : every power of two range is split in
+ * {@value #SUB_BUCKET_COUNT} buckets, so the reported percentiles are within about 3% of the recorded values. The
+ * latencies can be recorded by a thread while another one copies the histogram.
+ */
+public final class LatencyHistogram
+{
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    static final int BUCKET_COUNT = ( 64 - SUB_BUCKET_BITS ) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKET_COUNT );
+
+    static int bucketOf( long value )
+    {
+        if ( value < SUB_BUCKET_COUNT )
+        {
+            return (int) Math.max( 0, value );
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros( value );
+        final int shift = exponent - SUB_BUCKET_BITS;
+        return ( shift + 1 ) * SUB_BUCKET_COUNT + (int) ( ( value >>> shift ) - SUB_BUCKET_COUNT );
+    }
+
+    /**
+     * @return the highest value counted in the given bucket
+     */
+    static long highestValueOf( int bucket )
+    {
+        if ( bucket < SUB_BUCKET_COUNT )
+        {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKET_COUNT - 1;
+        final long lowest = (long) ( SUB_BUCKET_COUNT + bucket % SUB_BUCKET_COUNT ) << shift;
+        return lowest + ( 1L << shift ) - 1;
+    }
+
+    public void record( long nanos )
+    {
+        counts.incrementAndGet( bucketOf( nanos ) );
+    }
+
+    /**
+     * Adds the counts of the given histogram to this one.
+     */
+    public void add( LatencyHistogram other )
+    {
+        for ( int i = 0; i < BUCKET_COUNT; i++ )
+        {
+            final long count = other.counts.get( i );
+            if ( count != 0 )
+            {
+                counts.addAndGet( i, count );
+            }
+        }
+    }
+
+    /**
+     * @return a new histogram holding the values recorded in this one and not in the given previous copy
+     */
+    public LatencyHistogram since( LatencyHistogram previous )
+    {
+        final LatencyHistogram interval = new LatencyHistogram();
+        for ( int i = 0; i < BUCKET_COUNT; i++ )
+        {
+            interval.counts.set( i, counts.get( i ) - previous.counts.get( i ) );
+        }
+        return interval;
+    }
+
+    public long getCount()
+    {
+        long count = 0;
+        for ( int i = 0; i < BUCKET_COUNT; i++ )
+        {
+            count += counts.get( i );
+        }
+        return count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the latency in nanoseconds below which the given percentage of the recorded latencies fall, 0 if
+     *         nothing has been recorded
+     */
+    public long getValueAtPercentile( double percentile )
+    {
+        checkArgument( percentile >= 0 && percentile <= 100, "The percentile must be between 0 and 100" );
+
+        final long count = getCount();
+        if ( count == 0 )
+        {
+            return 0;
+        }
+
+        final long rank = Math.max( 1, (long) Math.ceil( percentile / 100d * count ) );
+        long seen = 0;
+        for ( int i = 0; i < BUCKET_COUNT; i++ )
+        {
+            seen += counts.get( i );
+            if ( seen >= rank )
+            {
+                return highestValueOf( i );
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return the highest recorded latency in nanoseconds, 0 if nothing has been recorded
+     */
+    public long getMax()
+    {
+        for ( int i = BUCKET_COUNT - 1; i >= 0; i-- )
+        {
+            if ( counts.get( i ) != 0 )
+            {
+                return highestValueOf( i );
+            }
+        }
+        return 0;
+    }
+
+}
@@ -0,0 +1,176 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+/**
+ * Weighted mix of constant values and uniform ranges, used for the value sizes and the time to live of the written
+ * entries. The specification is a comma separated list of <code>value[:weight]</code> or
+ * <code>min-max[:weight]</code> items, the weight defaulting to 1, for instance :
+ * <ul>
+ * <li><code>1024</code> : always 1024</li>
+ * <li><code>128-4096</code> : uniformly distributed between 128 and 4096, both included</li>
+ * <li><code>0:70,60000:20,1000-5000:10</code> : 0 for 70% of the values, 60000 for 20% of them and between 1000 and
+ * 5000 for the remaining ones</li>
+ * </ul>
+ */
+public final class LongDistribution
+{
+
+    private final String specification;
+
+    private final long[] lows;
+
+    private final long[] highs;
+
+    private final long[] cumulativeWeights;
+
+    private LongDistribution( String specification, long[] lows, long[] highs, long[] cumulativeWeights )
+    {
+        this.specification = specification;
+        this.lows = lows;
+        this.highs = highs;
+        this.cumulativeWeights = cumulativeWeights;
+    }
+
+    public static LongDistribution parse( String specification )
+    {
+        final String[] items = specification.trim().split( "," );
+
+        final long[] lows = new long[items.length];
+        final long[] highs = new long[items.length];
+        final long[] cumulativeWeights = new long[items.length];
+
+        long totalWeight = 0;
+        for ( int i = 0; i < items.length; i++ )
+        {
+            String item = items[i].trim();
+            long weight = 1;
+
+            final int colon = item.indexOf( ':' );
+            if ( colon >= 0 )
+            {
+                weight = parseLong( item.substring( colon + 1 ), specification );
+                item = item.substring( 0, colon );
+            }
+
+            final int dash = item.indexOf( '-', 1 );
+            if ( dash >= 0 )
+            {
+                lows[i] = parseLong( item.substring( 0, dash ), specification );
+                highs[i] = parseLong( item.substring( dash + 1 ), specification );
+            }
+            else
+            {
+                lows[i] = parseLong( item, specification );
+                highs[i] = lows[i];
+            }
+
+            checkArgument( lows[i] >= 0 && lows[i] <= highs[i], "Invalid range '%s' in '%s'", items[i],
+                           specification );
+            checkArgument( weight > 0, "Invalid weight '%s' in '%s'", items[i], specification );
+
+            totalWeight += weight;
+            cumulativeWeights[i] = totalWeight;
+        }
+
+        return new LongDistribution( specification, lows, highs, cumulativeWeights );
+    }
+
+    private static long parseLong( String value, String specification )
+    {
+        try
+        {
+            return Long.parseLong( value.trim() );
+        }
+        catch ( NumberFormatException e )
+        {
+            throw new IllegalArgumentException( format( "Invalid number '%s' in '%s'", value, specification ), e );
+        }
+    }
+
+    public long next( Random random )
+    {
+        int item = 0;
+        if ( cumulativeWeights.length > 1 )
+        {
+            final long choice = ( random.nextLong() >>> 1 ) % cumulativeWeights[cumulativeWeights.length - 1];
+            while ( choice >= cumulativeWeights[item] )
+            {
+                item++;
+            }
+        }
+
+        final long range = highs[item] - lows[item];
+        return range == 0 ? lows[item] : lows[item] + ( random.nextLong() >>> 1 ) % ( range + 1 );
+    }
+
+    /**
+     * @return the lowest value this distribution can return
+     */
+    public long getMin()
+    {
+        long min = Long.MAX_VALUE;
+        for ( long low : lows )
+        {
+            min = Math.min( min, low );
+        }
+        return min;
+    }
+
+    /**
+     * @return the mean of the values this distribution returns
+     */
+    public double getMean()
+    {
+        double mean = 0;
+        long previousWeight = 0;
+        for ( int i = 0; i < lows.length; i++ )
+        {
+            mean += ( cumulativeWeights[i] - previousWeight ) * ( lows[i] + highs[i] ) / 2d;
+            previousWeight = cumulativeWeights[i];
+        }
+        return mean / cumulativeWeights[cumulativeWeights.length - 1];
+    }
+
+    /**
+     * @return the highest value this distribution can return
+     */
+    public long getMax()
+    {
+        long max = 0;
+        for ( long high : highs )
+        {
+            max = Math.max( max, high );
+        }
+        return max;
+    }
+
+    @Override
+    public String toString()
+    {
+        return specification;
+    }
+
+}
@@ -0,0 +1,292 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Properties;
+
+import org.apache.directmemory.measures.Ram;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+/**
+ * Settings of a workload run, read from properties :
+ * <table>
+ * <tr><th>property</th><th>default</th><th>meaning</th></tr>
+ * <tr><td>target</td><td>embedded</td><td><code>embedded</code> cache created by the driver, <code>http</code>
+ * server, or <code>heap</code> map baseline</td></tr>
+ * <tr><td>threads</td><td>4</td><td>number of worker threads</td></tr>
+ * <tr><td>recordCount</td><td>100000</td><td>number of keys loaded before running the workload</td></tr>
+ * <tr><td>operationCount</td><td>0</td><td>operations run by all the workers, 0 to only stop after the
+ * duration</td></tr>
+ * <tr><td>duration</td><td>60</td><td>maximum duration of the run in seconds</td></tr>
+ * <tr><td>readRatio, writeRatio, deleteRatio</td><td>0.9, 0.1, 0</td><td>relative weights of the operations</td></tr>
+ * <tr><td>keyDistribution</td><td>zipfian</td><td><code>uniform</code>, <code>zipfian</code> or <code>latest</code>,
+ * the writes inserting new keys with the latter</td></tr>
+ * <tr><td>zipfianConstant</td><td>0.99</td><td>skew of the zipfian and latest distributions</td></tr>
+ * <tr><td>keyPrefix</td><td>key-</td><td>prefix of the key indexes</td></tr>
+ * <tr><td>valueSize</td><td>1024</td><td>sizes of the written values in bytes, see {@link LongDistribution}</td></tr>
+ * <tr><td>ttl</td><td>0</td><td>time to live of the written values in milliseconds, 0 for none, see
+ * {@link LongDistribution}</td></tr>
+ * <tr><td>reportInterval</td><td>10</td><td>seconds between two progress reports</td></tr>
+ * <tr><td>reportFile</td><td></td><td>CSV file the progress reports are also written to</td></tr>
+ * <tr><td>memoryManager</td><td>default</td><td><code>default</code> or <code>unsafe</code> memory manager of the
+ * embedded cache</td></tr>
+ * <tr><td>numberOfBuffers</td><td>1</td><td>number of buffers of the embedded cache</td></tr>
+ * <tr><td>bufferSize</td><td>256 MB</td><td>size in bytes of each buffer of the embedded cache</td></tr>
+ * <tr><td>host, port, httpPath</td><td>localhost, 8080, /cache</td><td>location of the http server</td></tr>
+ * <tr><td>metricsUrl</td><td></td><td>metrics endpoint of the http server, scraped for the off-heap usage</td></tr>
+ * </table>
+ */
+public final class WorkloadConfiguration
+{
+
+    public static final String EMBEDDED = "embedded";
+
+    public static final String HTTP = "http";
+
+    public static final String HEAP = "heap";
+
+    private final String target;
+
+    private final int threads;
+
+    private final long recordCount;
+
+    private final long operationCount;
+
+    private final long duration;
+
+    private final double readRatio;
+
+    private final double writeRatio;
+
+    private final double deleteRatio;
+
+    private final String keyDistribution;
+
+    private final double zipfianConstant;
+
+    private final String keyPrefix;
+
+    private final LongDistribution valueSize;
+
+    private final LongDistribution ttl;
+
+    private final long reportInterval;
+
+    private final String reportFile;
+
+    private final String memoryManager;
+
+    private final int numberOfBuffers;
+
+    private final int bufferSize;
+
+    private final String host;
+
+    private final int port;
+
+    private final String httpPath;
+
+    private final String metricsUrl;
+
+    private WorkloadConfiguration( Properties properties )
+    {
+        target = properties.getProperty( "target", EMBEDDED );
+        threads = Integer.parseInt( properties.getProperty( "threads", "4" ) );
+        recordCount = Long.parseLong( properties.getProperty( "recordCount", "100000" ) );
+        operationCount = Long.parseLong( properties.getProperty( "operationCount", "0" ) );
+        duration = Long.parseLong( properties.getProperty( "duration", "60" ) );
+        readRatio = Double.parseDouble( properties.getProperty( "readRatio", "0.9" ) );
+        writeRatio = Double.parseDouble( properties.getProperty( "writeRatio", "0.1" ) );
+        deleteRatio = Double.parseDouble( properties.getProperty( "deleteRatio", "0" ) );
+        keyDistribution = properties.getProperty( "keyDistribution", KeyChooser.ZIPFIAN );
+        zipfianConstant = Double.parseDouble( properties.getProperty( "zipfianConstant", "0.99" ) );
+        keyPrefix = properties.getProperty( "keyPrefix", "key-" );
+        valueSize = LongDistribution.parse( properties.getProperty( "valueSize", "1024" ) );
+        ttl = LongDistribution.parse( properties.getProperty( "ttl", "0" ) );
+        reportInterval = Long.parseLong( properties.getProperty( "reportInterval", "10" ) );
+        reportFile = properties.getProperty( "reportFile" );
+        memoryManager = properties.getProperty( "memoryManager", "default" );
+        numberOfBuffers = Integer.parseInt( properties.getProperty( "numberOfBuffers", "1" ) );
+        bufferSize = Integer.parseInt( properties.getProperty( "bufferSize", Integer.toString( Ram.Mb( 256 ) ) ) );
+        host = properties.getProperty( "host", "localhost" );
+        port = Integer.parseInt( properties.getProperty( "port", "8080" ) );
+        httpPath = properties.getProperty( "httpPath", "/cache" );
+        metricsUrl = properties.getProperty( "metricsUrl" );
+
+        checkArgument( EMBEDDED.equals( target ) || HTTP.equals( target ) || HEAP.equals( target ),
+                       "Unknown target '%s'", target );
+        checkArgument( threads > 0, "The number of threads must be positive" );
+        checkArgument( recordCount > 0, "The record count must be positive" );
+        checkArgument( duration > 0, "The duration must be positive" );
+        checkArgument( reportInterval > 0, "The report interval must be positive" );
+        checkArgument( readRatio >= 0 && writeRatio >= 0 && deleteRatio >= 0 && getTotalRatio() > 0,
+                       "The operation ratios must be positive, and at least one of them not zero" );
+        checkArgument( valueSize.getMax() <= Integer.MAX_VALUE, "Value sizes can not exceed %s bytes",
+                       Integer.MAX_VALUE );
+        checkArgument( ttl.getMax() <= Integer.MAX_VALUE, "Time to live can not exceed %s ms", Integer.MAX_VALUE );
+    }
+
+    public static WorkloadConfiguration fromProperties( Properties properties )
+    {
+        return new WorkloadConfiguration( properties );
+    }
+
+    private double getTotalRatio()
+    {
+        return readRatio + writeRatio + deleteRatio;
+    }
+
+    /**
+     * @param uniform a random value in <code>[0, 1)</code>
+     * @return the operation corresponding to the given value, according to the operation ratios
+     */
+    public Operation chooseOperation( double uniform )
+    {
+        final double choice = uniform * getTotalRatio();
+        if ( choice < readRatio )
+        {
+            return Operation.READ;
+        }
+        if ( choice < readRatio + writeRatio || deleteRatio == 0 )
+        {
+            return Operation.WRITE;
+        }
+        return Operation.DELETE;
+    }
+
+    public KeyChooser newKeyChooser()
+    {
+        return KeyChooser.newKeyChooser( keyDistribution, recordCount, zipfianConstant );
+    }
+
+    public String getTarget()
+    {
+        return target;
+    }
+
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    public long getRecordCount()
+    {
+        return recordCount;
+    }
+
+    public long getOperationCount()
+    {
+        return operationCount;
+    }
+
+    public long getDuration()
+    {
+        return duration;
+    }
+
+    public String getKeyPrefix()
+    {
+        return keyPrefix;
+    }
+
+    public LongDistribution getValueSize()
+    {
+        return valueSize;
+    }
+
+    public LongDistribution getTtl()
+    {
+        return ttl;
+    }
+
+    public long getReportInterval()
+    {
+        return reportInterval;
+    }
+
+    public String getReportFile()
+    {
+        return reportFile;
+    }
+
+    public String getMemoryManager()
+    {
+        return memoryManager;
+    }
+
+    public int getNumberOfBuffers()
+    {
+        return numberOfBuffers;
+    }
+
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    public String getHost()
+    {
+        return host;
+    }
+
+    public int getPort()
+    {
+        return port;
+    }
+
+    public String getHttpPath()
+    {
+        return httpPath;
+    }
+
+    public String getMetricsUrl()
+    {
+        return metricsUrl;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append( format( "target=%s threads=%d recordCount=%d operationCount=%d duration=%ds", target, threads,
+                           recordCount, operationCount, duration ) );
+        sb.append( format( " read/write/delete=%s/%s/%s keyDistribution=%s", readRatio, writeRatio, deleteRatio,
+                           keyDistribution ) );
+        if ( !KeyChooser.UNIFORM.equals( keyDistribution ) )
+        {
+            sb.append( format( " zipfianConstant=%s", zipfianConstant ) );
+        }
+        sb.append( format( " valueSize=%s ttl=%s", valueSize, ttl ) );
+        if ( EMBEDDED.equals( target ) )
+        {
+            sb.append( format( " memoryManager=%s numberOfBuffers=%d bufferSize=%d", memoryManager, numberOfBuffers,
+                               bufferSize ) );
+        }
+        else if ( HTTP.equals( target ) )
+        {
+            sb.append( format( " url=http://%s:%d%s", host, port, httpPath ) );
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,259 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+
+/**
+ * Standalone workload driver, in the spirit of YCSB : loads <code>recordCount</code> keys in the target cache, then
+ * runs a mix of reads, writes and deletes from several threads, reporting the throughput, the latency percentiles,
+ * the hit ratio and the off-heap usage every <code>reportInterval</code> seconds.
+ * <p>
+ * Every argument is either a <code>name=value</code> setting or the path of a properties file, see
+ * {@link WorkloadConfiguration} for the settings. For instance
+ * <code>java -cp target/benchmarks.jar org.apache.directmemory.benchmarks.workload.WorkloadDriver threads=8
+ * keyDistribution=latest valueSize=128-4096 ttl=0:90,5000:10</code>
+ */
+public class WorkloadDriver
+{
+
+    private final WorkloadConfiguration configuration;
+
+    private final CacheTarget target;
+
+    private final PrintStream out;
+
+    public WorkloadDriver( WorkloadConfiguration configuration, CacheTarget target, PrintStream out )
+    {
+        this.configuration = configuration;
+        this.target = target;
+        this.out = out;
+    }
+
+    public static void main( String[] args )
+        throws Exception
+    {
+        final WorkloadConfiguration configuration = WorkloadConfiguration.fromProperties( parseArguments( args ) );
+
+        final CacheTarget target = newTarget( configuration );
+        try
+        {
+            new WorkloadDriver( configuration, target, System.out ).run();
+        }
+        finally
+        {
+            target.close();
+        }
+    }
+
+    /**
+     * @return the target named by the configuration
+     */
+    public static CacheTarget newTarget( WorkloadConfiguration configuration )
+        throws Exception
+    {
+        if ( WorkloadConfiguration.HTTP.equals( configuration.getTarget() ) )
+        {
+            return new HttpCacheTarget( configuration );
+        }
+        if ( WorkloadConfiguration.HEAP.equals( configuration.getTarget() ) )
+        {
+            return new HeapMapTarget( configuration );
+        }
+        return new EmbeddedCacheTarget( configuration );
+    }
+
+    /**
+     * @param args <code>name=value</code> settings or paths of properties files
+     */
+    public static Properties parseArguments( String[] args )
+        throws IOException
+    {
+        final Properties properties = new Properties();
+        for ( String arg : args )
+        {
+            final int equals = arg.indexOf( '=' );
+            if ( equals > 0 )
+            {
+                properties.setProperty( arg.substring( 0, equals ).trim(), arg.substring( equals + 1 ).trim() );
+            }
+            else
+            {
+                final InputStream in = new FileInputStream( arg );
+                try
+                {
+                    properties.load( in );
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * Loads the records then runs the workload.
+     *
+     * @return the statistics of the whole run
+     */
+    public WorkloadStatistics run()
+        throws Exception
+    {
+        out.println( "Workload " + configuration );
+
+        load();
+
+        final AtomicBoolean running = new AtomicBoolean( true );
+        final AtomicLong keyCount = new AtomicLong( configuration.getRecordCount() );
+        final AtomicLong remainingOperations =
+            configuration.getOperationCount() > 0 ? new AtomicLong( configuration.getOperationCount() ) : null;
+        final KeyChooser keyChooser = configuration.newKeyChooser();
+
+        final List<WorkloadWorker> workers = new ArrayList<WorkloadWorker>();
+        final Random seeds = new Random();
+        for ( int i = 0; i < configuration.getThreads(); i++ )
+        {
+            workers.add( new WorkloadWorker( configuration, target, keyChooser, keyCount, remainingOperations,
+                                             running, seeds.nextLong() ) );
+        }
+
+        final PrintStream csv =
+            configuration.getReportFile() != null ? new PrintStream( new FileOutputStream( configuration.getReportFile() ),
+                                                                     false, "UTF-8" ) : null;
+        final WorkloadReporter reporter = new WorkloadReporter( target, workers, out, csv );
+
+        final ExecutorService executor = Executors.newFixedThreadPool( configuration.getThreads() );
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try
+        {
+            reporter.start();
+            for ( WorkloadWorker worker : workers )
+            {
+                executor.execute( worker );
+            }
+            scheduler.scheduleAtFixedRate( reporter, configuration.getReportInterval(),
+                                           configuration.getReportInterval(), TimeUnit.SECONDS );
+
+            executor.shutdown();
+            if ( !executor.awaitTermination( configuration.getDuration(), TimeUnit.SECONDS ) )
+            {
+                running.set( false );
+                executor.awaitTermination( Long.MAX_VALUE, TimeUnit.SECONDS );
+            }
+        }
+        finally
+        {
+            running.set( false );
+            executor.shutdownNow();
+            scheduler.shutdownNow();
+            scheduler.awaitTermination( Long.MAX_VALUE, TimeUnit.SECONDS );
+            if ( csv != null )
+            {
+                csv.close();
+            }
+        }
+
+        reporter.summary();
+
+        final WorkloadStatistics total = new WorkloadStatistics();
+        for ( WorkloadWorker worker : workers )
+        {
+            total.add( worker.getStatistics() );
+        }
+        return total;
+    }
+
+    /**
+     * Writes the <code>recordCount</code> keys, every thread loading its share of them.
+     */
+    private void load()
+        throws Exception
+    {
+        final int threads = configuration.getThreads();
+        final AtomicLong failures = new AtomicLong();
+        final long start = System.nanoTime();
+
+        final ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            final List<Future<?>> loaders = new ArrayList<Future<?>>();
+            for ( int i = 0; i < threads; i++ )
+            {
+                final int first = i;
+                loaders.add( executor.submit( new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        final Random random = new Random( first );
+                        final byte[] values = WorkloadWorker.newValues( configuration, random );
+                        for ( long key = first; key < configuration.getRecordCount(); key += threads )
+                        {
+                            try
+                            {
+                                if ( !target.put( WorkloadWorker.key( configuration, key ),
+                                                  WorkloadWorker.value( configuration, random, values ), 0 ) )
+                                {
+                                    failures.incrementAndGet();
+                                }
+                            }
+                            catch ( IOException e )
+                            {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    }
+                } ) );
+            }
+            for ( Future<?> loader : loaders )
+            {
+                loader.get();
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        final long elapsed = System.nanoTime() - start;
+        out.println( format( "Loaded %d records in %.1f s (%.0f ops/s), %d failures", configuration.getRecordCount(),
+                             elapsed / 1e9d, configuration.getRecordCount() * 1e9d / elapsed, failures.get() ) );
+    }
+
+}
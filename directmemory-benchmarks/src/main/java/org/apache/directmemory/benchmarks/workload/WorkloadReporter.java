@@ -0,0 +1,201 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.PrintStream;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Periodically prints the throughput, latency percentiles, hit ratio and off-heap usage of the operations run since
+ * the previous report, optionally writing them as CSV too. Only {@link #run()} is expected to be called concurrently
+ * with the workers.
+ */
+public class WorkloadReporter
+    implements Runnable
+{
+
+    private static final double[] PERCENTILES = { 50, 95, 99, 99.9 };
+
+    private final CacheTarget target;
+
+    private final List<WorkloadWorker> workers;
+
+    private final PrintStream out;
+
+    private final PrintStream csv;
+
+    private long startNanos;
+
+    private long previousNanos;
+
+    private WorkloadStatistics previous = new WorkloadStatistics();
+
+    /**
+     * @param csv where the CSV reports are written, <code>null</code> for none
+     */
+    public WorkloadReporter( CacheTarget target, List<WorkloadWorker> workers, PrintStream out, PrintStream csv )
+    {
+        this.target = target;
+        this.workers = workers;
+        this.out = out;
+        this.csv = csv;
+    }
+
+    /**
+     * Marks the beginning of the measured run.
+     */
+    public void start()
+    {
+        startNanos = System.nanoTime();
+        previousNanos = startNanos;
+        if ( csv != null )
+        {
+            final StringBuilder header = new StringBuilder( "elapsed_s,ops_per_s" );
+            for ( Operation operation : Operation.values() )
+            {
+                final String name = operation.name().toLowerCase();
+                header.append( ',' ).append( name ).append( "_ops" );
+                for ( double percentile : PERCENTILES )
+                {
+                    header.append( ',' ).append( name ).append( "_p" ).append( label( percentile ) ).append( "_us" );
+                }
+                header.append( ',' ).append( name ).append( "_max_us" );
+            }
+            header.append( ",hit_ratio,failures,offheap_used_bytes,offheap_capacity_bytes" );
+            csv.println( header );
+        }
+    }
+
+    @Override
+    public synchronized void run()
+    {
+        final long now = System.nanoTime();
+        final WorkloadStatistics total = total();
+        report( now, total.since( previous ), now - previousNanos );
+        previous = total;
+        previousNanos = now;
+    }
+
+    /**
+     * Prints the statistics of the whole run.
+     */
+    public synchronized void summary()
+    {
+        final long elapsed = System.nanoTime() - startNanos;
+        final WorkloadStatistics total = total();
+
+        out.println( format( "Run of %.1f s : %d operations, %.0f ops/s, hit ratio %.4f, %d failures",
+                             elapsed / 1e9d, total.getOperations(), total.getOperations() * 1e9d / elapsed,
+                             total.getHitRatio(), total.getFailures() ) );
+        for ( Operation operation : Operation.values() )
+        {
+            final LatencyHistogram latencies = total.getLatencies( operation );
+            if ( latencies.getCount() > 0 )
+            {
+                out.println( format( "  %-6s %10d ops %s", operation, latencies.getCount(), latencies( latencies ) ) );
+            }
+        }
+        out.println( format( "  off-heap %s", offHeap() ) );
+    }
+
+    private WorkloadStatistics total()
+    {
+        final WorkloadStatistics total = new WorkloadStatistics();
+        for ( WorkloadWorker worker : workers )
+        {
+            total.add( worker.getStatistics() );
+        }
+        return total;
+    }
+
+    private void report( long now, WorkloadStatistics interval, long intervalNanos )
+    {
+        final double elapsed = ( now - startNanos ) / 1e9d;
+        final double throughput = interval.getOperations() * 1e9d / intervalNanos;
+
+        final StringBuilder line = new StringBuilder( format( "%8.1f s %10.0f ops/s", elapsed, throughput ) );
+        for ( Operation operation : Operation.values() )
+        {
+            final LatencyHistogram latencies = interval.getLatencies( operation );
+            if ( latencies.getCount() > 0 )
+            {
+                line.append( format( " | %s %s", operation.name().toLowerCase(), latencies( latencies ) ) );
+            }
+        }
+        line.append( format( " | hit %.4f | failures %d | off-heap %s", interval.getHitRatio(),
+                             interval.getFailures(), offHeap() ) );
+        out.println( line );
+
+        if ( csv != null )
+        {
+            final StringBuilder row = new StringBuilder( format( "%.1f,%.0f", elapsed, throughput ) );
+            for ( Operation operation : Operation.values() )
+            {
+                final LatencyHistogram latencies = interval.getLatencies( operation );
+                row.append( ',' ).append( latencies.getCount() );
+                for ( double percentile : PERCENTILES )
+                {
+                    row.append( ',' ).append( micros( latencies.getValueAtPercentile( percentile ) ) );
+                }
+                row.append( ',' ).append( micros( latencies.getMax() ) );
+            }
+            row.append( format( ",%.4f,%d,%d,%d", interval.getHitRatio(), interval.getFailures(),
+                                target.getOffHeapUsed(), target.getOffHeapCapacity() ) );
+            csv.println( row );
+            csv.flush();
+        }
+    }
+
+    private static String latencies( LatencyHistogram latencies )
+    {
+        final StringBuilder sb = new StringBuilder();
+        for ( double percentile : PERCENTILES )
+        {
+            sb.append( format( "p%s=%sus ", label( percentile ), micros( latencies.getValueAtPercentile( percentile ) ) ) );
+        }
+        sb.append( format( "max=%sus", micros( latencies.getMax() ) ) );
+        return sb.toString();
+    }
+
+    private String offHeap()
+    {
+        final long used = target.getOffHeapUsed();
+        final long capacity = target.getOffHeapCapacity();
+        if ( used < 0 || capacity <= 0 )
+        {
+            return "n/a";
+        }
+        return format( "%d/%d MB (%.1f%%)", used >> 20, capacity >> 20, 100d * used / capacity );
+    }
+
+    private static String label( double percentile )
+    {
+        return percentile == Math.floor( percentile ) ? Long.toString( (long) percentile ) : Double.toString(
+            percentile );
+    }
+
+    private static String micros( long nanos )
+    {
+        return format( "%.1f", nanos / 1e3d );
+    }
+
+}
@@ -0,0 +1,136 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies and outcomes of the operations issued by a worker thread. Every worker records into its own instance,
+ * the reporter summing them up with {@link #add(WorkloadStatistics)}.
+ */
+public final class WorkloadStatistics
+{
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    public WorkloadStatistics()
+    {
+        for ( int i = 0; i < latencies.length; i++ )
+        {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record( Operation operation, long nanos )
+    {
+        latencies[operation.ordinal()].record( nanos );
+    }
+
+    public void hit()
+    {
+        hits.incrementAndGet();
+    }
+
+    public void miss()
+    {
+        misses.incrementAndGet();
+    }
+
+    public void failure()
+    {
+        failures.incrementAndGet();
+    }
+
+    public void add( WorkloadStatistics other )
+    {
+        for ( int i = 0; i < latencies.length; i++ )
+        {
+            latencies[i].add( other.latencies[i] );
+        }
+        hits.addAndGet( other.hits.get() );
+        misses.addAndGet( other.misses.get() );
+        failures.addAndGet( other.failures.get() );
+    }
+
+    /**
+     * @return a new instance holding what has been recorded in this one and not in the given previous copy
+     */
+    public WorkloadStatistics since( WorkloadStatistics previous )
+    {
+        final WorkloadStatistics interval = new WorkloadStatistics();
+        for ( int i = 0; i < latencies.length; i++ )
+        {
+            interval.latencies[i] = latencies[i].since( previous.latencies[i] );
+        }
+        interval.hits.set( hits.get() - previous.hits.get() );
+        interval.misses.set( misses.get() - previous.misses.get() );
+        interval.failures.set( failures.get() - previous.failures.get() );
+        return interval;
+    }
+
+    public LatencyHistogram getLatencies( Operation operation )
+    {
+        return latencies[operation.ordinal()];
+    }
+
+    /**
+     * @return the number of operations, including the failed ones
+     */
+    public long getOperations()
+    {
+        long operations = 0;
+        for ( LatencyHistogram histogram : latencies )
+        {
+            operations += histogram.getCount();
+        }
+        return operations;
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    public long getFailures()
+    {
+        return failures.get();
+    }
+
+    /**
+     * @return the ratio of reads which found their key, NaN if there was no read
+     */
+    public double getHitRatio()
+    {
+        final long reads = hits.get() + misses.get();
+        return reads == 0 ? Double.NaN : (double) hits.get() / reads;
+    }
+
+}
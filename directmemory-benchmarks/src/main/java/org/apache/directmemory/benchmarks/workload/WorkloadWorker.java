@@ -0,0 +1,174 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Issues operations against the {@link CacheTarget} until the run is stopped or the shared operation budget is
+ * exhausted, recording them in its own {@link WorkloadStatistics}. Reads are counted as hits or misses, operations
+ * throwing an exception and writes the cache could not store as failures.
+ */
+public class WorkloadWorker
+    implements Runnable
+{
+
+    private static final Logger logger = LoggerFactory.getLogger( WorkloadWorker.class );
+
+    private final WorkloadConfiguration configuration;
+
+    private final CacheTarget target;
+
+    private final KeyChooser keyChooser;
+
+    private final AtomicLong keyCount;
+
+    private final AtomicLong remainingOperations;
+
+    private final AtomicBoolean running;
+
+    private final Random random;
+
+    private final byte[] values;
+
+    private final WorkloadStatistics statistics = new WorkloadStatistics();
+
+    /**
+     * @param keyCount number of keys inserted so far, shared by all the workers
+     * @param remainingOperations operations left to all the workers, <code>null</code> for no limit
+     * @param running cleared to stop the worker
+     */
+    public WorkloadWorker( WorkloadConfiguration configuration, CacheTarget target, KeyChooser keyChooser,
+                           AtomicLong keyCount, AtomicLong remainingOperations, AtomicBoolean running, long seed )
+    {
+        this.configuration = configuration;
+        this.target = target;
+        this.keyChooser = keyChooser;
+        this.keyCount = keyCount;
+        this.remainingOperations = remainingOperations;
+        this.running = running;
+        this.random = new Random( seed );
+        this.values = newValues( configuration, random );
+    }
+
+    /**
+     * @return random bytes the written values are copied from
+     */
+    static byte[] newValues( WorkloadConfiguration configuration, Random random )
+    {
+        final byte[] values = new byte[(int) configuration.getValueSize().getMax()];
+        random.nextBytes( values );
+        return values;
+    }
+
+    static String key( WorkloadConfiguration configuration, long index )
+    {
+        return configuration.getKeyPrefix() + index;
+    }
+
+    static byte[] value( WorkloadConfiguration configuration, Random random, byte[] values )
+    {
+        return Arrays.copyOf( values, (int) configuration.getValueSize().next( random ) );
+    }
+
+    public WorkloadStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    @Override
+    public void run()
+    {
+        while ( running.get() && ( remainingOperations == null || remainingOperations.decrementAndGet() >= 0 ) )
+        {
+            final Operation operation = configuration.chooseOperation( random.nextDouble() );
+            final String key;
+            if ( operation == Operation.WRITE && keyChooser.isInserting() )
+            {
+                key = key( configuration, keyCount.getAndIncrement() );
+            }
+            else
+            {
+                key = key( configuration, keyChooser.nextKey( random, keyCount.get() ) );
+            }
+
+            // the written value is prepared before the operation is timed
+            final byte[] value = operation == Operation.WRITE ? value( configuration, random, values ) : null;
+
+            final long start = System.nanoTime();
+            try
+            {
+                execute( operation, key, value );
+            }
+            catch ( IOException e )
+            {
+                failed( operation, key, e );
+            }
+            catch ( RuntimeException e )
+            {
+                failed( operation, key, e );
+            }
+            statistics.record( operation, System.nanoTime() - start );
+        }
+    }
+
+    private void execute( Operation operation, String key, byte[] value )
+        throws IOException
+    {
+        switch ( operation )
+        {
+            case READ:
+                if ( target.get( key ) != null )
+                {
+                    statistics.hit();
+                }
+                else
+                {
+                    statistics.miss();
+                }
+                break;
+            case WRITE:
+                if ( !target.put( key, value, configuration.getTtl().next( random ) ) )
+                {
+                    statistics.failure();
+                }
+                break;
+            case DELETE:
+                target.delete( key );
+                break;
+            default:
+                throw new IllegalStateException( "Unknown operation " + operation );
+        }
+    }
+
+    private void failed( Operation operation, String key, Exception e )
+    {
+        statistics.failure();
+        logger.debug( operation + " of " + key + " failed", e );
+    }
+
+}
@@ -0,0 +1,151 @@
+package org.apache.directmemory.benchmarks.fragmentation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.directmemory.benchmarks.Allocators;
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.junit.Test;
+
+/**
+ * Churns every allocator for a million operations, checking that no block is lost and that the samples are
+ * consistent.
+ */
+public class FragmentationSimulatorTest
+{
+
+    private static final String[] ALLOCATORS = { Allocators.MERGING, Allocators.FIXED, Allocators.SLAB,
+        Allocators.UNSAFE_FIXED, Allocators.UNSAFE_LAZY, Allocators.UNSAFE_MERGING };
+
+    private static final long OPERATIONS = 1000000;
+
+    private static final long REPORT_EVERY = 250000;
+
+    private static Properties churn( String allocator, String lifetime )
+    {
+        final Properties properties = new Properties();
+        properties.setProperty( "allocator", allocator );
+        properties.setProperty( "capacity", Integer.toString( Ram.Mb( 4 ) ) );
+        properties.setProperty( "size", "16-256:80,1024-8192:20" );
+        properties.setProperty( "lifetime", lifetime );
+        properties.setProperty( "operations", Long.toString( OPERATIONS ) );
+        properties.setProperty( "reportEvery", Long.toString( REPORT_EVERY ) );
+        properties.setProperty( "seed", "42" );
+        return properties;
+    }
+
+    private static List<FragmentationSample> churn( FragmentationConfiguration configuration, boolean checkDrained )
+        throws IOException
+    {
+        final Allocator allocator = configuration.newAllocator();
+        try
+        {
+            final long initialFreeCapacity = allocator.getFreeCapacity();
+            final long initialLargestFreeBlock = allocator.getLargestFreeBlock();
+
+            final FragmentationSimulator simulator =
+                new FragmentationSimulator( configuration, allocator, new PrintStream( new ByteArrayOutputStream() ) );
+            final List<FragmentationSample> samples = simulator.run();
+
+            assertEquals( OPERATIONS / REPORT_EVERY, samples.size() );
+            for ( FragmentationSample sample : samples )
+            {
+                assertTrue( sample.getOpsPerSecond() > 0 );
+                assertTrue( sample.getUtilisation() >= 0 && sample.getUtilisation() <= 1 );
+                assertTrue( sample.getPayloadUtilisation() <= sample.getUtilisation() );
+                assertTrue( sample.getFailureRate() >= 0 && sample.getFailureRate() <= 1 );
+                assertTrue( sample.getLargestFreeBlock() <= sample.getFreeCapacity() );
+            }
+            assertEquals( OPERATIONS, samples.get( samples.size() - 1 ).getOperations() );
+
+            final FragmentationSample drained = simulator.drain();
+            assertEquals( 0, drained.getLiveBlocks() );
+            assertEquals( 0d, drained.getPayloadUtilisation(), 0d );
+            if ( checkDrained )
+            {
+                assertEquals( configuration.getAllocator(), initialFreeCapacity, drained.getFreeCapacity() );
+                assertEquals( configuration.getAllocator(), initialLargestFreeBlock, drained.getLargestFreeBlock() );
+            }
+            return samples;
+        }
+        finally
+        {
+            allocator.close();
+        }
+    }
+
+    @Test
+    public void everyBlockIsFreedAfterChurn()
+        throws IOException
+    {
+        for ( String allocator : ALLOCATORS )
+        {
+            churn( FragmentationConfiguration.fromProperties( churn( allocator, "100-1000" ) ), true );
+        }
+    }
+
+    @Test
+    public void overcommittedChurnFails()
+        throws IOException
+    {
+        // about 6000 blocks of 1 KB on average alive for 4 MB
+        final List<FragmentationSample> samples =
+            churn( FragmentationConfiguration.fromProperties( churn( Allocators.MERGING, "4000-8000" ) ), true );
+
+        final FragmentationSample last = samples.get( samples.size() - 1 );
+        assertTrue( last.getFailureRate() > 0 );
+        assertTrue( last.getUtilisation() > 0.5 );
+    }
+
+    @Test
+    public void runsAreReproducible()
+        throws IOException
+    {
+        final FragmentationConfiguration configuration =
+            FragmentationConfiguration.fromProperties( churn( Allocators.MERGING, "1000-3000" ) );
+
+        final List<FragmentationSample> first = churn( configuration, false );
+        final List<FragmentationSample> second = churn( configuration, false );
+        for ( int i = 0; i < first.size(); i++ )
+        {
+            assertEquals( first.get( i ).getFailureRate(), second.get( i ).getFailureRate(), 0d );
+            assertEquals( first.get( i ).getFreeCapacity(), second.get( i ).getFreeCapacity() );
+            assertEquals( first.get( i ).getLargestFreeBlock(), second.get( i ).getLargestFreeBlock() );
+        }
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void blockSizesMustFitTheCapacity()
+    {
+        final Properties properties = churn( Allocators.MERGING, "100" );
+        properties.setProperty( "size", Integer.toString( Ram.Mb( 8 ) ) );
+        FragmentationConfiguration.fromProperties( properties );
+    }
+
+}
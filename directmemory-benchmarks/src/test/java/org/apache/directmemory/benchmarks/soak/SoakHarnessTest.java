@@ -0,0 +1,80 @@
+package org.apache.directmemory.benchmarks.soak;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.apache.directmemory.benchmarks.workload.WorkloadDriver;
+import org.apache.directmemory.measures.Ram;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SoakHarnessTest
+{
+
+    @Test
+    public void concurrentCyclesAreNotPauses()
+    {
+        assertTrue( GcPauseMonitor.isConcurrent( "ConcurrentMarkSweep" ) );
+        assertTrue( GcPauseMonitor.isConcurrent( "G1 Concurrent GC" ) );
+        assertTrue( GcPauseMonitor.isConcurrent( "ZGC Cycles" ) );
+        assertFalse( GcPauseMonitor.isConcurrent( "G1 Young Generation" ) );
+        assertFalse( GcPauseMonitor.isConcurrent( "PS MarkSweep" ) );
+        assertFalse( GcPauseMonitor.isConcurrent( "ZGC Pauses" ) );
+    }
+
+    @Test
+    public void heapAndOffHeapRuns()
+        throws Exception
+    {
+        final File sampleFile = File.createTempFile( "soak", ".csv" );
+        sampleFile.deleteOnExit();
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final List<SoakResult> results =
+            new SoakHarness( WorkloadDriver.parseArguments( new String[] { "threads=2", "recordCount=1000",
+                "operationCount=20000", "valueSize=16-256", "bufferSize=" + Ram.Mb( 4 ), "sampleInterval=1",
+                "sampleFile=" + sampleFile.getPath() } ), new PrintStream( output, true ) ).run();
+
+        assertEquals( 2, results.size() );
+        assertEquals( "heap", results.get( 0 ).getTarget() );
+        assertEquals( "embedded", results.get( 1 ).getTarget() );
+        for ( SoakResult result : results )
+        {
+            assertEquals( 20000, result.getStatistics().getOperations() );
+            assertTrue( result.getOpsPerSecond() > 0 );
+            // one sample at the beginning and one at the end at least
+            assertTrue( result.getSamples().size() >= 2 );
+            assertTrue( result.getMaxHeapUsed() > 0 );
+        }
+        // the embedded cache allocates its 4 MB buffer as a direct buffer
+        assertTrue( results.get( 1 ).getMaxDirectUsed() >= Ram.Mb( 4 ) );
+
+        assertTrue( output.toString().contains( "pause(ms)" ) );
+        assertTrue( sampleFile.length() > 0 );
+    }
+
+}
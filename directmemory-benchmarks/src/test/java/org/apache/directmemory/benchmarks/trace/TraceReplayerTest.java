@@ -0,0 +1,111 @@
+package org.apache.directmemory.benchmarks.trace;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.benchmarks.workload.Operation;
+import org.apache.directmemory.benchmarks.workload.WorkloadStatistics;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.cache.trace.TraceReader;
+import org.apache.directmemory.cache.trace.TraceWriter;
+import org.apache.directmemory.measures.Ram;
+import org.junit.Test;
+
+public class TraceReplayerTest
+{
+
+    /**
+     * Records a run on a cache, then replays it on a fresh one of the same size : the hits and misses must be the
+     * same.
+     */
+    @Test
+    public void replayReproducesTheRecordedRun()
+        throws IOException
+    {
+        final ByteArrayOutputStream trace = new ByteArrayOutputStream();
+        final CacheService<String, byte[]> recorded =
+            new DirectMemory<String, byte[]>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 8 ) )
+                .setTraceWriter( new TraceWriter( trace ) ).newCacheService();
+
+        long hits = 0;
+        long misses = 0;
+        for ( int i = 0; i < 20000; i++ )
+        {
+            final String key = "key-" + ( i * 7919 % 1000 );
+            switch ( i % 4 )
+            {
+                case 0:
+                    recorded.putByteArray( key, new byte[64 + i % 1024] );
+                    break;
+                case 3:
+                    if ( i % 20 == 3 )
+                    {
+                        recorded.free( key );
+                        break;
+                    }
+                    // fall through
+                default:
+                    if ( recorded.retrieveByteArray( key ) != null )
+                    {
+                        hits++;
+                    }
+                    else
+                    {
+                        misses++;
+                    }
+            }
+        }
+        recorded.close();
+
+        final CacheService<Integer, byte[]> replayed =
+            new DirectMemory<Integer, byte[]>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 8 ) ).newCacheService();
+        try
+        {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final TraceReplayer replayer = new TraceReplayer( replayed, 0, 5000, new PrintStream( out ) );
+            final WorkloadStatistics statistics =
+                replayer.replay( new TraceReader( new ByteArrayInputStream( trace.toByteArray() ) ) );
+
+            assertEquals( 20000, statistics.getOperations() );
+            assertEquals( 5000, statistics.getLatencies( Operation.WRITE ).getCount() );
+            assertEquals( 1000, statistics.getLatencies( Operation.DELETE ).getCount() );
+            assertEquals( hits, statistics.getHits() );
+            assertEquals( misses, statistics.getMisses() );
+            assertEquals( 0, statistics.getFailures() );
+
+            assertTrue( replayer.getMemoryEfficiency() > 0 && replayer.getMemoryEfficiency() <= 1 );
+            // one line every 5000 records, then the summary
+            assertTrue( out.toString().split( "\n" ).length >= 5 );
+        }
+        finally
+        {
+            replayed.close();
+        }
+    }
+
+}
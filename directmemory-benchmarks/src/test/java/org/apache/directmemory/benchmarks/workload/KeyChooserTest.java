@@ -0,0 +1,124 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeyChooserTest
+{
+
+    private static final int KEYS = 1000;
+
+    private static final int SAMPLES = 100000;
+
+    private static long[] sample( KeyChooser chooser, long keyCount )
+    {
+        final Random random = new Random( 42 );
+        final long[] counts = new long[(int) keyCount];
+        for ( int i = 0; i < SAMPLES; i++ )
+        {
+            final long key = chooser.nextKey( random, keyCount );
+            assertTrue( "key " + key + " out of range", key >= 0 && key < keyCount );
+            counts[(int) key]++;
+        }
+        return counts;
+    }
+
+    @Test
+    public void uniform()
+    {
+        final long[] counts = sample( KeyChooser.newKeyChooser( KeyChooser.UNIFORM, KEYS, 0.99 ), KEYS );
+
+        for ( long count : counts )
+        {
+            assertEquals( SAMPLES / KEYS, count, SAMPLES / KEYS / 2 );
+        }
+    }
+
+    @Test
+    public void zipfianRanksAreSkewed()
+    {
+        final long[] counts = sample( new KeyChooser.ZipfianKeyChooser( KEYS, 0.99, false ), KEYS );
+
+        // with theta close to 1, the most popular key is about twice as frequent as the second one
+        assertTrue( counts[0] > counts[1] );
+        assertTrue( counts[1] > counts[10] );
+        assertTrue( counts[10] > counts[KEYS - 1] );
+        // and the 10% most popular keys get more than half of the samples
+        long top = 0;
+        for ( int i = 0; i < KEYS / 10; i++ )
+        {
+            top += counts[i];
+        }
+        assertTrue( top > SAMPLES / 2 );
+    }
+
+    @Test
+    public void scrambledZipfianSpreadsThePopularKeys()
+    {
+        final KeyChooser chooser = KeyChooser.newKeyChooser( KeyChooser.ZIPFIAN, KEYS, 0.99 );
+        assertFalse( chooser.isInserting() );
+
+        final long[] counts = sample( chooser, KEYS );
+
+        int hottest = 0;
+        for ( int i = 1; i < KEYS; i++ )
+        {
+            if ( counts[i] > counts[hottest] )
+            {
+                hottest = i;
+            }
+        }
+        assertTrue( hottest != 0 );
+        assertTrue( counts[hottest] > 5 * SAMPLES / KEYS );
+    }
+
+    @Test
+    public void latestFavorsTheLastInsertedKeys()
+    {
+        final KeyChooser chooser = KeyChooser.newKeyChooser( KeyChooser.LATEST, KEYS, 0.99 );
+        assertTrue( chooser.isInserting() );
+
+        final long keyCount = 2 * KEYS;
+        final long[] counts = sample( chooser, keyCount );
+
+        assertTrue( counts[(int) keyCount - 1] > counts[(int) keyCount - 2] );
+        long oldest = 0;
+        for ( int i = 0; i < KEYS; i++ )
+        {
+            oldest += counts[i];
+        }
+        // the key space of the recency distribution is the initial record count
+        assertEquals( 0, oldest );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void unknownDistribution()
+    {
+        KeyChooser.newKeyChooser( "gaussian", KEYS, 0.99 );
+    }
+
+}
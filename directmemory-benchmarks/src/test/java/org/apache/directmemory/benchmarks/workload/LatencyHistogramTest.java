@@ -0,0 +1,88 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest
+{
+
+    @Test
+    public void bucketsCoverTheValues()
+    {
+        for ( long value : new long[]{ 0, 1, 31, 32, 33, 63, 64, 65, 1000, 123456789L, Long.MAX_VALUE } )
+        {
+            final int bucket = LatencyHistogram.bucketOf( value );
+            assertTrue( bucket >= 0 && bucket < LatencyHistogram.BUCKET_COUNT );
+            final long highest = LatencyHistogram.highestValueOf( bucket );
+            assertTrue( value + " > " + highest, value <= highest );
+            // within the precision of the histogram
+            assertTrue( highest - value <= value / ( LatencyHistogram.SUB_BUCKET_COUNT - 1 ) );
+            if ( bucket > 0 )
+            {
+                assertTrue( value > LatencyHistogram.highestValueOf( bucket - 1 ) );
+            }
+        }
+    }
+
+    @Test
+    public void percentiles()
+    {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals( 0, histogram.getValueAtPercentile( 99 ) );
+        assertEquals( 0, histogram.getMax() );
+
+        for ( long i = 1; i <= 1000; i++ )
+        {
+            histogram.record( i * 1000 );
+        }
+
+        assertEquals( 1000, histogram.getCount() );
+        assertEquals( 500000, histogram.getValueAtPercentile( 50 ), 500000 / 30 );
+        assertEquals( 990000, histogram.getValueAtPercentile( 99 ), 990000 / 30 );
+        assertEquals( 1000000, histogram.getMax(), 1000000 / 30 );
+        assertEquals( 1000, histogram.getValueAtPercentile( 0 ), 1000 / 30 );
+    }
+
+    @Test
+    public void addAndSince()
+    {
+        final LatencyHistogram first = new LatencyHistogram();
+        first.record( 100 );
+        first.record( 200 );
+
+        final LatencyHistogram total = new LatencyHistogram();
+        total.add( first );
+        final LatencyHistogram previous = new LatencyHistogram();
+        previous.add( total );
+
+        first.record( 300000 );
+        total.add( first.since( previous ) );
+
+        assertEquals( 3, total.getCount() );
+        final LatencyHistogram interval = total.since( previous );
+        assertEquals( 1, interval.getCount() );
+        assertEquals( 300000, interval.getMax(), 300000 / 30 );
+    }
+
+}
@@ -0,0 +1,112 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LongDistributionTest
+{
+
+    @Test
+    public void constant()
+    {
+        final LongDistribution distribution = LongDistribution.parse( "1024" );
+        final Random random = new Random( 42 );
+        for ( int i = 0; i < 100; i++ )
+        {
+            assertEquals( 1024, distribution.next( random ) );
+        }
+        assertEquals( 1024, distribution.getMin() );
+        assertEquals( 1024, distribution.getMax() );
+        assertEquals( 1024d, distribution.getMean(), 0d );
+    }
+
+    @Test
+    public void range()
+    {
+        final LongDistribution distribution = LongDistribution.parse( "10-13" );
+        final Random random = new Random( 42 );
+        final int[] counts = new int[4];
+        for ( int i = 0; i < 4000; i++ )
+        {
+            final long value = distribution.next( random );
+            assertTrue( value >= 10 && value <= 13 );
+            counts[(int) value - 10]++;
+        }
+        for ( int count : counts )
+        {
+            assertEquals( 1000, count, 150 );
+        }
+        assertEquals( 10, distribution.getMin() );
+        assertEquals( 13, distribution.getMax() );
+        assertEquals( 11.5d, distribution.getMean(), 0d );
+    }
+
+    @Test
+    public void weighted()
+    {
+        final LongDistribution distribution = LongDistribution.parse( "0:70, 60000:20, 1000-5000:10" );
+        final Random random = new Random( 42 );
+        int zeros = 0;
+        int minutes = 0;
+        int others = 0;
+        for ( int i = 0; i < 10000; i++ )
+        {
+            final long value = distribution.next( random );
+            if ( value == 0 )
+            {
+                zeros++;
+            }
+            else if ( value == 60000 )
+            {
+                minutes++;
+            }
+            else
+            {
+                assertTrue( value >= 1000 && value <= 5000 );
+                others++;
+            }
+        }
+        assertEquals( 7000, zeros, 300 );
+        assertEquals( 2000, minutes, 300 );
+        assertEquals( 1000, others, 300 );
+        assertEquals( 0, distribution.getMin() );
+        assertEquals( 60000, distribution.getMax() );
+        assertEquals( 0.2d * 60000 + 0.1d * 3000, distribution.getMean(), 1e-6 );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void invalidRange()
+    {
+        LongDistribution.parse( "100-10" );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void invalidNumber()
+    {
+        LongDistribution.parse( "1k" );
+    }
+
+}
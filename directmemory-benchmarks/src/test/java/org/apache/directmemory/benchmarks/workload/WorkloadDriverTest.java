@@ -0,0 +1,98 @@
+package org.apache.directmemory.benchmarks.workload;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Properties;
+
+import org.apache.directmemory.measures.Ram;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WorkloadDriverTest
+{
+
+    private static WorkloadConfiguration configuration( String... settings )
+        throws Exception
+    {
+        final Properties properties = WorkloadDriver.parseArguments( settings );
+        return WorkloadConfiguration.fromProperties( properties );
+    }
+
+    @Test
+    public void operationRatios()
+        throws Exception
+    {
+        final WorkloadConfiguration configuration =
+            configuration( "readRatio=2", "writeRatio=1", "deleteRatio=1" );
+
+        assertEquals( Operation.READ, configuration.chooseOperation( 0 ) );
+        assertEquals( Operation.READ, configuration.chooseOperation( 0.49 ) );
+        assertEquals( Operation.WRITE, configuration.chooseOperation( 0.5 ) );
+        assertEquals( Operation.DELETE, configuration.chooseOperation( 0.75 ) );
+        assertEquals( Operation.DELETE, configuration.chooseOperation( 0.99 ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void unknownTarget()
+        throws Exception
+    {
+        configuration( "target=memcached" );
+    }
+
+    @Test
+    public void embeddedRun()
+        throws Exception
+    {
+        // a single worker : a read racing with the overwrite of the same key can fail, which is not what is tested
+        final WorkloadConfiguration configuration =
+            configuration( "threads=1", "recordCount=1000", "operationCount=20000", "readRatio=0.8",
+                           "writeRatio=0.15", "deleteRatio=0.05", "keyDistribution=latest", "valueSize=16-256",
+                           "ttl=0:9,60000:1", "bufferSize=" + Ram.Mb( 4 ) );
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final EmbeddedCacheTarget target = new EmbeddedCacheTarget( configuration );
+        final WorkloadStatistics statistics;
+        try
+        {
+            statistics = new WorkloadDriver( configuration, target, new PrintStream( output, true ) ).run();
+        }
+        finally
+        {
+            target.close();
+        }
+
+        assertEquals( 20000, statistics.getOperations() );
+        assertEquals( 0, statistics.getFailures() );
+        assertEquals( statistics.getLatencies( Operation.READ ).getCount(),
+                      statistics.getHits() + statistics.getMisses() );
+        assertTrue( statistics.getHitRatio() > 0.5 );
+        assertTrue( statistics.getLatencies( Operation.WRITE ).getCount() > 0 );
+        assertTrue( statistics.getLatencies( Operation.DELETE ).getCount() > 0 );
+
+        final String report = output.toString();
+        assertTrue( report, report.contains( "Loaded 1000 records" ) );
+        assertTrue( report, report.contains( "20000 operations" ) );
+    }
+
+}
@@ -24,10 +24,28 @@ import static java.lang.String.format;
 import static org.apache.directmemory.measures.In.seconds;
 import static org.apache.directmemory.serialization.SerializerFactory.createNewSerializer;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.directmemory.cache.CacheService;
 import org.apache.directmemory.cache.CacheServiceImpl;
+import org.apache.directmemory.cache.chunk.Chunking;
+import org.apache.directmemory.cache.dedup.Deduplication;
+import org.apache.directmemory.cache.journal.Journal;
+import org.apache.directmemory.cache.journal.JournalingCacheService;
+import org.apache.directmemory.cache.overflow.OverflowCacheService;
+import org.apache.directmemory.cache.overflow.OverflowStore;
+import org.apache.directmemory.cache.primitive.IntKeyCacheService;
+import org.apache.directmemory.cache.primitive.IntKeyCacheServiceImpl;
+import org.apache.directmemory.cache.primitive.LongKeyCacheService;
+import org.apache.directmemory.cache.primitive.LongKeyCacheServiceImpl;
+import org.apache.directmemory.cache.snapshot.SnapshotLoader;
+import org.apache.directmemory.cache.trace.TraceWriter;
+import org.apache.directmemory.cache.trace.TracingCacheService;
+import org.apache.directmemory.compression.Compression;
+import org.apache.directmemory.management.DirectMemoryManagement;
 import org.apache.directmemory.measures.Ram;
 import org.apache.directmemory.memory.MemoryManagerService;
 import org.apache.directmemory.memory.MemoryManagerServiceImpl;
@@ -47,11 +65,17 @@ public final class DirectMemory<K, V>
 
     public static final int DEFAULT_DISPOSAL_TIME = 10; // seconds
 
+    private static final AtomicInteger instanceCounter = new AtomicInteger( 0 );
+
     private final Logger logger = LoggerFactory.getLogger( getClass() );
 
+    private String name;
+
+    private boolean jmxEnabled;
+
     private int numberOfBuffers;
 
-    private int size;
+    private long size;
 
     private int initialCapacity = DEFAULT_INITIAL_CAPACITY;
 
@@ -65,6 +89,20 @@ public final class DirectMemory<K, V>
 
     private MemoryManagerService<V> memoryManager;
 
+    private TraceWriter traceWriter;
+
+    private File snapshot;
+
+    private Journal<K, V> journal;
+
+    private OverflowStore<K> overflowStore;
+
+    private Compression compression;
+
+    private Deduplication deduplication;
+
+    private Chunking chunking;
+
     public DirectMemory()
     {
         // does nothing
@@ -74,6 +112,8 @@ public final class DirectMemory<K, V>
     {
         checkArgument( prototype != null, "Impossible to create a DirectMemory instance from a null prototype" );
 
+        name = prototype.name;
+        jmxEnabled = prototype.jmxEnabled;
         numberOfBuffers = prototype.numberOfBuffers;
         size = prototype.size;
         initialCapacity = prototype.initialCapacity;
@@ -83,6 +123,29 @@ public final class DirectMemory<K, V>
         map = prototype.map;
         serializer = prototype.serializer;
         memoryManager = prototype.memoryManager;
+        traceWriter = prototype.traceWriter;
+        snapshot = prototype.snapshot;
+        journal = prototype.journal;
+        overflowStore = prototype.overflowStore;
+        compression = prototype.compression;
+        deduplication = prototype.deduplication;
+    }
+
+    public DirectMemory<K, V> setName( String name )
+    {
+        checkArgument( name != null && name.length() > 0, "Impossible to create a CacheService with an empty name" );
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Tells if the created {@link CacheService} registers its MBeans in the platform MBeanServer, see
+     * {@link DirectMemoryManagement}. The MBeans are unregistered when the {@link CacheService} is closed.
+     */
+    public DirectMemory<K, V> setJmxEnabled( boolean jmxEnabled )
+    {
+        this.jmxEnabled = jmxEnabled;
+        return this;
     }
 
     public DirectMemory<K, V> setNumberOfBuffers( int numberOfBuffers )
@@ -92,7 +155,11 @@ public final class DirectMemory<K, V>
         return this;
     }
 
-    public DirectMemory<K, V> setSize( int size )
+    /**
+     * @param size the size in bytes of each buffer, buffers bigger than 2GB being allocated outside of any
+     *            {@link java.nio.ByteBuffer}
+     */
+    public DirectMemory<K, V> setSize( long size )
     {
         checkArgument( size > 0, "Impossible to create a CacheService with a size lesser than 1" );
         this.size = size;
@@ -141,12 +208,196 @@ public final class DirectMemory<K, V>
         return this;
     }
 
+    /**
+     * Records the operations of the created {@link CacheService} in the given trace, see {@link TracingCacheService}.
+     * The trace is closed with the {@link CacheService}.
+     */
+    public DirectMemory<K, V> setTraceWriter( TraceWriter traceWriter )
+    {
+        checkArgument( traceWriter != null, "Impossible to create a CacheService with a null traceWriter" );
+        this.traceWriter = traceWriter;
+        return this;
+    }
+
+    /**
+     * Warm-restarts the created {@link CacheService} from the given snapshot, written by a
+     * {@link org.apache.directmemory.cache.snapshot.SnapshotWriter}, if it exists. The entries are loaded before the
+     * {@link CacheService} is returned.
+     */
+    public DirectMemory<K, V> setSnapshot( File snapshot )
+    {
+        checkArgument( snapshot != null, "Impossible to create a CacheService with a null snapshot" );
+        this.snapshot = snapshot;
+        return this;
+    }
+
+    /**
+     * Recovers the created {@link CacheService} from the given journal, then journals its puts and frees, see
+     * {@link JournalingCacheService}. The journal is closed with the {@link CacheService}.
+     */
+    public DirectMemory<K, V> setJournal( Journal<K, V> journal )
+    {
+        checkArgument( journal != null, "Impossible to create a CacheService with a null journal" );
+        this.journal = journal;
+        return this;
+    }
+
+    /**
+     * Moves the entries evicted from the created {@link CacheService} to the given store on local disk instead of
+     * discarding them, see {@link OverflowCacheService}. The store is closed with the {@link CacheService}.
+     */
+    public DirectMemory<K, V> setOverflowStore( OverflowStore<K> overflowStore )
+    {
+        checkArgument( overflowStore != null, "Impossible to create a CacheService with a null overflowStore" );
+        this.overflowStore = overflowStore;
+        return this;
+    }
+
+    /**
+     * Compresses the payloads stored by the created {@link CacheService}, see {@link Compression}.
+     */
+    public DirectMemory<K, V> setCompression( Compression compression )
+    {
+        checkArgument( compression != null, "Impossible to create a CacheService with a null compression" );
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * Shares the identical payloads stored by the created {@link CacheService}, see {@link Deduplication}.
+     */
+    public DirectMemory<K, V> setDeduplication( Deduplication deduplication )
+    {
+        checkArgument( deduplication != null, "Impossible to create a CacheService with a null deduplication" );
+        this.deduplication = deduplication;
+        return this;
+    }
+
+    /**
+     * Stores the big payloads stored by the created {@link CacheService} in chunks, see {@link Chunking}.
+     */
+    public DirectMemory<K, V> setChunking( Chunking chunking )
+    {
+        checkArgument( chunking != null, "Impossible to create a CacheService with a null chunking" );
+        this.chunking = chunking;
+        return this;
+    }
+
     public CacheService<K, V> newCacheService()
     {
         if ( map == null )
         {
             map = new MapMaker().concurrencyLevel( concurrencyLevel ).initialCapacity( initialCapacity ).makeMap();
         }
+        initMemoryManager();
+
+        final CacheServiceImpl<K, V> cacheServiceImpl = new CacheServiceImpl<K, V>( map, memoryManager, serializer );
+        if ( compression != null )
+        {
+            cacheServiceImpl.setCompression( compression );
+            logger.info( format( "compression: \t%1s", compression ) );
+        }
+        if ( deduplication != null )
+        {
+            cacheServiceImpl.setDeduplication( deduplication );
+            logger.info( "deduplication enabled" );
+        }
+        if ( chunking != null )
+        {
+            cacheServiceImpl.setChunking( chunking );
+            logger.info( format( "chunking: \t%1s", chunking ) );
+        }
+        CacheService<K, V> cacheService = cacheServiceImpl;
+
+        if ( snapshot != null && snapshot.isFile() )
+        {
+            try
+            {
+                new SnapshotLoader<K, V>( cacheService ).load( snapshot );
+            }
+            catch ( IOException e )
+            {
+                // a cold start is better than no start
+                logger.error( format( "Impossible to load the snapshot %s, starting empty", snapshot ), e );
+                cacheService.clear();
+            }
+        }
+
+        if ( overflowStore != null )
+        {
+            cacheService = new OverflowCacheService<K, V>( cacheService, overflowStore );
+            logger.info( format( "overflow to: \t%1s", overflowStore.getDirectory() ) );
+        }
+
+        if ( journal != null )
+        {
+            try
+            {
+                journal.open( cacheService );
+            }
+            catch ( IOException e )
+            {
+                // starting empty would lose the journaled entries at the next compaction
+                throw new IllegalStateException( format( "Impossible to recover the journal %s",
+                                                         journal.getDirectory() ), e );
+            }
+        }
+
+        if ( jmxEnabled )
+        {
+            final String cacheName = name != null ? name : "directmemory-" + instanceCounter.incrementAndGet();
+            DirectMemoryManagement.register( cacheName, cacheService );
+            logger.info( format( "MBeans registered as: \t%1s", cacheName ) );
+        }
+
+        if ( journal != null )
+        {
+            cacheService = new JournalingCacheService<K, V>( cacheService, journal );
+            logger.info( format( "journaled in: \t%1s", journal.getDirectory() ) );
+        }
+
+        if ( traceWriter != null )
+        {
+            cacheService = new TracingCacheService<K, V>( cacheService, traceWriter );
+            logger.info( "operations traced" );
+        }
+
+        // scheduled once decorated, so that the disposal runs through the decorators
+        cacheService.scheduleDisposalEvery( disposalTime );
+
+        return cacheService;
+    }
+
+    /**
+     * Creates a cache keyed by primitive longs, see {@link LongKeyCacheService}. The map, the compression, the
+     * deduplication and the decorators configured only apply to {@link #newCacheService()}.
+     */
+    public LongKeyCacheService<V> newLongKeyCacheService()
+    {
+        initMemoryManager();
+
+        final LongKeyCacheService<V> cacheService =
+            new LongKeyCacheServiceImpl<V>( memoryManager, serializer, concurrencyLevel, initialCapacity );
+        cacheService.scheduleDisposalEvery( disposalTime );
+        return cacheService;
+    }
+
+    /**
+     * Creates a cache keyed by primitive ints, see {@link IntKeyCacheService}. The map, the compression, the
+     * deduplication and the decorators configured only apply to {@link #newCacheService()}.
+     */
+    public IntKeyCacheService<V> newIntKeyCacheService()
+    {
+        initMemoryManager();
+
+        final IntKeyCacheService<V> cacheService =
+            new IntKeyCacheServiceImpl<V>( memoryManager, serializer, concurrencyLevel, initialCapacity );
+        cacheService.scheduleDisposalEvery( disposalTime );
+        return cacheService;
+    }
+
+    private void initMemoryManager()
+    {
         if ( memoryManager == null )
         {
             memoryManager = new MemoryManagerServiceImpl<V>();
@@ -171,10 +422,6 @@ public final class DirectMemory<K, V>
         logger.info( format( "number of buffer(s): \t%1d  with %2s each", numberOfBuffers, Ram.inMb( size ) ) );
         logger.info( format( "initial capacity: \t%1d", initialCapacity ) );
         logger.info( format( "concurrency level: \t%1d", concurrencyLevel ) );
-
-        CacheService<K, V> cacheService = new CacheServiceImpl<K, V>( map, memoryManager, serializer );
-        cacheService.scheduleDisposalEvery( disposalTime );
-        return cacheService;
     }
 
 }
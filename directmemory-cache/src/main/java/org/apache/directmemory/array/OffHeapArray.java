@@ -0,0 +1,441 @@
+package org.apache.directmemory.array;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.apache.directmemory.memory.allocator.LazyUnsafeAllocator;
+import org.apache.directmemory.memory.buffer.MemoryBuffer;
+
+/**
+ * Base of the arrays of primitives stored in off-heap memory, out of the view of the garbage collector. The elements
+ * are indexed by longs, the array being split in chunks allocated by an {@link Allocator}, so that its length is only
+ * bounded by the memory of the machine. The elements are read and written in place by the absolute accessors of the
+ * {@link MemoryBuffer} of their chunk, without lock : like the elements of a Java array, an element written by a
+ * thread and read by another needs a synchronization of its own. The subclasses only convert their elements from and
+ * to the bits handled here, and the parallel helpers run one task per chunk : smaller chunks spread the work over
+ * more threads.
+ */
+public abstract class OffHeapArray
+    implements Closeable
+{
+
+    /**
+     * The default size in bytes of the chunks.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private final Allocator allocator;
+
+    private final boolean ownsAllocator;
+
+    private final long length;
+
+    // log2 of the size of an element
+    private final int elementShift;
+
+    // log2 of the number of elements of a chunk
+    private final int chunkShift;
+
+    private final MemoryBuffer[] chunks;
+
+    private volatile boolean closed;
+
+    /**
+     * Creates an array of zeros in memory allocated from the system, released by {@link #close()}.
+     */
+    protected OffHeapArray( long length, int elementSize )
+    {
+        this( length, elementSize, new LazyUnsafeAllocator( 1, length * elementSize ), DEFAULT_CHUNK_SIZE, true );
+    }
+
+    /**
+     * Creates an array in memory allocated by the given allocator, the elements holding whatever the allocator left
+     * in it until they are filled.
+     *
+     * @param chunkSize the size in bytes of the chunks, a power of two
+     */
+    protected OffHeapArray( long length, int elementSize, Allocator allocator, int chunkSize )
+    {
+        this( length, elementSize, allocator, chunkSize, false );
+    }
+
+    private OffHeapArray( long length, int elementSize, Allocator allocator, int chunkSize, boolean ownsAllocator )
+    {
+        checkArgument( length >= 0, "Impossible to create an array of length %s", length );
+        checkArgument( allocator != null, "Impossible to create an array without allocator" );
+        checkArgument( Integer.bitCount( elementSize ) == 1 && elementSize <= 8, "Unsupported element size %s",
+                       elementSize );
+        checkArgument( Integer.bitCount( chunkSize ) == 1 && chunkSize >= elementSize,
+                       "The chunk size %s is not a power of two of at least one element", chunkSize );
+
+        this.allocator = allocator;
+        this.ownsAllocator = ownsAllocator;
+        this.length = length;
+        this.elementShift = Integer.numberOfTrailingZeros( elementSize );
+        this.chunkShift = Integer.numberOfTrailingZeros( chunkSize ) - elementShift;
+
+        final long chunkCount = ( length + ( 1L << chunkShift ) - 1 ) >>> chunkShift;
+        checkArgument( chunkCount <= Integer.MAX_VALUE, "The chunk size %s is too small for %s elements", chunkSize,
+                       length );
+        this.chunks = new MemoryBuffer[(int) chunkCount];
+        try
+        {
+            for ( int i = 0; i < chunks.length; i++ )
+            {
+                final int size = chunkLength( i ) << elementShift;
+                chunks[i] = allocator.allocate( size );
+                if ( chunks[i] == null )
+                {
+                    throw new BufferOverflowException();
+                }
+                if ( ownsAllocator )
+                {
+                    // zeroes the memory allocated from the system
+                    chunks[i].clear();
+                }
+            }
+        }
+        catch ( RuntimeException e )
+        {
+            release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of elements of the array
+     */
+    public long length()
+    {
+        return length;
+    }
+
+    /**
+     * @return the number of bytes of off-heap memory held by the array
+     */
+    public long sizeInBytes()
+    {
+        return length << elementShift;
+    }
+
+    /**
+     * @return the number of chunks, which is the number of tasks run by the parallel helpers
+     */
+    public int chunks()
+    {
+        return chunks.length;
+    }
+
+    /**
+     * Releases the memory of the array, which can not be used any more.
+     */
+    @Override
+    public void close()
+        throws IOException
+    {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+        release();
+    }
+
+    private void release()
+    {
+        for ( int i = 0; i < chunks.length; i++ )
+        {
+            if ( chunks[i] != null )
+            {
+                allocator.free( chunks[i] );
+                chunks[i] = null;
+            }
+        }
+        if ( ownsAllocator )
+        {
+            try
+            {
+                allocator.close();
+            }
+            catch ( IOException e )
+            {
+                throw new IllegalStateException( e );
+            }
+        }
+    }
+
+    /**
+     * @return the element at <code>index</code>, sign extended to a long
+     */
+    protected final long getBits( long index )
+    {
+        checkIndex( index );
+        return getBits( chunks[(int) ( index >>> chunkShift )], offset( index ) );
+    }
+
+    /**
+     * Sets the element at <code>index</code> to the low bits of <code>bits</code>.
+     */
+    protected final void setBits( long index, long bits )
+    {
+        checkIndex( index );
+        setBits( chunks[(int) ( index >>> chunkShift )], offset( index ), bits );
+    }
+
+    /**
+     * Sets the elements from <code>from</code> inclusive to <code>to</code> exclusive to the low bits of
+     * <code>bits</code>.
+     */
+    protected final void fillBits( long from, long to, long bits )
+    {
+        checkRange( from, to - from );
+        for ( long index = from; index < to; index++ )
+        {
+            setBits( chunks[(int) ( index >>> chunkShift )], offset( index ), bits );
+        }
+    }
+
+    /**
+     * Sets every element to the low bits of <code>bits</code>, the chunks being filled in parallel by the executor.
+     */
+    protected final void parallelFillBits( final long bits, ExecutorService executor )
+    {
+        parallel( executor, new ChunkTask<Void>()
+        {
+            @Override
+            public Void run( MemoryBuffer buffer, long first, int count )
+            {
+                for ( int i = 0; i < count; i++ )
+                {
+                    setBits( buffer, (long) i << elementShift, bits );
+                }
+                return null;
+            }
+        } );
+    }
+
+    /**
+     * @param bits the element to look for, sign extended to a long
+     * @return the lowest index of an element equal to <code>bits</code> or -1, the chunks being scanned in parallel by
+     *         the executor
+     */
+    protected final long parallelIndexOfBits( final long bits, ExecutorService executor )
+    {
+        for ( Long index : parallel( executor, new ChunkTask<Long>()
+        {
+            @Override
+            public Long run( MemoryBuffer buffer, long first, int count )
+            {
+                for ( int i = 0; i < count; i++ )
+                {
+                    if ( getBits( buffer, (long) i << elementShift ) == bits )
+                    {
+                        return first + i;
+                    }
+                }
+                return -1L;
+            }
+        } ) )
+        {
+            if ( index >= 0 )
+            {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the sum of the elements read as integers, the chunks being scanned in parallel by the executor
+     */
+    protected final long parallelSumOfBits( ExecutorService executor )
+    {
+        long sum = 0;
+        for ( Long chunkSum : parallel( executor, new ChunkTask<Long>()
+        {
+            @Override
+            public Long run( MemoryBuffer buffer, long first, int count )
+            {
+                long sum = 0;
+                for ( int i = 0; i < count; i++ )
+                {
+                    sum += getBits( buffer, (long) i << elementShift );
+                }
+                return sum;
+            }
+        } ) )
+        {
+            sum += chunkSum;
+        }
+        return sum;
+    }
+
+    private long getBits( MemoryBuffer buffer, long offset )
+    {
+        switch ( elementShift )
+        {
+            case 0:
+                return buffer.getByte( offset );
+            case 1:
+                return buffer.getShort( offset );
+            case 2:
+                return buffer.getInt( offset );
+            default:
+                return buffer.getLong( offset );
+        }
+    }
+
+    private void setBits( MemoryBuffer buffer, long offset, long bits )
+    {
+        switch ( elementShift )
+        {
+            case 0:
+                buffer.putByte( offset, (byte) bits );
+                break;
+            case 1:
+                buffer.putShort( offset, (short) bits );
+                break;
+            case 2:
+                buffer.putInt( offset, (int) bits );
+                break;
+            default:
+                buffer.putLong( offset, bits );
+        }
+    }
+
+    // offset in its chunk of the element at index
+    private long offset( long index )
+    {
+        return ( index & ( ( 1L << chunkShift ) - 1 ) ) << elementShift;
+    }
+
+    private void checkIndex( long index )
+    {
+        checkState( !closed, "The array is closed" );
+        if ( index < 0 || index >= length )
+        {
+            throw new IndexOutOfBoundsException( format( "Index %d out of an array of length %d", index, length ) );
+        }
+    }
+
+    private int chunkLength( int chunk )
+    {
+        return (int) Math.min( 1L << chunkShift, length - ( (long) chunk << chunkShift ) );
+    }
+
+    /**
+     * Checks that the elements from <code>index</code> to <code>index + count</code> are in the array.
+     */
+    protected final void checkRange( long index, long count )
+    {
+        checkState( !closed, "The array is closed" );
+        if ( index < 0 || count < 0 || index > length - count )
+        {
+            throw new IndexOutOfBoundsException( format( "Range [%d, %d[ out of an array of length %d", index,
+                                                         index + count, length ) );
+        }
+    }
+
+    /**
+     * Runs a task on every chunk with the given executor.
+     *
+     * @return the results of the tasks in the order of the chunks
+     */
+    protected final <T> List<T> parallel( ExecutorService executor, final ChunkTask<T> task )
+    {
+        checkState( !closed, "The array is closed" );
+        final List<Future<T>> futures = new ArrayList<Future<T>>( chunks.length );
+        for ( int i = 0; i < chunks.length; i++ )
+        {
+            final MemoryBuffer buffer = chunks[i];
+            final long first = (long) i << chunkShift;
+            final int count = chunkLength( i );
+            futures.add( executor.submit( new Callable<T>()
+            {
+                @Override
+                public T call()
+                {
+                    return task.run( buffer, first, count );
+                }
+            } ) );
+        }
+
+        final List<T> results = new ArrayList<T>( chunks.length );
+        try
+        {
+            for ( Future<T> future : futures )
+            {
+                results.add( future.get() );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while waiting for the chunks", e );
+        }
+        catch ( ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException( cause );
+        }
+        finally
+        {
+            for ( Future<T> future : futures )
+            {
+                future.cancel( true );
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Work on the elements of a chunk, see {@link OffHeapArray#parallel(ExecutorService, ChunkTask)}.
+     */
+    protected interface ChunkTask<T>
+    {
+
+        /**
+         * @param buffer the chunk, whose offset 0 holds the element at <code>first</code>
+         * @param first the index of the first element of the chunk in the array
+         * @param count the number of elements of the chunk
+         */
+        T run( MemoryBuffer buffer, long first, int count );
+
+    }
+
+}
@@ -0,0 +1,123 @@
+package org.apache.directmemory.array;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.ExecutorService;
+
+import org.apache.directmemory.memory.allocator.Allocator;
+
+/**
+ * Array of bytes in off-heap memory, see {@link OffHeapArray}.
+ */
+public class OffHeapByteArray
+    extends OffHeapArray
+{
+
+    private static final int ELEMENT_SIZE = 1;
+
+    /**
+     * Creates an array of zeros in memory allocated from the system.
+     */
+    public OffHeapByteArray( long length )
+    {
+        super( length, ELEMENT_SIZE );
+    }
+
+    public OffHeapByteArray( long length, Allocator allocator )
+    {
+        this( length, allocator, DEFAULT_CHUNK_SIZE );
+    }
+
+    /**
+     * @param chunkSize the size in bytes of the chunks, a power of two
+     */
+    public OffHeapByteArray( long length, Allocator allocator, int chunkSize )
+    {
+        super( length, ELEMENT_SIZE, allocator, chunkSize );
+    }
+
+    public byte get( long index )
+    {
+        return (byte) getBits( index );
+    }
+
+    public void set( long index, byte value )
+    {
+        setBits( index, value );
+    }
+
+    /**
+     * Copies <code>length</code> elements starting at <code>index</code> to <code>dst</code>.
+     */
+    public void get( long index, byte[] dst, int dstOffset, int length )
+    {
+        checkRange( index, length );
+        for ( int i = 0; i < length; i++ )
+        {
+            dst[dstOffset + i] = get( index + i );
+        }
+    }
+
+    /**
+     * Copies <code>length</code> elements of <code>src</code> to the array starting at <code>index</code>.
+     */
+    public void set( long index, byte[] src, int srcOffset, int length )
+    {
+        checkRange( index, length );
+        for ( int i = 0; i < length; i++ )
+        {
+            set( index + i, src[srcOffset + i] );
+        }
+    }
+
+    /**
+     * Sets the elements from <code>from</code> inclusive to <code>to</code> exclusive to <code>value</code>.
+     */
+    public void fill( long from, long to, byte value )
+    {
+        fillBits( from, to, value );
+    }
+
+    /**
+     * Sets every element to <code>value</code>, the chunks being filled in parallel by the executor.
+     */
+    public void parallelFill( byte value, ExecutorService executor )
+    {
+        parallelFillBits( value, executor );
+    }
+
+    /**
+     * @return the lowest index of an element equal to <code>value</code> or -1, the chunks being scanned in parallel
+     *         by the executor
+     */
+    public long parallelIndexOf( byte value, ExecutorService executor )
+    {
+        return parallelIndexOfBits( value, executor );
+    }
+
+    /**
+     * @return the sum of the elements, the chunks being scanned in parallel by the executor
+     */
+    public long parallelSum( ExecutorService executor )
+    {
+        return parallelSumOfBits( executor );
+    }
+
+}
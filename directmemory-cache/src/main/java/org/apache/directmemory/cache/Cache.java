@@ -49,7 +49,7 @@ public class Cache
         cacheService.scheduleDisposalEvery( l );
     }
 
-    public static void init( int numberOfBuffers, int size, int initialCapacity, int concurrencyLevel )
+    public static void init( int numberOfBuffers, long size, int initialCapacity, int concurrencyLevel )
     {
         cacheService =
             builder.setNumberOfBuffers( numberOfBuffers ).setInitialCapacity( initialCapacity ).setConcurrencyLevel( concurrencyLevel ).setSize( size ).newCacheService();
@@ -57,7 +57,7 @@ public class Cache
         // ).newCacheService();
     }
 
-    public static void init( int numberOfBuffers, int size )
+    public static void init( int numberOfBuffers, long size )
     {
         init( numberOfBuffers, size, DirectMemory.DEFAULT_INITIAL_CAPACITY, DirectMemory.DEFAULT_CONCURRENCY_LEVEL );
     }
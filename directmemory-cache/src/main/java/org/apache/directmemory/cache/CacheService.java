@@ -20,6 +20,11 @@ package org.apache.directmemory.cache;
  */
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -69,6 +74,29 @@ public interface CacheService<K, V>
      */
     Pointer<V> putByteArray( K key, byte[] payload );
 
+    /**
+     * Stores a preserialized payload read from a stream with the given key, copying it to the off-heap memory a few
+     * kilobytes at a time instead of materializing it on heap when the payload is stored as it is read. The expiration
+     * is set to the given expiresIn value in milliseconds. If not enough space found to store the payload the returned
+     * pointer is null, and the stream may be partially read.
+     * 
+     * @param key The key to save the payload with
+     * @param in The stream to read the payload from, which is not closed
+     * @param length The number of bytes of the payload
+     * @param expiresIn The expiration delay
+     * @return The created pointer to directly retrieve the payload or null if not enough space was found
+     * @throws IOException if the stream can not be read or ends before length bytes were read, the previous payload of
+     *             the key being kept
+     */
+    Pointer<V> putStream( K key, InputStream in, int length, long expiresIn )
+        throws IOException;
+
+    /**
+     * Same as {@link #putStream(Object, InputStream, int, long)}, reading the payload from a blocking channel.
+     */
+    Pointer<V> putChannel( K key, ReadableByteChannel in, int length, long expiresIn )
+        throws IOException;
+
     /**
      * Serializes and stored the given value using the key and sets the expiresIn value for the expiration of the key.
      * If not enough space found to store the payload the returned pointer is null.
@@ -95,9 +123,31 @@ public interface CacheService<K, V>
      * 
      * @param key The key to retrieve
      * @return The payload as bytearray or null if key was not found
+     * @throws org.apache.directmemory.compression.UndecodablePayloadException if the payload is compressed and can
+     *             not be decoded any more, the entry being left in the cache
      */
     byte[] retrieveByteArray( K key );
 
+    /**
+     * Writes the stored payload for key to a stream, copying it from the off-heap memory a few kilobytes at a time
+     * instead of materializing it on heap when the payload is stored as it was put. Nothing is written if no pointer is
+     * found for the given key.
+     * 
+     * @param key The key to retrieve
+     * @param out The stream to write the payload to, which is neither flushed nor closed
+     * @return The number of bytes written or -1 if key was not found
+     * @throws IOException if the stream can not be written, the payload is freed before being wholly written or the
+     *             payload is compressed and can not be decoded any more
+     */
+    long retrieveStream( K key, OutputStream out )
+        throws IOException;
+
+    /**
+     * Same as {@link #retrieveStream(Object, OutputStream)}, writing the payload to a blocking channel.
+     */
+    long retrieveChannel( K key, WritableByteChannel out )
+        throws IOException;
+
     /**
      * Retrieves the stored, deserialized value for key. If no pointer is found for the given key null is returned.
      * 
@@ -114,6 +164,17 @@ public interface CacheService<K, V>
      */
     Pointer<V> getPointer( K key );
 
+    /**
+     * Retrieves the payload of the given {@link Pointer} as it was put, whatever its expiration time, for the
+     * components reading the entries in bulk.
+     * 
+     * @param pointer The pointer to read
+     * @return The payload as bytearray or null if the pointer was freed
+     * @throws org.apache.directmemory.compression.UndecodablePayloadException if the payload is compressed and can
+     *             not be decoded any more
+     */
+    byte[] retrievePayload( Pointer<V> pointer );
+
     /**
      * Removes the key and frees the underlying memory area.
      * 
@@ -192,6 +253,13 @@ public interface CacheService<K, V>
      */
     MemoryManagerService<V> getMemoryManager();
 
+    /**
+     * Retrieves the hit, miss, expiration and disposal counters of this {@link CacheService}.
+     * 
+     * @return The statistics of this cache
+     */
+    CacheStatistics getStatistics();
+
     /**
      * Explicitly allocated a bunch of bytes in the cache using a given key and type and returns the created
      * {@link Pointer}.
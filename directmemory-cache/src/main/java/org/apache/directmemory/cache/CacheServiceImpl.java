@@ -19,18 +19,34 @@ package org.apache.directmemory.cache;
  * under the License.
  */
 
+import org.apache.directmemory.cache.chunk.Chunking;
+import org.apache.directmemory.cache.dedup.Deduplication;
+import org.apache.directmemory.compression.Compression;
+import org.apache.directmemory.compression.UndecodablePayloadException;
+import org.apache.directmemory.management.DirectMemoryManagement;
 import org.apache.directmemory.measures.Ram;
 import org.apache.directmemory.memory.MemoryManagerService;
 import org.apache.directmemory.memory.Pointer;
+import org.apache.directmemory.memory.buffer.MemoryBuffer;
 import org.apache.directmemory.serialization.Serializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
+import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
@@ -43,14 +59,28 @@ public class CacheServiceImpl<K, V>
 
     private static final Logger logger = LoggerFactory.getLogger( CacheServiceImpl.class );
 
+    private static final int STREAM_BUFFER_SIZE = 8 * 1024;
+
     private ConcurrentMap<K, Pointer<V>> map;
 
     private Serializer serializer;
 
     private MemoryManagerService<V> memoryManager;
 
+    private Compression compression;
+
+    private Deduplication deduplication;
+
+    private Chunking chunking;
+
+    // Pointers created by allocate(), whose memory is written directly and never compressed
+    private final Set<Pointer<V>> rawPointers =
+        Collections.newSetFromMap( new ConcurrentHashMap<Pointer<V>, Boolean>() );
+
     private final Timer timer = new Timer(true);
 
+    private final CacheStatistics statistics = new CacheStatistics();
+
     /**
      * Constructor
      */
@@ -81,8 +111,7 @@ public class CacheServiceImpl<K, V>
             {
                 logger.info( "begin scheduled disposal" );
 
-                collectExpired();
-                collectLFU();
+                dispose();
 
                 logger.info( "scheduled disposal complete" );
             }
@@ -103,6 +132,64 @@ public class CacheServiceImpl<K, V>
         return store( key, payload, expiresIn );
     }
 
+    /**
+     * The payload is copied on heap before being stored when it is compressed, or shared by the deduplication without
+     * being chunked, as the whole payload is needed then.
+     */
+    @Override
+    public Pointer<V> putStream( K key, InputStream in, int length, long expiresIn )
+        throws IOException
+    {
+        checkArgument( length >= 0, "Impossible to store a payload of %s bytes", length );
+
+        final boolean chunked = chunking != null && chunking.applies( length );
+        if ( compression != null || ( !chunked && deduplication != null && expiresIn == 0 ) )
+        {
+            final byte[] payload = new byte[length];
+            new DataInputStream( in ).readFully( payload );
+            return store( key, payload, expiresIn );
+        }
+
+        // the previous payload stays readable until the new one is complete
+        final Pointer<V> pointer;
+        if ( chunked )
+        {
+            pointer = chunking.store( memoryManager, in, length, expiresIn );
+        }
+        else
+        {
+            pointer = memoryManager.allocate( null, length, expiresIn, 0 );
+            if ( pointer != null )
+            {
+                try
+                {
+                    write( in, pointer.getMemoryBuffer(), length );
+                }
+                catch ( IOException e )
+                {
+                    memoryManager.free( pointer );
+                    throw e;
+                }
+            }
+        }
+        if ( pointer != null )
+        {
+            final Pointer<V> previous = map.put( key, pointer );
+            if ( previous != null )
+            {
+                release( previous );
+            }
+        }
+        return pointer;
+    }
+
+    @Override
+    public Pointer<V> putChannel( K key, ReadableByteChannel in, int length, long expiresIn )
+        throws IOException
+    {
+        return putStream( key, Channels.newInputStream( in ), length, expiresIn );
+    }
+
     @Override
     public Pointer<V> put( K key, V value )
     {
@@ -145,9 +232,24 @@ public class CacheServiceImpl<K, V>
         Pointer<V> pointer = map.get( key );
         if ( pointer != null )
         {
-        	memoryManager.free( pointer );
+            release( pointer );
+        }
+        if ( compression != null )
+        {
+            payload = compression.encode( payload );
+        }
+        if ( chunking != null && chunking.applies( payload ) )
+        {
+            pointer = chunking.store( memoryManager, payload, expiresIn );
+        }
+        else if ( deduplication != null && expiresIn == 0 )
+        {
+            pointer = deduplication.store( memoryManager, payload );
+        }
+        else
+        {
+            pointer = memoryManager.store( payload, expiresIn );
         }
-        pointer = memoryManager.store( payload, expiresIn );
         if ( pointer != null )
         {
             map.put( key, pointer );
@@ -155,12 +257,15 @@ public class CacheServiceImpl<K, V>
         return pointer;
     }
 
-    @Override
-    public byte[] retrieveByteArray( K key )
+    /**
+     * @return the pointer of the key, or null if the key is missing or its entry expired, counting the hit or miss
+     */
+    private Pointer<V> lookup( K key )
     {
         Pointer<V> ptr = getPointer( key );
         if ( ptr == null )
         {
+            statistics.miss();
             return null;
         }
         if ( ptr.isExpired() || ptr.isFree() )
@@ -168,38 +273,87 @@ public class CacheServiceImpl<K, V>
             map.remove( key );
             if ( !ptr.isFree() )
             {
-                memoryManager.free( ptr );
+                release( ptr );
+                statistics.expired();
             }
+            statistics.miss();
             return null;
         }
-        else
+        statistics.hit();
+        return ptr;
+    }
+
+    @Override
+    public byte[] retrieveByteArray( K key )
+    {
+        Pointer<V> ptr = lookup( key );
+        if ( ptr == null )
         {
-            return memoryManager.retrieve( ptr );
+            return null;
         }
+        return loadAndDecode( key, ptr );
     }
 
+    /**
+     * The payload is copied on heap before being written when it is compressed.
+     */
     @Override
-    public V retrieve( K key )
+    public long retrieveStream( K key, OutputStream out )
+        throws IOException
     {
-        Pointer<V> ptr = getPointer( key );
+        Pointer<V> ptr = lookup( key );
         if ( ptr == null )
         {
-            return null;
+            return -1;
         }
-        if ( ptr.isExpired() || ptr.isFree() )
+        if ( compression != null )
         {
-            map.remove( key );
-            if ( !ptr.isFree() )
+            final byte[] payload;
+            try
             {
-                memoryManager.free( ptr );
+                payload = loadAndDecode( key, ptr );
             }
-            return null;
+            catch ( UndecodablePayloadException e )
+            {
+                throw new IOException( e.getMessage(), e );
+            }
+            if ( payload == null )
+            {
+                return -1;
+            }
+            out.write( payload );
+            return payload.length;
         }
-        else
+        if ( chunking != null && chunking.isChunked( ptr ) )
+        {
+            final InputStream in = chunking.openStream( memoryManager, ptr );
+            return in == null ? -1 : copy( in, out );
+        }
+        if ( ptr.isFree() )
+        {
+            return -1;
+        }
+        ptr.hit();
+        return read( ptr, out );
+    }
+
+    @Override
+    public long retrieveChannel( K key, WritableByteChannel out )
+        throws IOException
+    {
+        return retrieveStream( key, Channels.newOutputStream( out ) );
+    }
+
+    @Override
+    public V retrieve( K key )
+    {
+        Pointer<V> ptr = lookup( key );
+        if ( ptr != null )
         {
             try
             {
-                return serializer.deserialize( memoryManager.retrieve( ptr ), ptr.getClazz() );
+                final byte[] payload = loadAndDecode( key, ptr );
+                return payload == null ? null : serializer.deserialize( payload, ptr.getClazz() );
             }
             catch ( EOFException e )
             {
@@ -231,26 +385,185 @@ public class CacheServiceImpl<K, V>
         return map.get( key );
     }
 
+    @Override
+    public byte[] retrievePayload( Pointer<V> pointer )
+    {
+        if ( pointer.isFree() )
+        {
+            return null;
+        }
+        return loadAndDecode( null, pointer );
+    }
+
+    private byte[] load( Pointer<V> pointer )
+    {
+        if ( chunking != null && chunking.isChunked( pointer ) )
+        {
+            return chunking.read( memoryManager, pointer );
+        }
+        return memoryManager.retrieve( pointer );
+    }
+
+    /**
+     * Loads and decodes the payload of a pointer, the payloads of the pointers created by
+     * {@link #allocate(Object, Class, int)} being returned as they are. An entry whose payload can not be decoded any
+     * more, like an entry compressed with a dictionary which is not retained any more, is left in the cache and
+     * counted by {@link CacheStatistics#getUndecodable()}.
+     *
+     * @param key the key of the entry, null if unknown
+     * @return the payload, or null if the entry was freed meanwhile
+     * @throws UndecodablePayloadException if the payload can not be decoded
+     */
+    private byte[] loadAndDecode( K key, Pointer<V> pointer )
+    {
+        final byte[] stored = load( pointer );
+        if ( compression == null || stored == null || rawPointers.contains( pointer ) )
+        {
+            return stored;
+        }
+        try
+        {
+            return compression.decode( stored );
+        }
+        catch ( IOException e )
+        {
+            statistics.undecodable();
+            final String message = format( "the payload of the entry %s can not be decoded : %s",
+                                           key == null ? pointer : key, e.getMessage() );
+            logger.error( message );
+            throw new UndecodablePayloadException( message, e );
+        }
+    }
+
+    /**
+     * Copies a payload from a stream to the memory of a pointer which is not visible to the readers yet.
+     */
+    private static void write( InputStream in, MemoryBuffer buffer, int length )
+        throws IOException
+    {
+        final byte[] swp = new byte[Math.min( STREAM_BUFFER_SIZE, length )];
+        buffer.writerIndex( 0 );
+        int written = 0;
+        while ( written < length )
+        {
+            final int count = in.read( swp, 0, Math.min( swp.length, length - written ) );
+            if ( count < 0 )
+            {
+                throw new EOFException( format( "The stream ended after %d of the %d bytes of the payload", written,
+                                                length ) );
+            }
+            buffer.writeBytes( swp, 0, count );
+            written += count;
+        }
+    }
+
+    /**
+     * Copies the payload of a pointer to a stream, each piece being read under the lock of the buffer so that the
+     * streams of a same pointer do not move its reader index under each other.
+     *
+     * @throws IOException if the pointer is freed before the whole payload is read, its memory being reused
+     */
+    private static <V> long read( Pointer<V> pointer, OutputStream out )
+        throws IOException
+    {
+        final MemoryBuffer buffer = pointer.getMemoryBuffer();
+        final long length = buffer.writerIndex();
+        final byte[] swp = new byte[(int) Math.min( STREAM_BUFFER_SIZE, length )];
+        long read = 0;
+        while ( read < length )
+        {
+            final int count = (int) Math.min( swp.length, length - read );
+            synchronized ( buffer )
+            {
+                if ( pointer.isFree() )
+                {
+                    throw new IOException( format( "The payload was freed after %d of its %d bytes were read", read,
+                                                   length ) );
+                }
+                buffer.readerIndex( read );
+                buffer.readBytes( swp, 0, count );
+            }
+            out.write( swp, 0, count );
+            read += count;
+        }
+        return length;
+    }
+
+    private static long copy( InputStream in, OutputStream out )
+        throws IOException
+    {
+        final byte[] swp = new byte[STREAM_BUFFER_SIZE];
+        long copied = 0;
+        int count;
+        while ( ( count = in.read( swp ) ) >= 0 )
+        {
+            out.write( swp, 0, count );
+            copied += count;
+        }
+        return copied;
+    }
+
     @Override
     public void free( K key )
     {
         Pointer<V> p = map.remove( key );
         if ( p != null )
         {
-            memoryManager.free( p );
+            release( p );
         }
     }
 
     @Override
     public void free( Pointer<V> pointer )
     {
-        memoryManager.free( pointer );
+        rawPointers.remove( pointer );
+        if ( chunking != null && chunking.free( memoryManager, pointer ) )
+        {
+            return;
+        }
+        if ( deduplication != null )
+        {
+            deduplication.forceFree( memoryManager, pointer );
+        }
+        else
+        {
+            memoryManager.free( pointer );
+        }
+    }
+
+    /**
+     * Frees the pointer of a key, unless other keys share it.
+     */
+    private void release( Pointer<V> pointer )
+    {
+        rawPointers.remove( pointer );
+        if ( chunking != null && chunking.free( memoryManager, pointer ) )
+        {
+            return;
+        }
+        if ( deduplication != null )
+        {
+            deduplication.free( memoryManager, pointer );
+        }
+        else
+        {
+            memoryManager.free( pointer );
+        }
     }
 
     @Override
     public void collectExpired()
     {
         memoryManager.collectExpired();
+        forgetFreedRawPointers();
+        if ( deduplication != null )
+        {
+            deduplication.collectFreed();
+        }
+        if ( chunking != null )
+        {
+            chunking.collectFreed( memoryManager );
+        }
         // still have to look for orphan (storing references to freed pointers) map entries
     }
 
@@ -258,9 +571,29 @@ public class CacheServiceImpl<K, V>
     public void collectLFU()
     {
         memoryManager.collectLFU();
+        forgetFreedRawPointers();
+        if ( deduplication != null )
+        {
+            deduplication.collectFreed();
+        }
+        if ( chunking != null )
+        {
+            chunking.collectFreed( memoryManager );
+        }
         // can possibly clear one whole buffer if it's too fragmented - investigate
     }
 
+    private void forgetFreedRawPointers()
+    {
+        for ( Iterator<Pointer<V>> iterator = rawPointers.iterator(); iterator.hasNext(); )
+        {
+            if ( iterator.next().isFree() )
+            {
+                iterator.remove();
+            }
+        }
+    }
+
     @Override
     public void collectAll()
     {
@@ -269,20 +602,36 @@ public class CacheServiceImpl<K, V>
             public void run()
             {
                 logger.info( "begin disposal" );
-                collectExpired();
-                collectLFU();
+                dispose();
                 logger.info( "disposal complete" );
             }
         };
         thread.start();
     }
 
+    private void dispose()
+    {
+        final long begunAt = System.nanoTime();
+        collectExpired();
+        collectLFU();
+        statistics.disposed( System.nanoTime() - begunAt );
+    }
+
 
     @Override
     public void clear()
     {
         map.clear();
+        rawPointers.clear();
         memoryManager.clear();
+        if ( deduplication != null )
+        {
+            deduplication.clear();
+        }
+        if ( chunking != null )
+        {
+            chunking.clear();
+        }
         logger.info( "Cache cleared" );
     }
 
@@ -290,6 +639,7 @@ public class CacheServiceImpl<K, V>
     public void close()
         throws IOException
     {
+        DirectMemoryManagement.unregister( this );
         memoryManager.close();
         if(serializer instanceof Closeable){
             ((Closeable) serializer).close();
@@ -323,6 +673,19 @@ public class CacheServiceImpl<K, V>
 
         logger.info( "*** DirectMemory statistics ********************" );
 
+        if ( compression != null )
+        {
+            logger.info( format( "compression: \t%1s", compression ) );
+        }
+        if ( deduplication != null )
+        {
+            logger.info( format( "deduplication: \t%1s", deduplication ) );
+        }
+        if ( chunking != null )
+        {
+            logger.info( format( "chunking: \t%1s", chunking ) );
+        }
+
         dump( memoryManager );
     }
 
@@ -356,6 +719,57 @@ public class CacheServiceImpl<K, V>
         return memoryManager;
     }
 
+    @Override
+    public CacheStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    public Compression getCompression()
+    {
+        return compression;
+    }
+
+    /**
+     * Compresses the payloads stored from now on. The entries already stored must have been stored with a compression
+     * too, except the entries created by {@link #allocate(Object, Class, int)}: their memory is written through their
+     * pointer and is never compressed, the cache keeping track of them to read them back as they are by key, like
+     * {@link #retrieveByteArray(Object)}, the snapshots, the overflow store and the journal compaction do.
+     */
+    public void setCompression( Compression compression )
+    {
+        this.compression = compression;
+    }
+
+    public Deduplication getDeduplication()
+    {
+        return deduplication;
+    }
+
+    /**
+     * Shares the identical payloads stored without expiration from now on, see {@link Deduplication}. The entries
+     * created by {@link #allocate(Object, Class, int)} are never shared.
+     */
+    public void setDeduplication( Deduplication deduplication )
+    {
+        this.deduplication = deduplication;
+    }
+
+    public Chunking getChunking()
+    {
+        return chunking;
+    }
+
+    /**
+     * Stores the payloads bigger than the threshold of the chunking in chunks from now on, see {@link Chunking}. The
+     * pointer of a key whose payload is chunked is the one of the small header of the payload, and such payloads are
+     * never shared by the deduplication.
+     */
+    public void setChunking( Chunking chunking )
+    {
+        this.chunking = chunking;
+    }
+
     @Override
     public void setMemoryManager( MemoryManagerService<V> memoryManager )
     {
@@ -366,6 +780,7 @@ public class CacheServiceImpl<K, V>
     public <T extends V> Pointer<V> allocate( K key, Class<T> type, int size )
     {
         Pointer<V> ptr = memoryManager.allocate( type, size, -1, -1 );
+        rawPointers.add( ptr );
         map.put( key, ptr );
         ptr.setClazz( type );
         return ptr;
@@ -0,0 +1,142 @@
+package org.apache.directmemory.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Access and disposal counters of a {@link CacheService}. All counters are cumulative since the creation of the
+ * {@link CacheService} and can be read concurrently without any locking.
+ */
+public class CacheStatistics
+{
+
+    private final AtomicLong hits = new AtomicLong( 0L );
+
+    private final AtomicLong misses = new AtomicLong( 0L );
+
+    private final AtomicLong expirations = new AtomicLong( 0L );
+
+    private final AtomicLong undecodable = new AtomicLong( 0L );
+
+    private final AtomicLong disposals = new AtomicLong( 0L );
+
+    private final AtomicLong totalDisposalTime = new AtomicLong( 0L );
+
+    private volatile long lastDisposalTime = 0L;
+
+    public void hit()
+    {
+        hits.incrementAndGet();
+    }
+
+    public void miss()
+    {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Records an entry found expired while being retrieved.
+     */
+    public void expired()
+    {
+        expirations.incrementAndGet();
+    }
+
+    /**
+     * Records a read of an entry whose payload could not be decoded any more.
+     */
+    public void undecodable()
+    {
+        undecodable.incrementAndGet();
+    }
+
+    /**
+     * Records a completed disposal pass.
+     *
+     * @param elapsed : duration of the pass in nanoseconds
+     */
+    public void disposed( long elapsed )
+    {
+        disposals.incrementAndGet();
+        totalDisposalTime.addAndGet( elapsed );
+        lastDisposalTime = elapsed;
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * @return the ratio of hits over the total number of retrievals, or 0 if nothing has been retrieved yet
+     */
+    public double getHitRatio()
+    {
+        final long hits = getHits();
+        final long total = hits + getMisses();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * @return the number of entries found expired while being retrieved
+     */
+    public long getExpirations()
+    {
+        return expirations.get();
+    }
+
+    /**
+     * @return the number of reads failing because the payload could not be decoded any more, like the payload of an
+     *         entry compressed with a dictionary which is not retained any more
+     */
+    public long getUndecodable()
+    {
+        return undecodable.get();
+    }
+
+    public long getDisposals()
+    {
+        return disposals.get();
+    }
+
+    /**
+     * @return the duration of the last disposal pass in milliseconds
+     */
+    public long getLastDisposalTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis( lastDisposalTime );
+    }
+
+    /**
+     * @return the cumulated duration of all disposal passes in milliseconds
+     */
+    public long getTotalDisposalTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis( totalDisposalTime.get() );
+    }
+
+}
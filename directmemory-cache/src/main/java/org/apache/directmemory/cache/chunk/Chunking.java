@@ -0,0 +1,475 @@
+package org.apache.directmemory.cache.chunk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.directmemory.memory.MemoryManagerService;
+import org.apache.directmemory.memory.Pointer;
+
+/**
+ * Storage of the payloads bigger than a threshold as a sequence of fixed-size chunks, each stored on its own by the
+ * memory manager in whatever buffer has room for it, so that a payload bigger than a buffer can be stored and the
+ * big payloads do not need a contiguous free block. The key of a chunked payload is mapped to the pointer of a small
+ * header, holding the length of the payload and the number of its chunks, and the chunk table linking the header to
+ * the pointers of the chunks is kept on heap.
+ * <p>
+ * A payload read from a stream is stored one chunk at a time by
+ * {@link #store(MemoryManagerService, InputStream, int, long)}. A chunked payload is read back whole by {@link #read(MemoryManagerService, Pointer)}, or chunk by chunk through
+ * {@link #openStream(MemoryManagerService, Pointer)}.
+ * <p>
+ * The chunks never expire and are excluded from the collections of the memory manager, the header alone standing for
+ * the payload: its expiration and frequency are the ones of the payload, and once it is freed by the memory manager,
+ * {@link #collectFreed(MemoryManagerService)} frees the whole chunk table.
+ */
+public class Chunking
+{
+
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    public static final int DEFAULT_THRESHOLD = 256 * 1024;
+
+    private static final int HEADER_SIZE = 12;
+
+    private final ConcurrentMap<Pointer<?>, ChunkTable> tables = new ConcurrentHashMap<Pointer<?>, ChunkTable>();
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    private int threshold = DEFAULT_THRESHOLD;
+
+    private final AtomicLong chunks = new AtomicLong();
+
+    private final AtomicLong chunkedBytes = new AtomicLong();
+
+    /**
+     * @param chunkSize the size in bytes of the chunks, the last chunk of a payload being smaller
+     */
+    public Chunking setChunkSize( int chunkSize )
+    {
+        checkArgument( chunkSize > 0, "Impossible to split the payloads in chunks of %s bytes", chunkSize );
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    /**
+     * @param threshold the size in bytes above which the payloads are chunked
+     */
+    public Chunking setThreshold( int threshold )
+    {
+        checkArgument( threshold >= 0, "Impossible to chunk the payloads above %s bytes", threshold );
+        this.threshold = threshold;
+        return this;
+    }
+
+    public int getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * @return true if the payload is stored in chunks
+     */
+    public boolean applies( byte[] payload )
+    {
+        return applies( payload.length );
+    }
+
+    /**
+     * @return true if a payload of the given length is stored in chunks
+     */
+    public boolean applies( int length )
+    {
+        return length > threshold;
+    }
+
+    /**
+     * Stores a payload in chunks.
+     *
+     * @return the pointer of the header of the payload, or null if not enough space was found for every chunk
+     */
+    public <V> Pointer<V> store( MemoryManagerService<V> memoryManager, byte[] payload, long expiresIn )
+    {
+        final int count = ( payload.length + chunkSize - 1 ) / chunkSize;
+        final Pointer<?>[] table = new Pointer<?>[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            final int offset = i * chunkSize;
+            final byte[] chunk = new byte[Math.min( chunkSize, payload.length - offset )];
+            System.arraycopy( payload, offset, chunk, 0, chunk.length );
+            table[i] = storeChunk( memoryManager, chunk );
+            if ( table[i] == null )
+            {
+                free( memoryManager, table );
+                return null;
+            }
+        }
+
+        return storeHeader( memoryManager, table, payload.length, expiresIn );
+    }
+
+    /**
+     * Stores a payload read from a stream in chunks, so that only one chunk is copied on heap at any time.
+     *
+     * @return the pointer of the header of the payload, or null if not enough space was found for every chunk, in which
+     *         case the stream is partially read
+     * @throws IOException if the stream can not be read or ends before length bytes were read, the chunks already
+     *             stored being freed
+     */
+    public <V> Pointer<V> store( MemoryManagerService<V> memoryManager, InputStream in, int length, long expiresIn )
+        throws IOException
+    {
+        final int count = ( length + chunkSize - 1 ) / chunkSize;
+        final Pointer<?>[] table = new Pointer<?>[count];
+        final DataInputStream data = new DataInputStream( in );
+        final byte[] full = new byte[Math.min( chunkSize, length )];
+        try
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                final int size = Math.min( chunkSize, length - i * chunkSize );
+                final byte[] chunk = size == full.length ? full : new byte[size];
+                data.readFully( chunk );
+                table[i] = storeChunk( memoryManager, chunk );
+                if ( table[i] == null )
+                {
+                    free( memoryManager, table );
+                    return null;
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            free( memoryManager, table );
+            throw e;
+        }
+
+        return storeHeader( memoryManager, table, length, expiresIn );
+    }
+
+    private static <V> Pointer<V> storeChunk( MemoryManagerService<V> memoryManager, byte[] chunk )
+    {
+        final Pointer<V> pointer = memoryManager.store( chunk, 0 );
+        if ( pointer != null )
+        {
+            memoryManager.exclude( pointer );
+        }
+        return pointer;
+    }
+
+    private <V> Pointer<V> storeHeader( MemoryManagerService<V> memoryManager, Pointer<?>[] table, int length,
+                                        long expiresIn )
+    {
+        for ( Pointer<?> chunk : table )
+        {
+            if ( chunk.isFree() )
+            {
+                // collected before being excluded
+                free( memoryManager, table );
+                return null;
+            }
+        }
+        final byte[] header = ByteBuffer.allocate( HEADER_SIZE ).putLong( length ).putInt( table.length ).array();
+        final Pointer<V> pointer = memoryManager.store( header, expiresIn );
+        if ( pointer == null )
+        {
+            free( memoryManager, table );
+            return null;
+        }
+        tables.put( pointer, new ChunkTable( table, length ) );
+        chunks.addAndGet( table.length );
+        chunkedBytes.addAndGet( length );
+        return pointer;
+    }
+
+    /**
+     * @return true if the pointer is the header of a payload stored in chunks
+     */
+    public boolean isChunked( Pointer<?> pointer )
+    {
+        return tables.containsKey( pointer );
+    }
+
+    /**
+     * Reads back a whole payload stored in chunks.
+     *
+     * @return the payload, or null if the pointer is not the header of a chunked payload or a chunk was freed
+     */
+    public <V> byte[] read( MemoryManagerService<V> memoryManager, Pointer<V> pointer )
+    {
+        final Pointer<V>[] table = table( pointer );
+        final byte[] header = table != null ? memoryManager.retrieve( pointer ) : null;
+        if ( header == null )
+        {
+            return null;
+        }
+        final byte[] payload = new byte[(int) ByteBuffer.wrap( header ).getLong()];
+        int offset = 0;
+        for ( Pointer<V> chunk : table )
+        {
+            final byte[] bytes = memoryManager.retrieve( chunk );
+            if ( bytes == null || offset + bytes.length > payload.length )
+            {
+                return null;
+            }
+            System.arraycopy( bytes, 0, payload, offset, bytes.length );
+            offset += bytes.length;
+        }
+        return offset == payload.length ? payload : null;
+    }
+
+    /**
+     * Opens a stream reading a payload stored in chunks one chunk at a time, so that only one chunk is copied on heap
+     * at any time. The stream throws an {@link IOException} if a chunk it did not read yet is freed.
+     *
+     * @return the stream, or null if the pointer is not the header of a chunked payload
+     */
+    public <V> InputStream openStream( MemoryManagerService<V> memoryManager, Pointer<V> pointer )
+    {
+        final Pointer<V>[] table = table( pointer );
+        if ( table == null || memoryManager.retrieve( pointer ) == null )
+        {
+            return null;
+        }
+        return new ChunkInputStream<V>( memoryManager, table );
+    }
+
+    /**
+     * @return the length of a payload stored in chunks, -1 if the pointer is not the header of a chunked payload
+     */
+    public <V> long length( MemoryManagerService<V> memoryManager, Pointer<V> pointer )
+    {
+        final byte[] header = isChunked( pointer ) ? memoryManager.retrieve( pointer ) : null;
+        return header == null ? -1 : ByteBuffer.wrap( header ).getLong();
+    }
+
+    @SuppressWarnings( "unchecked" ) // the chunks are stored by the memory manager of the header
+    private <V> Pointer<V>[] table( Pointer<V> pointer )
+    {
+        final ChunkTable table = tables.get( pointer );
+        return table == null ? null : (Pointer<V>[]) table.chunks;
+    }
+
+    /**
+     * Frees the header and the chunks of a chunked payload.
+     *
+     * @return false if the pointer is not the header of a chunked payload, in which case it is not freed
+     */
+    public <V> boolean free( MemoryManagerService<V> memoryManager, Pointer<V> pointer )
+    {
+        final ChunkTable table = tables.remove( pointer );
+        if ( table == null )
+        {
+            return false;
+        }
+        forget( table );
+        free( memoryManager, table.chunks );
+        memoryManager.free( pointer );
+        return true;
+    }
+
+    /**
+     * Frees the chunks of the payloads whose header was freed by the memory manager, expired or least frequently used.
+     *
+     * @return the number of payloads freed
+     */
+    public <V> long collectFreed( MemoryManagerService<V> memoryManager )
+    {
+        long collected = 0;
+        for ( Map.Entry<Pointer<?>, ChunkTable> entry : tables.entrySet() )
+        {
+            if ( entry.getKey().isFree() && tables.remove( entry.getKey(), entry.getValue() ) )
+            {
+                forget( entry.getValue() );
+                free( memoryManager, entry.getValue().chunks );
+                collected++;
+            }
+        }
+        return collected;
+    }
+
+    /**
+     * Forgets every chunked payload, the memory manager being cleared.
+     */
+    public void clear()
+    {
+        tables.clear();
+        chunks.set( 0 );
+        chunkedBytes.set( 0 );
+    }
+
+    private void forget( ChunkTable table )
+    {
+        chunks.addAndGet( -table.chunks.length );
+        chunkedBytes.addAndGet( -table.length );
+    }
+
+    private static <V> void free( MemoryManagerService<V> memoryManager, Pointer<?>[] table )
+    {
+        for ( Pointer<?> chunk : table )
+        {
+            if ( chunk != null && !chunk.isFree() )
+            {
+                @SuppressWarnings( "unchecked" ) // the chunks are stored by the same memory manager
+                final Pointer<V> pointer = (Pointer<V>) chunk;
+                memoryManager.free( pointer );
+            }
+        }
+    }
+
+    /**
+     * @return the number of payloads stored in chunks
+     */
+    public long entries()
+    {
+        return tables.size();
+    }
+
+    /**
+     * @return the number of chunks of the payloads stored in chunks
+     */
+    public long chunks()
+    {
+        return chunks.get();
+    }
+
+    /**
+     * @return the bytes of the payloads stored in chunks
+     */
+    public long getChunkedBytes()
+    {
+        return chunkedBytes.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return format( "%d payloads in %d chunks of %d bytes, %d bytes", entries(), chunks(), chunkSize,
+                       getChunkedBytes() );
+    }
+
+    /**
+     * The chunks of a payload, with the length of the payload counted in {@link Chunking#getChunkedBytes()}.
+     */
+    private static final class ChunkTable
+    {
+
+        private final Pointer<?>[] chunks;
+
+        private final long length;
+
+        ChunkTable( Pointer<?>[] chunks, long length )
+        {
+            this.chunks = chunks;
+            this.length = length;
+        }
+
+    }
+
+    private static final class ChunkInputStream<V>
+        extends InputStream
+    {
+
+        private final MemoryManagerService<V> memoryManager;
+
+        private final Pointer<V>[] table;
+
+        private int nextChunk;
+
+        private byte[] chunk = new byte[0];
+
+        private int position;
+
+        ChunkInputStream( MemoryManagerService<V> memoryManager, Pointer<V>[] table )
+        {
+            this.memoryManager = memoryManager;
+            this.table = table;
+        }
+
+        // false at the end of the payload
+        private boolean fill()
+            throws IOException
+        {
+            while ( position == chunk.length )
+            {
+                if ( nextChunk == table.length )
+                {
+                    return false;
+                }
+                final byte[] bytes = memoryManager.retrieve( table[nextChunk] );
+                if ( bytes == null )
+                {
+                    throw new IOException( format( "The chunk %d of the payload was freed", nextChunk ) );
+                }
+                nextChunk++;
+                chunk = bytes;
+                position = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            return fill() ? chunk[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len )
+            throws IOException
+        {
+            if ( len == 0 )
+            {
+                return 0;
+            }
+            if ( !fill() )
+            {
+                return -1;
+            }
+            final int count = Math.min( len, chunk.length - position );
+            System.arraycopy( chunk, position, b, off, count );
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available()
+        {
+            return chunk.length - position;
+        }
+
+    }
+
+}
@@ -0,0 +1,281 @@
+package org.apache.directmemory.cache.dedup;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static java.lang.String.format;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.directmemory.memory.MemoryManagerService;
+import org.apache.directmemory.memory.Pointer;
+
+/**
+ * Content-addressed sharing of the identical payloads stored by a {@link org.apache.directmemory.cache.CacheService}
+ * : the payloads are hashed, and a payload identical to one already stored gets the same {@link Pointer}, the
+ * off-heap block being released once the last key referencing it is freed. The payloads whose hash matches are
+ * compared byte for byte, a collision only costing a separate copy.
+ * <p>
+ * Only the payloads stored without expiration are shared, the expiration being a property of the pointer. The
+ * pointers freed by the memory manager itself, expired or least frequently used, are freed for every key sharing
+ * them.
+ */
+public class Deduplication
+{
+
+    private static final int LOCKS = 64;
+
+    private final ConcurrentMap<Long, Block> blocks = new ConcurrentHashMap<Long, Block>();
+
+    private final ConcurrentMap<Pointer<?>, Block> blocksByPointer = new ConcurrentHashMap<Pointer<?>, Block>();
+
+    private final Object[] locks = new Object[LOCKS];
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong savedBytes = new AtomicLong();
+
+    public Deduplication()
+    {
+        for ( int i = 0; i < LOCKS; i++ )
+        {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Stores a payload, or references the block of an identical payload already stored.
+     *
+     * @return the pointer of the block, or null if not enough space was found
+     */
+    public <V> Pointer<V> store( MemoryManagerService<V> memoryManager, byte[] payload )
+    {
+        final long hash = hash( payload );
+        synchronized ( lock( hash ) )
+        {
+            final Block block = blocks.get( hash );
+            if ( block != null && !block.pointer.isFree() )
+            {
+                @SuppressWarnings( "unchecked" ) // the blocks are stored by the same memory manager
+                final Pointer<V> pointer = (Pointer<V>) block.pointer;
+                if ( Arrays.equals( payload, memoryManager.retrieve( pointer ) ) )
+                {
+                    block.references++;
+                    hits.incrementAndGet();
+                    savedBytes.addAndGet( payload.length );
+                    return pointer;
+                }
+            }
+
+            final Pointer<V> pointer = memoryManager.store( payload, 0 );
+            if ( pointer == null )
+            {
+                return null;
+            }
+            misses.incrementAndGet();
+            final Block stored = new Block( hash, pointer, payload.length );
+            blocksByPointer.put( pointer, stored );
+            if ( block == null || block.pointer.isFree() )
+            {
+                // a collision keeps the previous block shared
+                blocks.put( hash, stored );
+                if ( block != null )
+                {
+                    blocksByPointer.remove( block.pointer, block );
+                }
+            }
+            return pointer;
+        }
+    }
+
+    /**
+     * Releases a reference to a block, freeing it with the last reference. The pointers not stored by
+     * {@link #store(MemoryManagerService, byte[])} are freed right away.
+     */
+    public <V> void free( MemoryManagerService<V> memoryManager, Pointer<V> pointer )
+    {
+        final Block block = blocksByPointer.get( pointer );
+        if ( block == null )
+        {
+            memoryManager.free( pointer );
+            return;
+        }
+        synchronized ( lock( block.hash ) )
+        {
+            if ( --block.references > 0 )
+            {
+                savedBytes.addAndGet( -block.length );
+                return;
+            }
+            forget( block );
+        }
+        memoryManager.free( pointer );
+    }
+
+    /**
+     * Frees a block whatever the number of keys referencing it.
+     */
+    public <V> void forceFree( MemoryManagerService<V> memoryManager, Pointer<V> pointer )
+    {
+        final Block block = blocksByPointer.get( pointer );
+        if ( block != null )
+        {
+            synchronized ( lock( block.hash ) )
+            {
+                savedBytes.addAndGet( -(long) block.length * Math.max( 0, block.references - 1 ) );
+                block.references = 0;
+                forget( block );
+            }
+        }
+        memoryManager.free( pointer );
+    }
+
+    /**
+     * Forgets the blocks freed by the memory manager.
+     *
+     * @return the number of blocks forgotten
+     */
+    public long collectFreed()
+    {
+        long collected = 0;
+        for ( Block block : blocksByPointer.values() )
+        {
+            if ( block.pointer.isFree() )
+            {
+                synchronized ( lock( block.hash ) )
+                {
+                    savedBytes.addAndGet( -(long) block.length * Math.max( 0, block.references - 1 ) );
+                    block.references = 0;
+                    forget( block );
+                }
+                collected++;
+            }
+        }
+        return collected;
+    }
+
+    /**
+     * Forgets every block, the memory manager being cleared.
+     */
+    public void clear()
+    {
+        blocksByPointer.clear();
+        blocks.clear();
+        savedBytes.set( 0 );
+    }
+
+    // guarded by the lock of the block
+    private void forget( Block block )
+    {
+        blocksByPointer.remove( block.pointer, block );
+        blocks.remove( block.hash, block );
+    }
+
+    /**
+     * @return the number of payloads which referenced a block already stored
+     */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of payloads which were stored in a new block
+     */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    public double getHitRatio()
+    {
+        final long hits = this.hits.get();
+        final long total = hits + misses.get();
+        return total == 0 ? 0 : hits / (double) total;
+    }
+
+    /**
+     * @return the bytes currently saved by the blocks referenced more than once
+     */
+    public long getSavedBytes()
+    {
+        return savedBytes.get();
+    }
+
+    /**
+     * @return the number of blocks which can be shared
+     */
+    public long blocks()
+    {
+        return blocksByPointer.size();
+    }
+
+    @Override
+    public String toString()
+    {
+        return format( "%d blocks, hit ratio %.2f, %d bytes saved", blocks(), getHitRatio(), getSavedBytes() );
+    }
+
+    private Object lock( long hash )
+    {
+        return locks[(int) ( hash ^ ( hash >>> 32 ) ) & ( LOCKS - 1 )];
+    }
+
+    /**
+     * 64 bits FNV-1a hash.
+     */
+    static long hash( byte[] payload )
+    {
+        long hash = 0xcbf29ce484222325L;
+        for ( byte b : payload )
+        {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static final class Block
+    {
+
+        private final long hash;
+
+        private final Pointer<?> pointer;
+
+        private final int length;
+
+        // guarded by the lock of the hash
+        private int references = 1;
+
+        Block( long hash, Pointer<?> pointer, int length )
+        {
+            this.hash = hash;
+            this.pointer = pointer;
+            this.length = length;
+        }
+
+    }
+
+}
@@ -0,0 +1,49 @@
+package org.apache.directmemory.cache.journal;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/**
+ * When the {@link Journal} forces its records to the disk.
+ */
+public enum FsyncPolicy
+{
+
+    /**
+     * The records are written to the file system as soon as possible but never forced, the operating system deciding
+     * when they reach the disk : a crash of the process loses nothing, a crash of the machine may lose the last
+     * seconds.
+     */
+    NEVER,
+
+    /**
+     * The records are forced every <code>fsyncInterval</code> milliseconds, the writers not waiting for them : a crash
+     * of the machine loses at most the last interval.
+     */
+    INTERVAL,
+
+    /**
+     * Every batch of records is forced before the writers which appended them return, the records appended while a
+     * batch is being forced making the next batch : nothing acknowledged is ever lost. The more concurrent writers, the
+     * bigger the batches and the cheaper the force by record.
+     */
+    BATCH
+
+}
@@ -0,0 +1,787 @@
+package org.apache.directmemory.cache.journal;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.cache.snapshot.SnapshotLoader;
+import org.apache.directmemory.cache.snapshot.SnapshotWriter;
+import org.apache.directmemory.memory.Pointer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only write-ahead log of the puts and frees of a {@link CacheService}, see {@link JournalingCacheService}.
+ * The records are appended to numbered segment files of the journal directory, made of :
+ * <ul>
+ * <li>the length of the record body and its CRC32, on four bytes each</li>
+ * <li>the operation, on one byte</li>
+ * <li>the class name and the serialized form of the key</li>
+ * <li>for a put, the class name of the value, empty for byte arrays, the wall clock time the entry expires at in
+ * milliseconds, 0 if it never expires, and the payload</li>
+ * </ul>
+ * The writers only copy their records in a shared buffer, a single committer thread writing the buffer to the current
+ * segment and forcing it according to the {@link FsyncPolicy}, so that the records appended while a batch is written
+ * are committed together. A new segment is started when the current one reaches <code>segmentSize</code> bytes.
+ * <p>
+ * Once <code>compactionThreshold</code> segments are full, the journal is compacted in the background : a new segment
+ * is started, a {@link SnapshotWriter snapshot} of the cache is written, then the older segments and snapshots are
+ * deleted. As every operation is applied to the cache before being appended, the snapshot holds the effect of every
+ * record of the deleted segments, the records of the operations concurrent with the snapshot being in the kept ones.
+ * Opening the journal recovers the cache by loading the latest snapshot then replaying the following segments, up to
+ * the first torn or corrupted record.
+ */
+public class Journal<K, V>
+    implements Closeable
+{
+
+    static final byte PUT = 1;
+
+    static final byte FREE = 2;
+
+    static final byte CLEAR = 3;
+
+    static final String SEGMENT_SUFFIX = ".log";
+
+    static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+    private static final int RECORD_HEADER_SIZE = 4 + 4;
+
+    // the writers wait for the committer beyond this amount of pending records
+    private static final int MAX_PENDING = 16 * 1024 * 1024;
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    public static final long DEFAULT_FSYNC_INTERVAL = 1000;
+
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 4;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final File directory;
+
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.BATCH;
+
+    private long fsyncInterval = DEFAULT_FSYNC_INTERVAL;
+
+    private long segmentSize = DEFAULT_SEGMENT_SIZE;
+
+    private int compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+    private CacheService<K, V> cacheService;
+
+    private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<String, Class<?>>();
+
+    private final Object lock = new Object();
+
+    // guarded by lock
+    private byte[] pending = new byte[64 * 1024];
+
+    private int pendingLength;
+
+    private long appended;
+
+    private long committed;
+
+    private long batches;
+
+    private boolean failed;
+
+    private boolean closed;
+
+    private final Object channelLock = new Object();
+
+    // guarded by channelLock
+    private FileChannel channel;
+
+    private long segment;
+
+    private long segmentBytes;
+
+    private int fullSegments;
+
+    private final Object compactionLock = new Object();
+
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+    private Thread committer;
+
+    public Journal( File directory )
+    {
+        checkArgument( directory != null, "Impossible to create a Journal without directory" );
+        this.directory = directory;
+    }
+
+    public Journal<K, V> setFsyncPolicy( FsyncPolicy fsyncPolicy )
+    {
+        checkArgument( fsyncPolicy != null, "Impossible to create a Journal with a null fsyncPolicy" );
+        this.fsyncPolicy = fsyncPolicy;
+        return this;
+    }
+
+    /**
+     * @param fsyncInterval the milliseconds between two forces with the {@link FsyncPolicy#INTERVAL} policy
+     */
+    public Journal<K, V> setFsyncInterval( long fsyncInterval )
+    {
+        checkArgument( fsyncInterval > 0, "Impossible to create a Journal with a fsyncInterval lesser than 1" );
+        this.fsyncInterval = fsyncInterval;
+        return this;
+    }
+
+    public Journal<K, V> setSegmentSize( long segmentSize )
+    {
+        checkArgument( segmentSize > 0, "Impossible to create a Journal with a segmentSize lesser than 1" );
+        this.segmentSize = segmentSize;
+        return this;
+    }
+
+    /**
+     * @param compactionThreshold the number of full segments compacted in the background, 0 to compact only when
+     *            {@link #compact()} is called
+     */
+    public Journal<K, V> setCompactionThreshold( int compactionThreshold )
+    {
+        checkArgument( compactionThreshold >= 0, "Impossible to create a Journal with a negative compactionThreshold" );
+        this.compactionThreshold = compactionThreshold;
+        return this;
+    }
+
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    public FsyncPolicy getFsyncPolicy()
+    {
+        return fsyncPolicy;
+    }
+
+    /**
+     * Recovers the given cache from the journal directory then starts journaling. The cache must not be modified
+     * otherwise than through a {@link JournalingCacheService} afterwards.
+     *
+     * @return the number of entries in the cache once recovered
+     */
+    public long open( CacheService<K, V> cacheService )
+        throws IOException
+    {
+        checkArgument( cacheService != null, "Impossible to open a Journal for a null cacheService" );
+        checkState( this.cacheService == null, "The journal is already open" );
+        if ( !directory.isDirectory() && !directory.mkdirs() )
+        {
+            throw new IOException( "Impossible to create the journal directory " + directory );
+        }
+        this.cacheService = cacheService;
+
+        final long start = System.nanoTime();
+        final SortedMap<Long, File> snapshots = list( SNAPSHOT_SUFFIX );
+        final SortedMap<Long, File> segments = list( SEGMENT_SUFFIX );
+
+        long first = 0;
+        if ( !snapshots.isEmpty() )
+        {
+            first = snapshots.lastKey();
+            new SnapshotLoader<K, V>( cacheService ).load( snapshots.get( first ) );
+        }
+        long replayed = 0;
+        for ( File file : segments.tailMap( first ).values() )
+        {
+            replayed += replay( file );
+        }
+        // left behind by a compaction interrupted by a crash
+        delete( snapshots.headMap( first ) );
+        delete( segments.headMap( first ) );
+
+        synchronized ( channelLock )
+        {
+            segment = Math.max( first, segments.isEmpty() ? 0 : segments.lastKey() + 1 );
+            openSegment();
+        }
+
+        committer = new Thread( "directmemory-journal-" + directory.getName() )
+        {
+            @Override
+            public void run()
+            {
+                commitLoop();
+            }
+        };
+        committer.setDaemon( true );
+        committer.start();
+
+        logger.info( format( "recovered %d entries from %s in %.1f s, %d records replayed", cacheService.entries(),
+                             directory, ( System.nanoTime() - start ) / 1e9d, replayed ) );
+        return cacheService.entries();
+    }
+
+    /**
+     * Appends a put, see {@link FsyncPolicy} for when it returns.
+     *
+     * @param clazz the class of the value, null for a byte array
+     * @param expiresIn the time to live in milliseconds, 0 for none
+     */
+    public void put( K key, byte[] payload, Class<?> clazz, long expiresIn )
+    {
+        final byte[] keyClass = key.getClass().getName().getBytes( UTF_8 );
+        final byte[] serializedKey = serialize( key );
+        if ( serializedKey == null )
+        {
+            return;
+        }
+        final byte[] valueClass = clazz != null ? clazz.getName().getBytes( UTF_8 ) : new byte[0];
+
+        final ByteBuffer record =
+            record( PUT, 2 + keyClass.length + 4 + serializedKey.length + 2 + valueClass.length + 8 + 4
+                + payload.length );
+        record.putShort( (short) keyClass.length ).put( keyClass );
+        record.putInt( serializedKey.length ).put( serializedKey );
+        record.putShort( (short) valueClass.length ).put( valueClass );
+        record.putLong( expiresIn > 0 ? System.currentTimeMillis() + expiresIn : 0 );
+        record.putInt( payload.length ).put( payload );
+        append( record );
+    }
+
+    /**
+     * Appends a free, see {@link FsyncPolicy} for when it returns.
+     */
+    public void free( K key )
+    {
+        final byte[] keyClass = key.getClass().getName().getBytes( UTF_8 );
+        final byte[] serializedKey = serialize( key );
+        if ( serializedKey == null )
+        {
+            return;
+        }
+
+        final ByteBuffer record = record( FREE, 2 + keyClass.length + 4 + serializedKey.length );
+        record.putShort( (short) keyClass.length ).put( keyClass );
+        record.putInt( serializedKey.length ).put( serializedKey );
+        append( record );
+    }
+
+    /**
+     * Appends the removal of every entry, see {@link FsyncPolicy} for when it returns.
+     */
+    public void clear()
+    {
+        append( record( CLEAR, 0 ) );
+    }
+
+    /**
+     * Replaces the full segments by a snapshot of the cache. Called in the background once
+     * <code>compactionThreshold</code> segments are full.
+     */
+    public void compact()
+        throws IOException
+    {
+        checkState( cacheService != null, "The journal is not open" );
+        synchronized ( compactionLock )
+        {
+            final long first;
+            synchronized ( channelLock )
+            {
+                if ( channel == null )
+                {
+                    return;
+                }
+                roll();
+                first = segment;
+                fullSegments = 0;
+            }
+
+            final long start = System.nanoTime();
+            new SnapshotWriter<K, V>( cacheService ).write( file( first, SNAPSHOT_SUFFIX ) );
+            delete( list( SNAPSHOT_SUFFIX ).headMap( first ) );
+            delete( list( SEGMENT_SUFFIX ).headMap( first ) );
+            logger.info( format( "journal %s compacted in %.1f s", directory, ( System.nanoTime() - start ) / 1e9d ) );
+        }
+    }
+
+    /**
+     * @return true once writing the journal failed, the following operations not being journaled any more
+     */
+    public boolean isFailed()
+    {
+        synchronized ( lock )
+        {
+            return failed;
+        }
+    }
+
+    /**
+     * @return the number of records appended since the journal was opened
+     */
+    public long getRecords()
+    {
+        synchronized ( lock )
+        {
+            return appended;
+        }
+    }
+
+    /**
+     * @return the number of batches written since the journal was opened, lower than the number of records when the
+     *         writers are concurrent
+     */
+    public long getBatches()
+    {
+        synchronized ( lock )
+        {
+            return batches;
+        }
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        synchronized ( lock )
+        {
+            if ( closed )
+            {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        if ( committer != null )
+        {
+            try
+            {
+                committer.join();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized ( compactionLock )
+        {
+            synchronized ( channelLock )
+            {
+                if ( channel != null )
+                {
+                    channel.force( false );
+                    channel.close();
+                    channel = null;
+                }
+            }
+        }
+    }
+
+    private ByteBuffer record( byte operation, int length )
+    {
+        final ByteBuffer record = ByteBuffer.allocate( RECORD_HEADER_SIZE + 1 + length );
+        record.position( RECORD_HEADER_SIZE );
+        record.put( operation );
+        return record;
+    }
+
+    private void append( ByteBuffer record )
+    {
+        final CRC32 crc = new CRC32();
+        crc.update( record.array(), RECORD_HEADER_SIZE, record.capacity() - RECORD_HEADER_SIZE );
+        record.putInt( 0, record.capacity() - RECORD_HEADER_SIZE ).putInt( 4, (int) crc.getValue() );
+
+        synchronized ( lock )
+        {
+            try
+            {
+                while ( pendingLength > MAX_PENDING && !failed && !closed )
+                {
+                    lock.wait();
+                }
+                if ( failed || closed )
+                {
+                    return;
+                }
+
+                if ( pendingLength + record.capacity() > pending.length )
+                {
+                    pending = Arrays.copyOf( pending, Math.max( pending.length * 2, pendingLength + record.capacity() ) );
+                }
+                System.arraycopy( record.array(), 0, pending, pendingLength, record.capacity() );
+                pendingLength += record.capacity();
+                final long sequence = ++appended;
+                lock.notifyAll();
+
+                if ( fsyncPolicy == FsyncPolicy.BATCH )
+                {
+                    while ( committed < sequence && !failed )
+                    {
+                        lock.wait();
+                    }
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void commitLoop()
+    {
+        byte[] spare = new byte[pending.length];
+        long lastForce = System.currentTimeMillis();
+        boolean unforced = false;
+        try
+        {
+            while ( true )
+            {
+                final byte[] batch;
+                final int length;
+                final long sequence;
+                final boolean closing;
+                synchronized ( lock )
+                {
+                    if ( pendingLength == 0 && !closed )
+                    {
+                        lock.wait( fsyncPolicy == FsyncPolicy.INTERVAL && unforced ? fsyncInterval : 0 );
+                    }
+                    batch = pending;
+                    length = pendingLength;
+                    sequence = appended;
+                    closing = closed;
+                    pending = spare;
+                    pendingLength = 0;
+                }
+
+                synchronized ( channelLock )
+                {
+                    if ( length > 0 )
+                    {
+                        final ByteBuffer buffer = ByteBuffer.wrap( batch, 0, length );
+                        while ( buffer.hasRemaining() )
+                        {
+                            channel.write( buffer );
+                        }
+                        segmentBytes += length;
+                        unforced = true;
+                    }
+                    final long now = System.currentTimeMillis();
+                    if ( unforced && ( fsyncPolicy == FsyncPolicy.BATCH
+                        || fsyncPolicy == FsyncPolicy.INTERVAL && now - lastForce >= fsyncInterval ) )
+                    {
+                        channel.force( false );
+                        lastForce = now;
+                        unforced = false;
+                    }
+                    if ( segmentBytes >= segmentSize )
+                    {
+                        roll();
+                        unforced = false;
+                        if ( ++fullSegments >= compactionThreshold && compactionThreshold > 0 )
+                        {
+                            scheduleCompaction();
+                        }
+                    }
+                }
+
+                spare = batch;
+                synchronized ( lock )
+                {
+                    committed = sequence;
+                    if ( length > 0 )
+                    {
+                        batches++;
+                    }
+                    lock.notifyAll();
+                }
+
+                if ( closing && length == 0 )
+                {
+                    return;
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            logger.error( format( "Could not write the journal %s, the following operations will not be journaled",
+                                  directory ), e );
+        }
+        catch ( InterruptedException e )
+        {
+            logger.error( format( "Journal %s interrupted, the following operations will not be journaled",
+                                  directory ) );
+        }
+        synchronized ( lock )
+        {
+            failed = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void scheduleCompaction()
+    {
+        if ( !compactionScheduled.compareAndSet( false, true ) )
+        {
+            return;
+        }
+        final Thread compactor = new Thread( "directmemory-journal-compaction-" + directory.getName() )
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    compact();
+                }
+                catch ( IOException e )
+                {
+                    logger.error( format( "Could not compact the journal %s", directory ), e );
+                }
+                finally
+                {
+                    compactionScheduled.set( false );
+                }
+            }
+        };
+        compactor.setDaemon( true );
+        compactor.start();
+    }
+
+    // guarded by channelLock
+    private void roll()
+        throws IOException
+    {
+        channel.force( false );
+        channel.close();
+        segment++;
+        openSegment();
+    }
+
+    // guarded by channelLock
+    private void openSegment()
+        throws IOException
+    {
+        channel = new FileOutputStream( file( segment, SEGMENT_SUFFIX ) ).getChannel();
+        segmentBytes = 0;
+    }
+
+    /**
+     * Applies the records of a segment to the cache, up to the first torn or corrupted one.
+     *
+     * @return the number of records applied
+     */
+    private long replay( File file )
+        throws IOException
+    {
+        final DataInputStream in =
+            new DataInputStream( new BufferedInputStream( new FileInputStream( file ), 1024 * 1024 ) );
+        long records = 0;
+        try
+        {
+            long remaining = file.length();
+            while ( remaining > 0 )
+            {
+                if ( remaining < RECORD_HEADER_SIZE )
+                {
+                    logger.warn( format( "torn record at the end of %s", file ) );
+                    break;
+                }
+                final int length = in.readInt();
+                final int checksum = in.readInt();
+                if ( length <= 0 || length > remaining - RECORD_HEADER_SIZE )
+                {
+                    logger.warn( format( "torn record at the end of %s", file ) );
+                    break;
+                }
+                final byte[] body = new byte[length];
+                in.readFully( body );
+                final CRC32 crc = new CRC32();
+                crc.update( body );
+                if ( (int) crc.getValue() != checksum )
+                {
+                    logger.warn( format( "corrupted record in %s, the end of the segment is ignored", file ) );
+                    break;
+                }
+                apply( ByteBuffer.wrap( body ) );
+                remaining -= RECORD_HEADER_SIZE + length;
+                records++;
+            }
+        }
+        catch ( EOFException e )
+        {
+            logger.warn( format( "torn record at the end of %s", file ) );
+        }
+        catch ( ClassNotFoundException e )
+        {
+            throw new IOException( format( "Impossible to replay %s : %s", file, e ), e );
+        }
+        catch ( InstantiationException e )
+        {
+            throw new IOException( format( "Impossible to replay %s : %s", file, e ), e );
+        }
+        catch ( IllegalAccessException e )
+        {
+            throw new IOException( format( "Impossible to replay %s : %s", file, e ), e );
+        }
+        finally
+        {
+            in.close();
+        }
+        return records;
+    }
+
+    private void apply( ByteBuffer record )
+        throws IOException, ClassNotFoundException, InstantiationException, IllegalAccessException
+    {
+        final byte operation = record.get();
+        if ( operation == CLEAR )
+        {
+            cacheService.clear();
+            return;
+        }
+
+        final byte[] keyClass = new byte[record.getShort() & 0xFFFF];
+        record.get( keyClass );
+        final byte[] serializedKey = new byte[record.getInt()];
+        record.get( serializedKey );
+        @SuppressWarnings( "unchecked" ) // the keys of the journal were written by a cache of the same type
+        final K key = (K) cacheService.getSerializer().deserialize( serializedKey, classForName( keyClass ) );
+
+        if ( operation == FREE )
+        {
+            cacheService.free( key );
+            return;
+        }
+        if ( operation != PUT )
+        {
+            throw new IOException( "Unknown journal operation " + operation );
+        }
+
+        final byte[] valueClass = new byte[record.getShort() & 0xFFFF];
+        record.get( valueClass );
+        final long expiresAt = record.getLong();
+        final byte[] payload = new byte[record.getInt()];
+        record.get( payload );
+
+        final long now = System.currentTimeMillis();
+        if ( expiresAt > 0 && expiresAt <= now )
+        {
+            // the value replaced by this put must not come back
+            cacheService.free( key );
+            return;
+        }
+        final Pointer<V> pointer = cacheService.putByteArray( key, payload, expiresAt > 0 ? expiresAt - now : 0 );
+        if ( pointer != null && valueClass.length > 0 )
+        {
+            @SuppressWarnings( "unchecked" ) // as above
+            final Class<? extends V> clazz = (Class<? extends V>) classForName( valueClass );
+            pointer.setClazz( clazz );
+        }
+    }
+
+    private byte[] serialize( K key )
+    {
+        try
+        {
+            return cacheService.getSerializer().serialize( key );
+        }
+        catch ( IOException e )
+        {
+            logger.error( format( "Impossible to journal the key %s : %s", key, e.getMessage() ) );
+            return null;
+        }
+    }
+
+    private Class<?> classForName( byte[] name )
+        throws ClassNotFoundException
+    {
+        final String className = new String( name, UTF_8 );
+        Class<?> clazz = classes.get( className );
+        if ( clazz == null )
+        {
+            final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+            clazz = Class.forName( className, true,
+                                   contextClassLoader != null ? contextClassLoader : getClass().getClassLoader() );
+            classes.put( className, clazz );
+        }
+        return clazz;
+    }
+
+    private File file( long number, String suffix )
+    {
+        return new File( directory, format( "%016d%s", number, suffix ) );
+    }
+
+    private SortedMap<Long, File> list( String suffix )
+    {
+        final SortedMap<Long, File> files = new TreeMap<Long, File>();
+        final File[] children = directory.listFiles();
+        if ( children != null )
+        {
+            for ( File child : children )
+            {
+                final String name = child.getName();
+                if ( name.endsWith( suffix ) )
+                {
+                    try
+                    {
+                        files.put( Long.parseLong( name.substring( 0, name.length() - suffix.length() ) ), child );
+                    }
+                    catch ( NumberFormatException e )
+                    {
+                        // not one of ours
+                    }
+                }
+            }
+        }
+        return files;
+    }
+
+    private void delete( SortedMap<Long, File> files )
+    {
+        for ( File file : files.values() )
+        {
+            if ( !file.delete() )
+            {
+                logger.warn( format( "Impossible to delete %s", file ) );
+            }
+        }
+    }
+
+}
@@ -0,0 +1,339 @@
+package org.apache.directmemory.cache.journal;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.cache.CacheStatistics;
+import org.apache.directmemory.memory.MemoryManagerService;
+import org.apache.directmemory.memory.Pointer;
+import org.apache.directmemory.serialization.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link CacheService} decorator appending the puts, frees and clears to a {@link Journal}, once applied to the
+ * decorated service. A put which could not be stored is journaled as a free, as the previous value of the key was
+ * freed, and a free by pointer is journaled as a free of the key holding the pointer, found by walking the map. The
+ * entries allocated by {@link #allocate(Object, Class, int)}, whose content is written afterwards, and the entries
+ * evicted by the disposal are not journaled. The puts and frees of a key are applied and journaled under a lock
+ * striped by key, so that they are journaled in the order they were applied. Closing this service closes the journal,
+ * once any running compaction is over, then the decorated service.
+ */
+public class JournalingCacheService<K, V>
+    implements CacheService<K, V>
+{
+
+    private static final Logger logger = LoggerFactory.getLogger( JournalingCacheService.class );
+
+    // Number of locks the keys are striped on, a power of 2
+    private static final int LOCKS = 256;
+
+    private final CacheService<K, V> delegate;
+
+    private final Journal<K, V> journal;
+
+    private final Object[] locks = new Object[LOCKS];
+
+    public JournalingCacheService( CacheService<K, V> delegate, Journal<K, V> journal )
+    {
+        checkArgument( delegate != null, "Impossible to journal a null CacheService" );
+        checkArgument( journal != null, "Impossible to journal a CacheService without a Journal" );
+
+        this.delegate = delegate;
+        this.journal = journal;
+        for ( int i = 0; i < LOCKS; i++ )
+        {
+            locks[i] = new Object();
+        }
+    }
+
+    public Journal<K, V> getJournal()
+    {
+        return journal;
+    }
+
+    @Override
+    public void scheduleDisposalEvery( long period )
+    {
+        delegate.scheduleDisposalEvery( period );
+    }
+
+    @Override
+    public void scheduleDisposalEvery( long period, TimeUnit unit )
+    {
+        delegate.scheduleDisposalEvery( period, unit );
+    }
+
+    @Override
+    public Pointer<V> putByteArray( K key, byte[] payload, long expiresIn )
+    {
+        return store( key, payload, null, expiresIn );
+    }
+
+    @Override
+    public Pointer<V> putByteArray( K key, byte[] payload )
+    {
+        return store( key, payload, null, 0 );
+    }
+
+    /**
+     * The payload is copied on heap before being stored, as it is appended to the journal.
+     */
+    @Override
+    public Pointer<V> putStream( K key, InputStream in, int length, long expiresIn )
+        throws IOException
+    {
+        final byte[] payload = new byte[length];
+        new DataInputStream( in ).readFully( payload );
+        return store( key, payload, null, expiresIn );
+    }
+
+    @Override
+    public Pointer<V> putChannel( K key, ReadableByteChannel in, int length, long expiresIn )
+        throws IOException
+    {
+        return putStream( key, Channels.newInputStream( in ), length, expiresIn );
+    }
+
+    @Override
+    public Pointer<V> put( K key, V value, int expiresIn )
+    {
+        final byte[] payload;
+        try
+        {
+            payload = delegate.getSerializer().serialize( value );
+        }
+        catch ( IOException e )
+        {
+            logger.error( "IOException put object in cache:{}", e.getMessage() );
+            return null;
+        }
+        @SuppressWarnings( "unchecked" ) // type driven by the compiler
+        final Class<? extends V> clazz = (Class<? extends V>) value.getClass();
+        return store( key, payload, clazz, expiresIn );
+    }
+
+    @Override
+    public Pointer<V> put( K key, V value )
+    {
+        return put( key, value, 0 );
+    }
+
+    private Pointer<V> store( K key, byte[] payload, Class<? extends V> clazz, long expiresIn )
+    {
+        synchronized ( lock( key ) )
+        {
+            final Pointer<V> pointer = delegate.putByteArray( key, payload, expiresIn );
+            if ( pointer != null )
+            {
+                if ( clazz != null )
+                {
+                    pointer.setClazz( clazz );
+                }
+                journal.put( key, payload, clazz, expiresIn );
+            }
+            else
+            {
+                journal.free( key );
+            }
+            return pointer;
+        }
+    }
+
+    @Override
+    public byte[] retrieveByteArray( K key )
+    {
+        return delegate.retrieveByteArray( key );
+    }
+
+    @Override
+    public long retrieveStream( K key, OutputStream out )
+        throws IOException
+    {
+        return delegate.retrieveStream( key, out );
+    }
+
+    @Override
+    public long retrieveChannel( K key, WritableByteChannel out )
+        throws IOException
+    {
+        return delegate.retrieveChannel( key, out );
+    }
+
+    @Override
+    public V retrieve( K key )
+    {
+        return delegate.retrieve( key );
+    }
+
+    @Override
+    public Pointer<V> getPointer( K key )
+    {
+        return delegate.getPointer( key );
+    }
+
+    @Override
+    public byte[] retrievePayload( Pointer<V> pointer )
+    {
+        return delegate.retrievePayload( pointer );
+    }
+
+    @Override
+    public void free( K key )
+    {
+        synchronized ( lock( key ) )
+        {
+            delegate.free( key );
+            journal.free( key );
+        }
+    }
+
+    @Override
+    public void free( Pointer<V> pointer )
+    {
+        final K key = keyOf( pointer );
+        if ( key == null )
+        {
+            delegate.free( pointer );
+            return;
+        }
+        synchronized ( lock( key ) )
+        {
+            delegate.free( pointer );
+            // the key may hold another pointer since it was found
+            if ( delegate.getMap().get( key ) == pointer )
+            {
+                journal.free( key );
+            }
+        }
+    }
+
+    private K keyOf( Pointer<V> pointer )
+    {
+        for ( Map.Entry<K, Pointer<V>> entry : delegate.getMap().entrySet() )
+        {
+            if ( entry.getValue() == pointer )
+            {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private Object lock( K key )
+    {
+        final int hash = key.hashCode();
+        return locks[( hash ^ ( hash >>> 16 ) ) & ( LOCKS - 1 )];
+    }
+
+    @Override
+    public void collectExpired()
+    {
+        delegate.collectExpired();
+    }
+
+    @Override
+    public void collectLFU()
+    {
+        delegate.collectLFU();
+    }
+
+    @Override
+    public void collectAll()
+    {
+        delegate.collectAll();
+    }
+
+    @Override
+    public void clear()
+    {
+        delegate.clear();
+        journal.clear();
+    }
+
+    @Override
+    public long entries()
+    {
+        return delegate.entries();
+    }
+
+    @Override
+    public void dump()
+    {
+        delegate.dump();
+    }
+
+    @Override
+    public Map<K, Pointer<V>> getMap()
+    {
+        return delegate.getMap();
+    }
+
+    @Override
+    public Serializer getSerializer()
+    {
+        return delegate.getSerializer();
+    }
+
+    @Override
+    public MemoryManagerService<V> getMemoryManager()
+    {
+        return delegate.getMemoryManager();
+    }
+
+    @Override
+    public CacheStatistics getStatistics()
+    {
+        return delegate.getStatistics();
+    }
+
+    @Override
+    public <T extends V> Pointer<V> allocate( K key, Class<T> type, int size )
+    {
+        return delegate.allocate( key, type, size );
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        try
+        {
+            journal.close();
+        }
+        finally
+        {
+            delegate.close();
+        }
+    }
+
+}
@@ -0,0 +1,463 @@
+package org.apache.directmemory.cache.overflow;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.cache.CacheStatistics;
+import org.apache.directmemory.compression.UndecodablePayloadException;
+import org.apache.directmemory.memory.EvictionListener;
+import org.apache.directmemory.memory.MemoryManagerService;
+import org.apache.directmemory.memory.Pointer;
+import org.apache.directmemory.serialization.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link CacheService} decorator moving the entries evicted from the off-heap memory to an {@link OverflowStore} on
+ * local disk instead of discarding them :
+ * <ul>
+ * <li>{@link #collectLFU()} writes the entries the memory manager evicts to the store, the disposal scheduled by
+ * {@link #scheduleDisposalEvery(long)} running through this decorator</li>
+ * <li>a put which does not fit in the off-heap memory any more is written to the store, although it still returns
+ * null</li>
+ * </ul>
+ * The retrieves missing in the off-heap memory fall through to the store and, when the store promotes on hit, move
+ * the entry found back to the off-heap memory. {@link #entries()} and {@link #getMap()} only count the entries in the
+ * off-heap memory. Closing this service closes the decorated one, then the store.
+ */
+public class OverflowCacheService<K, V>
+    implements CacheService<K, V>
+{
+
+    private static final Logger logger = LoggerFactory.getLogger( OverflowCacheService.class );
+
+    private final CacheService<K, V> delegate;
+
+    private final OverflowStore<K> store;
+
+    private final Timer timer = new Timer( true );
+
+    public OverflowCacheService( CacheService<K, V> delegate, OverflowStore<K> store )
+    {
+        checkArgument( delegate != null, "Impossible to overflow a null CacheService" );
+        checkArgument( store != null, "Impossible to overflow a CacheService without an OverflowStore" );
+
+        this.delegate = delegate;
+        this.store = store;
+    }
+
+    public OverflowStore<K> getStore()
+    {
+        return store;
+    }
+
+    @Override
+    public void scheduleDisposalEvery( long period )
+    {
+        timer.schedule( new TimerTask()
+        {
+            public void run()
+            {
+                logger.info( "begin scheduled disposal" );
+
+                dispose();
+
+                logger.info( "scheduled disposal complete" );
+            }
+        }, period, period );
+
+        logger.info( "disposal scheduled every {} milliseconds", period );
+    }
+
+    @Override
+    public void scheduleDisposalEvery( long period, TimeUnit unit )
+    {
+        scheduleDisposalEvery( unit.toMillis( period ) );
+    }
+
+    @Override
+    public Pointer<V> putByteArray( K key, byte[] payload, long expiresIn )
+    {
+        return store( key, payload, null, expiresIn );
+    }
+
+    @Override
+    public Pointer<V> putByteArray( K key, byte[] payload )
+    {
+        return store( key, payload, null, 0 );
+    }
+
+    /**
+     * The payload is copied on heap before being stored, as it is written to the store when it does not fit in the
+     * off-heap memory.
+     */
+    @Override
+    public Pointer<V> putStream( K key, InputStream in, int length, long expiresIn )
+        throws IOException
+    {
+        final byte[] payload = new byte[length];
+        new DataInputStream( in ).readFully( payload );
+        return store( key, payload, null, expiresIn );
+    }
+
+    @Override
+    public Pointer<V> putChannel( K key, ReadableByteChannel in, int length, long expiresIn )
+        throws IOException
+    {
+        return putStream( key, Channels.newInputStream( in ), length, expiresIn );
+    }
+
+    @Override
+    public Pointer<V> put( K key, V value, int expiresIn )
+    {
+        final byte[] payload;
+        try
+        {
+            payload = delegate.getSerializer().serialize( value );
+        }
+        catch ( IOException e )
+        {
+            logger.error( "IOException put object in cache:{}", e.getMessage() );
+            return null;
+        }
+        @SuppressWarnings( "unchecked" ) // type driven by the compiler
+        final Class<? extends V> clazz = (Class<? extends V>) value.getClass();
+        return store( key, payload, clazz, expiresIn );
+    }
+
+    @Override
+    public Pointer<V> put( K key, V value )
+    {
+        return put( key, value, 0 );
+    }
+
+    private Pointer<V> store( K key, byte[] payload, Class<? extends V> clazz, long expiresIn )
+    {
+        final Pointer<V> pointer = delegate.putByteArray( key, payload, expiresIn );
+        if ( pointer != null )
+        {
+            if ( clazz != null )
+            {
+                pointer.setClazz( clazz );
+            }
+            store.remove( key );
+        }
+        else
+        {
+            overflow( key, payload, clazz, expiresIn > 0 ? System.currentTimeMillis() + expiresIn : 0 );
+        }
+        return pointer;
+    }
+
+    @Override
+    public byte[] retrieveByteArray( K key )
+    {
+        final byte[] payload = delegate.retrieveByteArray( key );
+        if ( payload != null )
+        {
+            return payload;
+        }
+        final OverflowEntry entry = readBack( key );
+        return entry != null ? entry.getPayload() : null;
+    }
+
+    @Override
+    public long retrieveStream( K key, OutputStream out )
+        throws IOException
+    {
+        final long length = delegate.retrieveStream( key, out );
+        if ( length >= 0 )
+        {
+            return length;
+        }
+        final OverflowEntry entry = readBack( key );
+        if ( entry == null )
+        {
+            return -1;
+        }
+        out.write( entry.getPayload() );
+        return entry.getPayload().length;
+    }
+
+    @Override
+    public long retrieveChannel( K key, WritableByteChannel out )
+        throws IOException
+    {
+        return retrieveStream( key, Channels.newOutputStream( out ) );
+    }
+
+    @Override
+    public V retrieve( K key )
+    {
+        final V value = delegate.retrieve( key );
+        if ( value != null )
+        {
+            return value;
+        }
+        final OverflowEntry entry = readBack( key );
+        if ( entry == null || entry.getClazz() == null )
+        {
+            return null;
+        }
+        try
+        {
+            @SuppressWarnings( "unchecked" ) // the class was the one of a value
+            final V deserialized = (V) delegate.getSerializer().deserialize( entry.getPayload(), entry.getClazz() );
+            return deserialized;
+        }
+        catch ( Exception e )
+        {
+            logger.error( e.getMessage() );
+            return null;
+        }
+    }
+
+    /**
+     * Reads an entry from the store, moving it back to the off-heap memory if the store promotes on hit.
+     */
+    private OverflowEntry readBack( K key )
+    {
+        final OverflowEntry entry = store.read( key );
+        if ( entry != null && store.isPromoteOnHit() )
+        {
+            final Pointer<V> pointer = delegate.putByteArray( key, entry.getPayload(), entry.getExpiresIn() );
+            if ( pointer != null )
+            {
+                @SuppressWarnings( "unchecked" ) // the class was the one of a value
+                final Class<? extends V> clazz = (Class<? extends V>) entry.getClazz();
+                pointer.setClazz( clazz );
+                store.remove( key );
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    public Pointer<V> getPointer( K key )
+    {
+        return delegate.getPointer( key );
+    }
+
+    @Override
+    public byte[] retrievePayload( Pointer<V> pointer )
+    {
+        return delegate.retrievePayload( pointer );
+    }
+
+    @Override
+    public void free( K key )
+    {
+        delegate.free( key );
+        store.remove( key );
+    }
+
+    @Override
+    public void free( Pointer<V> pointer )
+    {
+        delegate.free( pointer );
+    }
+
+    @Override
+    public void collectExpired()
+    {
+        delegate.collectExpired();
+        store.collectExpired();
+    }
+
+    /**
+     * Moves the entries evicted by the memory manager of the decorated service to the store.
+     */
+    @Override
+    public synchronized void collectLFU()
+    {
+        final MemoryManagerService<V> memoryManager = delegate.getMemoryManager();
+        final Map<Pointer<V>, byte[]> payloads = new IdentityHashMap<Pointer<V>, byte[]>();
+        memoryManager.setEvictionListener( new EvictionListener<V>()
+        {
+            @Override
+            public void evicting( Pointer<V> pointer )
+            {
+                try
+                {
+                    final byte[] payload = delegate.retrievePayload( pointer );
+                    if ( payload != null )
+                    {
+                        payloads.put( pointer, payload );
+                    }
+                }
+                catch ( UndecodablePayloadException e )
+                {
+                    // already logged and counted by the cache, spilling it would not make it readable
+                }
+            }
+        } );
+        try
+        {
+            delegate.collectLFU();
+        }
+        finally
+        {
+            memoryManager.setEvictionListener( null );
+        }
+        if ( payloads.isEmpty() )
+        {
+            return;
+        }
+
+        // a deduplicated payload is moved for each of its keys
+        long evicted = 0;
+        final Iterator<Map.Entry<K, Pointer<V>>> iterator = delegate.getMap().entrySet().iterator();
+        while ( iterator.hasNext() )
+        {
+            final Map.Entry<K, Pointer<V>> entry = iterator.next();
+            final Pointer<V> pointer = entry.getValue();
+            final byte[] payload = payloads.get( pointer );
+            if ( payload != null )
+            {
+                iterator.remove();
+                final long expiresAt =
+                    pointer.getExpires() > 0 || pointer.getExpiresIn() > 0 ? pointer.getCreated()
+                                    + pointer.getExpiresIn() : 0;
+                overflow( entry.getKey(), payload, pointer.getClazz(), expiresAt );
+                evicted++;
+            }
+        }
+        logger.debug( "{} entries moved to the overflow store", evicted );
+    }
+
+    @Override
+    public void collectAll()
+    {
+        Thread thread = new Thread()
+        {
+            public void run()
+            {
+                logger.info( "begin disposal" );
+                dispose();
+                logger.info( "disposal complete" );
+            }
+        };
+        thread.start();
+    }
+
+    private void dispose()
+    {
+        collectExpired();
+        collectLFU();
+    }
+
+    private void overflow( K key, byte[] payload, Class<?> clazz, long expiresAt )
+    {
+        try
+        {
+            if ( !store.write( key, payload, clazz, expiresAt ) )
+            {
+                store.remove( key );
+            }
+        }
+        catch ( IOException e )
+        {
+            logger.error( "IOException writing to the overflow store:{}", e.getMessage() );
+            store.remove( key );
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        delegate.clear();
+        store.clear();
+    }
+
+    @Override
+    public long entries()
+    {
+        return delegate.entries();
+    }
+
+    @Override
+    public void dump()
+    {
+        delegate.dump();
+    }
+
+    @Override
+    public Map<K, Pointer<V>> getMap()
+    {
+        return delegate.getMap();
+    }
+
+    @Override
+    public Serializer getSerializer()
+    {
+        return delegate.getSerializer();
+    }
+
+    @Override
+    public MemoryManagerService<V> getMemoryManager()
+    {
+        return delegate.getMemoryManager();
+    }
+
+    @Override
+    public CacheStatistics getStatistics()
+    {
+        return delegate.getStatistics();
+    }
+
+    @Override
+    public <T extends V> Pointer<V> allocate( K key, Class<T> type, int size )
+    {
+        store.remove( key );
+        return delegate.allocate( key, type, size );
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        timer.cancel();
+        try
+        {
+            delegate.close();
+        }
+        finally
+        {
+            store.close();
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package org.apache.directmemory.cache.overflow;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * An entry read back from an {@link OverflowStore}.
+ */
+public final class OverflowEntry
+{
+
+    private final byte[] payload;
+
+    private final Class<?> clazz;
+
+    private final long expiresAt;
+
+    OverflowEntry( byte[] payload, Class<?> clazz, long expiresAt )
+    {
+        this.payload = payload;
+        this.clazz = clazz;
+        this.expiresAt = expiresAt;
+    }
+
+    public byte[] getPayload()
+    {
+        return payload;
+    }
+
+    /**
+     * @return the class of the value, null for a byte array
+     */
+    public Class<?> getClazz()
+    {
+        return clazz;
+    }
+
+    /**
+     * @return the wall clock time the entry expires at in milliseconds, 0 if it never expires
+     */
+    public long getExpiresAt()
+    {
+        return expiresAt;
+    }
+
+    /**
+     * @return the time to live left in milliseconds, 0 if the entry never expires
+     */
+    public long getExpiresIn()
+    {
+        return expiresAt > 0 ? Math.max( 1, expiresAt - System.currentTimeMillis() ) : 0;
+    }
+
+}
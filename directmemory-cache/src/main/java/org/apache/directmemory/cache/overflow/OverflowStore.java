@@ -0,0 +1,514 @@
+package org.apache.directmemory.cache.overflow;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Log-structured store on local disk of the entries evicted from the off-heap memory, see
+ * {@link OverflowCacheService}. The payloads are appended to numbered segment files through a direct write buffer,
+ * so that the disk only sees large sequential writes, while their location, class and expiration time are kept in an
+ * on-heap index by key. Overwritten and removed payloads are only dropped from the index : before a write would make
+ * the segments exceed the capacity of the store, the oldest segment is deleted with the entries it still holds, the
+ * store behaving as a FIFO of the evictions. The segments are deleted when the store is closed, an overflow store does not survive a
+ * restart.
+ */
+public class OverflowStore<K>
+    implements Closeable
+{
+
+    public static final long DEFAULT_CAPACITY = 1024L * 1024 * 1024;
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final File directory;
+
+    private long capacity = DEFAULT_CAPACITY;
+
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+
+    private boolean promoteOnHit = true;
+
+    private final ConcurrentMap<K, Location> index = new ConcurrentHashMap<K, Location>();
+
+    // guarded by this
+    private final LinkedList<Segment> segments = new LinkedList<Segment>();
+
+    private Segment active;
+
+    private ByteBuffer writeBuffer;
+
+    private long nextSegment;
+
+    private long size;
+
+    private boolean closed;
+
+    private final AtomicLong writes = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    public OverflowStore( File directory )
+    {
+        checkArgument( directory != null, "Impossible to create an OverflowStore without directory" );
+        this.directory = directory;
+    }
+
+    /**
+     * @param capacity the bytes of disk the segments may use
+     */
+    public OverflowStore<K> setCapacity( long capacity )
+    {
+        checkArgument( capacity > 0, "Impossible to create an OverflowStore with a capacity lesser than 1" );
+        this.capacity = capacity;
+        return this;
+    }
+
+    /**
+     * @param segmentSize the size of the segment files, which bounds the size of the stored payloads
+     */
+    public OverflowStore<K> setSegmentSize( int segmentSize )
+    {
+        checkArgument( segmentSize > 0, "Impossible to create an OverflowStore with a segmentSize lesser than 1" );
+        this.segmentSize = segmentSize;
+        return this;
+    }
+
+    /**
+     * @param promoteOnHit true to move the entries read back from the disk to the off-heap memory
+     */
+    public OverflowStore<K> setPromoteOnHit( boolean promoteOnHit )
+    {
+        this.promoteOnHit = promoteOnHit;
+        return this;
+    }
+
+    public boolean isPromoteOnHit()
+    {
+        return promoteOnHit;
+    }
+
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Appends an entry, replacing any previous one with the same key.
+     *
+     * @param clazz the class of the value, null for a byte array
+     * @param expiresAt the wall clock time the entry expires at in milliseconds, 0 if it never expires
+     * @return false if the entry can not be stored
+     */
+    public synchronized boolean write( K key, byte[] payload, Class<?> clazz, long expiresAt )
+        throws IOException
+    {
+        checkState( !closed, "The overflow store is closed" );
+        if ( payload.length > segmentSize || payload.length > capacity )
+        {
+            return false;
+        }
+
+        // makes room before appending, the active segment being rolled once it is the only one left so that it can
+        // be dropped as well when the capacity is lower than the segment size
+        while ( size + payload.length > capacity )
+        {
+            if ( segments.size() == 1 )
+            {
+                roll();
+            }
+            dropOldest();
+        }
+
+        if ( active == null || active.length + writeBuffer.position() + payload.length > segmentSize )
+        {
+            roll();
+        }
+        final long offset = active.length + writeBuffer.position();
+        if ( payload.length > writeBuffer.remaining() )
+        {
+            flush();
+        }
+        if ( payload.length > writeBuffer.capacity() )
+        {
+            final ByteBuffer buffer = ByteBuffer.wrap( payload );
+            while ( buffer.hasRemaining() )
+            {
+                active.channel.write( buffer, active.length + buffer.position() );
+            }
+            active.length += payload.length;
+        }
+        else
+        {
+            writeBuffer.put( payload );
+        }
+
+        final Location location = new Location( active, offset, payload.length, clazz, expiresAt );
+        active.live += payload.length;
+        discard( index.put( key, location ) );
+        size += payload.length;
+        writes.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Reads back an entry, the expired entries being removed.
+     *
+     * @return the entry or null if it is not in the store
+     */
+    public OverflowEntry read( K key )
+    {
+        final Location location = index.get( key );
+        if ( location == null )
+        {
+            misses.incrementAndGet();
+            return null;
+        }
+        if ( location.isExpired() )
+        {
+            remove( key, location );
+            misses.incrementAndGet();
+            return null;
+        }
+
+        final ByteBuffer payload = ByteBuffer.allocate( location.length );
+        try
+        {
+            synchronized ( this )
+            {
+                if ( location.segment == active && location.offset + location.length > active.length )
+                {
+                    flush();
+                }
+            }
+            while ( payload.hasRemaining() )
+            {
+                if ( location.segment.channel.read( payload, location.offset + payload.position() ) < 0 )
+                {
+                    throw new IOException( "Unexpected end of " + location.segment.file );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            // the segment was dropped meanwhile
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return new OverflowEntry( payload.array(), location.clazz, location.expiresAt );
+    }
+
+    /**
+     * @return true if the store held an entry for the key
+     */
+    public boolean remove( K key )
+    {
+        final Location location = index.remove( key );
+        if ( location != null )
+        {
+            synchronized ( this )
+            {
+                discard( location );
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void remove( K key, Location location )
+    {
+        if ( index.remove( key, location ) )
+        {
+            synchronized ( this )
+            {
+                discard( location );
+            }
+        }
+    }
+
+    public boolean contains( K key )
+    {
+        final Location location = index.get( key );
+        return location != null && !location.isExpired();
+    }
+
+    /**
+     * Removes the expired entries from the index.
+     *
+     * @return the number of entries removed
+     */
+    public long collectExpired()
+    {
+        long removed = 0;
+        for ( Map.Entry<K, Location> entry : index.entrySet() )
+        {
+            if ( entry.getValue().isExpired() && index.remove( entry.getKey(), entry.getValue() ) )
+            {
+                synchronized ( this )
+                {
+                    discard( entry.getValue() );
+                }
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every entry and deletes the segments.
+     */
+    public synchronized void clear()
+    {
+        index.clear();
+        while ( !segments.isEmpty() )
+        {
+            delete( segments.removeFirst() );
+        }
+        active = null;
+        size = 0;
+    }
+
+    /**
+     * @return the number of entries in the store
+     */
+    public long entries()
+    {
+        return index.size();
+    }
+
+    /**
+     * @return the bytes of disk used by the segments, including the overwritten and removed payloads
+     */
+    public synchronized long size()
+    {
+        return size;
+    }
+
+    /**
+     * @return the bytes of the payloads still referenced by the index
+     */
+    public synchronized long liveSize()
+    {
+        long live = 0;
+        for ( Segment segment : segments )
+        {
+            live += segment.live;
+        }
+        return live;
+    }
+
+    public long getWrites()
+    {
+        return writes.get();
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of entries lost when their segment was deleted to make room
+     */
+    public long getDropped()
+    {
+        return dropped.get();
+    }
+
+    @Override
+    public synchronized void close()
+        throws IOException
+    {
+        if ( closed )
+        {
+            return;
+        }
+        clear();
+        closed = true;
+        logger.info( format( "overflow store %s closed, %d writes, %d hits, %d misses, %d dropped", directory,
+                             writes.get(), hits.get(), misses.get(), dropped.get() ) );
+    }
+
+    // guarded by this
+    private void discard( Location location )
+    {
+        if ( location != null )
+        {
+            location.segment.live -= location.length;
+        }
+    }
+
+    // guarded by this
+    private void roll()
+        throws IOException
+    {
+        if ( active != null )
+        {
+            flush();
+        }
+        else if ( !directory.isDirectory() && !directory.mkdirs() )
+        {
+            throw new IOException( "Impossible to create the overflow directory " + directory );
+        }
+        if ( writeBuffer == null )
+        {
+            writeBuffer = ByteBuffer.allocateDirect( Math.min( WRITE_BUFFER_SIZE, segmentSize ) );
+        }
+
+        final File file = new File( directory, format( "%016d.overflow", nextSegment++ ) );
+        final RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        raf.setLength( 0 );
+        active = new Segment( file, raf.getChannel() );
+        segments.addLast( active );
+    }
+
+    // guarded by this
+    private void flush()
+        throws IOException
+    {
+        writeBuffer.flip();
+        while ( writeBuffer.hasRemaining() )
+        {
+            active.length += active.channel.write( writeBuffer, active.length );
+        }
+        writeBuffer.clear();
+    }
+
+    // guarded by this
+    private void dropOldest()
+    {
+        final Segment oldest = segments.removeFirst();
+        for ( Iterator<Map.Entry<K, Location>> iterator = index.entrySet().iterator(); iterator.hasNext(); )
+        {
+            final Map.Entry<K, Location> entry = iterator.next();
+            if ( entry.getValue().segment == oldest && index.remove( entry.getKey(), entry.getValue() ) )
+            {
+                dropped.incrementAndGet();
+            }
+        }
+        delete( oldest );
+    }
+
+    // guarded by this
+    private void delete( Segment segment )
+    {
+        size -= segment.length;
+        if ( segment == active )
+        {
+            size -= writeBuffer.position();
+            writeBuffer.clear();
+        }
+        try
+        {
+            segment.channel.close();
+        }
+        catch ( IOException e )
+        {
+            logger.warn( format( "Impossible to close %s", segment.file ), e );
+        }
+        if ( !segment.file.delete() )
+        {
+            logger.warn( format( "Impossible to delete %s", segment.file ) );
+        }
+    }
+
+    private static final class Segment
+    {
+
+        private final File file;
+
+        private final FileChannel channel;
+
+        // bytes written to the file, guarded by the store
+        private long length;
+
+        // bytes still referenced by the index, guarded by the store
+        private long live;
+
+        Segment( File file, FileChannel channel )
+        {
+            this.file = file;
+            this.channel = channel;
+        }
+
+    }
+
+    private static final class Location
+    {
+
+        private final Segment segment;
+
+        private final long offset;
+
+        private final int length;
+
+        private final Class<?> clazz;
+
+        private final long expiresAt;
+
+        Location( Segment segment, long offset, int length, Class<?> clazz, long expiresAt )
+        {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.clazz = clazz;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired()
+        {
+            return expiresAt > 0 && expiresAt <= System.currentTimeMillis();
+        }
+
+    }
+
+}
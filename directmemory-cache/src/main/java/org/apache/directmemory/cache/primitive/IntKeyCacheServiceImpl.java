@@ -0,0 +1,161 @@
+package org.apache.directmemory.cache.primitive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directmemory.cache.CacheStatistics;
+import org.apache.directmemory.memory.MemoryManagerService;
+import org.apache.directmemory.memory.Pointer;
+import org.apache.directmemory.serialization.Serializer;
+
+/**
+ * {@link IntKeyCacheService} widening its keys to the longs of a {@link LongKeyCacheServiceImpl}.
+ */
+public class IntKeyCacheServiceImpl<V>
+    implements IntKeyCacheService<V>
+{
+
+    private final LongKeyCacheServiceImpl<V> delegate;
+
+    public IntKeyCacheServiceImpl( MemoryManagerService<V> memoryManager, Serializer serializer,
+                                   int concurrencyLevel, int initialCapacity )
+    {
+        delegate = new LongKeyCacheServiceImpl<V>( memoryManager, serializer, concurrencyLevel, initialCapacity );
+    }
+
+    @Override
+    public void scheduleDisposalEvery( long period )
+    {
+        delegate.scheduleDisposalEvery( period );
+    }
+
+    @Override
+    public void scheduleDisposalEvery( long period, TimeUnit unit )
+    {
+        delegate.scheduleDisposalEvery( period, unit );
+    }
+
+    @Override
+    public Pointer<V> putByteArray( int key, byte[] payload, long expiresIn )
+    {
+        return delegate.putByteArray( key, payload, expiresIn );
+    }
+
+    @Override
+    public Pointer<V> putByteArray( int key, byte[] payload )
+    {
+        return delegate.putByteArray( key, payload );
+    }
+
+    @Override
+    public Pointer<V> put( int key, V value, int expiresIn )
+    {
+        return delegate.put( key, value, expiresIn );
+    }
+
+    @Override
+    public Pointer<V> put( int key, V value )
+    {
+        return delegate.put( key, value );
+    }
+
+    @Override
+    public byte[] retrieveByteArray( int key )
+    {
+        return delegate.retrieveByteArray( key );
+    }
+
+    @Override
+    public V retrieve( int key )
+    {
+        return delegate.retrieve( key );
+    }
+
+    @Override
+    public Pointer<V> getPointer( int key )
+    {
+        return delegate.getPointer( key );
+    }
+
+    @Override
+    public void free( int key )
+    {
+        delegate.free( key );
+    }
+
+    @Override
+    public void collectExpired()
+    {
+        delegate.collectExpired();
+    }
+
+    @Override
+    public void collectLFU()
+    {
+        delegate.collectLFU();
+    }
+
+    @Override
+    public void collectAll()
+    {
+        delegate.collectAll();
+    }
+
+    @Override
+    public void clear()
+    {
+        delegate.clear();
+    }
+
+    @Override
+    public long entries()
+    {
+        return delegate.entries();
+    }
+
+    @Override
+    public Serializer getSerializer()
+    {
+        return delegate.getSerializer();
+    }
+
+    @Override
+    public MemoryManagerService<V> getMemoryManager()
+    {
+        return delegate.getMemoryManager();
+    }
+
+    @Override
+    public CacheStatistics getStatistics()
+    {
+        return delegate.getStatistics();
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        delegate.close();
+    }
+
+}
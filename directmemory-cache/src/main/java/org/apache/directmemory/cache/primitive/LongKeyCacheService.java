@@ -0,0 +1,175 @@
+package org.apache.directmemory.cache.primitive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directmemory.cache.CacheStatistics;
+import org.apache.directmemory.memory.MemoryManagerService;
+import org.apache.directmemory.memory.Pointer;
+import org.apache.directmemory.serialization.Serializer;
+
+/**
+ * Cache keyed by primitive <code>long</code>s, the counterpart of {@link org.apache.directmemory.cache.CacheService}
+ * which neither boxes the keys nor keeps a map entry per key.
+ */
+public interface LongKeyCacheService<V>
+    extends Closeable
+{
+
+    /**
+     * Schedules the disposal event with the given period in milliseconds.
+     * 
+     * @param period The time period in milliseconds
+     */
+    void scheduleDisposalEvery( long period );
+
+    /**
+     * Schedules the disposal event with the given period with the given {@link TimeUnit}.
+     * 
+     * @param period The time period
+     * @param unit The period's timeunit
+     */
+    void scheduleDisposalEvery( long period, TimeUnit unit );
+
+    /**
+     * Stored a preserialized payload with the given key. The expiration is set to the given expiresIn value in
+     * milliseconds. If not enough space found to store the payload the returned pointer is null.
+     * 
+     * @param key The key to save the payload with
+     * @param payload The preserialized payload as bytearray
+     * @param expiresIn The expiration delay
+     * @return The created pointer to directly retrieve the payload or null if not enough space was found
+     */
+    Pointer<V> putByteArray( long key, byte[] payload, long expiresIn );
+
+    /**
+     * Stored a preserialized payload with the given key with no expiration value. If not enough space found to store
+     * the payload the returned pointer is null.
+     * 
+     * @param key The key to save the payload with
+     * @param payload The preserialized payload as bytearray
+     * @return The created pointer to directly retrieve the payload or null if not enough space was found
+     */
+    Pointer<V> putByteArray( long key, byte[] payload );
+
+    /**
+     * Serializes and stored the given value using the key. The expiration is set to the given expiresIn value in
+     * milliseconds. If not enough space found to store the payload the returned pointer is null.
+     * 
+     * @param key The key to save the value with
+     * @param value The value to serialize and store
+     * @param expiresIn The expiration delay
+     * @return The created pointer to directly retrieve the payload or null if not enough space was found
+     */
+    Pointer<V> put( long key, V value, int expiresIn );
+
+    /**
+     * Serializes and stored the given value using the key with no expiration value. If not enough space found to
+     * store the payload the returned pointer is null.
+     * 
+     * @param key The key to save the value with
+     * @param value The value to serialize and store
+     * @return The created pointer to directly retrieve the payload or null if not enough space was found
+     */
+    Pointer<V> put( long key, V value );
+
+    /**
+     * Retrieves the stored payload for key as a bytearray. If no pointer is found for the given key null is returned.
+     * 
+     * @param key The key to retrieve
+     * @return The payload as bytearray or null if key was not found
+     */
+    byte[] retrieveByteArray( long key );
+
+    /**
+     * Retrieves the stored, deserialized value for key. If no pointer is found for the given key null is returned.
+     * 
+     * @param key The key to retrieve
+     * @return The deserialized value or null if key was not found
+     */
+    V retrieve( long key );
+
+    /**
+     * Retrieves the accociated {@link Pointer} to the given key or null if no pointer was found.
+     * 
+     * @param key The key to retrieve
+     * @return The pointer of the key or null if key was not found
+     */
+    Pointer<V> getPointer( long key );
+
+    /**
+     * Removes the key and frees the underlying memory area.
+     * 
+     * @param key The key to remove
+     */
+    void free( long key );
+
+    /**
+     * Collects the expired entries and removes their keys.
+     */
+    void collectExpired();
+
+    /**
+     * Collects the least frequently used entries and removes their keys.
+     */
+    void collectLFU();
+
+    /**
+     * Collects the expired, then the least frequently used entries in a new thread.
+     */
+    void collectAll();
+
+    /**
+     * Removes all keys and frees all memory areas.
+     */
+    void clear();
+
+    /**
+     * Retrieves the count of the current entries.
+     * 
+     * @return Number of entries
+     */
+    long entries();
+
+    /**
+     * Retrieves the internally used {@link Serializer} implementation.
+     * 
+     * @return The used serializer
+     */
+    Serializer getSerializer();
+
+    /**
+     * Retrieves the internally used {@link MemoryManagerService} implementation.
+     * 
+     * @return The used memory manager
+     */
+    MemoryManagerService<V> getMemoryManager();
+
+    /**
+     * Retrieves the hit, miss, expiration and disposal counters of this cache.
+     * 
+     * @return The statistics of this cache
+     */
+    CacheStatistics getStatistics();
+
+}
@@ -0,0 +1,304 @@
+package org.apache.directmemory.cache.primitive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directmemory.cache.CacheStatistics;
+import org.apache.directmemory.memory.MemoryManagerService;
+import org.apache.directmemory.memory.Pointer;
+import org.apache.directmemory.serialization.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link LongKeyCacheService} storing the payloads with a {@link MemoryManagerService} and indexing their
+ * {@link Pointer}s in a {@link LongPointerIndex}, so that the only object kept per entry is the pointer of the memory
+ * manager.
+ */
+public class LongKeyCacheServiceImpl<V>
+    implements LongKeyCacheService<V>
+{
+
+    private static final Logger logger = LoggerFactory.getLogger( LongKeyCacheServiceImpl.class );
+
+    private final LongPointerIndex<V> index;
+
+    private final MemoryManagerService<V> memoryManager;
+
+    private final Serializer serializer;
+
+    private final Timer timer = new Timer( true );
+
+    private final CacheStatistics statistics = new CacheStatistics();
+
+    public LongKeyCacheServiceImpl( MemoryManagerService<V> memoryManager, Serializer serializer,
+                                    int concurrencyLevel, int initialCapacity )
+    {
+        checkArgument( memoryManager != null, "Impossible to initialize the CacheService with a null memoryManager" );
+        checkArgument( serializer != null, "Impossible to initialize the CacheService with a null serializer" );
+
+        this.index = new LongPointerIndex<V>( concurrencyLevel, initialCapacity );
+        this.memoryManager = memoryManager;
+        this.serializer = serializer;
+    }
+
+    @Override
+    public void scheduleDisposalEvery( long period, TimeUnit unit )
+    {
+        scheduleDisposalEvery( unit.toMillis( period ) );
+    }
+
+    @Override
+    public void scheduleDisposalEvery( long period )
+    {
+        timer.schedule( new TimerTask()
+        {
+            public void run()
+            {
+                logger.info( "begin scheduled disposal" );
+
+                dispose();
+
+                logger.info( "scheduled disposal complete" );
+            }
+        }, period, period );
+
+        logger.info( "disposal scheduled every {} milliseconds", period );
+    }
+
+    @Override
+    public Pointer<V> putByteArray( long key, byte[] payload )
+    {
+        return store( key, payload, 0 );
+    }
+
+    @Override
+    public Pointer<V> putByteArray( long key, byte[] payload, long expiresIn )
+    {
+        return store( key, payload, expiresIn );
+    }
+
+    @Override
+    public Pointer<V> put( long key, V value )
+    {
+        return put( key, value, 0 );
+    }
+
+    @Override
+    public Pointer<V> put( long key, V value, int expiresIn )
+    {
+        try
+        {
+            final byte[] payload = serializer.serialize( value );
+            final Pointer<V> pointer = store( key, payload, expiresIn );
+            if ( pointer != null )
+            {
+                @SuppressWarnings( "unchecked" ) // type driven by the compiler
+                final Class<? extends V> clazz = (Class<? extends V>) value.getClass();
+                pointer.setClazz( clazz );
+            }
+            return pointer;
+        }
+        catch ( IOException e )
+        {
+            logger.error( "IOException put object in cache:{}", e.getMessage() );
+            return null;
+        }
+    }
+
+    private Pointer<V> store( long key, byte[] payload, long expiresIn )
+    {
+        final Pointer<V> previous = index.get( key );
+        if ( previous != null )
+        {
+            memoryManager.free( previous );
+        }
+        final Pointer<V> pointer = memoryManager.store( payload, expiresIn );
+        if ( pointer != null )
+        {
+            index.put( key, pointer );
+        }
+        else if ( previous != null )
+        {
+            index.remove( key, previous );
+        }
+        return pointer;
+    }
+
+    /**
+     * @return the pointer of the key if it is still valid
+     */
+    private Pointer<V> hit( long key )
+    {
+        final Pointer<V> pointer = index.get( key );
+        if ( pointer == null )
+        {
+            statistics.miss();
+            return null;
+        }
+        if ( pointer.isExpired() || pointer.isFree() )
+        {
+            index.remove( key, pointer );
+            if ( !pointer.isFree() )
+            {
+                memoryManager.free( pointer );
+                statistics.expired();
+            }
+            statistics.miss();
+            return null;
+        }
+        statistics.hit();
+        return pointer;
+    }
+
+    @Override
+    public byte[] retrieveByteArray( long key )
+    {
+        final Pointer<V> pointer = hit( key );
+        return pointer != null ? memoryManager.retrieve( pointer ) : null;
+    }
+
+    @Override
+    public V retrieve( long key )
+    {
+        final Pointer<V> pointer = hit( key );
+        if ( pointer == null )
+        {
+            return null;
+        }
+        try
+        {
+            return serializer.deserialize( memoryManager.retrieve( pointer ), pointer.getClazz() );
+        }
+        catch ( Exception e )
+        {
+            logger.error( e.getMessage() );
+            return null;
+        }
+    }
+
+    @Override
+    public Pointer<V> getPointer( long key )
+    {
+        return index.get( key );
+    }
+
+    @Override
+    public void free( long key )
+    {
+        final Pointer<V> pointer = index.remove( key );
+        if ( pointer != null )
+        {
+            memoryManager.free( pointer );
+        }
+    }
+
+    @Override
+    public void collectExpired()
+    {
+        memoryManager.collectExpired();
+        index.removeFreed();
+    }
+
+    @Override
+    public void collectLFU()
+    {
+        memoryManager.collectLFU();
+        index.removeFreed();
+    }
+
+    @Override
+    public void collectAll()
+    {
+        Thread thread = new Thread()
+        {
+            public void run()
+            {
+                logger.info( "begin disposal" );
+                dispose();
+                logger.info( "disposal complete" );
+            }
+        };
+        thread.start();
+    }
+
+    private void dispose()
+    {
+        final long begunAt = System.nanoTime();
+        collectExpired();
+        collectLFU();
+        statistics.disposed( System.nanoTime() - begunAt );
+    }
+
+    @Override
+    public void clear()
+    {
+        index.clear();
+        memoryManager.clear();
+        logger.info( "Cache cleared" );
+    }
+
+    @Override
+    public long entries()
+    {
+        return index.size();
+    }
+
+    @Override
+    public Serializer getSerializer()
+    {
+        return serializer;
+    }
+
+    @Override
+    public MemoryManagerService<V> getMemoryManager()
+    {
+        return memoryManager;
+    }
+
+    @Override
+    public CacheStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        timer.cancel();
+        memoryManager.close();
+        if ( serializer instanceof Closeable )
+        {
+            ( (Closeable) serializer ).close();
+        }
+        logger.info( format( "Cache closed, %d entries", index.size() ) );
+    }
+
+}
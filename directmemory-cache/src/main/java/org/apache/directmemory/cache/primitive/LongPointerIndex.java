@@ -0,0 +1,312 @@
+package org.apache.directmemory.cache.primitive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import org.apache.directmemory.memory.Pointer;
+
+/**
+ * Concurrent index of the {@link Pointer}s by primitive long key, without any object per entry besides the pointer
+ * itself. The index is split in segments guarded by their own lock, each an open addressing table with linear
+ * probing whose removals shift back the following entries instead of leaving tombstones.
+ */
+final class LongPointerIndex<V>
+{
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final Segment<V>[] segments;
+
+    private final int segmentShift;
+
+    LongPointerIndex( int concurrencyLevel, int initialCapacity )
+    {
+        checkArgument( concurrencyLevel > 0, "The concurrency level must be positive" );
+        checkArgument( initialCapacity >= 0, "The initial capacity must not be negative" );
+
+        int segmentCount = 1;
+        int bits = 0;
+        while ( segmentCount < concurrencyLevel )
+        {
+            segmentCount <<= 1;
+            bits++;
+        }
+        segmentShift = 64 - bits;
+
+        @SuppressWarnings( { "unchecked", "rawtypes" } ) // generic array
+        final Segment<V>[] segments = new Segment[segmentCount];
+        final int segmentCapacity = Math.max( 1, initialCapacity / segmentCount );
+        for ( int i = 0; i < segmentCount; i++ )
+        {
+            segments[i] = new Segment<V>( segmentCapacity );
+        }
+        this.segments = segments;
+    }
+
+    private static long hash( long key )
+    {
+        return key * 0x9E3779B97F4A7C15L;
+    }
+
+    private Segment<V> segmentFor( long hash )
+    {
+        return segments.length == 1 ? segments[0] : segments[(int) ( hash >>> segmentShift )];
+    }
+
+    Pointer<V> get( long key )
+    {
+        final long hash = hash( key );
+        return segmentFor( hash ).get( key, hash );
+    }
+
+    /**
+     * @return the previous pointer of the key, null if none
+     */
+    Pointer<V> put( long key, Pointer<V> pointer )
+    {
+        final long hash = hash( key );
+        return segmentFor( hash ).put( key, hash, pointer );
+    }
+
+    /**
+     * @return the pointer removed, null if none
+     */
+    Pointer<V> remove( long key )
+    {
+        final long hash = hash( key );
+        return segmentFor( hash ).remove( key, hash, null );
+    }
+
+    /**
+     * Removes the key only if it is still mapped to the given pointer.
+     */
+    boolean remove( long key, Pointer<V> pointer )
+    {
+        final long hash = hash( key );
+        return segmentFor( hash ).remove( key, hash, pointer ) != null;
+    }
+
+    /**
+     * Removes the keys whose pointer was freed.
+     *
+     * @return the number of keys removed
+     */
+    long removeFreed()
+    {
+        long removed = 0;
+        for ( Segment<V> segment : segments )
+        {
+            removed += segment.removeFreed();
+        }
+        return removed;
+    }
+
+    long size()
+    {
+        long size = 0;
+        for ( Segment<V> segment : segments )
+        {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    void clear()
+    {
+        for ( Segment<V> segment : segments )
+        {
+            segment.clear();
+        }
+    }
+
+    private static final class Segment<V>
+    {
+
+        private long[] keys;
+
+        // null for the empty slots
+        private Pointer<V>[] pointers;
+
+        private int size;
+
+        private int threshold;
+
+        Segment( int expected )
+        {
+            allocate( tableSize( expected ) );
+        }
+
+        private static int tableSize( int expected )
+        {
+            int capacity = 8;
+            while ( capacity * LOAD_FACTOR < expected )
+            {
+                capacity <<= 1;
+            }
+            return capacity;
+        }
+
+        private void allocate( int capacity )
+        {
+            keys = new long[capacity];
+            @SuppressWarnings( { "unchecked", "rawtypes" } ) // generic array
+            final Pointer<V>[] pointers = new Pointer[capacity];
+            this.pointers = pointers;
+            threshold = (int) ( capacity * LOAD_FACTOR );
+        }
+
+        private int slot( long hash )
+        {
+            return (int) hash & ( keys.length - 1 );
+        }
+
+        synchronized Pointer<V> get( long key, long hash )
+        {
+            final int mask = keys.length - 1;
+            for ( int i = slot( hash ); pointers[i] != null; i = ( i + 1 ) & mask )
+            {
+                if ( keys[i] == key )
+                {
+                    return pointers[i];
+                }
+            }
+            return null;
+        }
+
+        synchronized Pointer<V> put( long key, long hash, Pointer<V> pointer )
+        {
+            final int mask = keys.length - 1;
+            int i = slot( hash );
+            for ( ; pointers[i] != null; i = ( i + 1 ) & mask )
+            {
+                if ( keys[i] == key )
+                {
+                    final Pointer<V> previous = pointers[i];
+                    pointers[i] = pointer;
+                    return previous;
+                }
+            }
+            keys[i] = key;
+            pointers[i] = pointer;
+            if ( ++size > threshold )
+            {
+                resize();
+            }
+            return null;
+        }
+
+        synchronized Pointer<V> remove( long key, long hash, Pointer<V> expected )
+        {
+            final int mask = keys.length - 1;
+            for ( int i = slot( hash ); pointers[i] != null; i = ( i + 1 ) & mask )
+            {
+                if ( keys[i] == key )
+                {
+                    final Pointer<V> removed = pointers[i];
+                    if ( expected != null && removed != expected )
+                    {
+                        return null;
+                    }
+                    delete( i );
+                    return removed;
+                }
+            }
+            return null;
+        }
+
+        synchronized long removeFreed()
+        {
+            long removed = 0;
+            int i = 0;
+            while ( i < keys.length )
+            {
+                if ( pointers[i] != null && pointers[i].isFree() )
+                {
+                    // the slot is filled again by a following entry, if any
+                    delete( i );
+                    removed++;
+                }
+                else
+                {
+                    i++;
+                }
+            }
+            return removed;
+        }
+
+        synchronized int size()
+        {
+            return size;
+        }
+
+        synchronized void clear()
+        {
+            allocate( 8 );
+            size = 0;
+        }
+
+        // guarded by this
+        private void delete( int slot )
+        {
+            final int mask = keys.length - 1;
+            int hole = slot;
+            pointers[hole] = null;
+            size--;
+            for ( int i = ( hole + 1 ) & mask; pointers[i] != null; i = ( i + 1 ) & mask )
+            {
+                final int home = slot( hash( keys[i] ) );
+                // moves back the entries whose probe sequence went through the hole
+                if ( hole <= i ? home <= hole || home > i : home <= hole && home > i )
+                {
+                    keys[hole] = keys[i];
+                    pointers[hole] = pointers[i];
+                    pointers[i] = null;
+                    hole = i;
+                }
+            }
+        }
+
+        // guarded by this
+        private void resize()
+        {
+            final long[] oldKeys = keys;
+            final Pointer<V>[] oldPointers = pointers;
+            allocate( oldKeys.length << 1 );
+            final int mask = keys.length - 1;
+            for ( int j = 0; j < oldKeys.length; j++ )
+            {
+                if ( oldPointers[j] != null )
+                {
+                    int i = slot( hash( oldKeys[j] ) );
+                    while ( pointers[i] != null )
+                    {
+                        i = ( i + 1 ) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    pointers[i] = oldPointers[j];
+                }
+            }
+        }
+
+    }
+
+}
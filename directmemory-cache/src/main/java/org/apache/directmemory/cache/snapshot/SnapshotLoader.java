@@ -0,0 +1,293 @@
+package org.apache.directmemory.cache.snapshot;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.memory.Pointer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads a snapshot written by a {@link SnapshotWriter} in a {@link CacheService}. The chunk headers are read first to
+ * locate the chunks, which are then read and stored by several threads at once, each one reading whole chunks with
+ * positional reads of the shared channel. The entries expired since the snapshot are dropped, the others keep their
+ * expiration time. Entries which do not fit in the cache any more are dropped too.
+ */
+public class SnapshotLoader<K, V>
+{
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final CacheService<K, V> cacheService;
+
+    private final int threads;
+
+    private final ClassLoader classLoader;
+
+    private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<String, Class<?>>();
+
+    private final AtomicLong loaded = new AtomicLong();
+
+    private final AtomicLong expired = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    public SnapshotLoader( CacheService<K, V> cacheService )
+    {
+        this( cacheService, Runtime.getRuntime().availableProcessors() );
+    }
+
+    public SnapshotLoader( CacheService<K, V> cacheService, int threads )
+    {
+        checkArgument( cacheService != null, "Impossible to load a snapshot in a null cacheService" );
+        checkArgument( threads > 0, "Impossible to load a snapshot with a number of threads lesser than 1" );
+        this.cacheService = cacheService;
+        this.threads = threads;
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        this.classLoader = contextClassLoader != null ? contextClassLoader : getClass().getClassLoader();
+    }
+
+    /**
+     * Loads the entries of the given snapshot.
+     *
+     * @return the number of entries stored in the cache
+     */
+    public long load( File file )
+        throws IOException
+    {
+        final long start = System.nanoTime();
+
+        final FileInputStream in = new FileInputStream( file );
+        try
+        {
+            final FileChannel channel = in.getChannel();
+            final List<long[]> chunks = locateChunks( channel );
+
+            final ExecutorService executor = Executors.newFixedThreadPool( Math.min( threads, chunks.size() + 1 ) );
+            try
+            {
+                final List<Future<Void>> loaders = new ArrayList<Future<Void>>();
+                for ( final long[] chunk : chunks )
+                {
+                    loaders.add( executor.submit( new Callable<Void>()
+                    {
+                        @Override
+                        public Void call()
+                            throws Exception
+                        {
+                            load( channel, chunk[0], (int) chunk[1], (int) chunk[2] );
+                            return null;
+                        }
+                    } ) );
+                }
+                for ( Future<Void> loader : loaders )
+                {
+                    loader.get();
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException( "Interrupted while loading " + file );
+            }
+            catch ( ExecutionException e )
+            {
+                final Throwable cause = e.getCause();
+                if ( cause instanceof IOException )
+                {
+                    throw (IOException) cause;
+                }
+                throw new IOException( format( "Impossible to load %s : %s", file, cause ), cause );
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+
+        logger.info( format( "%d entries loaded from %s in %.1f s, %d expired, %d dropped for lack of space",
+                             loaded.get(), file, ( System.nanoTime() - start ) / 1e9d, expired.get(),
+                             dropped.get() ) );
+        return loaded.get();
+    }
+
+    /**
+     * @return the number of entries of the snapshot which had expired when loaded
+     */
+    public long getExpired()
+    {
+        return expired.get();
+    }
+
+    /**
+     * @return the number of entries of the snapshot which did not fit in the cache
+     */
+    public long getDropped()
+    {
+        return dropped.get();
+    }
+
+    /**
+     * @return the position, the length and the number of records of every chunk
+     */
+    private List<long[]> locateChunks( FileChannel channel )
+        throws IOException
+    {
+        final ByteBuffer header = ByteBuffer.allocate( SnapshotWriter.MAGIC.length + 4 + 8 );
+        readFully( channel, header, 0 );
+        final byte[] magic = new byte[SnapshotWriter.MAGIC.length];
+        header.get( magic );
+        if ( !Arrays.equals( magic, SnapshotWriter.MAGIC ) )
+        {
+            throw new IOException( "Not a DirectMemory snapshot" );
+        }
+        final int version = header.getInt();
+        if ( version != SnapshotWriter.VERSION )
+        {
+            throw new IOException( "Unsupported snapshot version " + version );
+        }
+
+        final List<long[]> chunks = new ArrayList<long[]>();
+        final ByteBuffer chunkHeader = ByteBuffer.allocate( SnapshotWriter.CHUNK_HEADER_SIZE );
+        long position = header.capacity();
+        long records = 0;
+        while ( true )
+        {
+            chunkHeader.clear();
+            readFully( channel, chunkHeader, position );
+            final int length = chunkHeader.getInt();
+            if ( length == SnapshotWriter.END_OF_SNAPSHOT )
+            {
+                // the total number of records follows the end marker, on 8 bytes of which 4 are already read
+                final ByteBuffer total = ByteBuffer.allocate( 8 );
+                readFully( channel, total, position + 4 );
+                if ( total.getLong() != records )
+                {
+                    throw new IOException( "Corrupted snapshot, the number of records does not match" );
+                }
+                return chunks;
+            }
+            final int count = chunkHeader.getInt();
+            if ( length < 0 || count < 0 || position + SnapshotWriter.CHUNK_HEADER_SIZE + length > channel.size() )
+            {
+                throw new IOException( "Corrupted snapshot, invalid chunk at " + position );
+            }
+            position += SnapshotWriter.CHUNK_HEADER_SIZE;
+            chunks.add( new long[] { position, length, count } );
+            position += length;
+            records += count;
+        }
+    }
+
+    private void load( FileChannel channel, long position, int length, int count )
+        throws IOException, ClassNotFoundException, InstantiationException, IllegalAccessException
+    {
+        final ByteBuffer chunk = ByteBuffer.allocate( length );
+        readFully( channel, chunk, position );
+
+        final long now = System.currentTimeMillis();
+        for ( int i = 0; i < count; i++ )
+        {
+            final byte[] keyClass = new byte[chunk.getShort() & 0xFFFF];
+            chunk.get( keyClass );
+            final byte[] serializedKey = new byte[chunk.getInt()];
+            chunk.get( serializedKey );
+            final byte[] valueClass = new byte[chunk.getShort() & 0xFFFF];
+            chunk.get( valueClass );
+            final long expiresAt = chunk.getLong();
+            final byte[] payload = new byte[chunk.getInt()];
+            chunk.get( payload );
+
+            if ( expiresAt > 0 && expiresAt <= now )
+            {
+                expired.incrementAndGet();
+                continue;
+            }
+
+            @SuppressWarnings( "unchecked" ) // the keys of the snapshot were written by a cache of the same type
+            final K key = (K) cacheService.getSerializer().deserialize( serializedKey, classForName( keyClass ) );
+            final Pointer<V> pointer = cacheService.putByteArray( key, payload, expiresAt > 0 ? expiresAt - now : 0 );
+            if ( pointer == null )
+            {
+                dropped.incrementAndGet();
+                continue;
+            }
+            if ( valueClass.length > 0 )
+            {
+                @SuppressWarnings( "unchecked" ) // as above
+                final Class<? extends V> clazz = (Class<? extends V>) classForName( valueClass );
+                pointer.setClazz( clazz );
+            }
+            loaded.incrementAndGet();
+        }
+    }
+
+    private Class<?> classForName( byte[] name )
+        throws ClassNotFoundException
+    {
+        final String className = new String( name, SnapshotWriter.UTF_8 );
+        Class<?> clazz = classes.get( className );
+        if ( clazz == null )
+        {
+            clazz = Class.forName( className, true, classLoader );
+            classes.put( className, clazz );
+        }
+        return clazz;
+    }
+
+    private static void readFully( FileChannel channel, ByteBuffer buffer, long position )
+        throws IOException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            if ( channel.read( buffer, position + buffer.position() ) < 0 )
+            {
+                throw new EOFException( "Truncated snapshot" );
+            }
+        }
+        buffer.flip();
+    }
+
+}
@@ -0,0 +1,286 @@
+package org.apache.directmemory.cache.snapshot;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.compression.UndecodablePayloadException;
+import org.apache.directmemory.memory.Pointer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the entries of a {@link CacheService} to a snapshot file, which a {@link SnapshotLoader} loads back in a
+ * new cache. The snapshot starts with a header made of the {@link #MAGIC} bytes, the {@link #VERSION} and the wall
+ * clock time of the snapshot in milliseconds, followed by chunks of records, each chunk being made of its length in
+ * bytes and its number of records. A record holds :
+ * <ul>
+ * <li>the class name and the serialized form of the key</li>
+ * <li>the class name of the value, empty for the payloads stored as byte arrays</li>
+ * <li>the wall clock time the entry expires at in milliseconds, 0 if it never expires</li>
+ * <li>the length and the bytes of the payload</li>
+ * </ul>
+ * The snapshot ends with a chunk of length -1 followed by the total number of records, so that a truncated file is
+ * detected.
+ * <p>
+ * The writers of the cache are not stopped : the entries are copied one by one while the map is walked, an entry
+ * being written only if its pointer is still the one mapped to its key once its payload is copied. The snapshot is
+ * thus consistent entry by entry, not as a whole. The chunks are written sequentially through a large direct buffer,
+ * in a temporary file renamed once complete so that a crash never leaves a partial snapshot behind.
+ */
+public class SnapshotWriter<K, V>
+{
+
+    static final byte[] MAGIC = { 'D', 'M', 'S', 'N' };
+
+    static final int VERSION = 1;
+
+    static final int END_OF_SNAPSHOT = -1;
+
+    static final int CHUNK_HEADER_SIZE = 4 + 4;
+
+    static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+    static final int MIN_CHUNK_SIZE = 64;
+
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final CacheService<K, V> cacheService;
+
+    private final int chunkSize;
+
+    public SnapshotWriter( CacheService<K, V> cacheService )
+    {
+        this( cacheService, DEFAULT_CHUNK_SIZE );
+    }
+
+    /**
+     * @param chunkSize the size of the write buffer, records bigger than it being written in chunks of their own
+     */
+    public SnapshotWriter( CacheService<K, V> cacheService, int chunkSize )
+    {
+        checkArgument( cacheService != null, "Impossible to snapshot a null cacheService" );
+        checkArgument( chunkSize >= MIN_CHUNK_SIZE, "The chunk size must be at least %s bytes", MIN_CHUNK_SIZE );
+        this.cacheService = cacheService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Writes the live entries of the cache to the given file, replacing it once the snapshot is complete.
+     *
+     * @return the number of entries written
+     */
+    public long write( File file )
+        throws IOException
+    {
+        final long start = System.nanoTime();
+        final File temporary = new File( file.getPath() + ".tmp" );
+
+        final FileOutputStream out = new FileOutputStream( temporary );
+        final Chunks chunks;
+        try
+        {
+            final FileChannel channel = out.getChannel();
+            chunks = new Chunks( channel, ByteBuffer.allocateDirect( chunkSize ) );
+
+            final ByteBuffer header = ByteBuffer.allocate( MAGIC.length + 4 + 8 );
+            header.put( MAGIC ).putInt( VERSION ).putLong( System.currentTimeMillis() ).flip();
+            writeFully( channel, header );
+
+            for ( Map.Entry<K, Pointer<V>> entry : cacheService.getMap().entrySet() )
+            {
+                write( chunks, entry.getKey(), entry.getValue() );
+            }
+            chunks.end();
+            channel.force( false );
+        }
+        finally
+        {
+            out.close();
+        }
+
+        if ( !temporary.renameTo( file ) )
+        {
+            // renaming over an existing file fails on some platforms
+            if ( !file.delete() || !temporary.renameTo( file ) )
+            {
+                throw new IOException( format( "Impossible to rename %s to %s", temporary, file ) );
+            }
+        }
+
+        logger.info( format( "snapshot of %d entries (%d skipped) written to %s in %.1f s, %d bytes", chunks.records,
+                             chunks.skipped, file, ( System.nanoTime() - start ) / 1e9d, file.length() ) );
+        return chunks.records;
+    }
+
+    private void write( Chunks chunks, K key, Pointer<V> pointer )
+        throws IOException
+    {
+        if ( pointer == null || pointer.isFree() || pointer.isExpired() )
+        {
+            return;
+        }
+
+        final byte[] payload;
+        try
+        {
+            payload = cacheService.retrievePayload( pointer );
+        }
+        catch ( UndecodablePayloadException e )
+        {
+            // already logged and counted by the cache, the entry can not be read back anyway
+            chunks.skipped++;
+            return;
+        }
+        catch ( RuntimeException e )
+        {
+            // the pointer was freed while being read
+            chunks.skipped++;
+            return;
+        }
+        // the entry was overwritten or removed while being copied, the new pointer may be walked later on
+        if ( payload == null || pointer.isFree() || cacheService.getMap().get( key ) != pointer )
+        {
+            chunks.skipped++;
+            return;
+        }
+
+        final byte[] keyClass = key.getClass().getName().getBytes( UTF_8 );
+        final byte[] serializedKey = cacheService.getSerializer().serialize( key );
+        final byte[] valueClass =
+            pointer.getClazz() != null ? pointer.getClazz().getName().getBytes( UTF_8 ) : new byte[0];
+        final long expiresAt =
+            pointer.getExpires() > 0 || pointer.getExpiresIn() > 0 ? pointer.getCreated() + pointer.getExpiresIn() : 0;
+
+        final ByteBuffer buffer =
+            chunks.reserve( 2 + keyClass.length + 4 + serializedKey.length + 2 + valueClass.length + 8 + 4
+                + payload.length );
+        buffer.putShort( (short) keyClass.length ).put( keyClass );
+        buffer.putInt( serializedKey.length ).put( serializedKey );
+        buffer.putShort( (short) valueClass.length ).put( valueClass );
+        buffer.putLong( expiresAt );
+        buffer.putInt( payload.length ).put( payload );
+    }
+
+    static void writeFully( FileChannel channel, ByteBuffer buffer )
+        throws IOException
+    {
+        while ( buffer.hasRemaining() )
+        {
+            channel.write( buffer );
+        }
+    }
+
+    /**
+     * Accumulates the records in the write buffer, flushing it as a chunk when the next record does not fit.
+     */
+    private static final class Chunks
+    {
+
+        private final FileChannel channel;
+
+        private final ByteBuffer buffer;
+
+        private ByteBuffer oversized;
+
+        private int chunkRecords;
+
+        private long records;
+
+        private long skipped;
+
+        Chunks( FileChannel channel, ByteBuffer buffer )
+        {
+            this.channel = channel;
+            this.buffer = buffer;
+            buffer.position( CHUNK_HEADER_SIZE );
+        }
+
+        ByteBuffer reserve( int recordSize )
+            throws IOException
+        {
+            flushOversized();
+            if ( recordSize > buffer.remaining() )
+            {
+                flush();
+                if ( recordSize > buffer.remaining() )
+                {
+                    oversized = ByteBuffer.allocate( CHUNK_HEADER_SIZE + recordSize );
+                    oversized.position( CHUNK_HEADER_SIZE );
+                    records++;
+                    return oversized;
+                }
+            }
+            chunkRecords++;
+            records++;
+            return buffer;
+        }
+
+        void end()
+            throws IOException
+        {
+            flushOversized();
+            flush();
+            buffer.clear();
+            buffer.putInt( END_OF_SNAPSHOT ).putLong( records ).flip();
+            writeFully( channel, buffer );
+        }
+
+        private void flush()
+            throws IOException
+        {
+            if ( chunkRecords > 0 )
+            {
+                buffer.flip();
+                buffer.putInt( 0, buffer.limit() - CHUNK_HEADER_SIZE ).putInt( 4, chunkRecords );
+                writeFully( channel, buffer );
+            }
+            buffer.clear();
+            buffer.position( CHUNK_HEADER_SIZE );
+            chunkRecords = 0;
+        }
+
+        private void flushOversized()
+            throws IOException
+        {
+            if ( oversized != null )
+            {
+                oversized.flip();
+                oversized.putInt( 0, oversized.limit() - CHUNK_HEADER_SIZE ).putInt( 4, 1 );
+                writeFully( channel, oversized );
+                oversized = null;
+            }
+        }
+
+    }
+
+}
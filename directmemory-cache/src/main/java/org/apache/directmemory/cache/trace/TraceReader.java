@@ -0,0 +1,139 @@
+package org.apache.directmemory.cache.trace;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads the records of a trace written by a {@link TraceWriter}.
+ */
+public class TraceReader
+    implements Closeable
+{
+
+    private static final TraceOperation[] OPERATIONS = TraceOperation.values();
+
+    private final DataInputStream in;
+
+    private final long startTime;
+
+    private long timestamp;
+
+    public TraceReader( InputStream in )
+        throws IOException
+    {
+        this.in = new DataInputStream( in );
+
+        final byte[] magic = new byte[TraceWriter.MAGIC.length];
+        this.in.readFully( magic );
+        if ( !Arrays.equals( magic, TraceWriter.MAGIC ) )
+        {
+            throw new IOException( "Not a DirectMemory trace" );
+        }
+        final int version = this.in.readUnsignedByte();
+        if ( version != TraceWriter.VERSION )
+        {
+            throw new IOException( "Unsupported trace version " + version );
+        }
+        this.startTime = this.in.readLong();
+    }
+
+    public TraceReader( File file )
+        throws IOException
+    {
+        this( new BufferedInputStream( new FileInputStream( file ) ) );
+    }
+
+    /**
+     * @return the wall clock time of the beginning of the trace, in milliseconds
+     */
+    public long getStartTime()
+    {
+        return startTime;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @param record the record to fill
+     * @return false when the end of the trace was reached
+     */
+    public boolean next( TraceRecord record )
+        throws IOException
+    {
+        final int operation = in.read();
+        if ( operation < 0 )
+        {
+            return false;
+        }
+        if ( operation >= OPERATIONS.length )
+        {
+            throw new IOException( "Corrupted trace, unknown operation " + operation );
+        }
+
+        timestamp += readVarLong();
+        final int keyHash = in.readInt();
+        final long valueSize = readVarLong();
+        final long expiresIn = readVarLong();
+        if ( valueSize > Integer.MAX_VALUE )
+        {
+            throw new IOException( "Corrupted trace, invalid value size " + valueSize );
+        }
+
+        record.set( OPERATIONS[operation], timestamp, keyHash, (int) valueSize, expiresIn );
+        return true;
+    }
+
+    private long readVarLong()
+        throws IOException
+    {
+        long value = 0;
+        for ( int shift = 0; shift < 64; shift += 7 )
+        {
+            final int b = in.read();
+            if ( b < 0 )
+            {
+                throw new EOFException( "Truncated trace record" );
+            }
+            value |= (long) ( b & 0x7F ) << shift;
+            if ( ( b & 0x80 ) == 0 )
+            {
+                return value;
+            }
+        }
+        throw new IOException( "Corrupted trace, variable length integer too long" );
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        in.close();
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.apache.directmemory.cache.trace;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.String.format;
+
+/**
+ * One operation read from a trace by {@link TraceReader#next(TraceRecord)}, which reuses the same instance for every
+ * record.
+ */
+public final class TraceRecord
+{
+
+    private TraceOperation operation;
+
+    private long timestamp;
+
+    private int keyHash;
+
+    private int valueSize;
+
+    private long expiresIn;
+
+    void set( TraceOperation operation, long timestamp, int keyHash, int valueSize, long expiresIn )
+    {
+        this.operation = operation;
+        this.timestamp = timestamp;
+        this.keyHash = keyHash;
+        this.valueSize = valueSize;
+        this.expiresIn = expiresIn;
+    }
+
+    public TraceOperation getOperation()
+    {
+        return operation;
+    }
+
+    /**
+     * @return the time of the operation in microseconds since the beginning of the trace
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    /**
+     * @return the {@link Object#hashCode()} of the key, the keys themselves not being recorded
+     */
+    public int getKeyHash()
+    {
+        return keyHash;
+    }
+
+    public int getValueSize()
+    {
+        return valueSize;
+    }
+
+    /**
+     * @return the time to live in milliseconds of a {@link TraceOperation#PUT}, 0 for none
+     */
+    public long getExpiresIn()
+    {
+        return expiresIn;
+    }
+
+    @Override
+    public String toString()
+    {
+        return format( "%d %s %08x %d %d", timestamp, operation, keyHash, valueSize, expiresIn );
+    }
+
+}
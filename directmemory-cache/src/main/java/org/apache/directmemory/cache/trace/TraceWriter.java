@@ -0,0 +1,194 @@
+package org.apache.directmemory.cache.trace;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a binary trace of cache operations. The trace starts with a header made of the {@link #MAGIC} bytes, the
+ * {@link #VERSION} and the wall clock time of its beginning in milliseconds, followed by one record per operation :
+ * <ul>
+ * <li>the {@link TraceOperation} ordinal, on one byte</li>
+ * <li>the microseconds elapsed since the previous record, as a variable length integer</li>
+ * <li>the hash code of the key, on four bytes</li>
+ * <li>the value size, as a variable length integer</li>
+ * <li>the time to live in milliseconds, as a variable length integer</li>
+ * </ul>
+ * so that a typical record takes less than 10 bytes. The records are encoded under a short lock in an in-memory
+ * buffer, which is only written to the stream when full. Recording must never break the traced cache : once the
+ * stream fails the error is logged and the following records are dropped.
+ */
+public class TraceWriter
+    implements Closeable
+{
+
+    static final byte[] MAGIC = { 'D', 'M', 'T', 'R' };
+
+    static final int VERSION = 1;
+
+    // operation, up to 10 bytes of elapsed time, key hash, up to 5 bytes of size and 10 bytes of ttl
+    private static final int MAX_RECORD_SIZE = 1 + 10 + 4 + 5 + 10;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final OutputStream out;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int position;
+
+    private final long startNanos;
+
+    private long previousMicros;
+
+    private long records;
+
+    private boolean failed;
+
+    private boolean closed;
+
+    public TraceWriter( OutputStream out )
+        throws IOException
+    {
+        this.out = out;
+        this.startNanos = System.nanoTime();
+
+        out.write( MAGIC );
+        out.write( VERSION );
+        final long start = System.currentTimeMillis();
+        for ( int shift = 56; shift >= 0; shift -= 8 )
+        {
+            out.write( (int) ( start >>> shift ) );
+        }
+    }
+
+    public TraceWriter( File file )
+        throws IOException
+    {
+        this( new BufferedOutputStream( new FileOutputStream( file ) ) );
+    }
+
+    /**
+     * Appends a record to the trace.
+     *
+     * @param operation the recorded operation
+     * @param keyHash the hash code of the key
+     * @param valueSize the size of the value, 0 when there is none
+     * @param expiresIn the time to live in milliseconds, 0 for none
+     */
+    public synchronized void record( TraceOperation operation, int keyHash, int valueSize, long expiresIn )
+    {
+        if ( closed || failed )
+        {
+            return;
+        }
+
+        if ( position > BUFFER_SIZE - MAX_RECORD_SIZE )
+        {
+            flushBuffer();
+            if ( failed )
+            {
+                return;
+            }
+        }
+
+        final long micros = ( System.nanoTime() - startNanos ) / 1000;
+
+        buffer[position++] = (byte) operation.ordinal();
+        writeVarLong( Math.max( 0, micros - previousMicros ) );
+        buffer[position++] = (byte) ( keyHash >>> 24 );
+        buffer[position++] = (byte) ( keyHash >>> 16 );
+        buffer[position++] = (byte) ( keyHash >>> 8 );
+        buffer[position++] = (byte) keyHash;
+        writeVarLong( Math.max( 0, valueSize ) );
+        writeVarLong( Math.max( 0, expiresIn ) );
+
+        previousMicros = Math.max( micros, previousMicros );
+        records++;
+    }
+
+    private void writeVarLong( long value )
+    {
+        while ( ( value & ~0x7FL ) != 0 )
+        {
+            buffer[position++] = (byte) ( ( value & 0x7F ) | 0x80 );
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * @return the number of records written so far
+     */
+    public synchronized long getRecords()
+    {
+        return records;
+    }
+
+    /**
+     * Writes the buffered records to the stream.
+     */
+    public synchronized void flush()
+    {
+        if ( !closed && !failed )
+        {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer()
+    {
+        try
+        {
+            out.write( buffer, 0, position );
+            out.flush();
+        }
+        catch ( IOException e )
+        {
+            failed = true;
+            logger.error( "Could not write the trace, the following operations will not be recorded", e );
+        }
+        position = 0;
+    }
+
+    @Override
+    public synchronized void close()
+        throws IOException
+    {
+        if ( closed )
+        {
+            return;
+        }
+        flush();
+        closed = true;
+        out.close();
+    }
+
+}
@@ -0,0 +1,274 @@
+package org.apache.directmemory.cache.trace;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.cache.CacheStatistics;
+import org.apache.directmemory.memory.MemoryManagerService;
+import org.apache.directmemory.memory.Pointer;
+import org.apache.directmemory.serialization.Serializer;
+
+/**
+ * {@link CacheService} decorator recording the puts, gets and frees by key in a {@link TraceWriter}, the keys being
+ * recorded by hash code only. The size recorded for a {@link #put(Object, Object)} is the serialized size, which is
+ * unknown, and recorded as 0, when the value could not be stored. The other operations are forwarded without being
+ * recorded. Closing this service closes the decorated one, then the trace.
+ */
+public class TracingCacheService<K, V>
+    implements CacheService<K, V>
+{
+
+    private final CacheService<K, V> delegate;
+
+    private final TraceWriter trace;
+
+    public TracingCacheService( CacheService<K, V> delegate, TraceWriter trace )
+    {
+        checkArgument( delegate != null, "Impossible to trace a null CacheService" );
+        checkArgument( trace != null, "Impossible to trace a CacheService without a TraceWriter" );
+
+        this.delegate = delegate;
+        this.trace = trace;
+    }
+
+    public TraceWriter getTrace()
+    {
+        return trace;
+    }
+
+    @Override
+    public void scheduleDisposalEvery( long period )
+    {
+        delegate.scheduleDisposalEvery( period );
+    }
+
+    @Override
+    public void scheduleDisposalEvery( long period, TimeUnit unit )
+    {
+        delegate.scheduleDisposalEvery( period, unit );
+    }
+
+    @Override
+    public Pointer<V> putByteArray( K key, byte[] payload, long expiresIn )
+    {
+        final Pointer<V> pointer = delegate.putByteArray( key, payload, expiresIn );
+        trace.record( TraceOperation.PUT, key.hashCode(), payload.length, expiresIn );
+        return pointer;
+    }
+
+    @Override
+    public Pointer<V> putByteArray( K key, byte[] payload )
+    {
+        final Pointer<V> pointer = delegate.putByteArray( key, payload );
+        trace.record( TraceOperation.PUT, key.hashCode(), payload.length, 0 );
+        return pointer;
+    }
+
+    @Override
+    public Pointer<V> putStream( K key, InputStream in, int length, long expiresIn )
+        throws IOException
+    {
+        final Pointer<V> pointer = delegate.putStream( key, in, length, expiresIn );
+        trace.record( TraceOperation.PUT, key.hashCode(), length, expiresIn );
+        return pointer;
+    }
+
+    @Override
+    public Pointer<V> putChannel( K key, ReadableByteChannel in, int length, long expiresIn )
+        throws IOException
+    {
+        final Pointer<V> pointer = delegate.putChannel( key, in, length, expiresIn );
+        trace.record( TraceOperation.PUT, key.hashCode(), length, expiresIn );
+        return pointer;
+    }
+
+    @Override
+    public Pointer<V> put( K key, V value, int expiresIn )
+    {
+        final Pointer<V> pointer = delegate.put( key, value, expiresIn );
+        trace.record( TraceOperation.PUT, key.hashCode(), size( pointer ), expiresIn );
+        return pointer;
+    }
+
+    @Override
+    public Pointer<V> put( K key, V value )
+    {
+        final Pointer<V> pointer = delegate.put( key, value );
+        trace.record( TraceOperation.PUT, key.hashCode(), size( pointer ), 0 );
+        return pointer;
+    }
+
+    @Override
+    public byte[] retrieveByteArray( K key )
+    {
+        final byte[] payload = delegate.retrieveByteArray( key );
+        trace.record( TraceOperation.GET, key.hashCode(), payload != null ? payload.length : 0, 0 );
+        return payload;
+    }
+
+    @Override
+    public long retrieveStream( K key, OutputStream out )
+        throws IOException
+    {
+        final long length = delegate.retrieveStream( key, out );
+        trace.record( TraceOperation.GET, key.hashCode(), (int) Math.max( 0, length ), 0 );
+        return length;
+    }
+
+    @Override
+    public long retrieveChannel( K key, WritableByteChannel out )
+        throws IOException
+    {
+        final long length = delegate.retrieveChannel( key, out );
+        trace.record( TraceOperation.GET, key.hashCode(), (int) Math.max( 0, length ), 0 );
+        return length;
+    }
+
+    @Override
+    public V retrieve( K key )
+    {
+        final V value = delegate.retrieve( key );
+        trace.record( TraceOperation.GET, key.hashCode(), value != null ? size( delegate.getPointer( key ) ) : 0, 0 );
+        return value;
+    }
+
+    @Override
+    public Pointer<V> getPointer( K key )
+    {
+        return delegate.getPointer( key );
+    }
+
+    @Override
+    public byte[] retrievePayload( Pointer<V> pointer )
+    {
+        return delegate.retrievePayload( pointer );
+    }
+
+    @Override
+    public void free( K key )
+    {
+        delegate.free( key );
+        trace.record( TraceOperation.FREE, key.hashCode(), 0, 0 );
+    }
+
+    @Override
+    public void free( Pointer<V> pointer )
+    {
+        delegate.free( pointer );
+    }
+
+    @Override
+    public void collectExpired()
+    {
+        delegate.collectExpired();
+    }
+
+    @Override
+    public void collectLFU()
+    {
+        delegate.collectLFU();
+    }
+
+    @Override
+    public void collectAll()
+    {
+        delegate.collectAll();
+    }
+
+    @Override
+    public void clear()
+    {
+        delegate.clear();
+    }
+
+    @Override
+    public long entries()
+    {
+        return delegate.entries();
+    }
+
+    @Override
+    public void dump()
+    {
+        delegate.dump();
+    }
+
+    @Override
+    public Map<K, Pointer<V>> getMap()
+    {
+        return delegate.getMap();
+    }
+
+    @Override
+    public Serializer getSerializer()
+    {
+        return delegate.getSerializer();
+    }
+
+    @Override
+    public MemoryManagerService<V> getMemoryManager()
+    {
+        return delegate.getMemoryManager();
+    }
+
+    @Override
+    public CacheStatistics getStatistics()
+    {
+        return delegate.getStatistics();
+    }
+
+    @Override
+    public <T extends V> Pointer<V> allocate( K key, Class<T> type, int size )
+    {
+        final Pointer<V> pointer = delegate.allocate( key, type, size );
+        trace.record( TraceOperation.PUT, key.hashCode(), size, 0 );
+        return pointer;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        try
+        {
+            delegate.close();
+        }
+        finally
+        {
+            trace.close();
+        }
+    }
+
+    private static int size( Pointer<?> pointer )
+    {
+        return pointer != null ? (int) pointer.getSize() : 0;
+    }
+
+}
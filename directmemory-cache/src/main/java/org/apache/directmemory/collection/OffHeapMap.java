@@ -0,0 +1,871 @@
+package org.apache.directmemory.collection;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.apache.directmemory.memory.allocator.LazyUnsafeAllocator;
+import org.apache.directmemory.memory.buffer.MemoryBuffer;
+import org.apache.directmemory.serialization.Serializer;
+import org.apache.directmemory.serialization.SerializerFactory;
+
+/**
+ * {@link ConcurrentMap} whose keys and values are serialized to off-heap memory, out of the view of the garbage
+ * collector. The entries, each the key followed by the value, are appended to pages allocated from an
+ * {@link Allocator} and no object is kept on heap per entry. The map is split in segments guarded by their own lock,
+ * each an open addressing table of the addresses of its entries with linear probing, resized on its own when it fills
+ * up so that a resizing only blocks the keys of one segment and never moves the entries in memory.
+ * <p>
+ * The keys are compared by their serialized form : the serializer must give the same bytes for equal keys, which is
+ * the case of the strings and the boxed primitives. The values are compared the same way by
+ * {@link #remove(Object, Object)} and {@link #replace(Object, Object, Object)}. The iterators walk a snapshot of one
+ * segment at a time, they never throw {@link java.util.ConcurrentModificationException}. A put which does not fit in
+ * the memory left throws a {@link BufferOverflowException}.
+ */
+public class OffHeapMap<K, V>
+    extends AbstractMap<K, V>
+    implements ConcurrentMap<K, V>, Closeable
+{
+
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final Class<K> keyType;
+
+    private final Class<V> valueType;
+
+    private final Serializer serializer;
+
+    private final Allocator allocator;
+
+    private final boolean ownsAllocator;
+
+    private final Segment[] segments;
+
+    private final int segmentShift;
+
+    private final Set<Map.Entry<K, V>> entrySet = new EntrySet();
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a map using at most <code>capacity</code> bytes of memory allocated from the system, released by
+     * {@link #close()}, and the default serializer.
+     */
+    public OffHeapMap( Class<K> keyType, Class<V> valueType, long capacity )
+    {
+        this( keyType, valueType, SerializerFactory.createNewSerializer(), new LazyUnsafeAllocator( 1, capacity ),
+              DEFAULT_CONCURRENCY_LEVEL, 0, true );
+    }
+
+    public OffHeapMap( Class<K> keyType, Class<V> valueType, Serializer serializer, Allocator allocator )
+    {
+        this( keyType, valueType, serializer, allocator, DEFAULT_CONCURRENCY_LEVEL, 0 );
+    }
+
+    /**
+     * @param concurrencyLevel the number of threads expected to update the map concurrently
+     * @param initialCapacity the number of entries expected
+     */
+    public OffHeapMap( Class<K> keyType, Class<V> valueType, Serializer serializer, Allocator allocator,
+                       int concurrencyLevel, int initialCapacity )
+    {
+        this( keyType, valueType, serializer, allocator, concurrencyLevel, initialCapacity, false );
+    }
+
+    private OffHeapMap( Class<K> keyType, Class<V> valueType, Serializer serializer, Allocator allocator,
+                        int concurrencyLevel, int initialCapacity, boolean ownsAllocator )
+    {
+        checkArgument( keyType != null && valueType != null, "Impossible to create a map without key and value types" );
+        checkArgument( serializer != null, "Impossible to create a map with a null serializer" );
+        checkArgument( allocator != null, "Impossible to create a map without allocator" );
+        checkArgument( concurrencyLevel > 0, "The concurrency level must be positive" );
+        checkArgument( initialCapacity >= 0, "The initial capacity must not be negative" );
+
+        this.keyType = keyType;
+        this.valueType = valueType;
+        this.serializer = serializer;
+        this.allocator = allocator;
+        this.ownsAllocator = ownsAllocator;
+
+        int segmentCount = 1;
+        int bits = 0;
+        while ( segmentCount < concurrencyLevel )
+        {
+            segmentCount <<= 1;
+            bits++;
+        }
+        segmentShift = 32 - bits;
+        segments = new Segment[segmentCount];
+        final int segmentCapacity = Math.max( 1, initialCapacity / segmentCount );
+        for ( int i = 0; i < segmentCount; i++ )
+        {
+            segments[i] = new Segment( allocator, segmentCapacity );
+        }
+    }
+
+    private static int hash( byte[] bytes )
+    {
+        // FNV-1a, then the murmur3 finalizer as the low bits pick the slots and the high bits the segments
+        int hash = 0x811C9DC5;
+        for ( byte b : bytes )
+        {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ ( hash >>> 16 );
+    }
+
+    private Segment segmentFor( int hash )
+    {
+        checkState( !closed, "The map is closed" );
+        return segments.length == 1 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    private byte[] serialize( Object object )
+    {
+        try
+        {
+            return serializer.serialize( object );
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalArgumentException( format( "Impossible to serialize %s", object ), e );
+        }
+    }
+
+    private <T> T deserialize( byte[] bytes, Class<T> type )
+    {
+        if ( bytes == null )
+        {
+            return null;
+        }
+        try
+        {
+            return serializer.deserialize( bytes, type );
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalStateException( format( "Impossible to deserialize a %s", type.getName() ), e );
+        }
+    }
+
+    @Override
+    public V get( Object key )
+    {
+        if ( !keyType.isInstance( key ) )
+        {
+            return null;
+        }
+        final byte[] serializedKey = serialize( key );
+        final int hash = hash( serializedKey );
+        return deserialize( segmentFor( hash ).get( serializedKey, hash ), valueType );
+    }
+
+    @Override
+    public boolean containsKey( Object key )
+    {
+        if ( !keyType.isInstance( key ) )
+        {
+            return false;
+        }
+        final byte[] serializedKey = serialize( key );
+        final int hash = hash( serializedKey );
+        return segmentFor( hash ).containsKey( serializedKey, hash );
+    }
+
+    @Override
+    public V put( K key, V value )
+    {
+        return put( key, value, false );
+    }
+
+    @Override
+    public V putIfAbsent( K key, V value )
+    {
+        return put( key, value, true );
+    }
+
+    private V put( K key, V value, boolean onlyIfAbsent )
+    {
+        checkArgument( key != null && value != null, "The map does not support null keys and values" );
+        final byte[] serializedKey = serialize( key );
+        final int hash = hash( serializedKey );
+        return deserialize( segmentFor( hash ).put( serializedKey, hash, serialize( value ), onlyIfAbsent ),
+                            valueType );
+    }
+
+    @Override
+    public V remove( Object key )
+    {
+        if ( !keyType.isInstance( key ) )
+        {
+            return null;
+        }
+        final byte[] serializedKey = serialize( key );
+        final int hash = hash( serializedKey );
+        return deserialize( segmentFor( hash ).remove( serializedKey, hash, null ), valueType );
+    }
+
+    @Override
+    public boolean remove( Object key, Object value )
+    {
+        if ( !keyType.isInstance( key ) || !valueType.isInstance( value ) )
+        {
+            return false;
+        }
+        final byte[] serializedKey = serialize( key );
+        final int hash = hash( serializedKey );
+        return segmentFor( hash ).remove( serializedKey, hash, serialize( value ) ) != null;
+    }
+
+    @Override
+    public V replace( K key, V value )
+    {
+        checkArgument( key != null && value != null, "The map does not support null keys and values" );
+        final byte[] serializedKey = serialize( key );
+        final int hash = hash( serializedKey );
+        return deserialize( segmentFor( hash ).replace( serializedKey, hash, null, serialize( value ) ), valueType );
+    }
+
+    @Override
+    public boolean replace( K key, V oldValue, V newValue )
+    {
+        checkArgument( key != null && oldValue != null && newValue != null,
+                       "The map does not support null keys and values" );
+        final byte[] serializedKey = serialize( key );
+        final int hash = hash( serializedKey );
+        return segmentFor( hash ).replace( serializedKey, hash, serialize( oldValue ), serialize( newValue ) ) != null;
+    }
+
+    @Override
+    public int size()
+    {
+        long size = 0;
+        for ( Segment segment : segments )
+        {
+            size += segment.size();
+        }
+        return (int) Math.min( size, Integer.MAX_VALUE );
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        for ( Segment segment : segments )
+        {
+            if ( segment.size() > 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of bytes of off-heap memory held by the pages of the entries
+     */
+    public long sizeInBytes()
+    {
+        long bytes = 0;
+        for ( Segment segment : segments )
+        {
+            bytes += segment.bytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void clear()
+    {
+        for ( Segment segment : segments )
+        {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet()
+    {
+        return entrySet;
+    }
+
+    /**
+     * Releases the memory of the entries, the map can not be used any more.
+     */
+    @Override
+    public void close()
+        throws IOException
+    {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+        clear();
+        if ( ownsAllocator )
+        {
+            allocator.close();
+        }
+    }
+
+    private final class EntrySet
+        extends AbstractSet<Map.Entry<K, V>>
+    {
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator()
+        {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size()
+        {
+            return OffHeapMap.this.size();
+        }
+
+        @Override
+        public boolean isEmpty()
+        {
+            return OffHeapMap.this.isEmpty();
+        }
+
+        @Override
+        public void clear()
+        {
+            OffHeapMap.this.clear();
+        }
+
+    }
+
+    private final class EntryIterator
+        implements Iterator<Map.Entry<K, V>>
+    {
+
+        private int nextSegment;
+
+        private Iterator<byte[][]> entries = Collections.<byte[][]> emptyList().iterator();
+
+        private K lastKey;
+
+        @Override
+        public boolean hasNext()
+        {
+            while ( !entries.hasNext() && nextSegment < segments.length )
+            {
+                checkState( !closed, "The map is closed" );
+                entries = segments[nextSegment++].entries().iterator();
+            }
+            return entries.hasNext();
+        }
+
+        @Override
+        public Map.Entry<K, V> next()
+        {
+            if ( !hasNext() )
+            {
+                throw new NoSuchElementException();
+            }
+            final byte[][] entry = entries.next();
+            lastKey = deserialize( entry[0], keyType );
+            return new WriteThroughEntry( lastKey, deserialize( entry[1], valueType ) );
+        }
+
+        @Override
+        public void remove()
+        {
+            checkState( lastKey != null, "next() was not called" );
+            OffHeapMap.this.remove( lastKey );
+            lastKey = null;
+        }
+
+    }
+
+    private final class WriteThroughEntry
+        extends AbstractMap.SimpleEntry<K, V>
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        WriteThroughEntry( K key, V value )
+        {
+            super( key, value );
+        }
+
+        @Override
+        public V setValue( V value )
+        {
+            put( getKey(), value );
+            return super.setValue( value );
+        }
+
+    }
+
+    /**
+     * Open addressing table of the entries of a segment of the map. The entries are appended to pages allocated from
+     * the allocator, each entry holding the length of the serialized key, the serialized key and the serialized value.
+     * The table only keeps primitive arrays : the hash, the address and the length of the entry of each slot, an
+     * address being the index of the page in its high bits and the offset in the page in its low bits. A page is
+     * returned to the allocator once its entries are all removed, its last entries being moved to a page appended to
+     * when less than a quarter of the bytes written to it are still used.
+     */
+    private static final class Segment
+    {
+
+        private static final int MIN_PAGE_SIZE = 1 << 10;
+
+        private static final int MAX_PAGE_SIZE = 1 << 24;
+
+        private final Allocator allocator;
+
+        private int[] hashes;
+
+        private long[] addresses;
+
+        // 0 for the empty slots, an entry holding at least the length of its key
+        private int[] lengths;
+
+        private int size;
+
+        private int threshold;
+
+        // null for the pages returned to the allocator
+        private MemoryBuffer[] pages = new MemoryBuffer[4];
+
+        // the number of bytes of the entries of each page
+        private int[] used = new int[4];
+
+        // the page the entries are appended to, -1 when the segment holds no page
+        private int current = -1;
+
+        private long bytes;
+
+        Segment( Allocator allocator, int expected )
+        {
+            this.allocator = allocator;
+            allocate( tableSize( expected ) );
+        }
+
+        private static int tableSize( int expected )
+        {
+            int capacity = 8;
+            while ( capacity * LOAD_FACTOR < expected )
+            {
+                capacity <<= 1;
+            }
+            return capacity;
+        }
+
+        private void allocate( int capacity )
+        {
+            hashes = new int[capacity];
+            addresses = new long[capacity];
+            lengths = new int[capacity];
+            threshold = (int) ( capacity * LOAD_FACTOR );
+        }
+
+        private static long address( int page, int offset )
+        {
+            return ( (long) page << 32 ) | offset;
+        }
+
+        private static int pageOf( long address )
+        {
+            return (int) ( address >>> 32 );
+        }
+
+        private static int offsetOf( long address )
+        {
+            return (int) address;
+        }
+
+        // guarded by this
+        private int find( byte[] key, int hash )
+        {
+            final int mask = lengths.length - 1;
+            for ( int i = hash & mask; lengths[i] != 0; i = ( i + 1 ) & mask )
+            {
+                if ( hashes[i] == hash && keyEquals( i, key ) )
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        synchronized byte[] get( byte[] key, int hash )
+        {
+            final int i = find( key, hash );
+            return i < 0 ? null : value( i );
+        }
+
+        synchronized boolean containsKey( byte[] key, int hash )
+        {
+            return find( key, hash ) >= 0;
+        }
+
+        synchronized byte[] put( byte[] key, int hash, byte[] value, boolean onlyIfAbsent )
+        {
+            final int i = find( key, hash );
+            if ( i >= 0 )
+            {
+                final byte[] previous = value( i );
+                if ( !onlyIfAbsent )
+                {
+                    write( i, key, value );
+                }
+                return previous;
+            }
+
+            final int mask = lengths.length - 1;
+            int slot = hash & mask;
+            while ( lengths[slot] != 0 )
+            {
+                slot = ( slot + 1 ) & mask;
+            }
+            write( slot, key, value );
+            hashes[slot] = hash;
+            if ( ++size > threshold )
+            {
+                resize();
+            }
+            return null;
+        }
+
+        /**
+         * @param expected the value the key must be mapped to, null for any
+         */
+        synchronized byte[] remove( byte[] key, int hash, byte[] expected )
+        {
+            final int i = find( key, hash );
+            if ( i < 0 )
+            {
+                return null;
+            }
+            final byte[] previous = value( i );
+            if ( expected != null && !Arrays.equals( previous, expected ) )
+            {
+                return null;
+            }
+            delete( i );
+            return previous;
+        }
+
+        /**
+         * @param expected the value the key must be mapped to, null for any
+         */
+        synchronized byte[] replace( byte[] key, int hash, byte[] expected, byte[] value )
+        {
+            final int i = find( key, hash );
+            if ( i < 0 )
+            {
+                return null;
+            }
+            final byte[] previous = value( i );
+            if ( expected != null && !Arrays.equals( previous, expected ) )
+            {
+                return null;
+            }
+            write( i, key, value );
+            return previous;
+        }
+
+        /**
+         * @return a snapshot of the serialized keys and values
+         */
+        synchronized List<byte[][]> entries()
+        {
+            final List<byte[][]> entries = new ArrayList<byte[][]>( size );
+            for ( int i = 0; i < lengths.length; i++ )
+            {
+                if ( lengths[i] != 0 )
+                {
+                    final MemoryBuffer page = pages[pageOf( addresses[i] )];
+                    final int offset = offsetOf( addresses[i] );
+                    final byte[] key = new byte[page.getInt( offset )];
+                    page.readerIndex( offset + 4 );
+                    page.readBytes( key );
+                    entries.add( new byte[][] { key, value( i ) } );
+                }
+            }
+            return entries;
+        }
+
+        synchronized int size()
+        {
+            return size;
+        }
+
+        synchronized long bytes()
+        {
+            return bytes;
+        }
+
+        synchronized void clear()
+        {
+            for ( MemoryBuffer page : pages )
+            {
+                if ( page != null )
+                {
+                    allocator.free( page );
+                }
+            }
+            allocate( 8 );
+            pages = new MemoryBuffer[4];
+            used = new int[4];
+            current = -1;
+            size = 0;
+            bytes = 0;
+        }
+
+        // guarded by this
+        private boolean keyEquals( int slot, byte[] key )
+        {
+            final MemoryBuffer page = pages[pageOf( addresses[slot] )];
+            final int offset = offsetOf( addresses[slot] );
+            if ( page.getInt( offset ) != key.length )
+            {
+                return false;
+            }
+            for ( int i = 0; i < key.length; i++ )
+            {
+                if ( page.getByte( offset + 4 + i ) != key[i] )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // guarded by this
+        private byte[] value( int slot )
+        {
+            final MemoryBuffer page = pages[pageOf( addresses[slot] )];
+            final int offset = offsetOf( addresses[slot] );
+            final int keyLength = page.getInt( offset );
+            final byte[] value = new byte[lengths[slot] - 4 - keyLength];
+            page.readerIndex( offset + 4 + keyLength );
+            page.readBytes( value );
+            return value;
+        }
+
+        // guarded by this, the previous entry of the slot being released once the new one is written
+        private void write( int slot, byte[] key, byte[] value )
+        {
+            final int length = 4 + key.length + value.length;
+            final int page = pageFor( length );
+            final MemoryBuffer buffer = pages[page];
+            final int offset = (int) buffer.writerIndex();
+            buffer.putInt( offset, key.length );
+            buffer.writerIndex( offset + 4 );
+            buffer.writeBytes( key );
+            buffer.writeBytes( value );
+            used[page] += length;
+
+            final long previousAddress = addresses[slot];
+            final int previousLength = lengths[slot];
+            addresses[slot] = address( page, offset );
+            lengths[slot] = length;
+            if ( previousLength != 0 )
+            {
+                release( previousAddress, previousLength );
+            }
+        }
+
+        // guarded by this, the index of a page with room for length more bytes
+        private int pageFor( int length )
+        {
+            if ( current >= 0 && pages[current].capacity() - pages[current].writerIndex() >= length )
+            {
+                return current;
+            }
+
+            // the pages grow with the segment, so that the small maps do not hold big pages
+            int pageSize = (int) Math.min( MAX_PAGE_SIZE, Math.max( MIN_PAGE_SIZE, bytes / 8 ) );
+            MemoryBuffer page = allocator.allocate( Math.max( length, pageSize ) );
+            // the memory left may only hold a smaller page
+            while ( page == null && pageSize > length )
+            {
+                pageSize >>= 1;
+                page = allocator.allocate( Math.max( length, pageSize ) );
+            }
+            if ( page == null )
+            {
+                throw new BufferOverflowException();
+            }
+            page.writerIndex( 0 );
+
+            int index = 0;
+            while ( index < pages.length && pages[index] != null )
+            {
+                index++;
+            }
+            if ( index == pages.length )
+            {
+                pages = Arrays.copyOf( pages, pages.length << 1 );
+                used = Arrays.copyOf( used, used.length << 1 );
+            }
+            pages[index] = page;
+            used[index] = 0;
+            bytes += page.capacity();
+            current = index;
+            return index;
+        }
+
+        // guarded by this, the entry being no more referenced by any slot
+        private void release( long address, int length )
+        {
+            final int page = pageOf( address );
+            used[page] -= length;
+            if ( used[page] == 0 )
+            {
+                free( page );
+            }
+            else if ( used[page] < pages[page].writerIndex() / 4 )
+            {
+                evacuate( page );
+            }
+        }
+
+        // guarded by this, moves the entries of a page to the one appended to so that it can be returned to the
+        // allocator
+        private void evacuate( int page )
+        {
+            final MemoryBuffer from = pages[page];
+            if ( page == current )
+            {
+                current = -1;
+            }
+            for ( int i = 0; i < lengths.length && used[page] > 0; i++ )
+            {
+                if ( lengths[i] != 0 && pageOf( addresses[i] ) == page )
+                {
+                    final byte[] entry = new byte[lengths[i]];
+                    from.readerIndex( offsetOf( addresses[i] ) );
+                    from.readBytes( entry );
+                    final int to;
+                    try
+                    {
+                        to = pageFor( entry.length );
+                    }
+                    catch ( BufferOverflowException e )
+                    {
+                        // the entries left are moved by a later removal
+                        return;
+                    }
+                    final int offset = (int) pages[to].writerIndex();
+                    pages[to].writeBytes( entry );
+                    used[to] += entry.length;
+                    used[page] -= entry.length;
+                    addresses[i] = address( to, offset );
+                }
+            }
+            free( page );
+        }
+
+        // guarded by this
+        private void free( int page )
+        {
+            bytes -= pages[page].capacity();
+            allocator.free( pages[page] );
+            pages[page] = null;
+            if ( page == current )
+            {
+                current = -1;
+            }
+        }
+
+        // guarded by this
+        private void delete( int slot )
+        {
+            final long address = addresses[slot];
+            final int length = lengths[slot];
+
+            final int mask = lengths.length - 1;
+            int hole = slot;
+            lengths[hole] = 0;
+            size--;
+            for ( int i = ( hole + 1 ) & mask; lengths[i] != 0; i = ( i + 1 ) & mask )
+            {
+                final int home = hashes[i] & mask;
+                // moves back the entries whose probe sequence went through the hole
+                if ( hole <= i ? home <= hole || home > i : home <= hole && home > i )
+                {
+                    hashes[hole] = hashes[i];
+                    addresses[hole] = addresses[i];
+                    lengths[hole] = lengths[i];
+                    lengths[i] = 0;
+                    hole = i;
+                }
+            }
+            release( address, length );
+        }
+
+        // guarded by this, only the addresses of the entries move
+        private void resize()
+        {
+            final int[] oldHashes = hashes;
+            final long[] oldAddresses = addresses;
+            final int[] oldLengths = lengths;
+            allocate( oldLengths.length << 1 );
+            final int mask = lengths.length - 1;
+            for ( int j = 0; j < oldLengths.length; j++ )
+            {
+                if ( oldLengths[j] != 0 )
+                {
+                    int i = oldHashes[j] & mask;
+                    while ( lengths[i] != 0 )
+                    {
+                        i = ( i + 1 ) & mask;
+                    }
+                    hashes[i] = oldHashes[j];
+                    addresses[i] = oldAddresses[j];
+                    lengths[i] = oldLengths[j];
+                }
+            }
+        }
+
+    }
+
+}
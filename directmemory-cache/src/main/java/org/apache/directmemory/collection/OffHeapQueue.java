@@ -0,0 +1,406 @@
+package org.apache.directmemory.collection;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.apache.directmemory.memory.allocator.LazyUnsafeAllocator;
+import org.apache.directmemory.memory.buffer.MemoryBuffer;
+
+/**
+ * Bounded FIFO queue of variable-length records stored in a ring buffer of off-heap memory, so that the backlog
+ * between a producer and a slow consumer stays out of the view of the garbage collector. Every record is framed by
+ * its length, written with {@link MemoryBuffer#writeCompressedInt(int)}, and never wraps around the end of the ring :
+ * a record which does not fit before the end is preceded by a zero byte, which no compressed int starts with, telling
+ * the consumers to go on at the start of the ring.
+ * <p>
+ * The producers and the consumers only meet through the volatile positions of the head and the tail of the ring,
+ * which {@link #offer(Collection)} and {@link #drainTo(List, int)} move once per batch. A queue created for a single
+ * producer does not synchronize the producing thread at all, the consumers always synchronize among themselves. The
+ * queue never blocks : a record which does not fit in the space left is refused.
+ */
+public class OffHeapQueue
+    implements Closeable
+{
+
+    // the type bytes of the compressed ints are 1 to 4
+    private static final byte PADDING = 0;
+
+    private final Allocator allocator;
+
+    private final boolean ownsAllocator;
+
+    private final MemoryBuffer buffer;
+
+    private final int capacity;
+
+    private final int maxRecordSize;
+
+    private final boolean multiProducer;
+
+    private final Object producerLock = new Object();
+
+    private final Object consumerLock = new Object();
+
+    // position of the next record to read, ever increasing
+    private final AtomicLong head = new AtomicLong();
+
+    // position after the last record published, ever increasing
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong offered = new AtomicLong();
+
+    private final AtomicLong refused = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a queue for any number of producers in memory allocated from the system, released by {@link #close()}.
+     *
+     * @param capacity the size in bytes of the ring
+     */
+    public OffHeapQueue( int capacity )
+    {
+        this( new LazyUnsafeAllocator( 1, capacity ), capacity, true, true );
+    }
+
+    /**
+     * @param capacity the size in bytes of the ring
+     * @param multiProducer false if a single thread offers the records, which avoids synchronizing it
+     */
+    public OffHeapQueue( Allocator allocator, int capacity, boolean multiProducer )
+    {
+        this( allocator, capacity, multiProducer, false );
+    }
+
+    private OffHeapQueue( Allocator allocator, int capacity, boolean multiProducer, boolean ownsAllocator )
+    {
+        checkArgument( allocator != null, "Impossible to create a queue without allocator" );
+        checkArgument( capacity >= 8, "Impossible to create a queue of %s bytes", capacity );
+
+        this.allocator = allocator;
+        this.ownsAllocator = ownsAllocator;
+        this.capacity = capacity;
+        this.multiProducer = multiProducer;
+
+        // the frame of a record takes at most half of the ring, so that it always fits once the queue is drained
+        int maxRecordSize = capacity / 2 - frameSize( 0 );
+        while ( frameSize( maxRecordSize ) > capacity / 2 )
+        {
+            maxRecordSize--;
+        }
+        this.maxRecordSize = maxRecordSize;
+
+        this.buffer = allocator.allocate( capacity );
+        if ( buffer == null )
+        {
+            throw new BufferOverflowException();
+        }
+    }
+
+    /**
+     * @return the number of bytes taken in the ring by a record of the given length
+     */
+    static int frameSize( int length )
+    {
+        final int header;
+        if ( length <= 0x7F )
+        {
+            header = 2;
+        }
+        else if ( length <= 0x7FFF )
+        {
+            header = 3;
+        }
+        else if ( length <= 0x7FFFFF )
+        {
+            header = 4;
+        }
+        else
+        {
+            header = 5;
+        }
+        return header + length;
+    }
+
+    /**
+     * @return the size in bytes of the largest record the queue accepts, a bit less than half of its capacity
+     */
+    public int maxRecordSize()
+    {
+        return maxRecordSize;
+    }
+
+    /**
+     * Appends a record to the queue.
+     *
+     * @return false if the queue is full
+     */
+    public boolean offer( byte[] record )
+    {
+        checkRecord( record );
+        if ( multiProducer )
+        {
+            synchronized ( producerLock )
+            {
+                return publish( record );
+            }
+        }
+        return publish( record );
+    }
+
+    // guarded by the producer lock in multi producer mode
+    private boolean publish( byte[] record )
+    {
+        final long position = append( tail.get(), record );
+        if ( position < 0 )
+        {
+            refused.incrementAndGet();
+            return false;
+        }
+        tail.set( position );
+        offered.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Appends the records to the queue in their order, publishing them at once to the consumers.
+     *
+     * @return the number of records appended, lower than the number of records if the queue filled up
+     */
+    public int offer( Collection<byte[]> records )
+    {
+        for ( byte[] record : records )
+        {
+            checkRecord( record );
+        }
+        if ( multiProducer )
+        {
+            synchronized ( producerLock )
+            {
+                return publish( records );
+            }
+        }
+        return publish( records );
+    }
+
+    // guarded by the producer lock in multi producer mode
+    private int publish( Collection<byte[]> records )
+    {
+        long position = tail.get();
+        int appended = 0;
+        for ( byte[] record : records )
+        {
+            final long next = append( position, record );
+            if ( next < 0 )
+            {
+                refused.addAndGet( records.size() - appended );
+                break;
+            }
+            position = next;
+            appended++;
+        }
+        tail.set( position );
+        offered.addAndGet( appended );
+        return appended;
+    }
+
+    private void checkRecord( byte[] record )
+    {
+        checkArgument( record != null, "Impossible to offer a null record" );
+        checkArgument( record.length <= maxRecordSize, "The record of %s bytes is too big for the queue",
+                       record.length );
+        checkState( !closed, "The queue is closed" );
+    }
+
+    /**
+     * Writes a record after the given position, without publishing it.
+     *
+     * @return the position after the record, -1 if it does not fit
+     */
+    private long append( long position, byte[] record )
+    {
+        final int frame = frameSize( record.length );
+        int offset = (int) ( position % capacity );
+        final int toEnd = capacity - offset;
+        final long needed = frame > toEnd ? toEnd + frame : frame;
+        if ( position + needed - head.get() > capacity )
+        {
+            return -1;
+        }
+
+        if ( frame > toEnd )
+        {
+            buffer.writerIndex( offset );
+            buffer.writeByte( PADDING );
+            position += toEnd;
+            offset = 0;
+        }
+        buffer.writerIndex( offset );
+        buffer.writeCompressedInt( record.length );
+        buffer.writeBytes( record );
+        return position + frame;
+    }
+
+    /**
+     * Removes the record at the head of the queue.
+     *
+     * @return the record or null if the queue is empty
+     */
+    public byte[] poll()
+    {
+        synchronized ( consumerLock )
+        {
+            checkState( !closed, "The queue is closed" );
+            final long[] position = { head.get() };
+            final byte[] record = read( position, tail.get() );
+            if ( record != null )
+            {
+                head.set( position[0] );
+            }
+            return record;
+        }
+    }
+
+    /**
+     * Removes up to <code>maxRecords</code> records at the head of the queue, releasing their space at once to the
+     * producers.
+     *
+     * @return the number of records added to <code>records</code>
+     */
+    public int drainTo( List<byte[]> records, int maxRecords )
+    {
+        synchronized ( consumerLock )
+        {
+            checkState( !closed, "The queue is closed" );
+            final long[] position = { head.get() };
+            final long end = tail.get();
+            int drained = 0;
+            while ( drained < maxRecords )
+            {
+                final byte[] record = read( position, end );
+                if ( record == null )
+                {
+                    break;
+                }
+                records.add( record );
+                drained++;
+            }
+            head.set( position[0] );
+            return drained;
+        }
+    }
+
+    /**
+     * Reads the record at <code>position[0]</code>, moving it after the record.
+     *
+     * @return the record, null if there is none before <code>end</code>
+     */
+    // guarded by the consumer lock
+    private byte[] read( long[] position, long end )
+    {
+        if ( position[0] == end )
+        {
+            return null;
+        }
+        int offset = (int) ( position[0] % capacity );
+        buffer.readerIndex( offset );
+        if ( buffer.readByte() == PADDING )
+        {
+            position[0] += capacity - offset;
+            offset = 0;
+        }
+        buffer.readerIndex( offset );
+        final byte[] record = new byte[buffer.readCompressedInt()];
+        buffer.readBytes( record );
+        position[0] += frameSize( record.length );
+        return record;
+    }
+
+    public boolean isEmpty()
+    {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * @return the number of bytes of the ring taken by the records, including their framing
+     */
+    public long usedBytes()
+    {
+        return tail.get() - head.get();
+    }
+
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return the number of records accepted since the creation of the queue
+     */
+    public long getOffered()
+    {
+        return offered.get();
+    }
+
+    /**
+     * @return the number of records refused because the queue was full
+     */
+    public long getRefused()
+    {
+        return refused.get();
+    }
+
+    /**
+     * Releases the memory of the ring, the queue can not be used any more. In single producer mode, the producer must
+     * be stopped first.
+     */
+    @Override
+    public void close()
+        throws IOException
+    {
+        synchronized ( producerLock )
+        {
+            synchronized ( consumerLock )
+            {
+                if ( closed )
+                {
+                    return;
+                }
+                closed = true;
+                allocator.free( buffer );
+                if ( ownsAllocator )
+                {
+                    allocator.close();
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package org.apache.directmemory.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.IOException;
+
+/**
+ * Block compression algorithm used by a {@link Compression} stage. <b>All implementations must be thread-safe</b>
+ */
+public interface Codec
+{
+
+    /**
+     * @return the identifier of the codec recorded in the header of the entries it compressed, between 1 and
+     *         {@link Byte#MAX_VALUE}
+     */
+    byte getId();
+
+    /**
+     * Compresses <code>source</code> in <code>destination</code>, giving up as soon as the result would exceed
+     * <code>maxLength</code> bytes.
+     *
+     * @param destination an array of at least <code>offset + maxLength</code> bytes
+     * @return the compressed length, or -1 if it would exceed <code>maxLength</code>
+     */
+    int compress( byte[] source, byte[] destination, int offset, int maxLength );
+
+    /**
+     * Decompresses <code>length</code> bytes of <code>source</code> starting at <code>offset</code> in
+     * <code>destination</code>, whose length is the one of the uncompressed data.
+     *
+     * @throws IOException if the data is corrupted
+     */
+    void decompress( byte[] source, int offset, int length, byte[] destination )
+        throws IOException;
+
+}
@@ -0,0 +1,264 @@
+package org.apache.directmemory.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compression stage applied by the {@link org.apache.directmemory.cache.CacheService} to the payloads between the
+ * serializer and the memory manager. Every payload is stored with a one byte header holding the identifier of the
+ * codec which compressed it, 0 when it is stored as is, so that the entries written with another codec remain
+ * readable. A compressed payload is followed by its uncompressed length as a variable length integer, then by the
+ * compressed data. Only the payloads of at least <code>threshold</code> bytes are compressed, and only kept
+ * compressed when it saves space.
+ */
+public class Compression
+{
+
+    public static final byte UNCOMPRESSED = 0;
+
+    public static final int DEFAULT_THRESHOLD = 256;
+
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<byte[]>()
+    {
+        @Override
+        protected byte[] initialValue()
+        {
+            return new byte[4096];
+        }
+    };
+
+    private final Codec codec;
+
+    private final int threshold;
+
+    private final Codec[] codecs = new Codec[Byte.MAX_VALUE + 1];
+
+    private final AtomicLong compressedEntries = new AtomicLong();
+
+    private final AtomicLong uncompressedEntries = new AtomicLong();
+
+    private final AtomicLong payloadBytes = new AtomicLong();
+
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    public Compression( Codec codec )
+    {
+        this( codec, DEFAULT_THRESHOLD );
+    }
+
+    /**
+     * @param codec the codec compressing the new payloads
+     * @param threshold the size under which the payloads are not compressed
+     */
+    public Compression( Codec codec, int threshold )
+    {
+        checkArgument( codec != null, "Impossible to create a Compression with a null codec" );
+        checkArgument( codec.getId() > UNCOMPRESSED, "The codec identifier must be positive" );
+        checkArgument( threshold >= 0, "Impossible to create a Compression with a negative threshold" );
+        this.codec = codec;
+        this.threshold = threshold;
+
+        register( new LzfCodec() );
+        register( new DeflateCodec() );
+        register( codec );
+    }
+
+    /**
+     * Makes the entries compressed by the given codec readable.
+     */
+    public Compression register( Codec decoder )
+    {
+        checkArgument( decoder.getId() > UNCOMPRESSED, "The codec identifier must be positive" );
+        codecs[decoder.getId()] = decoder;
+        return this;
+    }
+
+    public Codec getCodec()
+    {
+        return codec;
+    }
+
+    public int getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * @return the payload with its header, compressed if it saves space
+     */
+    public byte[] encode( byte[] payload )
+    {
+        payloadBytes.addAndGet( payload.length );
+
+        final int headerLength = 1 + varIntLength( payload.length );
+        // compressing must save at least one byte over storing as is
+        final int maxLength = payload.length - headerLength;
+        if ( payload.length >= threshold && maxLength > 0 )
+        {
+            byte[] buffer = BUFFERS.get();
+            if ( buffer.length < headerLength + maxLength )
+            {
+                buffer = new byte[headerLength + maxLength];
+                BUFFERS.set( buffer );
+            }
+            final int length = codec.compress( payload, buffer, headerLength, maxLength );
+            if ( length >= 0 )
+            {
+                buffer[0] = codec.getId();
+                writeVarInt( payload.length, buffer, 1 );
+                compressedEntries.incrementAndGet();
+                storedBytes.addAndGet( headerLength + length );
+                return Arrays.copyOf( buffer, headerLength + length );
+            }
+        }
+
+        final byte[] stored = new byte[1 + payload.length];
+        stored[0] = UNCOMPRESSED;
+        System.arraycopy( payload, 0, stored, 1, payload.length );
+        uncompressedEntries.incrementAndGet();
+        storedBytes.addAndGet( stored.length );
+        return stored;
+    }
+
+    /**
+     * @return the payload given to {@link #encode(byte[])}
+     * @throws IOException if the payload is corrupted or was compressed by an unknown codec
+     */
+    public byte[] decode( byte[] stored )
+        throws IOException
+    {
+        if ( stored.length == 0 )
+        {
+            throw new IOException( "Missing compression header" );
+        }
+        final byte id = stored[0];
+        if ( id == UNCOMPRESSED )
+        {
+            return Arrays.copyOfRange( stored, 1, stored.length );
+        }
+        final Codec decoder = id > 0 ? codecs[id] : null;
+        if ( decoder == null )
+        {
+            throw new IOException( format( "Unknown compression codec %d", id ) );
+        }
+
+        final int length = readVarInt( stored, 1, stored.length );
+        final int position = 1 + varIntLength( length );
+
+        final byte[] payload = new byte[length];
+        decoder.decompress( stored, position, stored.length - position, payload );
+        return payload;
+    }
+
+    /**
+     * @return the number of payloads stored compressed
+     */
+    public long getCompressedEntries()
+    {
+        return compressedEntries.get();
+    }
+
+    /**
+     * @return the number of payloads stored as is, being too small or not compressible
+     */
+    public long getUncompressedEntries()
+    {
+        return uncompressedEntries.get();
+    }
+
+    /**
+     * @return the bytes of the payloads given to {@link #encode(byte[])}
+     */
+    public long getPayloadBytes()
+    {
+        return payloadBytes.get();
+    }
+
+    /**
+     * @return the bytes of the encoded payloads, headers included
+     */
+    public long getStoredBytes()
+    {
+        return storedBytes.get();
+    }
+
+    /**
+     * @return the payload bytes by stored byte, greater than 1 when the compression saves space
+     */
+    public double getRatio()
+    {
+        final long stored = storedBytes.get();
+        return stored == 0 ? 1 : payloadBytes.get() / (double) stored;
+    }
+
+    @Override
+    public String toString()
+    {
+        return format( "%s above %d bytes, ratio %.2f", codec, threshold, getRatio() );
+    }
+
+    static int varIntLength( int value )
+    {
+        int length = 1;
+        while ( ( value & ~0x7F ) != 0 )
+        {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    static void writeVarInt( int value, byte[] buffer, int position )
+    {
+        while ( ( value & ~0x7F ) != 0 )
+        {
+            buffer[position++] = (byte) ( ( value & 0x7F ) | 0x80 );
+            value >>>= 7;
+        }
+        buffer[position] = (byte) value;
+    }
+
+    static int readVarInt( byte[] buffer, int position, int limit )
+        throws IOException
+    {
+        int value = 0;
+        for ( int shift = 0;; shift += 7 )
+        {
+            if ( position == limit || shift > 28 )
+            {
+                throw new IOException( "Corrupted compression header" );
+            }
+            final int b = buffer[position++];
+            value |= ( b & 0x7F ) << shift;
+            if ( ( b & 0x80 ) == 0 )
+            {
+                return value;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package org.apache.directmemory.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Codec delegating to the {@link Deflater} and {@link Inflater} of the JDK, slower than the {@link LzfCodec} but
+ * compressing much better. The data is written without the zlib header and checksum, the entries being small.
+ */
+public class DeflateCodec
+    implements Codec
+{
+
+    public static final byte ID = 2;
+
+    private final int level;
+
+    public DeflateCodec()
+    {
+        this( Deflater.DEFAULT_COMPRESSION );
+    }
+
+    /**
+     * @param level the compression level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     */
+    public DeflateCodec( int level )
+    {
+        checkArgument( level == Deflater.DEFAULT_COMPRESSION
+            || ( level >= Deflater.BEST_SPEED && level <= Deflater.BEST_COMPRESSION ), "Invalid deflate level %s",
+                       level );
+        this.level = level;
+    }
+
+    @Override
+    public byte getId()
+    {
+        return ID;
+    }
+
+    public int getLevel()
+    {
+        return level;
+    }
+
+    @Override
+    public int compress( byte[] source, byte[] destination, int offset, int maxLength )
+    {
+        final Deflater deflater = new Deflater( level, true );
+        try
+        {
+            deflater.setInput( source );
+            deflater.finish();
+            final int length = deflater.deflate( destination, offset, maxLength );
+            return deflater.finished() ? length : -1;
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public void decompress( byte[] source, int offset, int length, byte[] destination )
+        throws IOException
+    {
+        final Inflater inflater = new Inflater( true );
+        try
+        {
+            inflater.setInput( source, offset, length );
+            int inflated = 0;
+            while ( inflated < destination.length )
+            {
+                final int count = inflater.inflate( destination, inflated, destination.length - inflated );
+                if ( count == 0 && ( inflater.finished() || inflater.needsInput() || inflater.needsDictionary() ) )
+                {
+                    break;
+                }
+                inflated += count;
+            }
+            // the destination is full, the stream must have ended
+            if ( inflated != destination.length || !inflater.finished() && inflater.inflate( new byte[1] ) > 0 )
+            {
+                throw new IOException( "Corrupted deflate data, " + inflated + " bytes inflated instead of "
+                    + destination.length );
+            }
+        }
+        catch ( DataFormatException e )
+        {
+            throw new IOException( "Corrupted deflate data : " + e.getMessage() );
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "deflate-" + level;
+    }
+
+}
@@ -0,0 +1,363 @@
+package org.apache.directmemory.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deflate codec compressing the payloads against a dictionary trained on the payloads themselves, for the small and
+ * alike values that compress poorly one by one. Every <code>sampleEvery</code> payload compressed is kept as a sample,
+ * and once the samples are collected, a dictionary is trained by the {@link DictionaryTrainer} on the thread
+ * compressing, the others going on with the previous dictionary. A new dictionary is trained every
+ * <code>retrainEvery</code> payloads, so that it follows the content of the cache.
+ * <p>
+ * The compressed data starts with the version of the dictionary it was compressed with, 0 for none, and the last
+ * <code>retainedDictionaries</code> dictionaries are kept to read back the entries : an entry compressed with an older
+ * dictionary can not be decompressed any more, reading it throws an {@link UndecodablePayloadException} counted in
+ * {@link org.apache.directmemory.cache.CacheStatistics#getUndecodable()}, and the entry is left to expire. The retained dictionaries should cover the
+ * lifetime of the entries : with the defaults, an entry outlives its dictionary after 16 million compressed payloads.
+ */
+public class DictionaryCodec
+    implements Codec
+{
+
+    public static final byte ID = 3;
+
+    public static final int DEFAULT_DICTIONARY_SIZE = 4 * 1024;
+
+    public static final int DEFAULT_SAMPLES = 1024;
+
+    public static final int DEFAULT_SAMPLE_EVERY = 8;
+
+    public static final long DEFAULT_RETRAIN_EVERY = 1000000;
+
+    public static final int DEFAULT_RETAINED_DICTIONARIES = 16;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final int level;
+
+    private int dictionarySize = DEFAULT_DICTIONARY_SIZE;
+
+    private int sampleEvery = DEFAULT_SAMPLE_EVERY;
+
+    private long retrainEvery = DEFAULT_RETRAIN_EVERY;
+
+    private AtomicReferenceArray<byte[]> samples = new AtomicReferenceArray<byte[]>( DEFAULT_SAMPLES );
+
+    private AtomicReferenceArray<Dictionary> dictionaries =
+        new AtomicReferenceArray<Dictionary>( DEFAULT_RETAINED_DICTIONARIES );
+
+    private volatile Dictionary current;
+
+    private volatile long nextTraining = DEFAULT_SAMPLES * DEFAULT_SAMPLE_EVERY;
+
+    private final AtomicBoolean training = new AtomicBoolean();
+
+    private final AtomicLong payloads = new AtomicLong();
+
+    private final ThreadLocal<Deflater> deflaters = new ThreadLocal<Deflater>()
+    {
+        @Override
+        protected Deflater initialValue()
+        {
+            return new Deflater( level, true );
+        }
+    };
+
+    private final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>()
+    {
+        @Override
+        protected Inflater initialValue()
+        {
+            return new Inflater( true );
+        }
+    };
+
+    public DictionaryCodec()
+    {
+        this( Deflater.DEFAULT_COMPRESSION );
+    }
+
+    /**
+     * @param level the compression level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     */
+    public DictionaryCodec( int level )
+    {
+        checkArgument( level == Deflater.DEFAULT_COMPRESSION
+            || ( level >= Deflater.BEST_SPEED && level <= Deflater.BEST_COMPRESSION ), "Invalid deflate level %s",
+                       level );
+        this.level = level;
+    }
+
+    /**
+     * @param dictionarySize the size of the dictionaries, every compression hashing the whole dictionary
+     */
+    public DictionaryCodec setDictionarySize( int dictionarySize )
+    {
+        checkArgument( dictionarySize > 0 && dictionarySize <= 32 * 1024,
+                       "The dictionary size must be between 1 and the 32KB deflate window" );
+        this.dictionarySize = dictionarySize;
+        return this;
+    }
+
+    /**
+     * @param samples the number of payloads a dictionary is trained on
+     * @param sampleEvery the interval between two payloads kept as samples
+     */
+    public DictionaryCodec setSampling( int samples, int sampleEvery )
+    {
+        checkArgument( samples > 0, "Impossible to train a dictionary on %s samples", samples );
+        checkArgument( sampleEvery > 0, "Impossible to sample every %s payloads", sampleEvery );
+        this.samples = new AtomicReferenceArray<byte[]>( samples );
+        this.sampleEvery = sampleEvery;
+        this.nextTraining = payloads.get() + (long) samples * sampleEvery;
+        return this;
+    }
+
+    /**
+     * @param retrainEvery the number of payloads compressed between two trainings, 0 to train only once
+     */
+    public DictionaryCodec setRetrainEvery( long retrainEvery )
+    {
+        checkArgument( retrainEvery >= 0, "Impossible to retrain every %s payloads", retrainEvery );
+        this.retrainEvery = retrainEvery;
+        return this;
+    }
+
+    /**
+     * @param retainedDictionaries the number of dictionaries kept to decompress the entries
+     */
+    public DictionaryCodec setRetainedDictionaries( int retainedDictionaries )
+    {
+        checkArgument( retainedDictionaries > 0, "At least one dictionary must be retained" );
+        this.dictionaries = new AtomicReferenceArray<Dictionary>( retainedDictionaries );
+        final Dictionary dictionary = current;
+        if ( dictionary != null )
+        {
+            dictionaries.set( dictionary.version % retainedDictionaries, dictionary );
+        }
+        return this;
+    }
+
+    @Override
+    public byte getId()
+    {
+        return ID;
+    }
+
+    /**
+     * @return the version of the dictionary the payloads are compressed with, 0 before the first training
+     */
+    public int getVersion()
+    {
+        final Dictionary dictionary = current;
+        return dictionary != null ? dictionary.version : 0;
+    }
+
+    /**
+     * @return the dictionary the payloads are compressed with, null before the first training
+     */
+    public byte[] getDictionary()
+    {
+        final Dictionary dictionary = current;
+        return dictionary != null ? dictionary.bytes.clone() : null;
+    }
+
+    /**
+     * Compresses the next payloads with the given dictionary, trained beforehand on similar payloads.
+     *
+     * @return the version of the dictionary
+     */
+    public synchronized int useDictionary( byte[] dictionary )
+    {
+        checkArgument( dictionary.length > 0 && dictionary.length <= 32 * 1024,
+                       "The dictionary size must be between 1 and the 32KB deflate window" );
+        final Dictionary previous = current;
+        final Dictionary next = new Dictionary( previous != null ? previous.version + 1 : 1, dictionary.clone() );
+        dictionaries.set( next.version % dictionaries.length(), next );
+        current = next;
+        return next.version;
+    }
+
+    /**
+     * Trains a new dictionary on the samples collected so far.
+     *
+     * @return the version of the new dictionary, or the current one if the samples have nothing in common
+     */
+    public int train()
+    {
+        final List<byte[]> collected = new ArrayList<byte[]>();
+        final AtomicReferenceArray<byte[]> samples = this.samples;
+        for ( int i = 0; i < samples.length(); i++ )
+        {
+            final byte[] sample = samples.get( i );
+            if ( sample != null )
+            {
+                collected.add( sample );
+            }
+        }
+
+        final long start = System.nanoTime();
+        final byte[] dictionary = DictionaryTrainer.train( collected, dictionarySize );
+        if ( dictionary.length == 0 )
+        {
+            logger.debug( format( "no dictionary trained on %d samples", collected.size() ) );
+            return getVersion();
+        }
+        final int version = useDictionary( dictionary );
+        logger.info( format( "dictionary %d of %d bytes trained on %d samples in %.3fs", version, dictionary.length,
+                             collected.size(), ( System.nanoTime() - start ) / 1e9d ) );
+        return version;
+    }
+
+    @Override
+    public int compress( byte[] source, byte[] destination, int offset, int maxLength )
+    {
+        sample( source );
+
+        final Dictionary dictionary = current;
+        final int version = dictionary != null ? dictionary.version : 0;
+        final int versionLength = Compression.varIntLength( version );
+        if ( maxLength <= versionLength )
+        {
+            return -1;
+        }
+        Compression.writeVarInt( version, destination, offset );
+
+        final Deflater deflater = deflaters.get();
+        deflater.reset();
+        if ( dictionary != null )
+        {
+            deflater.setDictionary( dictionary.bytes );
+        }
+        deflater.setInput( source );
+        deflater.finish();
+        final int length = deflater.deflate( destination, offset + versionLength, maxLength - versionLength );
+        return deflater.finished() ? versionLength + length : -1;
+    }
+
+    @Override
+    public void decompress( byte[] source, int offset, int length, byte[] destination )
+        throws IOException
+    {
+        final int version = Compression.readVarInt( source, offset, offset + length );
+        final int position = offset + Compression.varIntLength( version );
+
+        final Inflater inflater = inflaters.get();
+        inflater.reset();
+        if ( version > 0 )
+        {
+            final AtomicReferenceArray<Dictionary> dictionaries = this.dictionaries;
+            final Dictionary dictionary = dictionaries.get( version % dictionaries.length() );
+            if ( dictionary == null || dictionary.version != version )
+            {
+                throw new IOException( format( "The dictionary %d is not retained any more", version ) );
+            }
+            inflater.setDictionary( dictionary.bytes );
+        }
+        inflater.setInput( source, position, offset + length - position );
+        try
+        {
+            int inflated = 0;
+            while ( inflated < destination.length )
+            {
+                final int count = inflater.inflate( destination, inflated, destination.length - inflated );
+                if ( count == 0 && ( inflater.finished() || inflater.needsInput() || inflater.needsDictionary() ) )
+                {
+                    break;
+                }
+                inflated += count;
+            }
+            // the destination is full, the stream must have ended
+            if ( inflated != destination.length || !inflater.finished() && inflater.inflate( new byte[1] ) > 0 )
+            {
+                throw new IOException( "Corrupted deflate data, " + inflated + " bytes inflated instead of "
+                    + destination.length );
+            }
+        }
+        catch ( DataFormatException e )
+        {
+            throw new IOException( "Corrupted deflate data : " + e.getMessage() );
+        }
+    }
+
+    private void sample( byte[] source )
+    {
+        final long count = payloads.incrementAndGet();
+        if ( count % sampleEvery == 0 )
+        {
+            final AtomicReferenceArray<byte[]> samples = this.samples;
+            // the beginning of the payloads is what they have most in common
+            samples.set( (int) ( ( count / sampleEvery ) % samples.length() ),
+                         Arrays.copyOf( source, Math.min( source.length, dictionarySize ) ) );
+        }
+        if ( count >= nextTraining && training.compareAndSet( false, true ) )
+        {
+            try
+            {
+                nextTraining = retrainEvery > 0 ? count + retrainEvery : Long.MAX_VALUE;
+                train();
+            }
+            finally
+            {
+                training.set( false );
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "dictionary-" + getVersion();
+    }
+
+    private static final class Dictionary
+    {
+
+        private final int version;
+
+        private final byte[] bytes;
+
+        Dictionary( int version, byte[] bytes )
+        {
+            this.version = version;
+            this.bytes = bytes;
+        }
+
+    }
+
+}
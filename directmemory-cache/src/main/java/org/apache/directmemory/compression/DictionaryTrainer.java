@@ -0,0 +1,270 @@
+package org.apache.directmemory.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Builds a compression dictionary out of sample payloads, for the {@link DictionaryCodec}. The samples are cut in as
+ * many epochs as the dictionary has segments, and the segment of each epoch holding the most frequent 8 byte
+ * sequences is kept, the frequency of a sequence being the number of samples it appears in. The sequences of a kept
+ * segment no longer count for the following epochs, so that the dictionary does not repeat itself. The segments
+ * with the best scores are put at the end of the dictionary, where deflate reaches them with the shortest
+ * distances.
+ */
+public final class DictionaryTrainer
+{
+
+    static final int SEQUENCE_LENGTH = 8;
+
+    public static final int DEFAULT_SEGMENT_LENGTH = 32;
+
+    private DictionaryTrainer()
+    {
+    }
+
+    /**
+     * @return a dictionary of at most <code>size</code> bytes, empty if the samples have nothing in common
+     */
+    public static byte[] train( List<byte[]> samples, int size )
+    {
+        return train( samples, size, DEFAULT_SEGMENT_LENGTH );
+    }
+
+    /**
+     * @param segmentLength the length of the segments the dictionary is made of
+     * @return a dictionary of at most <code>size</code> bytes, empty if the samples have nothing in common
+     */
+    public static byte[] train( List<byte[]> samples, int size, int segmentLength )
+    {
+        checkArgument( size > 0, "Impossible to train a dictionary of %s bytes", size );
+        checkArgument( segmentLength >= SEQUENCE_LENGTH, "The segments must be at least %s bytes long",
+                       SEQUENCE_LENGTH );
+
+        int total = 0;
+        for ( byte[] sample : samples )
+        {
+            total += sample.length;
+        }
+        final byte[] data = new byte[total];
+        // the sequences crossing two samples are not counted
+        final boolean[] lastOfSample = new boolean[total];
+        int position = 0;
+        for ( byte[] sample : samples )
+        {
+            System.arraycopy( sample, 0, data, position, sample.length );
+            position += sample.length;
+            if ( position > 0 )
+            {
+                lastOfSample[position - 1] = true;
+            }
+        }
+        if ( total < segmentLength )
+        {
+            return new byte[0];
+        }
+
+        // the slot in the frequency table of the sequence starting at each position, -1 if there is none
+        final SequenceTable table = new SequenceTable( total );
+        final int[] slots = new int[total];
+        int sampleIndex = 0;
+        for ( int i = 0; i < total; i++ )
+        {
+            slots[i] = -1;
+            if ( i + SEQUENCE_LENGTH <= total && !crossesSample( lastOfSample, i ) )
+            {
+                slots[i] = table.count( sequence( data, i ), sampleIndex );
+            }
+            if ( lastOfSample[i] )
+            {
+                sampleIndex++;
+            }
+        }
+
+        final int epochs = Math.max( 1, Math.min( size / segmentLength, total / segmentLength ) );
+        final int epochLength = total / epochs;
+        final List<Segment> segments = new ArrayList<Segment>();
+        for ( int epoch = 0; epoch < epochs; epoch++ )
+        {
+            final int begin = epoch * epochLength;
+            final int end = Math.min( total, begin + epochLength ) - segmentLength;
+            final Segment best = bestSegment( table, slots, begin, end, segmentLength );
+            if ( best != null )
+            {
+                segments.add( best );
+                // the sequences of the segment are now in the dictionary
+                for ( int i = best.start; i <= best.start + segmentLength - SEQUENCE_LENGTH; i++ )
+                {
+                    if ( slots[i] >= 0 )
+                    {
+                        table.counts[slots[i]] = 0;
+                    }
+                }
+            }
+        }
+
+        Collections.sort( segments, new Comparator<Segment>()
+        {
+            @Override
+            public int compare( Segment o1, Segment o2 )
+            {
+                return o1.score < o2.score ? -1 : o1.score == o2.score ? 0 : 1;
+            }
+        } );
+        // the best segments are kept if the dictionary would be too big
+        final int kept = Math.min( segments.size(), size / segmentLength );
+        final byte[] dictionary = new byte[kept * segmentLength];
+        for ( int i = 0; i < kept; i++ )
+        {
+            final Segment segment = segments.get( segments.size() - kept + i );
+            System.arraycopy( data, segment.start, dictionary, i * segmentLength, segmentLength );
+        }
+        return dictionary;
+    }
+
+    private static Segment bestSegment( SequenceTable table, int[] slots, int begin, int end, int segmentLength )
+    {
+        if ( end < begin )
+        {
+            return null;
+        }
+        final int sequences = segmentLength - SEQUENCE_LENGTH + 1;
+        long score = 0;
+        for ( int i = begin; i < begin + sequences; i++ )
+        {
+            score += frequency( table, slots[i] );
+        }
+        long bestScore = score;
+        int bestStart = begin;
+        for ( int start = begin + 1; start <= end; start++ )
+        {
+            score += frequency( table, slots[start + sequences - 1] ) - frequency( table, slots[start - 1] );
+            if ( score > bestScore )
+            {
+                bestScore = score;
+                bestStart = start;
+            }
+        }
+        return bestScore > 0 ? new Segment( bestStart, bestScore ) : null;
+    }
+
+    private static int frequency( SequenceTable table, int slot )
+    {
+        // a sequence seen in a single sample is of no help
+        return slot >= 0 && table.counts[slot] > 1 ? table.counts[slot] : 0;
+    }
+
+    private static boolean crossesSample( boolean[] lastOfSample, int position )
+    {
+        for ( int i = position; i < position + SEQUENCE_LENGTH - 1; i++ )
+        {
+            if ( lastOfSample[i] )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long sequence( byte[] data, int position )
+    {
+        long sequence = 0;
+        for ( int i = position; i < position + SEQUENCE_LENGTH; i++ )
+        {
+            sequence = ( sequence << 8 ) | ( data[i] & 0xFF );
+        }
+        return sequence;
+    }
+
+    private static final class Segment
+    {
+
+        private final int start;
+
+        private final long score;
+
+        Segment( int start, long score )
+        {
+            this.start = start;
+            this.score = score;
+        }
+
+    }
+
+    /**
+     * Open addressing table of the number of samples each sequence appears in.
+     */
+    private static final class SequenceTable
+    {
+
+        private final long[] sequences;
+
+        private final int[] counts;
+
+        private final int[] lastSamples;
+
+        private final boolean[] filled;
+
+        private final int mask;
+
+        SequenceTable( int expected )
+        {
+            final int capacity = Integer.highestOneBit( Math.max( 16, expected ) ) << 1;
+            sequences = new long[capacity];
+            counts = new int[capacity];
+            lastSamples = new int[capacity];
+            filled = new boolean[capacity];
+            mask = capacity - 1;
+        }
+
+        /**
+         * @return the slot of the sequence
+         */
+        int count( long sequence, int sample )
+        {
+            int slot = (int) ( ( sequence * 0x9E3779B97F4A7C15L ) >>> 32 ) & mask;
+            while ( filled[slot] && sequences[slot] != sequence )
+            {
+                slot = ( slot + 1 ) & mask;
+            }
+            if ( !filled[slot] )
+            {
+                filled[slot] = true;
+                sequences[slot] = sequence;
+                counts[slot] = 1;
+                lastSamples[slot] = sample;
+            }
+            else if ( lastSamples[slot] != sample )
+            {
+                counts[slot]++;
+                lastSamples[slot] = sample;
+            }
+            return slot;
+        }
+
+    }
+
+}
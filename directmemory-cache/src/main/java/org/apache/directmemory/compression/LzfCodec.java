@@ -0,0 +1,237 @@
+package org.apache.directmemory.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.IOException;
+
+/**
+ * Pure Java implementation of the LZF algorithm of liblzf, trading compression ratio for speed : a three bytes hash
+ * finds back-references up to 8 KB behind, the other bytes being copied as literal runs of up to 32 bytes. The
+ * compressed data is made of :
+ * <ul>
+ * <li>literal runs : a control byte lower than 32 holding the length of the run minus one, followed by the run</li>
+ * <li>back-references : the length of the match minus two on the three upper bits of the control byte, or 7 followed
+ * by an extra byte holding the remaining length, then the offset of the match minus one on the five lower bits of the
+ * control byte and the next byte</li>
+ * </ul>
+ */
+public class LzfCodec
+    implements Codec
+{
+
+    public static final byte ID = 1;
+
+    private static final int HASH_LOG = 13;
+
+    private static final int MAX_LITERAL = 1 << 5;
+
+    private static final int MAX_OFFSET = 1 << 13;
+
+    private static final int MAX_REFERENCE = ( 1 << 8 ) + ( 1 << 3 );
+
+    /**
+     * The hash table is never cleared : the positions left by a previous compression are checked against the current
+     * data like any other candidate.
+     */
+    private static final ThreadLocal<int[]> HASH_TABLES = new ThreadLocal<int[]>()
+    {
+        @Override
+        protected int[] initialValue()
+        {
+            return new int[1 << HASH_LOG];
+        }
+    };
+
+    @Override
+    public byte getId()
+    {
+        return ID;
+    }
+
+    @Override
+    public int compress( byte[] source, byte[] destination, int offset, int maxLength )
+    {
+        final int[] hashTable = HASH_TABLES.get();
+        final int end = offset + maxLength;
+        final int length = source.length;
+
+        int input = 0;
+        // the control byte of the current literal run is written when the run ends
+        int output = offset + 1;
+        int literals = 0;
+
+        while ( input < length - 2 )
+        {
+            if ( output + 4 > end )
+            {
+                return -1;
+            }
+
+            final int hash = hash( source, input );
+            final int reference = hashTable[hash];
+            hashTable[hash] = input;
+
+            final int distance = input - reference - 1;
+            if ( reference < input && distance < MAX_OFFSET && source[reference] == source[input]
+                && source[reference + 1] == source[input + 1] && source[reference + 2] == source[input + 2] )
+            {
+                int matchLength = 2;
+                final int maxMatchLength = Math.min( length - input - matchLength, MAX_REFERENCE );
+
+                if ( literals == 0 )
+                {
+                    output--;
+                }
+                else
+                {
+                    destination[output - literals - 1] = (byte) ( literals - 1 );
+                }
+
+                do
+                {
+                    matchLength++;
+                }
+                while ( matchLength < maxMatchLength
+                    && source[reference + matchLength] == source[input + matchLength] );
+
+                matchLength -= 2;
+                if ( matchLength < 7 )
+                {
+                    destination[output++] = (byte) ( ( distance >> 8 ) + ( matchLength << 5 ) );
+                }
+                else
+                {
+                    destination[output++] = (byte) ( ( distance >> 8 ) + ( 7 << 5 ) );
+                    destination[output++] = (byte) ( matchLength - 7 );
+                }
+                destination[output++] = (byte) distance;
+
+                literals = 0;
+                output++;
+                input += matchLength + 2;
+            }
+            else
+            {
+                literals++;
+                destination[output++] = source[input++];
+                if ( literals == MAX_LITERAL )
+                {
+                    destination[output - literals - 1] = (byte) ( MAX_LITERAL - 1 );
+                    literals = 0;
+                    output++;
+                }
+            }
+        }
+
+        while ( input < length )
+        {
+            if ( output + 2 > end )
+            {
+                return -1;
+            }
+            literals++;
+            destination[output++] = source[input++];
+            if ( literals == MAX_LITERAL )
+            {
+                destination[output - literals - 1] = (byte) ( MAX_LITERAL - 1 );
+                literals = 0;
+                output++;
+            }
+        }
+
+        if ( literals == 0 )
+        {
+            output--;
+        }
+        else
+        {
+            destination[output - literals - 1] = (byte) ( literals - 1 );
+        }
+        return output > end ? -1 : output - offset;
+    }
+
+    @Override
+    public void decompress( byte[] source, int offset, int length, byte[] destination )
+        throws IOException
+    {
+        final int end = offset + length;
+        int input = offset;
+        int output = 0;
+
+        try
+        {
+            while ( input < end )
+            {
+                final int control = source[input++] & 0xFF;
+                if ( control < MAX_LITERAL )
+                {
+                    final int literals = control + 1;
+                    System.arraycopy( source, input, destination, output, literals );
+                    input += literals;
+                    output += literals;
+                }
+                else
+                {
+                    int matchLength = control >> 5;
+                    if ( matchLength == 7 )
+                    {
+                        matchLength += source[input++] & 0xFF;
+                    }
+                    int reference = output - ( ( control & 0x1F ) << 8 ) - 1 - ( source[input++] & 0xFF );
+                    if ( reference < 0 )
+                    {
+                        throw new IOException( "Corrupted LZF data, back-reference before the beginning" );
+                    }
+                    matchLength += 2;
+                    // the match may overlap the bytes being written
+                    for ( int i = 0; i < matchLength; i++ )
+                    {
+                        destination[output++] = destination[reference++];
+                    }
+                }
+            }
+        }
+        catch ( IndexOutOfBoundsException e )
+        {
+            throw new IOException( "Corrupted LZF data" );
+        }
+        if ( output != destination.length )
+        {
+            throw new IOException( "Corrupted LZF data, " + output + " bytes decompressed instead of "
+                + destination.length );
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "lzf";
+    }
+
+    private static int hash( byte[] data, int position )
+    {
+        final int value =
+            ( ( data[position] & 0xFF ) << 16 ) | ( ( data[position + 1] & 0xFF ) << 8 )
+                | ( data[position + 2] & 0xFF );
+        return ( value * -1640531535 ) >>> ( 32 - HASH_LOG );
+    }
+
+}
@@ -0,0 +1,40 @@
+package org.apache.directmemory.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/**
+ * Thrown when a payload stored compressed can not be decoded any more, like a payload compressed with a dictionary
+ * which is not retained any more. The entry is left in the cache, it is up to the caller to free it.
+ *
+ * @since 0.6
+ */
+public class UndecodablePayloadException
+    extends RuntimeException
+{
+
+    private static final long serialVersionUID = 4137460862107815930L;
+
+    public UndecodablePayloadException( String message, Throwable cause )
+    {
+        super( message, cause );
+    }
+
+}
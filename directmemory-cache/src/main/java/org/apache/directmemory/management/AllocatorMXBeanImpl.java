@@ -0,0 +1,77 @@
+package org.apache.directmemory.management;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.directmemory.memory.allocator.Allocator;
+
+public class AllocatorMXBeanImpl
+    implements AllocatorMXBean
+{
+
+    private final Allocator allocator;
+
+    public AllocatorMXBeanImpl( Allocator allocator )
+    {
+        this.allocator = allocator;
+    }
+
+    @Override
+    public String getImplementation()
+    {
+        return allocator.getClass().getName();
+    }
+
+    @Override
+    public int getNumber()
+    {
+        return allocator.getNumber();
+    }
+
+    @Override
+    public long getCapacity()
+    {
+        return allocator.getCapacity();
+    }
+
+    @Override
+    public long getFreeCapacity()
+    {
+        return allocator.getFreeCapacity();
+    }
+
+    @Override
+    public long getLargestFreeBlock()
+    {
+        return allocator.getLargestFreeBlock();
+    }
+
+    @Override
+    public long[] getFreeBlockHistogram()
+    {
+        return allocator.getFreeBlockHistogram();
+    }
+
+    @Override
+    public long getAllocationFailures()
+    {
+        return allocator.getAllocationFailures();
+    }
+
+}
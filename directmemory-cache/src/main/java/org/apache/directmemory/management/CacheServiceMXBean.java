@@ -0,0 +1,85 @@
+package org.apache.directmemory.management;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Management interface of a {@link org.apache.directmemory.cache.CacheService}.
+ */
+public interface CacheServiceMXBean
+{
+
+    String getName();
+
+    long getEntries();
+
+    /**
+     * @return the off-heap bytes used by the stored entries
+     */
+    long getUsedMemory();
+
+    /**
+     * @return the total off-heap bytes available to the cache
+     */
+    long getCapacity();
+
+    long getHits();
+
+    long getMisses();
+
+    double getHitRatio();
+
+    /**
+     * @return the number of entries freed because they were expired, either while being retrieved or by a disposal
+     */
+    long getExpirations();
+
+    /**
+     * @return the number of entries freed by the least frequently used collection
+     */
+    long getEvictions();
+
+    /**
+     * @return the number of reads failing because the payload could not be decoded any more
+     */
+    long getUndecodable();
+
+    long getDisposals();
+
+    /**
+     * @return the duration of the last disposal pass in milliseconds
+     */
+    long getLastDisposalTime();
+
+    /**
+     * @return the cumulated duration of the disposal passes in milliseconds
+     */
+    long getTotalDisposalTime();
+
+    void collectExpired();
+
+    void collectLFU();
+
+    void collectAll();
+
+    void clear();
+
+    void dump();
+
+}
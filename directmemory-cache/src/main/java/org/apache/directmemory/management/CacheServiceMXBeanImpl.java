@@ -0,0 +1,158 @@
+package org.apache.directmemory.management;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.cache.CacheStatistics;
+import org.apache.directmemory.memory.MemoryManagerService;
+
+public class CacheServiceMXBeanImpl
+    implements CacheServiceMXBean
+{
+
+    private final String name;
+
+    private final CacheService<?, ?> cacheService;
+
+    public CacheServiceMXBeanImpl( String name, CacheService<?, ?> cacheService )
+    {
+        this.name = name;
+        this.cacheService = cacheService;
+    }
+
+    private CacheStatistics getStatistics()
+    {
+        return cacheService.getStatistics();
+    }
+
+    private MemoryManagerService<?> getMemoryManager()
+    {
+        return cacheService.getMemoryManager();
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public long getEntries()
+    {
+        return cacheService.entries();
+    }
+
+    @Override
+    public long getUsedMemory()
+    {
+        return getMemoryManager().used();
+    }
+
+    @Override
+    public long getCapacity()
+    {
+        return getMemoryManager().capacity();
+    }
+
+    @Override
+    public long getHits()
+    {
+        return getStatistics().getHits();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return getStatistics().getMisses();
+    }
+
+    @Override
+    public double getHitRatio()
+    {
+        return getStatistics().getHitRatio();
+    }
+
+    @Override
+    public long getExpirations()
+    {
+        return getStatistics().getExpirations() + getMemoryManager().getExpiredCount();
+    }
+
+    @Override
+    public long getUndecodable()
+    {
+        return getStatistics().getUndecodable();
+    }
+
+    @Override
+    public long getEvictions()
+    {
+        return getMemoryManager().getEvictedCount();
+    }
+
+    @Override
+    public long getDisposals()
+    {
+        return getStatistics().getDisposals();
+    }
+
+    @Override
+    public long getLastDisposalTime()
+    {
+        return getStatistics().getLastDisposalTime();
+    }
+
+    @Override
+    public long getTotalDisposalTime()
+    {
+        return getStatistics().getTotalDisposalTime();
+    }
+
+    @Override
+    public void collectExpired()
+    {
+        cacheService.collectExpired();
+    }
+
+    @Override
+    public void collectLFU()
+    {
+        cacheService.collectLFU();
+    }
+
+    @Override
+    public void collectAll()
+    {
+        cacheService.collectAll();
+    }
+
+    @Override
+    public void clear()
+    {
+        cacheService.clear();
+    }
+
+    @Override
+    public void dump()
+    {
+        cacheService.dump();
+    }
+
+}
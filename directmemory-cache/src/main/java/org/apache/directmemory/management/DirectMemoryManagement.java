@@ -0,0 +1,153 @@
+package org.apache.directmemory.management;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.String.format;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.memory.MemoryManagerService;
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers the MXBeans of a {@link CacheService}, its {@link MemoryManagerService} and its {@link Allocator}s into the
+ * platform {@link MBeanServer}, under the following names:
+ * <ul>
+ * <li>org.apache.directmemory:type=CacheService,name=&lt;name&gt;</li>
+ * <li>org.apache.directmemory:type=MemoryManager,name=&lt;name&gt;</li>
+ * <li>org.apache.directmemory:type=Allocator,name=&lt;name&gt;,number=&lt;allocator number&gt;</li>
+ * </ul>
+ */
+public final class DirectMemoryManagement
+{
+
+    public static final String DOMAIN = "org.apache.directmemory";
+
+    private static final Logger logger = LoggerFactory.getLogger( DirectMemoryManagement.class );
+
+    private static final ConcurrentMap<CacheService<?, ?>, List<ObjectName>> registrations =
+        new ConcurrentHashMap<CacheService<?, ?>, List<ObjectName>>();
+
+    private DirectMemoryManagement()
+    {
+        // static class
+    }
+
+    /**
+     * Registers the MXBeans of the given {@link CacheService}. Failures are logged and do not prevent the cache from
+     * being used.
+     * 
+     * @param name : the name identifying the cache, must be unique in the JVM
+     * @param cacheService : the cache to instrument
+     */
+    public static void register( String name, CacheService<?, ?> cacheService )
+    {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final List<ObjectName> objectNames = new ArrayList<ObjectName>();
+        try
+        {
+            final MemoryManagerService<?> memoryManager = cacheService.getMemoryManager();
+
+            objectNames.add( register( server, cacheServiceName( name ), new CacheServiceMXBeanImpl( name, cacheService ),
+                                       CacheServiceMXBean.class ) );
+            objectNames.add( register( server, memoryManagerName( name ), new MemoryManagerMXBeanImpl( memoryManager ),
+                                       MemoryManagerMXBean.class ) );
+            for ( Allocator allocator : memoryManager.getAllocators() )
+            {
+                objectNames.add( register( server, allocatorName( name, allocator.getNumber() ),
+                                           new AllocatorMXBeanImpl( allocator ), AllocatorMXBean.class ) );
+            }
+            registrations.put( cacheService, objectNames );
+        }
+        catch ( JMException e )
+        {
+            logger.warn( format( "Unable to register the MBeans of cache %s", name ), e );
+            unregister( server, objectNames );
+        }
+    }
+
+    /**
+     * Unregisters the MXBeans of the given {@link CacheService}, if any.
+     * 
+     * @param cacheService : the previously registered cache
+     */
+    public static void unregister( CacheService<?, ?> cacheService )
+    {
+        final List<ObjectName> objectNames = registrations.remove( cacheService );
+        if ( objectNames != null )
+        {
+            unregister( ManagementFactory.getPlatformMBeanServer(), objectNames );
+        }
+    }
+
+    public static ObjectName cacheServiceName( String name )
+        throws JMException
+    {
+        return new ObjectName( format( "%s:type=CacheService,name=%s", DOMAIN, ObjectName.quote( name ) ) );
+    }
+
+    public static ObjectName memoryManagerName( String name )
+        throws JMException
+    {
+        return new ObjectName( format( "%s:type=MemoryManager,name=%s", DOMAIN, ObjectName.quote( name ) ) );
+    }
+
+    public static ObjectName allocatorName( String name, int number )
+        throws JMException
+    {
+        return new ObjectName( format( "%s:type=Allocator,name=%s,number=%d", DOMAIN, ObjectName.quote( name ),
+                                       number ) );
+    }
+
+    private static <T> ObjectName register( MBeanServer server, ObjectName objectName, T mbean, Class<T> mbeanInterface )
+        throws JMException
+    {
+        server.registerMBean( new StandardMBean( mbean, mbeanInterface, true ), objectName );
+        return objectName;
+    }
+
+    private static void unregister( MBeanServer server, List<ObjectName> objectNames )
+    {
+        for ( ObjectName objectName : objectNames )
+        {
+            try
+            {
+                server.unregisterMBean( objectName );
+            }
+            catch ( JMException e )
+            {
+                logger.warn( format( "Unable to unregister MBean %s", objectName ), e );
+            }
+        }
+    }
+
+}
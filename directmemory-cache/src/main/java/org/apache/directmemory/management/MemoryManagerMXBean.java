@@ -0,0 +1,73 @@
+package org.apache.directmemory.management;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Management interface of a {@link org.apache.directmemory.memory.MemoryManagerService}.
+ */
+public interface MemoryManagerMXBean
+{
+
+    String getImplementation();
+
+    long getCapacity();
+
+    long getUsed();
+
+    /**
+     * @return the number of bytes not yet allocated, summed over all the allocators
+     */
+    long getFreeCapacity();
+
+    long getLargestFreeBlock();
+
+    /**
+     * @return 0 when all the free bytes are in a single block, approaching 1 as the free space is split into small
+     *         blocks
+     */
+    double getFragmentation();
+
+    long getAllocationFailures();
+
+    long getStoreFailures();
+
+    /**
+     * @return the number of failed stores while the free capacity was bigger than the payload
+     */
+    long getFragmentedStoreFailures();
+
+    long getPointers();
+
+    int getAllocators();
+
+    long getExpiredCount();
+
+    long getEvictedCount();
+
+    /**
+     * Frees the expired pointers.
+     * 
+     * @return the number of bytes freed
+     */
+    long collectExpired();
+
+    void collectLFU();
+
+}
@@ -0,0 +1,131 @@
+package org.apache.directmemory.management;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.directmemory.memory.FragmentationStatistics;
+import org.apache.directmemory.memory.MemoryManagerService;
+
+public class MemoryManagerMXBeanImpl
+    implements MemoryManagerMXBean
+{
+
+    private final MemoryManagerService<?> memoryManager;
+
+    public MemoryManagerMXBeanImpl( MemoryManagerService<?> memoryManager )
+    {
+        this.memoryManager = memoryManager;
+    }
+
+    @Override
+    public String getImplementation()
+    {
+        return memoryManager.getClass().getName();
+    }
+
+    @Override
+    public long getCapacity()
+    {
+        return memoryManager.capacity();
+    }
+
+    @Override
+    public long getUsed()
+    {
+        return memoryManager.used();
+    }
+
+    private FragmentationStatistics getFragmentationStatistics()
+    {
+        return memoryManager.getFragmentationStatistics();
+    }
+
+    @Override
+    public long getFreeCapacity()
+    {
+        return getFragmentationStatistics().getFreeCapacity();
+    }
+
+    @Override
+    public long getLargestFreeBlock()
+    {
+        return getFragmentationStatistics().getLargestFreeBlock();
+    }
+
+    @Override
+    public double getFragmentation()
+    {
+        return getFragmentationStatistics().getFragmentation();
+    }
+
+    @Override
+    public long getAllocationFailures()
+    {
+        return getFragmentationStatistics().getAllocationFailures();
+    }
+
+    @Override
+    public long getStoreFailures()
+    {
+        return getFragmentationStatistics().getStoreFailures();
+    }
+
+    @Override
+    public long getFragmentedStoreFailures()
+    {
+        return getFragmentationStatistics().getFragmentedStoreFailures();
+    }
+
+    @Override
+    public long getPointers()
+    {
+        return memoryManager.getPointers().size();
+    }
+
+    @Override
+    public int getAllocators()
+    {
+        return memoryManager.getAllocators().size();
+    }
+
+    @Override
+    public long getExpiredCount()
+    {
+        return memoryManager.getExpiredCount();
+    }
+
+    @Override
+    public long getEvictedCount()
+    {
+        return memoryManager.getEvictedCount();
+    }
+
+    @Override
+    public long collectExpired()
+    {
+        return memoryManager.collectExpired();
+    }
+
+    @Override
+    public void collectLFU()
+    {
+        memoryManager.collectLFU();
+    }
+
+}
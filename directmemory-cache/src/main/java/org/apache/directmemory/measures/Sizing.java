@@ -26,9 +26,9 @@ public class Sizing
 
     private static final int KILOBYTE_UNIT = 1024;
 
-    public static int Gb( double giga )
+    public static long Gb( double giga )
     {
-        return (int) giga * KILOBYTE_UNIT * KILOBYTE_UNIT * KILOBYTE_UNIT;
+        return (long) ( giga * KILOBYTE_UNIT * KILOBYTE_UNIT * KILOBYTE_UNIT );
     }
 
     public static int Mb( double mega )
@@ -0,0 +1,78 @@
+package org.apache.directmemory.measures;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Heap bytes allocated by the current thread, as reported by the HotSpot specific
+ * <code>com.sun.management.ThreadMXBean</code>. Not every JVM supports it, check {@link #isSupported()}.
+ */
+public final class ThreadAllocation
+{
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = lookupThreadMXBean();
+
+    private static com.sun.management.ThreadMXBean lookupThreadMXBean()
+    {
+        try
+        {
+            final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if ( threadMXBean instanceof com.sun.management.ThreadMXBean )
+            {
+                final com.sun.management.ThreadMXBean hotspotThreadMXBean =
+                    (com.sun.management.ThreadMXBean) threadMXBean;
+                if ( hotspotThreadMXBean.isThreadAllocatedMemorySupported() )
+                {
+                    hotspotThreadMXBean.setThreadAllocatedMemoryEnabled( true );
+                    return hotspotThreadMXBean;
+                }
+            }
+        }
+        catch ( LinkageError e )
+        {
+            // not a HotSpot JVM
+        }
+        return null;
+    }
+
+    public static boolean isSupported()
+    {
+        return THREAD_MX_BEAN != null;
+    }
+
+    /**
+     * @return the bytes allocated by the current thread since it started, -1 if not supported
+     */
+    public static long allocatedBytes()
+    {
+        return THREAD_MX_BEAN != null ? THREAD_MX_BEAN.getThreadAllocatedBytes( Thread.currentThread().getId() ) : -1;
+    }
+
+    /**
+     * Hidden constructor, this class cannot be instantiated
+     */
+    private ThreadAllocation()
+    {
+        // do nothing
+    }
+
+}
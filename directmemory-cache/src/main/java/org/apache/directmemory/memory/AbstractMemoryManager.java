@@ -25,10 +25,13 @@ import static com.google.common.collect.Ordering.from;
 
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.directmemory.memory.allocator.Allocator;
+
 import com.google.common.base.Predicate;
 
 public abstract class AbstractMemoryManager<V>
@@ -38,10 +41,23 @@ public abstract class AbstractMemoryManager<V>
 
     protected final Set<Pointer<V>> pointers = Collections.newSetFromMap( new ConcurrentHashMap<Pointer<V>, Boolean>() );
 
+    // the pointers freed along with another one by their owner, never collected on their own
+    protected final Set<Pointer<V>> excluded = Collections.newSetFromMap( new ConcurrentHashMap<Pointer<V>, Boolean>() );
+
     protected boolean returnNullWhenFull = true;
 
     protected final AtomicLong used = new AtomicLong( 0L );
 
+    protected final AtomicLong expiredCount = new AtomicLong( 0L );
+
+    protected final AtomicLong evictedCount = new AtomicLong( 0L );
+
+    protected volatile EvictionListener<V> evictionListener;
+
+    protected final AtomicLong storeFailures = new AtomicLong( 0L );
+
+    protected final AtomicLong fragmentedStoreFailures = new AtomicLong( 0L );
+
     public AbstractMemoryManager()
     {
         super();
@@ -56,6 +72,8 @@ public abstract class AbstractMemoryManager<V>
 
     abstract public Pointer<V> free( Pointer<V> pointer );
 
+    abstract public List<Allocator> getAllocators();
+
     public Pointer<V> update( Pointer<V> pointer, byte[] payload )
     {
         if ( pointer.getCapacity() >= payload.length )
@@ -81,8 +99,8 @@ public abstract class AbstractMemoryManager<V>
     public long collectExpired()
     {
         int limit = 50;
-        return free( limit( filter( pointers, relative ), limit ) )
-            + free( limit( filter( pointers, absolute ), limit ) );
+        return free( limit( filter( pointers, relative ), limit ), expiredCount )
+            + free( limit( filter( pointers, absolute ), limit ), expiredCount );
 
     }
 
@@ -92,7 +110,7 @@ public abstract class AbstractMemoryManager<V>
         @Override
         public boolean apply( Pointer<V> input )
         {
-            return !input.isFree() && input.isExpired();
+            return !input.isFree() && input.isExpired() && !excluded.contains( input );
         }
 
     };
@@ -103,17 +121,23 @@ public abstract class AbstractMemoryManager<V>
         @Override
         public boolean apply( Pointer<V> input )
         {
-            return !input.isFree() && input.isExpired();
+            return !input.isFree() && input.isExpired() && !excluded.contains( input );
         }
 
     };
 
+    public void setEvictionListener( EvictionListener<V> evictionListener )
+    {
+        this.evictionListener = evictionListener;
+    }
+
     public void collectLFU()
     {
 
-        int limit = pointers.size() / 10;
+        int limit = Math.max( 0, ( pointers.size() - excluded.size() ) / 10 );
 
-        Iterable<Pointer<V>> result = from( new Comparator<Pointer<V>>()
+        // the frequency is the time between two hits, the least frequently used pointers having the greatest one
+        List<Pointer<V>> result = from( new Comparator<Pointer<V>>()
         {
 
             @Override
@@ -125,18 +149,26 @@ public abstract class AbstractMemoryManager<V>
                 return Float.compare( f1, f2 );
             }
 
-        } ).sortedCopy( limit( filter( pointers, new Predicate<Pointer<V>>()
+        } ).greatestOf( filter( pointers, new Predicate<Pointer<V>>()
         {
 
             @Override
             public boolean apply( Pointer<V> input )
             {
-                return !input.isFree();
+                return !input.isFree() && !excluded.contains( input );
             }
 
-        } ), limit ) );
+        } ), limit );
 
-        free( result );
+        final EvictionListener<V> listener = evictionListener;
+        if ( listener != null )
+        {
+            for ( Pointer<V> pointer : result )
+            {
+                listener.evicting( pointer );
+            }
+        }
+        free( result, evictedCount );
 
     }
 
@@ -151,11 +183,67 @@ public abstract class AbstractMemoryManager<V>
         return howMuch;
     }
 
+    private long free( Iterable<Pointer<V>> pointers, AtomicLong counter )
+    {
+        long howMuch = 0;
+        for ( Pointer<V> pointer : pointers )
+        {
+            howMuch += pointer.getCapacity();
+            free( pointer );
+            counter.incrementAndGet();
+        }
+        return howMuch;
+    }
+
+    public long getExpiredCount()
+    {
+        return expiredCount.get();
+    }
+
+    public long getEvictedCount()
+    {
+        return evictedCount.get();
+    }
+
+    /**
+     * To be called by implementations each time a payload of the given size can't be stored. The failure is counted as
+     * fragmentation-driven if the allocators have enough free bytes, but no block big enough.
+     */
+    protected void storeFailed( final long size )
+    {
+        storeFailures.incrementAndGet();
+
+        long freeCapacity = 0;
+        for ( Allocator allocator : getAllocators() )
+        {
+            freeCapacity += allocator.getFreeCapacity();
+        }
+        if ( freeCapacity >= size )
+        {
+            fragmentedStoreFailures.incrementAndGet();
+        }
+    }
+
+    public FragmentationStatistics getFragmentationStatistics()
+    {
+        return FragmentationStatistics.of( getAllocators(), storeFailures.get(), fragmentedStoreFailures.get() );
+    }
+
     protected boolean returnsNullWhenFull()
     {
         return returnNullWhenFull;
     }
 
+    public void exclude( Pointer<V> pointer )
+    {
+        excluded.add( pointer );
+        if ( pointer.isFree() )
+        {
+            // freed meanwhile
+            excluded.remove( pointer );
+        }
+    }
+
     public Set<Pointer<V>> getPointers()
     {
         return Collections.unmodifiableSet( pointers );
@@ -0,0 +1,158 @@
+package org.apache.directmemory.memory;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.apache.directmemory.memory.allocator.FreeBlockHistogram;
+
+/**
+ * Snapshot of the free space of a {@link MemoryManagerService}, aggregated over all its {@link Allocator}s. Tells if
+ * failed stores are due to a full memory or to a fragmented one, i.e. when enough bytes are free but no single free
+ * block is big enough to hold the payload.
+ *
+ * @since 0.6
+ */
+public class FragmentationStatistics
+{
+
+    private final long capacity;
+
+    private final long freeCapacity;
+
+    private final long largestFreeBlock;
+
+    private final long[] freeBlockHistogram;
+
+    private final long allocationFailures;
+
+    private final long storeFailures;
+
+    private final long fragmentedStoreFailures;
+
+    public FragmentationStatistics( long capacity, long freeCapacity, long largestFreeBlock,
+                                    long[] freeBlockHistogram, long allocationFailures, long storeFailures,
+                                    long fragmentedStoreFailures )
+    {
+        this.capacity = capacity;
+        this.freeCapacity = freeCapacity;
+        this.largestFreeBlock = largestFreeBlock;
+        this.freeBlockHistogram = freeBlockHistogram;
+        this.allocationFailures = allocationFailures;
+        this.storeFailures = storeFailures;
+        this.fragmentedStoreFailures = fragmentedStoreFailures;
+    }
+
+    /**
+     * Aggregates the figures of the given {@link Allocator}s.
+     */
+    public static FragmentationStatistics of( Iterable<Allocator> allocators, long storeFailures,
+                                              long fragmentedStoreFailures )
+    {
+        long capacity = 0;
+        long freeCapacity = 0;
+        long largestFreeBlock = 0;
+        long allocationFailures = 0;
+        final long[] freeBlockHistogram = new long[FreeBlockHistogram.BUCKETS];
+        for ( Allocator allocator : allocators )
+        {
+            capacity += allocator.getCapacity();
+            freeCapacity += allocator.getFreeCapacity();
+            largestFreeBlock = Math.max( largestFreeBlock, allocator.getLargestFreeBlock() );
+            allocationFailures += allocator.getAllocationFailures();
+            FreeBlockHistogram.merge( freeBlockHistogram, allocator.getFreeBlockHistogram() );
+        }
+        return new FragmentationStatistics( capacity, freeCapacity, largestFreeBlock, freeBlockHistogram,
+                                            allocationFailures, storeFailures, fragmentedStoreFailures );
+    }
+
+    public long getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return the number of free bytes over all the allocators
+     */
+    public long getFreeCapacity()
+    {
+        return freeCapacity;
+    }
+
+    /**
+     * @return the size of the biggest payload that can be stored right now
+     */
+    public long getLargestFreeBlock()
+    {
+        return largestFreeBlock;
+    }
+
+    /**
+     * @return the number of free blocks by size, see {@link FreeBlockHistogram}
+     */
+    public long[] getFreeBlockHistogram()
+    {
+        return freeBlockHistogram.clone();
+    }
+
+    /**
+     * @return the number of failed allocations over all the allocators. A single store can try several allocators
+     *         before failing, so this is usually higher than {@link #getStoreFailures()}.
+     */
+    public long getAllocationFailures()
+    {
+        return allocationFailures;
+    }
+
+    /**
+     * @return the number of payloads the memory manager failed to store
+     */
+    public long getStoreFailures()
+    {
+        return storeFailures;
+    }
+
+    /**
+     * @return the number of payloads the memory manager failed to store while the free capacity was bigger than the
+     *         payload
+     */
+    public long getFragmentedStoreFailures()
+    {
+        return fragmentedStoreFailures;
+    }
+
+    /**
+     * @return 0 when all the free bytes are in a single block, approaching 1 as the free space is split into small
+     *         blocks
+     */
+    public double getFragmentation()
+    {
+        return freeCapacity == 0 ? 0.0 : 1.0 - (double) largestFreeBlock / freeCapacity;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "FragmentationStatistics [capacity=" + capacity + ", freeCapacity=" + freeCapacity
+            + ", largestFreeBlock=" + largestFreeBlock + ", fragmentation=" + getFragmentation()
+            + ", allocationFailures=" + allocationFailures + ", storeFailures=" + storeFailures
+            + ", fragmentedStoreFailures=" + fragmentedStoreFailures + "]";
+    }
+
+}
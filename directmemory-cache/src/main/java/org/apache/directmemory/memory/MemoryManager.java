@@ -30,7 +30,7 @@ public class MemoryManager
         // static class
     }
 
-    public static void init( int numberOfBuffers, int size )
+    public static void init( int numberOfBuffers, long size )
     {
         memoryManager.init( numberOfBuffers, size );
     }
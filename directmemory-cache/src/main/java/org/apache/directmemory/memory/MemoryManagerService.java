@@ -1,8 +1,11 @@
 package org.apache.directmemory.memory;
 
 import java.io.Closeable;
+import java.util.List;
 import java.util.Set;
 
+import org.apache.directmemory.memory.allocator.Allocator;
+
 /*
  * Licensed to the Apache Software Foundation (ASF) under one
  * or more contributor license agreements.  See the NOTICE file
@@ -30,9 +33,9 @@ public interface MemoryManagerService<V>
      * Initialize the internal structure. Need to be called before the service can be used.
      * 
      * @param numberOfBuffers : number of internal bucket
-     * @param size : size in B of internal buckets
+     * @param size : size in B of internal buckets, which may exceed 2GB
      */
-    void init( int numberOfBuffers, int size );
+    void init( int numberOfBuffers, long size );
 
     /**
      * Store function family. Store the given payload at a certain offset in a MemoryBuffer, returning the pointer to
@@ -76,8 +79,43 @@ public interface MemoryManagerService<V>
 
     void collectLFU();
 
+    /**
+     * @param evictionListener : notified of the pointers {@link #collectLFU()} evicts before they are freed, null for
+     *            none
+     */
+    void setEvictionListener( EvictionListener<V> evictionListener );
+
+    /**
+     * Excludes a pointer from the candidates of {@link #collectExpired()} and {@link #collectLFU()}, its owner freeing
+     * it along with another pointer standing for it.
+     * 
+     * @param pointer : a pointer stored by this service, excluded until it is freed
+     */
+    void exclude( Pointer<V> pointer );
+
     <T extends V> Pointer<V> allocate( Class<T> type, int size, long expiresIn, long expires );
 
     Set<Pointer<V>> getPointers();
 
+    /**
+     * @return the {@link Allocator}s backing this service, as an unmodifiable list
+     */
+    List<Allocator> getAllocators();
+
+    /**
+     * @return the number of pointers freed by {@link #collectExpired()} since the initialization
+     */
+    long getExpiredCount();
+
+    /**
+     * @return the number of pointers freed by {@link #collectLFU()} since the initialization
+     */
+    long getEvictedCount();
+
+    /**
+     * @return free space, fragmentation and allocation failures figures aggregated over all the {@link Allocator}s,
+     *         computed without taking any allocation lock
+     */
+    FragmentationStatistics getFragmentationStatistics();
+
 }
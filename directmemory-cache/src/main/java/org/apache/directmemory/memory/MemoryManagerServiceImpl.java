@@ -24,12 +24,14 @@ import static java.lang.String.format;
 import java.io.IOException;
 import java.nio.BufferOverflowException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
 import org.apache.directmemory.measures.Ram;
 import org.apache.directmemory.memory.allocator.Allocator;
 import org.apache.directmemory.memory.allocator.MergingByteBufferAllocator;
+import org.apache.directmemory.memory.allocator.MergingUnsafeAllocator;
 import org.apache.directmemory.memory.buffer.MemoryBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,14 +64,14 @@ public class MemoryManagerServiceImpl<V>
     }
 
     @Override
-    public void init( int numberOfBuffers, int size )
+    public void init( int numberOfBuffers, long size )
     {
 
         allocators = new ArrayList<Allocator>( numberOfBuffers );
 
         for ( int i = 0; i < numberOfBuffers; i++ )
         {
-            final Allocator allocator = instanciateByteBufferAllocator( i, size );
+            final Allocator allocator = instanciateAllocator( i, size );
             allocators.add( allocator );
         }
 
@@ -92,6 +94,19 @@ public class MemoryManagerServiceImpl<V>
         used.set( 0 );
     }
 
+    /**
+     * Creates the allocator of a buffer, backed by a {@link java.nio.ByteBuffer} unless it is bigger than what a
+     * {@link java.nio.ByteBuffer} can address, in which case it slices a single region allocated outside of the heap.
+     */
+    protected Allocator instanciateAllocator( final int allocatorNumber, final long size )
+    {
+        if ( size <= Integer.MAX_VALUE )
+        {
+            return instanciateByteBufferAllocator( allocatorNumber, (int) size );
+        }
+        return new MergingUnsafeAllocator( allocatorNumber, size );
+    }
+
     protected Allocator instanciateByteBufferAllocator( final int allocatorNumber, final int size )
     {
         final MergingByteBufferAllocator allocator = new MergingByteBufferAllocator( allocatorNumber, size );
@@ -125,6 +140,8 @@ public class MemoryManagerServiceImpl<V>
             allocator = allocationPolicy.getActiveAllocator( allocator, allocationNumber );
             if ( allocator == null )
             {
+                storeFailed( payload.length );
+
                 if ( returnsNullWhenFull() )
                 {
                     return null;
@@ -134,7 +151,7 @@ public class MemoryManagerServiceImpl<V>
                     throw new BufferOverflowException();
                 }
             }
-            final MemoryBuffer buffer = allocator.allocate( payload.length );
+            final MemoryBuffer buffer = allocate( allocator, payload.length );
 
             if ( buffer == null )
             {
@@ -153,6 +170,22 @@ public class MemoryManagerServiceImpl<V>
         return p;
     }
 
+    /**
+     * @return the buffer allocated, null if the allocator is full, as some allocators throw a
+     *         {@link BufferOverflowException} instead of returning null
+     */
+    private static MemoryBuffer allocate( Allocator allocator, int size )
+    {
+        try
+        {
+            return allocator.allocate( size );
+        }
+        catch ( BufferOverflowException e )
+        {
+            return null;
+        }
+    }
+
     @Override
     public byte[] retrieve( final Pointer<V> pointer )
     {
@@ -181,6 +214,7 @@ public class MemoryManagerServiceImpl<V>
             // throw new IllegalArgumentException( "This pointer " + pointer + " has already been freed" );
             return pointer;
         }
+        excluded.remove( pointer );
 
         getAllocator( pointer.getBufferNumber() ).free( pointer.getMemoryBuffer() );
 
@@ -202,9 +236,10 @@ public class MemoryManagerServiceImpl<V>
         return totalCapacity;
     }
 
-    protected List<Allocator> getAllocators()
+    @Override
+    public List<Allocator> getAllocators()
     {
-        return allocators;
+        return Collections.unmodifiableList( allocators );
     }
 
     @Deprecated
@@ -222,6 +257,8 @@ public class MemoryManagerServiceImpl<V>
             allocator = allocationPolicy.getActiveAllocator( allocator, allocationNumber );
             if ( allocator == null )
             {
+                storeFailed( size );
+
                 if ( returnsNullWhenFull() )
                 {
                     return null;
@@ -232,7 +269,7 @@ public class MemoryManagerServiceImpl<V>
                 }
             }
 
-            final MemoryBuffer buffer = allocator.allocate( size );
+            final MemoryBuffer buffer = allocate( allocator, size );
 
             if ( buffer == null )
             {
@@ -258,6 +295,7 @@ public class MemoryManagerServiceImpl<V>
             pointer.setFree( true );
         }
         pointers.clear();
+        excluded.clear();
         for ( Allocator allocator : allocators )
         {
             allocator.clear();
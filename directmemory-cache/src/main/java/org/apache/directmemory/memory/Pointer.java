@@ -52,6 +52,8 @@ public interface Pointer<T>
 
     void createdNow();
 
+    long getCreated();
+
     void setExpiration( long expires, long expiresIn );
 
     long getExpires();
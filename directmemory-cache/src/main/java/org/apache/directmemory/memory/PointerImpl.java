@@ -156,6 +156,12 @@ public class PointerImpl<T>
         created = System.currentTimeMillis();
     }
 
+    @Override
+    public long getCreated()
+    {
+        return created;
+    }
+
     @Override
     public void setExpiration( long expires, long expiresIn )
     {
@@ -22,6 +22,7 @@ package org.apache.directmemory.memory;
 import java.io.IOException;
 import java.nio.BufferOverflowException;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -47,7 +48,7 @@ public class UnsafeMemoryManagerServiceImpl<V>
     private long capacity;
 
     @Override
-    public void init( int numberOfBuffers, int size )
+    public void init( int numberOfBuffers, long size )
     {
         this.capacity = numberOfBuffers * size;
         this.allocator = new LazyUnsafeAllocator( numberOfBuffers, capacity );
@@ -79,6 +80,8 @@ public class UnsafeMemoryManagerServiceImpl<V>
     {
         if ( capacity - used.get() - payload.length < 0 )
         {
+            storeFailed( payload.length );
+
             if ( returnsNullWhenFull() )
             {
                 return null;
@@ -116,6 +119,7 @@ public class UnsafeMemoryManagerServiceImpl<V>
         used.addAndGet( -pointer.getSize() );
         allocator.free( pointer.getMemoryBuffer() );
         pointers.remove( pointer );
+        excluded.remove( pointer );
         pointer.setFree( true );
         return pointer;
     }
@@ -140,6 +144,12 @@ public class UnsafeMemoryManagerServiceImpl<V>
         return used.get();
     }
 
+    @Override
+    public List<Allocator> getAllocators()
+    {
+        return Collections.singletonList( allocator );
+    }
+
     // @Override
     // public long collectExpired()
     // {
@@ -24,6 +24,7 @@ import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 public abstract class AbstractByteBufferAllocator
@@ -36,6 +37,8 @@ public abstract class AbstractByteBufferAllocator
 
     private final AtomicBoolean closed = new AtomicBoolean( false );
 
+    private final AtomicLong allocationFailures = new AtomicLong( 0L );
+
     AbstractByteBufferAllocator( final int number )
     {
         this.number = number;
@@ -47,6 +50,20 @@ public abstract class AbstractByteBufferAllocator
         return number;
     }
 
+    @Override
+    public long getAllocationFailures()
+    {
+        return allocationFailures.get();
+    }
+
+    /**
+     * To be called by implementations each time {@link #allocate(int)} fails.
+     */
+    protected final void allocationFailed()
+    {
+        allocationFailures.incrementAndGet();
+    }
+
     protected final Logger getLogger()
     {
         return logger;
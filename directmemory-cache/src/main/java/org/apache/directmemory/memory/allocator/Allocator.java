@@ -52,9 +52,34 @@ public interface Allocator
     void clear();
     
     /**
-     * @return the internal total size that can be allocated 
+     * @return the internal total size that can be allocated, which may exceed 2GB for the allocators not backed by a
+     *         {@link java.nio.ByteBuffer}
      */
-    int getCapacity();
+    long getCapacity();
+
+    /**
+     * @return the number of bytes that are not currently allocated. Implementations are expected to answer without
+     *         taking the allocation lock, so the value is a best effort snapshot under concurrent usage.
+     */
+    long getFreeCapacity();
+
+    /**
+     * @return the size in byte of the biggest {@link MemoryBuffer} that could be allocated right now, which is lower
+     *         than {@link #getFreeCapacity()} when the free space is fragmented.
+     */
+    long getLargestFreeBlock();
+
+    /**
+     * @return the number of free blocks by size, as {@link FreeBlockHistogram#BUCKETS} power of two buckets (see
+     *         {@link FreeBlockHistogram}). Like {@link #getFreeCapacity()}, answered without taking the allocation lock.
+     */
+    long[] getFreeBlockHistogram();
+
+    /**
+     * @return the number of calls to {@link #allocate(int)} which returned null or threw a
+     *         {@link java.nio.BufferOverflowException} since the creation of the {@link Allocator}
+     */
+    long getAllocationFailures();
     
     /**
      * @return the internal identifier of the {@link Allocator}
@@ -29,6 +29,7 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
@@ -48,6 +49,9 @@ public class FixedSizeByteBufferAllocatorImpl
     // Collection that owns all slices that can be used.
     private final Queue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
 
+    // Number of slices in freeBuffers, as ConcurrentLinkedQueue#size() is not a constant time operation
+    private final AtomicInteger freeBuffersCount = new AtomicInteger( 0 );
+
     // Size of each slices dividing each segments of the slab
     private final int sliceSize;
 
@@ -60,8 +64,9 @@ public class FixedSizeByteBufferAllocatorImpl
     // Tells if it returns null when no buffers are available
     private final boolean returnNullWhenNoBufferAvailable = true;
 
-    // Collection that keeps track of borrowed buffers
-    private final Map<Integer, ByteBuffer> usedSliceBuffers = new ConcurrentHashMap<Integer, ByteBuffer>();
+    // Collection that keeps track of borrowed buffers. The key is the returned MemoryBuffer, as identity hash codes
+    // of the slices are not unique.
+    private final Map<MemoryBuffer, ByteBuffer> usedSliceBuffers = new ConcurrentHashMap<MemoryBuffer, ByteBuffer>();
 
 
     /**
@@ -107,6 +112,7 @@ public class FixedSizeByteBufferAllocatorImpl
                 segment.limit( j + sliceSize );
                 final ByteBuffer slice = segment.slice();
                 freeBuffers.add( slice );
+                freeBuffersCount.incrementAndGet();
             }
         }
     }
@@ -127,7 +133,12 @@ public class FixedSizeByteBufferAllocatorImpl
             }
         }
         // TODO : Add capacity to wait till a given timeout for a freed buffer
-        return freeBuffers.poll();
+        final ByteBuffer buffer = freeBuffers.poll();
+        if ( buffer != null )
+        {
+            freeBuffersCount.decrementAndGet();
+        }
+        return buffer;
     }
 
     @Override
@@ -146,6 +157,8 @@ public class FixedSizeByteBufferAllocatorImpl
 
         if ( allocatedByteBuffer == null )
         {
+            allocationFailed();
+
             if ( returnNullWhenNoBufferAvailable )
             {
                 return null;
@@ -160,9 +173,10 @@ public class FixedSizeByteBufferAllocatorImpl
         allocatedByteBuffer.clear();
         allocatedByteBuffer.limit( size );
 
-        usedSliceBuffers.put( getHash( allocatedByteBuffer ), allocatedByteBuffer );
+        final MemoryBuffer memoryBuffer = new FixedSizeNioMemoryBuffer( allocatedByteBuffer );
+        usedSliceBuffers.put( memoryBuffer, allocatedByteBuffer );
 
-        return new FixedSizeNioMemoryBuffer( allocatedByteBuffer );
+        return memoryBuffer;
 
     }
 
@@ -174,19 +188,38 @@ public class FixedSizeByteBufferAllocatorImpl
     @Override
     public void clear()
     {
-        for ( final Map.Entry<Integer, ByteBuffer> entry : usedSliceBuffers.entrySet() )
+        for ( final Map.Entry<MemoryBuffer, ByteBuffer> entry : usedSliceBuffers.entrySet() )
         {
             freeBuffers.offer( entry.getValue() );
+            freeBuffersCount.incrementAndGet();
         }
         usedSliceBuffers.clear();
     }
 
     @Override
-    public int getCapacity()
+    public long getCapacity()
     {
         return totalSize;
     }
 
+    @Override
+    public long getFreeCapacity()
+    {
+        return (long) freeBuffersCount.get() * sliceSize;
+    }
+
+    @Override
+    public long getLargestFreeBlock()
+    {
+        return freeBuffersCount.get() > 0 ? sliceSize : 0;
+    }
+
+    @Override
+    public long[] getFreeBlockHistogram()
+    {
+        return FreeBlockHistogram.singleBucket( sliceSize, freeBuffersCount.get() );
+    }
+
     @Override
     public void close()
     {
@@ -224,7 +257,7 @@ public class FixedSizeByteBufferAllocatorImpl
         public void free() {
             checkState( !isClosed() );
 
-            if ( usedSliceBuffers.remove( getHash( getByteBuffer() ) ) == null )
+            if ( usedSliceBuffers.remove( this ) == null )
             {
                 return;
             }
@@ -233,6 +266,7 @@ public class FixedSizeByteBufferAllocatorImpl
             checkArgument( getByteBuffer().capacity() == sliceSize );
 
             freeBuffers.offer( getByteBuffer() );
+            freeBuffersCount.incrementAndGet();
         }
     }
 
@@ -22,9 +22,10 @@ package org.apache.directmemory.memory.allocator;
 import java.io.IOException;
 import java.nio.BufferOverflowException;
 import java.nio.ByteOrder;
-import java.util.Iterator;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.directmemory.memory.IllegalMemoryPointerException;
 import org.apache.directmemory.memory.buffer.AbstractMemoryBuffer;
@@ -38,10 +39,20 @@ public class FixedSizeUnsafeAllocator
 
     private final Queue<UnsafeMemoryBuffer> memoryBuffers = new ConcurrentLinkedQueue<UnsafeMemoryBuffer>();
 
+    // Number of buffers in memoryBuffers, as ConcurrentLinkedQueue#size() is not a constant time operation
+    private final AtomicInteger freeBuffersCount = new AtomicInteger( 0 );
+
+    private final AtomicLong allocationFailures = new AtomicLong( 0L );
+
     private final int number;
 
     private final int size;
 
+    // address of the region holding every slice
+    private final long baseAddress;
+
+    private boolean closed;
+
     // Tells if it returns null or throw an BufferOverflowException when the requested size is bigger than the size of
     // the slices
     private final boolean returnNullWhenOversizingSliceSize = true;
@@ -57,11 +68,13 @@ public class FixedSizeUnsafeAllocator
                 + "please choose another MemoryManager implementation" );
         }
 
+        // a single region, which is not bounded to 2GB, rather than one allocation from the system per slice
+        this.baseAddress = unsafe.allocateMemory( (long) number * size );
         for ( int i = 0; i < number; i++ )
         {
-            long baseAddress = unsafe.allocateMemory( size );
-            UnsafeMemoryBuffer memoryBuffer = new UnsafeMemoryBuffer( baseAddress, size );
+            UnsafeMemoryBuffer memoryBuffer = new UnsafeMemoryBuffer( baseAddress + (long) i * size, size );
             memoryBuffers.add( memoryBuffer );
+            freeBuffersCount.incrementAndGet();
         }
     }
 
@@ -69,14 +82,18 @@ public class FixedSizeUnsafeAllocator
     public void close()
         throws IOException
     {
-        clear();
-        Iterator<UnsafeMemoryBuffer> iterator = memoryBuffers.iterator();
-        while ( iterator.hasNext() )
+        synchronized ( this )
         {
-            UnsafeMemoryBuffer memoryBuffer = iterator.next();
-            memoryBuffer.free();
-            iterator.remove();
+            if ( closed )
+            {
+                return;
+            }
+            closed = true;
         }
+        memoryBuffers.clear();
+        freeBuffersCount.set( 0 );
+        // frees the slices still allocated too
+        unsafe.freeMemory( baseAddress );
     }
 
     @Override
@@ -84,12 +101,18 @@ public class FixedSizeUnsafeAllocator
     {
         memoryBuffer.clear();
         memoryBuffers.offer( (UnsafeMemoryBuffer) memoryBuffer );
+        freeBuffersCount.incrementAndGet();
     }
 
     @Override
     public MemoryBuffer allocate( int size )
     {
-        return findFreeBuffer( size );
+        final MemoryBuffer memoryBuffer = findFreeBuffer( size );
+        if ( memoryBuffer == null )
+        {
+            allocationFailures.incrementAndGet();
+        }
+        return memoryBuffer;
     }
 
     @Override
@@ -101,13 +124,33 @@ public class FixedSizeUnsafeAllocator
     }
 
     @Override
-    public int getCapacity()
+    public long getCapacity()
     {
-        long capacity = 0;
-        for (UnsafeMemoryBuffer memoryBuffer : memoryBuffers) {
-            capacity += memoryBuffer.capacity;
-        }
-        return (int) capacity;
+        return (long) number * size;
+    }
+
+    @Override
+    public long getFreeCapacity()
+    {
+        return (long) freeBuffersCount.get() * size;
+    }
+
+    @Override
+    public long getLargestFreeBlock()
+    {
+        return freeBuffersCount.get() > 0 ? size : 0;
+    }
+
+    @Override
+    public long[] getFreeBlockHistogram()
+    {
+        return FreeBlockHistogram.singleBucket( size, freeBuffersCount.get() );
+    }
+
+    @Override
+    public long getAllocationFailures()
+    {
+        return allocationFailures.get();
     }
 
     @Override
@@ -131,7 +174,12 @@ public class FixedSizeUnsafeAllocator
             }
         }
         // TODO : Add capacity to wait till a given timeout for a freed buffer
-        return memoryBuffers.poll();
+        final MemoryBuffer memoryBuffer = memoryBuffers.poll();
+        if ( memoryBuffer != null )
+        {
+            freeBuffersCount.decrementAndGet();
+        }
+        return memoryBuffer;
     }
 
     private class UnsafeMemoryBuffer
@@ -188,7 +236,7 @@ public class FixedSizeUnsafeAllocator
         @Override
         public void free()
         {
-            unsafe.freeMemory( baseAddress );
+            // the slices are part of the region freed by the allocator
         }
 
         @Override
@@ -211,6 +259,66 @@ public class FixedSizeUnsafeAllocator
             return unsafe.getByte( baseAddress + offset );
         }
 
+        @Override
+        public short getShort( long offset )
+        {
+            return unsafe.getShort( baseAddress + offset );
+        }
+
+        @Override
+        public int getInt( long offset )
+        {
+            return unsafe.getInt( baseAddress + offset );
+        }
+
+        @Override
+        public long getLong( long offset )
+        {
+            return unsafe.getLong( baseAddress + offset );
+        }
+
+        @Override
+        public float getFloat( long offset )
+        {
+            return unsafe.getFloat( baseAddress + offset );
+        }
+
+        @Override
+        public double getDouble( long offset )
+        {
+            return unsafe.getDouble( baseAddress + offset );
+        }
+
+        @Override
+        public void putShort( long offset, short value )
+        {
+            unsafe.putShort( baseAddress + offset, value );
+        }
+
+        @Override
+        public void putInt( long offset, int value )
+        {
+            unsafe.putInt( baseAddress + offset, value );
+        }
+
+        @Override
+        public void putLong( long offset, long value )
+        {
+            unsafe.putLong( baseAddress + offset, value );
+        }
+
+        @Override
+        public void putFloat( long offset, float value )
+        {
+            unsafe.putFloat( baseAddress + offset, value );
+        }
+
+        @Override
+        public void putDouble( long offset, double value )
+        {
+            unsafe.putDouble( baseAddress + offset, value );
+        }
+
         @Override
         public short readShort()
         {
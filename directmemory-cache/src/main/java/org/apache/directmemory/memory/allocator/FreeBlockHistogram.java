@@ -0,0 +1,121 @@
+package org.apache.directmemory.memory.allocator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts free blocks by size, using power of two buckets : the bucket <code>i</code> counts the free blocks whose size
+ * is in <code>[2^i, 2^(i+1))</code>. Counters are atomic so the histogram can be read without taking the lock of the
+ * {@link Allocator} updating it.
+ *
+ * @since 0.6
+ */
+public class FreeBlockHistogram
+{
+
+    /**
+     * Number of buckets, enough to hold any positive long size.
+     */
+    public static final int BUCKETS = 64;
+
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+
+    /**
+     * @param size : size in byte of a block
+     * @return the index of the bucket counting blocks of the given size
+     */
+    public static int bucketOf( final long size )
+    {
+        return size <= 1 ? 0 : 63 - Long.numberOfLeadingZeros( size );
+    }
+
+    /**
+     * @param bucket : index of a bucket
+     * @return the smallest block size counted by the given bucket
+     */
+    public static long lowerBoundOf( final int bucket )
+    {
+        return 1L << bucket;
+    }
+
+    /**
+     * @return an histogram holding <code>count</code> blocks of <code>size</code> bytes, as reported by allocators
+     *         slicing memory in blocks of the same size.
+     */
+    public static long[] singleBucket( final long size, final long count )
+    {
+        final long[] histogram = new long[BUCKETS];
+        if ( size > 0 && count > 0 )
+        {
+            histogram[bucketOf( size )] = count;
+        }
+        return histogram;
+    }
+
+    /**
+     * Adds each bucket of <code>histogram</code> to the matching bucket of <code>total</code>.
+     */
+    public static void merge( final long[] total, final long[] histogram )
+    {
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            total[i] += histogram[i];
+        }
+    }
+
+    public void add( final long size )
+    {
+        if ( size > 0 )
+        {
+            counts.incrementAndGet( bucketOf( size ) );
+        }
+    }
+
+    public void remove( final long size )
+    {
+        if ( size > 0 )
+        {
+            counts.decrementAndGet( bucketOf( size ) );
+        }
+    }
+
+    public void reset()
+    {
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            counts.set( i, 0 );
+        }
+    }
+
+    /**
+     * @return a copy of the counters, best effort snapshot under concurrent usage
+     */
+    public long[] toArray()
+    {
+        final long[] histogram = new long[BUCKETS];
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            histogram[i] = counts.get( i );
+        }
+        return histogram;
+    }
+
+}
@@ -43,6 +43,8 @@ public class LazyUnsafeAllocator
 
     private final AtomicLong used = new AtomicLong( 0 );
 
+    private final AtomicLong allocationFailures = new AtomicLong( 0 );
+
     private final int number;
 
     private final long capacity;
@@ -90,6 +92,7 @@ public class LazyUnsafeAllocator
     {
         if ( capacity < used.get() + size )
         {
+            allocationFailures.incrementAndGet();
             throw new BufferOverflowException();
         }
 
@@ -109,13 +112,36 @@ public class LazyUnsafeAllocator
     }
 
     @Override
-    public int getCapacity()
+    public long getCapacity()
     {
-        long capacity = 0;
-        for (UnsafeMemoryBuffer memoryBuffer : memoryBuffers) {
-            capacity += memoryBuffer.capacity;
-        }
-        return (int) capacity;
+        // the memory is allocated from the system on demand, up to the capacity
+        return capacity;
+    }
+
+    @Override
+    public long getFreeCapacity()
+    {
+        return Math.max( 0, capacity - used.get() );
+    }
+
+    @Override
+    public long getLargestFreeBlock()
+    {
+        // memory is lazily allocated from the system, so free space is never fragmented from the allocator point of view
+        return getFreeCapacity();
+    }
+
+    @Override
+    public long[] getFreeBlockHistogram()
+    {
+        // same as getLargestFreeBlock(), the free space is seen as a single block
+        return FreeBlockHistogram.singleBucket( getFreeCapacity(), 1 );
+    }
+
+    @Override
+    public long getAllocationFailures()
+    {
+        return allocationFailures.get();
     }
 
     @Override
@@ -201,6 +227,66 @@ public class LazyUnsafeAllocator
             return unsafe.getByte( baseAddress + offset );
         }
 
+        @Override
+        public short getShort( long offset )
+        {
+            return unsafe.getShort( baseAddress + offset );
+        }
+
+        @Override
+        public int getInt( long offset )
+        {
+            return unsafe.getInt( baseAddress + offset );
+        }
+
+        @Override
+        public long getLong( long offset )
+        {
+            return unsafe.getLong( baseAddress + offset );
+        }
+
+        @Override
+        public float getFloat( long offset )
+        {
+            return unsafe.getFloat( baseAddress + offset );
+        }
+
+        @Override
+        public double getDouble( long offset )
+        {
+            return unsafe.getDouble( baseAddress + offset );
+        }
+
+        @Override
+        public void putShort( long offset, short value )
+        {
+            unsafe.putShort( baseAddress + offset, value );
+        }
+
+        @Override
+        public void putInt( long offset, int value )
+        {
+            unsafe.putInt( baseAddress + offset, value );
+        }
+
+        @Override
+        public void putLong( long offset, long value )
+        {
+            unsafe.putLong( baseAddress + offset, value );
+        }
+
+        @Override
+        public void putFloat( long offset, float value )
+        {
+            unsafe.putFloat( baseAddress + offset, value );
+        }
+
+        @Override
+        public void putDouble( long offset, double value )
+        {
+            unsafe.putDouble( baseAddress + offset, value );
+        }
+
         @Override
         public short readShort()
         {
@@ -64,8 +64,10 @@ public class MergingByteBufferAllocator
     private final NavigableMap<Integer, Collection<LinkedByteBuffer>> freePointers =
         new ConcurrentSkipListMap<Integer, Collection<LinkedByteBuffer>>();
 
-    // Set of used pointers. The key is #getHash(ByteBuffer).
-    private final Map<Integer, LinkedByteBuffer> usedPointers = new ConcurrentHashMap<Integer, LinkedByteBuffer>();
+    // Set of used pointers. The key is the returned MemoryBuffer, as identity hash codes of the ByteBuffers are not
+    // unique.
+    private final Map<MemoryBuffer, LinkedByteBuffer> usedPointers =
+        new ConcurrentHashMap<MemoryBuffer, LinkedByteBuffer>();
 
     // Lock used instead of synchronized block to guarantee consistency when manipulating list of pointers.
     private final Lock linkedStructureManipulationLock = new ReentrantLock();
@@ -82,6 +84,15 @@ public class MergingByteBufferAllocator
     // Tells if null is returned or an BufferOverflowException is thrown when the buffer is full
     private boolean returnNullWhenBufferIsFull = true;
 
+    // Number of free bytes, updated while holding linkedStructureManipulationLock and read without lock
+    private volatile long freeCapacity;
+
+    // Capacity of the biggest free buffer, updated while holding linkedStructureManipulationLock and read without lock
+    private volatile long largestFreeBlock;
+
+    // Free buffers by size, updated while holding linkedStructureManipulationLock and read without lock
+    private final FreeBlockHistogram freeBlockHistogram = new FreeBlockHistogram();
+
     /**
      * Constructor.
      *
@@ -117,6 +128,10 @@ public class MergingByteBufferAllocator
      */
     private void initFirstBuffer()
     {
+        freeCapacity = 0;
+        largestFreeBlock = 0;
+        freeBlockHistogram.reset();
+
         parentBuffer.clear();
         final ByteBuffer initialBuffer = parentBuffer.slice();
         final LinkedByteBuffer initialLinkedBuffer = new LinkedByteBuffer( 0, initialBuffer, null, null );
@@ -179,6 +194,7 @@ public class MergingByteBufferAllocator
                     {
                         // Remove this element from the collection
                         linkedByteBufferIterator.remove();
+                        removedLinkedBuffer( linkedBuffer );
 
                         LinkedByteBuffer returnedLinkedBuffer = linkedBuffer;
 
@@ -227,14 +243,22 @@ public class MergingByteBufferAllocator
                             returnedLinkedBuffer.getBuffer().limit( size );
                         }
 
-                        usedPointers.put( getHash( returnedLinkedBuffer.getBuffer() ), returnedLinkedBuffer );
+                        final MemoryBuffer memoryBuffer = new MergingNioMemoryBuffer( returnedLinkedBuffer );
+                        usedPointers.put( memoryBuffer, returnedLinkedBuffer );
 
-                        return new MergingNioMemoryBuffer(returnedLinkedBuffer);
+                        if ( linkedBuffer.getBuffer().capacity() >= largestFreeBlock )
+                        {
+                            largestFreeBlock = computeLargestFreeBlock();
+                        }
+
+                        return memoryBuffer;
                     }
 
                 }
             }
 
+            allocationFailed();
+
             if ( returnNullWhenBufferIsFull )
             {
                 return null;
@@ -267,6 +291,43 @@ public class MergingByteBufferAllocator
     private void insertLinkedBuffer( final LinkedByteBuffer linkedBuffer )
     {
         getFreeLinkedByteBufferCollection( linkedBuffer ).add( linkedBuffer );
+
+        final int capacity = linkedBuffer.getBuffer().capacity();
+        freeCapacity += capacity;
+        freeBlockHistogram.add( capacity );
+        if ( capacity > largestFreeBlock )
+        {
+            largestFreeBlock = capacity;
+        }
+    }
+
+    private void removedLinkedBuffer( final LinkedByteBuffer linkedBuffer )
+    {
+        final int capacity = linkedBuffer.getBuffer().capacity();
+        freeCapacity -= capacity;
+        freeBlockHistogram.remove( capacity );
+    }
+
+    /**
+     * Scans the highest non empty size's range to find the biggest free {@link LinkedByteBuffer}. Must be called while
+     * holding the linkedStructureManipulationLock.
+     */
+    private long computeLargestFreeBlock()
+    {
+        for ( final Collection<LinkedByteBuffer> freeCollection : freePointers.descendingMap().values() )
+        {
+            if ( freeCollection.isEmpty() )
+            {
+                continue;
+            }
+            long largest = 0;
+            for ( final LinkedByteBuffer linkedBuffer : freeCollection )
+            {
+                largest = Math.max( largest, linkedBuffer.getBuffer().capacity() );
+            }
+            return largest;
+        }
+        return 0;
     }
 
     private Collection<LinkedByteBuffer> getFreeLinkedByteBufferCollection( final LinkedByteBuffer linkedBuffer )
@@ -298,8 +359,14 @@ public class MergingByteBufferAllocator
         }
 
         // Remove the two pointers from their corresponding free lists.
-        getFreeLinkedByteBufferCollection( first ).remove( first );
-        getFreeLinkedByteBufferCollection( next ).remove( next );
+        if ( getFreeLinkedByteBufferCollection( first ).remove( first ) )
+        {
+            removedLinkedBuffer( first );
+        }
+        if ( getFreeLinkedByteBufferCollection( next ).remove( next ) )
+        {
+            removedLinkedBuffer( next );
+        }
 
         return newLinkedByteBuffer;
     }
@@ -320,11 +387,29 @@ public class MergingByteBufferAllocator
     }
 
     @Override
-    public int getCapacity()
+    public long getCapacity()
     {
         return parentBuffer.capacity();
     }
 
+    @Override
+    public long getFreeCapacity()
+    {
+        return freeCapacity;
+    }
+
+    @Override
+    public long getLargestFreeBlock()
+    {
+        return largestFreeBlock;
+    }
+
+    @Override
+    public long[] getFreeBlockHistogram()
+    {
+        return freeBlockHistogram.toArray();
+    }
+
     private static class LinkedByteBuffer
     {
         private final int offset;
@@ -388,7 +473,7 @@ public class MergingByteBufferAllocator
 
         @Override
         public void free() {
-            LinkedByteBuffer returningLinkedBuffer = usedPointers.remove( getHash( getByteBuffer() ) );
+            LinkedByteBuffer returningLinkedBuffer = usedPointers.remove( this );
 
             if ( returningLinkedBuffer == null )
             {
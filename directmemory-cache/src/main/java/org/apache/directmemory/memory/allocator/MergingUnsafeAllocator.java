@@ -0,0 +1,552 @@
+package org.apache.directmemory.memory.allocator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteOrder;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.directmemory.memory.IllegalMemoryPointerException;
+import org.apache.directmemory.memory.buffer.AbstractMemoryBuffer;
+import org.apache.directmemory.memory.buffer.MemoryBuffer;
+
+/**
+ * {@link Allocator} implementation slicing a single region allocated through {@link sun.misc.Unsafe}, which is not
+ * bounded to 2GB like a {@link java.nio.ByteBuffer}.
+ * <p/>
+ * Like {@link MergingByteBufferAllocator}, a free block is split to the requested size and merged with its free
+ * neighbors when freed. The free blocks are held by offset, to find the neighbors, and by size, to allocate the
+ * smallest one big enough. The region is reserved at once, the system only providing its pages when they are first
+ * written.
+ *
+ * @since 0.6
+ */
+public class MergingUnsafeAllocator
+    implements Allocator
+{
+
+    private final sun.misc.Unsafe unsafe = UnsafeUtils.getUnsafe();
+
+    // Free blocks by offset, to merge a freed block with its neighbors
+    private final NavigableMap<Long, Block> freeBlocksByOffset = new TreeMap<Long, Block>();
+
+    // Free blocks by size then offset, to find the smallest block big enough
+    private final NavigableSet<Block> freeBlocksBySize = new TreeSet<Block>();
+
+    private final Set<RegionMemoryBuffer> usedBuffers =
+        Collections.newSetFromMap( new ConcurrentHashMap<RegionMemoryBuffer, Boolean>() );
+
+    // Lock guarding the free blocks
+    private final Lock freeBlocksLock = new ReentrantLock();
+
+    private final AtomicLong allocationFailures = new AtomicLong( 0L );
+
+    private final int number;
+
+    private final long capacity;
+
+    // address of the region holding every block
+    private final long baseAddress;
+
+    private boolean closed;
+
+    // Tells if null is returned or an BufferOverflowException is thrown when no free block is big enough
+    private boolean returnNullWhenBufferIsFull = true;
+
+    // Number of free bytes, updated while holding freeBlocksLock and read without lock
+    private volatile long freeCapacity;
+
+    // Size of the biggest free block, updated while holding freeBlocksLock and read without lock
+    private volatile long largestFreeBlock;
+
+    // Free blocks by size, updated while holding freeBlocksLock and read without lock
+    private final FreeBlockHistogram freeBlockHistogram = new FreeBlockHistogram();
+
+    /**
+     * @param number : the internal buffer identifier
+     * @param capacity : size in byte of the region, which may exceed 2GB
+     */
+    public MergingUnsafeAllocator( final int number, final long capacity )
+    {
+        checkArgument( capacity > 0, "Impossible to allocate a region of %s bytes", capacity );
+
+        this.number = number;
+        this.capacity = capacity;
+
+        if ( unsafe == null )
+        {
+            throw new IllegalStateException( "This JVM has no sun.misc.Unsafe support, "
+                + "please choose another MemoryManager implementation" );
+        }
+
+        this.baseAddress = unsafe.allocateMemory( capacity );
+        initFirstBlock();
+    }
+
+    private void initFirstBlock()
+    {
+        freeBlocksByOffset.clear();
+        freeBlocksBySize.clear();
+        freeCapacity = 0;
+        freeBlockHistogram.reset();
+
+        insertFreeBlock( new Block( 0, capacity ) );
+        largestFreeBlock = capacity;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        synchronized ( this )
+        {
+            if ( closed )
+            {
+                return;
+            }
+            closed = true;
+        }
+        usedBuffers.clear();
+        // frees the blocks still allocated too
+        unsafe.freeMemory( baseAddress );
+    }
+
+    @Override
+    public MemoryBuffer allocate( final int size )
+    {
+        freeBlocksLock.lock();
+        try
+        {
+            final Block block = size > 0 ? freeBlocksBySize.ceiling( new Block( -1, size ) ) : null;
+            if ( block == null )
+            {
+                allocationFailures.incrementAndGet();
+                if ( returnNullWhenBufferIsFull )
+                {
+                    return null;
+                }
+                throw new BufferOverflowException();
+            }
+
+            removeFreeBlock( block );
+            if ( block.size > size )
+            {
+                insertFreeBlock( new Block( block.offset + size, block.size - size ) );
+            }
+            if ( block.size >= largestFreeBlock )
+            {
+                largestFreeBlock = freeBlocksBySize.isEmpty() ? 0 : freeBlocksBySize.last().size;
+            }
+
+            final RegionMemoryBuffer memoryBuffer = new RegionMemoryBuffer( block.offset, size );
+            usedBuffers.add( memoryBuffer );
+            return memoryBuffer;
+        }
+        finally
+        {
+            freeBlocksLock.unlock();
+        }
+    }
+
+    @Override
+    public void free( final MemoryBuffer memoryBuffer )
+    {
+        if ( !usedBuffers.remove( memoryBuffer ) )
+        {
+            // freed twice or not allocated here
+            return;
+        }
+        final RegionMemoryBuffer regionBuffer = (RegionMemoryBuffer) memoryBuffer;
+
+        freeBlocksLock.lock();
+        try
+        {
+            Block block = new Block( regionBuffer.offset, regionBuffer.capacity );
+
+            final Map.Entry<Long, Block> before = freeBlocksByOffset.lowerEntry( block.offset );
+            if ( before != null && before.getValue().offset + before.getValue().size == block.offset )
+            {
+                removeFreeBlock( before.getValue() );
+                block = new Block( before.getValue().offset, before.getValue().size + block.size );
+            }
+
+            final Block after = freeBlocksByOffset.get( block.offset + block.size );
+            if ( after != null )
+            {
+                removeFreeBlock( after );
+                block = new Block( block.offset, block.size + after.size );
+            }
+
+            insertFreeBlock( block );
+            if ( block.size > largestFreeBlock )
+            {
+                largestFreeBlock = block.size;
+            }
+        }
+        finally
+        {
+            freeBlocksLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        freeBlocksLock.lock();
+        try
+        {
+            usedBuffers.clear();
+            initFirstBlock();
+        }
+        finally
+        {
+            freeBlocksLock.unlock();
+        }
+    }
+
+    private void insertFreeBlock( final Block block )
+    {
+        freeBlocksByOffset.put( block.offset, block );
+        freeBlocksBySize.add( block );
+        freeCapacity += block.size;
+        freeBlockHistogram.add( block.size );
+    }
+
+    private void removeFreeBlock( final Block block )
+    {
+        freeBlocksByOffset.remove( block.offset );
+        freeBlocksBySize.remove( block );
+        freeCapacity -= block.size;
+        freeBlockHistogram.remove( block.size );
+    }
+
+    public void setReturnNullWhenBufferIsFull( boolean returnNullWhenBufferIsFull )
+    {
+        this.returnNullWhenBufferIsFull = returnNullWhenBufferIsFull;
+    }
+
+    @Override
+    public long getCapacity()
+    {
+        return capacity;
+    }
+
+    @Override
+    public long getFreeCapacity()
+    {
+        return freeCapacity;
+    }
+
+    @Override
+    public long getLargestFreeBlock()
+    {
+        return largestFreeBlock;
+    }
+
+    @Override
+    public long[] getFreeBlockHistogram()
+    {
+        return freeBlockHistogram.toArray();
+    }
+
+    @Override
+    public long getAllocationFailures()
+    {
+        return allocationFailures.get();
+    }
+
+    @Override
+    public int getNumber()
+    {
+        return number;
+    }
+
+    private static final class Block
+        implements Comparable<Block>
+    {
+
+        private final long offset;
+
+        private final long size;
+
+        Block( long offset, long size )
+        {
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public int compareTo( Block other )
+        {
+            if ( size != other.size )
+            {
+                return size < other.size ? -1 : 1;
+            }
+            return offset < other.offset ? -1 : ( offset == other.offset ? 0 : 1 );
+        }
+
+    }
+
+    private class RegionMemoryBuffer
+        extends AbstractMemoryBuffer
+    {
+
+        private final long offset;
+
+        private final long baseAddress;
+
+        private final long capacity;
+
+        private ByteOrder byteOrder = ByteOrder.BIG_ENDIAN;
+
+        private RegionMemoryBuffer( long offset, long capacity )
+        {
+            this.offset = offset;
+            this.baseAddress = MergingUnsafeAllocator.this.baseAddress + offset;
+            this.capacity = capacity;
+
+            if ( baseAddress == 0 )
+            {
+                throw new IllegalMemoryPointerException( "The pointers base address is not legal" );
+            }
+        }
+
+        @Override
+        public long capacity()
+        {
+            return capacity;
+        }
+
+        @Override
+        public long maxCapacity()
+        {
+            return capacity;
+        }
+
+        @Override
+        public boolean growing()
+        {
+            return false;
+        }
+
+        @Override
+        public ByteOrder byteOrder()
+        {
+            return byteOrder;
+        }
+
+        @Override
+        public void byteOrder( ByteOrder byteOrder )
+        {
+            this.byteOrder = byteOrder;
+        }
+
+        @Override
+        public void free()
+        {
+            MergingUnsafeAllocator.this.free( this );
+        }
+
+        @Override
+        public void clear()
+        {
+            unsafe.setMemory( baseAddress, capacity, (byte) 0 );
+            writerIndex = 0;
+            readerIndex = 0;
+        }
+
+        @Override
+        protected void writeByte( long offset, byte value )
+        {
+            unsafe.putByte( baseAddress + offset, value );
+        }
+
+        @Override
+        protected byte readByte( long offset )
+        {
+            return unsafe.getByte( baseAddress + offset );
+        }
+
+        @Override
+        public short getShort( long offset )
+        {
+            return unsafe.getShort( baseAddress + offset );
+        }
+
+        @Override
+        public int getInt( long offset )
+        {
+            return unsafe.getInt( baseAddress + offset );
+        }
+
+        @Override
+        public long getLong( long offset )
+        {
+            return unsafe.getLong( baseAddress + offset );
+        }
+
+        @Override
+        public float getFloat( long offset )
+        {
+            return unsafe.getFloat( baseAddress + offset );
+        }
+
+        @Override
+        public double getDouble( long offset )
+        {
+            return unsafe.getDouble( baseAddress + offset );
+        }
+
+        @Override
+        public void putShort( long offset, short value )
+        {
+            unsafe.putShort( baseAddress + offset, value );
+        }
+
+        @Override
+        public void putInt( long offset, int value )
+        {
+            unsafe.putInt( baseAddress + offset, value );
+        }
+
+        @Override
+        public void putLong( long offset, long value )
+        {
+            unsafe.putLong( baseAddress + offset, value );
+        }
+
+        @Override
+        public void putFloat( long offset, float value )
+        {
+            unsafe.putFloat( baseAddress + offset, value );
+        }
+
+        @Override
+        public void putDouble( long offset, double value )
+        {
+            unsafe.putDouble( baseAddress + offset, value );
+        }
+
+        @Override
+        public short readShort()
+        {
+            short value = unsafe.getShort( baseAddress + readerIndex );
+            readerIndex += 2;
+            return value;
+        }
+
+        @Override
+        public char readChar()
+        {
+            char value = unsafe.getChar( baseAddress + readerIndex );
+            readerIndex += 2;
+            return value;
+        }
+
+        @Override
+        public int readInt()
+        {
+            int value = unsafe.getInt( baseAddress + readerIndex );
+            readerIndex += 4;
+            return value;
+        }
+
+        @Override
+        public long readLong()
+        {
+            long value = unsafe.getLong( baseAddress + readerIndex );
+            readerIndex += 8;
+            return value;
+        }
+
+        @Override
+        public float readFloat()
+        {
+            float value = unsafe.getFloat( baseAddress + readerIndex );
+            readerIndex += 4;
+            return value;
+        }
+
+        @Override
+        public double readDouble()
+        {
+            double value = unsafe.getDouble( baseAddress + readerIndex );
+            readerIndex += 8;
+            return value;
+        }
+
+        @Override
+        public void writeShort( short value )
+        {
+            unsafe.putShort( baseAddress + writerIndex, value );
+            writerIndex += 2;
+        }
+
+        @Override
+        public void writeChar( char value )
+        {
+            unsafe.putChar( baseAddress + writerIndex, value );
+            writerIndex += 2;
+        }
+
+        @Override
+        public void writeInt( int value )
+        {
+            unsafe.putInt( baseAddress + writerIndex, value );
+            writerIndex += 4;
+        }
+
+        @Override
+        public void writeLong( long value )
+        {
+            unsafe.putLong( baseAddress + writerIndex, value );
+            writerIndex += 8;
+        }
+
+        @Override
+        public void writeFloat( float value )
+        {
+            unsafe.putFloat( baseAddress + writerIndex, value );
+            writerIndex += 4;
+        }
+
+        @Override
+        public void writeDouble( double value )
+        {
+            unsafe.putDouble( baseAddress + writerIndex, value );
+            writerIndex += 8;
+        }
+
+    }
+
+}
@@ -68,57 +68,124 @@ abstract class NioMemoryBuffer
         readerIndex = 0;
     }
 
+    /**
+     * Reads at the reader index like the other reads. The position of the {@link ByteBuffer} only addresses the bulk
+     * copy : it is moved and restored while holding the buffer, so that a reader and a writer of the same buffer do not
+     * move it under each other.
+     */
     @Override
-    public boolean readable()
+    public int readBytes( byte[] bytes, int offset, int length )
     {
-        return byteBuffer.remaining() > 0;
+        synchronized ( byteBuffer )
+        {
+            final int position = byteBuffer.position();
+            try
+            {
+                byteBuffer.position( (int) readerIndex );
+                byteBuffer.get( bytes, offset, length );
+            }
+            finally
+            {
+                byteBuffer.position( position );
+            }
+        }
+        readerIndex += length;
+        return length;
     }
 
     @Override
-    public void readerIndex( long readerIndex )
+    protected byte readByte( long offset )
     {
-        super.readerIndex( readerIndex );
-        byteBuffer.position( (int) readerIndex );
+        return byteBuffer.get( (int) offset );
     }
 
     @Override
-    public void writerIndex( long writerIndex )
+    protected void writeByte( long offset, byte value )
     {
-        super.writerIndex( writerIndex );
-        byteBuffer.position( (int) writerIndex );
+        byteBuffer.put( (int) offset, value );
     }
 
+    /**
+     * Writes at the writer index like the other writes, moving and restoring the position of the {@link ByteBuffer}
+     * the same way as {@link #readBytes(byte[], int, int)}.
+     */
     @Override
-    public int readBytes( byte[] bytes, int offset, int length )
+    public void writeBytes( byte[] bytes, int offset, int length )
     {
-        byteBuffer.get( bytes, offset, length );
-        readerIndex += length;
-        return length;
+        synchronized ( byteBuffer )
+        {
+            final int position = byteBuffer.position();
+            try
+            {
+                byteBuffer.position( (int) writerIndex );
+                byteBuffer.put( bytes, offset, length );
+            }
+            finally
+            {
+                byteBuffer.position( position );
+            }
+        }
+        writerIndex += length;
     }
 
     @Override
-    protected byte readByte( long offset )
+    public short getShort( long offset )
     {
-        return byteBuffer.get( (int) offset );
+        return byteBuffer.getShort( (int) offset );
     }
 
     @Override
-    public boolean writable()
+    public int getInt( long offset )
     {
-        return byteBuffer.position() < byteBuffer.capacity();
+        return byteBuffer.getInt( (int) offset );
     }
 
     @Override
-    protected void writeByte( long offset, byte value )
+    public long getLong( long offset )
     {
-        byteBuffer.put( (int) offset, value );
+        return byteBuffer.getLong( (int) offset );
     }
 
     @Override
-    public void writeBytes( byte[] bytes, int offset, int length )
+    public float getFloat( long offset )
     {
-        byteBuffer.put( bytes, offset, length );
-        writerIndex += length;
+        return byteBuffer.getFloat( (int) offset );
+    }
+
+    @Override
+    public double getDouble( long offset )
+    {
+        return byteBuffer.getDouble( (int) offset );
+    }
+
+    @Override
+    public void putShort( long offset, short value )
+    {
+        byteBuffer.putShort( (int) offset, value );
+    }
+
+    @Override
+    public void putInt( long offset, int value )
+    {
+        byteBuffer.putInt( (int) offset, value );
+    }
+
+    @Override
+    public void putLong( long offset, long value )
+    {
+        byteBuffer.putLong( (int) offset, value );
+    }
+
+    @Override
+    public void putFloat( long offset, float value )
+    {
+        byteBuffer.putFloat( (int) offset, value );
+    }
+
+    @Override
+    public void putDouble( long offset, double value )
+    {
+        byteBuffer.putDouble( (int) offset, value );
     }
 
     protected ByteBuffer getByteBuffer() {
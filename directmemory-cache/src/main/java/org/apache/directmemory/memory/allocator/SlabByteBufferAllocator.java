@@ -116,6 +116,8 @@ public class SlabByteBufferAllocator
         if ( slab == null )
         {
             // unable to store such big objects
+            allocationFailed();
+
             if ( returnNullWhenNoBufferAvailable )
             {
                 return null;
@@ -138,6 +140,8 @@ public class SlabByteBufferAllocator
         // Otherwise we have the option to allow in a bigger slab.
         if ( !allowAllocationToBiggerSlab )
         {
+            allocationFailed();
+
             if ( returnNullWhenNoBufferAvailable )
             {
                 return null;
@@ -156,6 +160,8 @@ public class SlabByteBufferAllocator
             if ( biggerSlab == null )
             {
                 // We were already trying to allocate in the biggest slab
+                allocationFailed();
+
                 if ( returnNullWhenNoBufferAvailable )
                 {
                     return null;
@@ -170,6 +176,8 @@ public class SlabByteBufferAllocator
 
             if ( secondByteBuffer == null )
             {
+                allocationFailed();
+
                 if ( returnNullWhenNoBufferAvailable )
                 {
                     return null;
@@ -196,9 +204,9 @@ public class SlabByteBufferAllocator
     }
 
     @Override
-    public int getCapacity()
+    public long getCapacity()
     {
-        int totalSize = 0;
+        long totalSize = 0;
         for ( final Map.Entry<Long, FixedSizeByteBufferAllocatorImpl> entry : slabs.entrySet() )
         {
             totalSize += entry.getValue().getCapacity();
@@ -206,6 +214,43 @@ public class SlabByteBufferAllocator
         return totalSize;
     }
 
+    @Override
+    public long getFreeCapacity()
+    {
+        long freeCapacity = 0;
+        for ( final FixedSizeByteBufferAllocatorImpl slab : slabs.values() )
+        {
+            freeCapacity += slab.getFreeCapacity();
+        }
+        return freeCapacity;
+    }
+
+    @Override
+    public long getLargestFreeBlock()
+    {
+        // slabs are sorted by slice size, the biggest slab with a free slice gives the answer
+        for ( final FixedSizeByteBufferAllocatorImpl slab : slabs.descendingMap().values() )
+        {
+            final long largestFreeBlock = slab.getLargestFreeBlock();
+            if ( largestFreeBlock > 0 )
+            {
+                return largestFreeBlock;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public long[] getFreeBlockHistogram()
+    {
+        final long[] histogram = new long[FreeBlockHistogram.BUCKETS];
+        for ( final FixedSizeByteBufferAllocatorImpl slab : slabs.values() )
+        {
+            FreeBlockHistogram.merge( histogram, slab.getFreeBlockHistogram() );
+        }
+        return histogram;
+    }
+
     @Override
     public void close()
         throws IOException
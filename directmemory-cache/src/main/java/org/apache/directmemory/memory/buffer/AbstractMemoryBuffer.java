@@ -230,7 +230,7 @@ public abstract class AbstractMemoryBuffer
     @Override
     public void writeBytes( byte[] bytes, int offset, int length )
     {
-        for ( int pos = offset; pos < length; pos++ )
+        for ( int pos = offset; pos < offset + length; pos++ )
         {
             writeByte( bytes[pos] );
         }
@@ -361,6 +361,110 @@ public abstract class AbstractMemoryBuffer
         this.writerIndex = writerIndex;
     }
 
+    @Override
+    public byte getByte( long offset )
+    {
+        return readByte( offset );
+    }
+
+    @Override
+    public short getShort( long offset )
+    {
+        return (short) getBits( offset, 2 );
+    }
+
+    @Override
+    public int getInt( long offset )
+    {
+        return (int) getBits( offset, 4 );
+    }
+
+    @Override
+    public long getLong( long offset )
+    {
+        return getBits( offset, 8 );
+    }
+
+    @Override
+    public float getFloat( long offset )
+    {
+        return Float.intBitsToFloat( getInt( offset ) );
+    }
+
+    @Override
+    public double getDouble( long offset )
+    {
+        return Double.longBitsToDouble( getLong( offset ) );
+    }
+
+    @Override
+    public void putByte( long offset, byte value )
+    {
+        writeByte( offset, value );
+    }
+
+    @Override
+    public void putShort( long offset, short value )
+    {
+        putBits( offset, 2, value );
+    }
+
+    @Override
+    public void putInt( long offset, int value )
+    {
+        putBits( offset, 4, value );
+    }
+
+    @Override
+    public void putLong( long offset, long value )
+    {
+        putBits( offset, 8, value );
+    }
+
+    @Override
+    public void putFloat( long offset, float value )
+    {
+        putInt( offset, Float.floatToIntBits( value ) );
+    }
+
+    @Override
+    public void putDouble( long offset, double value )
+    {
+        putLong( offset, Double.doubleToLongBits( value ) );
+    }
+
+    // Reads size bytes at offset in the byte order of the buffer
+    private long getBits( long offset, int size )
+    {
+        long bits = 0;
+        if ( byteOrder() == ByteOrder.BIG_ENDIAN )
+        {
+            for ( int i = 0; i < size; i++ )
+            {
+                bits = ( bits << 8 ) | ( readByte( offset + i ) & 0xFF );
+            }
+        }
+        else
+        {
+            for ( int i = size - 1; i >= 0; i-- )
+            {
+                bits = ( bits << 8 ) | ( readByte( offset + i ) & 0xFF );
+            }
+        }
+        return bits;
+    }
+
+    // Writes the size low bytes of bits at offset in the byte order of the buffer
+    private void putBits( long offset, int size, long bits )
+    {
+        final boolean bigEndian = byteOrder() == ByteOrder.BIG_ENDIAN;
+        for ( int i = 0; i < size; i++ )
+        {
+            final int shift = bigEndian ? ( size - 1 - i ) << 3 : i << 3;
+            writeByte( offset + i, (byte) ( bits >>> shift ) );
+        }
+    }
+
     protected void rangeCheck( long offset )
     {
         if ( offset < 0 )
@@ -64,6 +64,21 @@ public interface ReadableMemoryBuffer
 
     String readString();
 
+    /**
+     * Reads the byte at <code>offset</code>, without using nor moving the reader index, like the other absolute reads.
+     */
+    byte getByte( long offset );
+
+    short getShort( long offset );
+
+    int getInt( long offset );
+
+    long getLong( long offset );
+
+    float getFloat( long offset );
+
+    double getDouble( long offset );
+
     long readerIndex();
 
     void readerIndex( long readerIndex );
@@ -64,6 +64,22 @@ public interface WritableMemoryBuffer
 
     void writeString( String value );
 
+    /**
+     * Writes the byte at <code>offset</code>, without using nor moving the writer index, like the other absolute
+     * writes.
+     */
+    void putByte( long offset, byte value );
+
+    void putShort( long offset, short value );
+
+    void putInt( long offset, int value );
+
+    void putLong( long offset, long value );
+
+    void putFloat( long offset, float value );
+
+    void putDouble( long offset, double value );
+
     long writerIndex();
 
     void writerIndex( long writerIndex );
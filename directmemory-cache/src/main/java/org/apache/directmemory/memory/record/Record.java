@@ -0,0 +1,122 @@
+package org.apache.directmemory.memory.record;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import org.apache.directmemory.memory.Pointer;
+import org.apache.directmemory.memory.buffer.MemoryBuffer;
+
+/**
+ * Flyweight view of a record laid out by a {@link RecordLayout} in a {@link MemoryBuffer}, read and written field by
+ * field through the fields of the layout. A record can be moved over another buffer with {@link #wrap(MemoryBuffer)}
+ * so that a single instance walks any number of records. <b>A record is not thread-safe</b>, although the accesses
+ * to its fields are atomic : every thread must use its own record, even over the same buffer.
+ */
+public final class Record
+{
+
+    private final RecordLayout layout;
+
+    private MemoryBuffer buffer;
+
+    private long base;
+
+    Record( RecordLayout layout )
+    {
+        this.layout = layout;
+    }
+
+    public RecordLayout getLayout()
+    {
+        return layout;
+    }
+
+    /**
+     * Moves this record over the first bytes of a buffer.
+     */
+    public Record wrap( MemoryBuffer buffer )
+    {
+        return wrap( buffer, 0 );
+    }
+
+    /**
+     * Moves this record over the bytes of a buffer starting at <code>base</code>.
+     */
+    public Record wrap( MemoryBuffer buffer, long base )
+    {
+        checkArgument( buffer != null, "Impossible to wrap a null buffer" );
+        checkArgument( base >= 0 && base + layout.size() <= buffer.maxCapacity(),
+                       "The record does not fit in the buffer at %s", base );
+        this.buffer = buffer;
+        this.base = base;
+        return this;
+    }
+
+    /**
+     * Moves this record over the buffer of a pointer.
+     */
+    public Record wrap( Pointer<?> pointer )
+    {
+        checkArgument( pointer != null && !pointer.isFree(), "Impossible to wrap a freed pointer" );
+        return wrap( pointer.getMemoryBuffer() );
+    }
+
+    /**
+     * Sets every field to 0.
+     */
+    public Record clear()
+    {
+        final MemoryBuffer buffer = buffer();
+        synchronized ( buffer )
+        {
+            final long mark = buffer.writerIndex();
+            buffer.writerIndex( base );
+            for ( int i = 0; i < layout.size(); i++ )
+            {
+                buffer.writeByte( (byte) 0 );
+            }
+            buffer.writerIndex( Math.max( mark, buffer.writerIndex() ) );
+        }
+        return this;
+    }
+
+    MemoryBuffer buffer()
+    {
+        if ( buffer == null )
+        {
+            throw new IllegalStateException( "The record does not wrap any buffer" );
+        }
+        return buffer;
+    }
+
+    long base()
+    {
+        return base;
+    }
+
+    @Override
+    public String toString()
+    {
+        return layout.toString( this );
+    }
+
+}
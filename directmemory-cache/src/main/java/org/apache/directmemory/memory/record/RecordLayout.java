@@ -0,0 +1,615 @@
+package org.apache.directmemory.memory.record;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.memory.Pointer;
+import org.apache.directmemory.memory.buffer.MemoryBuffer;
+
+/**
+ * Layout of a record of fixed size fields, read and written one by one in off-heap memory by a flyweight
+ * {@link Record}, instead of deserializing and storing again a whole value to read or update one of its fields :
+ * 
+ * <pre>
+ * RecordLayout layout = new RecordLayout();
+ * RecordLayout.LongField id = layout.addLong( &quot;id&quot; );
+ * RecordLayout.DoubleField price = layout.addDouble( &quot;price&quot; );
+ * RecordLayout.IntField stock = layout.addInt( &quot;stock&quot; );
+ *
+ * Record product = layout.allocate( cacheService, key, Product.class );
+ * price.set( product, 9.99 );
+ * stock.add( product, -1 );
+ * </pre>
+ * 
+ * The offsets of the fields are computed as they are added, in their order, and the layout can not change any more
+ * once a record was created. Every access to a field is atomic, the records over the same {@link MemoryBuffer}
+ * synchronizing on it.
+ */
+public class RecordLayout
+{
+
+    private final List<Field> fields = new ArrayList<Field>();
+
+    private int size;
+
+    private volatile boolean frozen;
+
+    public ByteField addByte( String name )
+    {
+        return add( new ByteField( name, size ) );
+    }
+
+    public ShortField addShort( String name )
+    {
+        return add( new ShortField( name, size ) );
+    }
+
+    public IntField addInt( String name )
+    {
+        return add( new IntField( name, size ) );
+    }
+
+    public LongField addLong( String name )
+    {
+        return add( new LongField( name, size ) );
+    }
+
+    public FloatField addFloat( String name )
+    {
+        return add( new FloatField( name, size ) );
+    }
+
+    public DoubleField addDouble( String name )
+    {
+        return add( new DoubleField( name, size ) );
+    }
+
+    /**
+     * @param length the number of bytes of the field
+     */
+    public BytesField addBytes( String name, int length )
+    {
+        checkArgument( length > 0, "Impossible to add a field of %s bytes", length );
+        return add( new BytesField( name, size, length ) );
+    }
+
+    private synchronized <F extends Field> F add( F field )
+    {
+        checkState( !frozen, "Impossible to add a field once records were created" );
+        for ( Field existing : fields )
+        {
+            checkArgument( !existing.getName().equals( field.getName() ), "Duplicate field %s", field.getName() );
+        }
+        fields.add( field );
+        size += field.getSize();
+        return field;
+    }
+
+    /**
+     * @return the number of bytes of a record
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    public synchronized List<Field> getFields()
+    {
+        return Collections.unmodifiableList( new ArrayList<Field>( fields ) );
+    }
+
+    /**
+     * @return a record wrapping no buffer yet
+     */
+    public Record newRecord()
+    {
+        synchronized ( this )
+        {
+            checkState( size > 0, "Impossible to create a record without fields" );
+            frozen = true;
+        }
+        return new Record( this );
+    }
+
+    /**
+     * Allocates a record in a cache, all its fields being 0. The record is never compressed, a cache with a compression
+     * reading it back by key as it was written.
+     *
+     * @return the record, or null if not enough space was found
+     */
+    public <K, V, T extends V> Record allocate( CacheService<K, V> cacheService, K key, Class<T> type )
+    {
+        final Record record = newRecord();
+        final Pointer<V> pointer = cacheService.allocate( key, type, size );
+        if ( pointer == null )
+        {
+            return null;
+        }
+        return record.wrap( pointer ).clear();
+    }
+
+    synchronized String toString( Record record )
+    {
+        final StringBuilder builder = new StringBuilder( "{" );
+        for ( Field field : fields )
+        {
+            if ( builder.length() > 1 )
+            {
+                builder.append( ", " );
+            }
+            builder.append( field.getName() ).append( '=' ).append( field.value( record ) );
+        }
+        return builder.append( '}' ).toString();
+    }
+
+    /**
+     * A field of a record, at a fixed offset from its start.
+     */
+    public abstract static class Field
+    {
+
+        private final String name;
+
+        private final int offset;
+
+        private final int size;
+
+        Field( String name, int offset, int size )
+        {
+            checkArgument( name != null, "Impossible to add a field without name" );
+            this.name = name;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public int getOffset()
+        {
+            return offset;
+        }
+
+        public int getSize()
+        {
+            return size;
+        }
+
+        abstract Object value( Record record );
+
+        // guarded by the buffer
+        final void seekRead( MemoryBuffer buffer, Record record )
+        {
+            buffer.readerIndex( record.base() + offset );
+        }
+
+        // guarded by the buffer, returns the writer index to restore
+        final long seekWrite( MemoryBuffer buffer, Record record )
+        {
+            final long mark = buffer.writerIndex();
+            buffer.writerIndex( record.base() + offset );
+            return mark;
+        }
+
+        // guarded by the buffer, the whole record staying readable by MemoryManagerService.retrieve
+        final void endWrite( MemoryBuffer buffer, long mark )
+        {
+            buffer.writerIndex( Math.max( mark, buffer.writerIndex() ) );
+        }
+
+        @Override
+        public String toString()
+        {
+            return name + "@" + offset;
+        }
+
+    }
+
+    /**
+     * A <code>byte</code> field.
+     */
+    public static final class ByteField
+        extends Field
+    {
+
+        ByteField( String name, int offset )
+        {
+            super( name, offset, 1 );
+        }
+
+        public byte get( Record record )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                seekRead( buffer, record );
+                return buffer.readByte();
+            }
+        }
+
+        public void set( Record record, byte value )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                final long mark = seekWrite( buffer, record );
+                buffer.writeByte( value );
+                endWrite( buffer, mark );
+            }
+        }
+
+        /**
+         * Adds <code>delta</code> to the field atomically.
+         *
+         * @return the new value
+         */
+        public byte add( Record record, byte delta )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                seekRead( buffer, record );
+                final byte value = (byte) ( buffer.readByte() + delta );
+                final long mark = seekWrite( buffer, record );
+                buffer.writeByte( value );
+                endWrite( buffer, mark );
+                return value;
+            }
+        }
+
+        @Override
+        Object value( Record record )
+        {
+            return get( record );
+        }
+
+    }
+
+    /**
+     * A <code>short</code> field.
+     */
+    public static final class ShortField
+        extends Field
+    {
+
+        ShortField( String name, int offset )
+        {
+            super( name, offset, 2 );
+        }
+
+        public short get( Record record )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                seekRead( buffer, record );
+                return buffer.readShort();
+            }
+        }
+
+        public void set( Record record, short value )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                final long mark = seekWrite( buffer, record );
+                buffer.writeShort( value );
+                endWrite( buffer, mark );
+            }
+        }
+
+        /**
+         * Adds <code>delta</code> to the field atomically.
+         *
+         * @return the new value
+         */
+        public short add( Record record, short delta )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                seekRead( buffer, record );
+                final short value = (short) ( buffer.readShort() + delta );
+                final long mark = seekWrite( buffer, record );
+                buffer.writeShort( value );
+                endWrite( buffer, mark );
+                return value;
+            }
+        }
+
+        @Override
+        Object value( Record record )
+        {
+            return get( record );
+        }
+
+    }
+
+    /**
+     * A <code>int</code> field.
+     */
+    public static final class IntField
+        extends Field
+    {
+
+        IntField( String name, int offset )
+        {
+            super( name, offset, 4 );
+        }
+
+        public int get( Record record )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                seekRead( buffer, record );
+                return buffer.readInt();
+            }
+        }
+
+        public void set( Record record, int value )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                final long mark = seekWrite( buffer, record );
+                buffer.writeInt( value );
+                endWrite( buffer, mark );
+            }
+        }
+
+        /**
+         * Adds <code>delta</code> to the field atomically.
+         *
+         * @return the new value
+         */
+        public int add( Record record, int delta )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                seekRead( buffer, record );
+                final int value = buffer.readInt() + delta;
+                final long mark = seekWrite( buffer, record );
+                buffer.writeInt( value );
+                endWrite( buffer, mark );
+                return value;
+            }
+        }
+
+        @Override
+        Object value( Record record )
+        {
+            return get( record );
+        }
+
+    }
+
+    /**
+     * A <code>long</code> field.
+     */
+    public static final class LongField
+        extends Field
+    {
+
+        LongField( String name, int offset )
+        {
+            super( name, offset, 8 );
+        }
+
+        public long get( Record record )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                seekRead( buffer, record );
+                return buffer.readLong();
+            }
+        }
+
+        public void set( Record record, long value )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                final long mark = seekWrite( buffer, record );
+                buffer.writeLong( value );
+                endWrite( buffer, mark );
+            }
+        }
+
+        /**
+         * Adds <code>delta</code> to the field atomically.
+         *
+         * @return the new value
+         */
+        public long add( Record record, long delta )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                seekRead( buffer, record );
+                final long value = buffer.readLong() + delta;
+                final long mark = seekWrite( buffer, record );
+                buffer.writeLong( value );
+                endWrite( buffer, mark );
+                return value;
+            }
+        }
+
+        @Override
+        Object value( Record record )
+        {
+            return get( record );
+        }
+
+    }
+
+    /**
+     * A <code>float</code> field.
+     */
+    public static final class FloatField
+        extends Field
+    {
+
+        FloatField( String name, int offset )
+        {
+            super( name, offset, 4 );
+        }
+
+        public float get( Record record )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                seekRead( buffer, record );
+                return buffer.readFloat();
+            }
+        }
+
+        public void set( Record record, float value )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                final long mark = seekWrite( buffer, record );
+                buffer.writeFloat( value );
+                endWrite( buffer, mark );
+            }
+        }
+
+        @Override
+        Object value( Record record )
+        {
+            return get( record );
+        }
+
+    }
+
+    /**
+     * A <code>double</code> field.
+     */
+    public static final class DoubleField
+        extends Field
+    {
+
+        DoubleField( String name, int offset )
+        {
+            super( name, offset, 8 );
+        }
+
+        public double get( Record record )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                seekRead( buffer, record );
+                return buffer.readDouble();
+            }
+        }
+
+        public void set( Record record, double value )
+        {
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                final long mark = seekWrite( buffer, record );
+                buffer.writeDouble( value );
+                endWrite( buffer, mark );
+            }
+        }
+
+        @Override
+        Object value( Record record )
+        {
+            return get( record );
+        }
+
+    }
+
+    /**
+     * A field of a fixed number of bytes.
+     */
+    public static final class BytesField
+        extends Field
+    {
+
+        BytesField( String name, int offset, int length )
+        {
+            super( name, offset, length );
+        }
+
+        public byte[] get( Record record )
+        {
+            final byte[] value = new byte[getSize()];
+            get( record, value );
+            return value;
+        }
+
+        /**
+         * Reads the field in <code>destination</code>, which must be as long as the field.
+         */
+        public void get( Record record, byte[] destination )
+        {
+            checkArgument( destination.length == getSize(), "The field %s is %s bytes long", getName(), getSize() );
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                seekRead( buffer, record );
+                buffer.readBytes( destination );
+            }
+        }
+
+        /**
+         * Writes <code>value</code> in the field, padded with zeros if it is shorter.
+         */
+        public void set( Record record, byte[] value )
+        {
+            checkArgument( value.length <= getSize(), "The field %s is %s bytes long", getName(), getSize() );
+            final byte[] padded = value.length == getSize() ? value : Arrays.copyOf( value, getSize() );
+            final MemoryBuffer buffer = record.buffer();
+            synchronized ( buffer )
+            {
+                final long mark = seekWrite( buffer, record );
+                buffer.writeBytes( padded );
+                endWrite( buffer, mark );
+            }
+        }
+
+        @Override
+        Object value( Record record )
+        {
+            return Arrays.toString( get( record ) );
+        }
+
+    }
+
+}
@@ -0,0 +1,219 @@
+package org.apache.directmemory.array;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.apache.directmemory.memory.allocator.LazyUnsafeAllocator;
+import org.apache.directmemory.memory.allocator.MergingByteBufferAllocator;
+import org.apache.directmemory.memory.allocator.MergingUnsafeAllocator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OffHeapArrayTest
+{
+
+    private ExecutorService executor;
+
+    @Before
+    public void createExecutor()
+    {
+        executor = Executors.newFixedThreadPool( 4 );
+    }
+
+    @After
+    public void shutdownExecutor()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void elementsAreReadBackAcrossTheChunks()
+        throws IOException
+    {
+        final Allocator allocator = new MergingByteBufferAllocator( 0, Ram.Kb( 64 ) );
+        // 8 longs per chunk
+        final OffHeapLongArray array = new OffHeapLongArray( 1000, allocator, 64 );
+        try
+        {
+            assertEquals( 125, array.chunks() );
+            assertEquals( 8000, array.sizeInBytes() );
+            array.fill( 0, 1000, 0 );
+            for ( long i = 0; i < 1000; i += 3 )
+            {
+                array.set( i, i * 1000000007L );
+            }
+            for ( long i = 0; i < 1000; i++ )
+            {
+                assertEquals( i % 3 == 0 ? i * 1000000007L : 0, array.get( i ) );
+            }
+
+            final long[] values = new long[100];
+            for ( int i = 0; i < values.length; i++ )
+            {
+                values[i] = -i;
+            }
+            array.set( 5, values, 0, 100 );
+            final long[] read = new long[102];
+            array.get( 4, read, 1, 100 );
+            assertEquals( 0, read[1] );
+            for ( int i = 2; i < 101; i++ )
+            {
+                assertEquals( values[i - 2], read[i] );
+            }
+            assertEquals( 0, read[0] );
+
+            array.fill( 990, 1000, 7 );
+            assertEquals( 7, array.get( 999 ) );
+            assertEquals( 0, array.get( 989 ) );
+        }
+        finally
+        {
+            array.close();
+            allocator.close();
+        }
+    }
+
+    @Test
+    public void parallelHelpersCoverEveryChunk()
+        throws IOException
+    {
+        final Allocator allocator = new LazyUnsafeAllocator( 1, Ram.Mb( 1 ) );
+        final OffHeapIntArray ints = new OffHeapIntArray( 100003, allocator, Ram.Kb( 4 ) );
+        final OffHeapDoubleArray doubles = new OffHeapDoubleArray( 10000, allocator, Ram.Kb( 4 ) );
+        try
+        {
+            ints.parallelFill( 3, executor );
+            assertEquals( 300009, ints.parallelSum( executor ) );
+            assertEquals( -1, ints.parallelIndexOf( 4, executor ) );
+            ints.set( 100002, 4 );
+            ints.set( 70000, 4 );
+            assertEquals( 70000, ints.parallelIndexOf( 4, executor ) );
+
+            doubles.parallelFill( 0.5, executor );
+            assertEquals( 5000, doubles.parallelSum( executor ), 0 );
+            doubles.set( 1234, Double.NaN );
+            assertEquals( 1234, doubles.parallelIndexOf( Double.NaN, executor ) );
+        }
+        finally
+        {
+            ints.close();
+            doubles.close();
+            allocator.close();
+        }
+        assertEquals( Ram.Mb( 1 ), allocator.getFreeCapacity() );
+    }
+
+    @Test
+    public void newArraysAreZeroed()
+        throws IOException
+    {
+        final OffHeapByteArray array = new OffHeapByteArray( Ram.Mb( 1 ) );
+        try
+        {
+            assertEquals( 0, array.parallelSum( executor ) );
+            array.set( Ram.Mb( 1 ) - 1, (byte) 1 );
+            final byte[] read = new byte[3];
+            array.get( Ram.Mb( 1 ) - 3, read, 0, 3 );
+            assertArrayEquals( new byte[] { 0, 0, 1 }, read );
+        }
+        finally
+        {
+            array.close();
+        }
+    }
+
+    @Test
+    public void bytesBeyond2GbAreIndexed()
+        throws IOException
+    {
+        // only the pages written are provided by the system
+        final Allocator allocator = new MergingUnsafeAllocator( 0, Ram.Gb( 3 ) );
+        final long length = ( 1L << 31 ) + Ram.Kb( 1 );
+        final OffHeapByteArray array = new OffHeapByteArray( length, allocator );
+        try
+        {
+            assertEquals( length, array.length() );
+            assertEquals( 33, array.chunks() );
+
+            array.set( Integer.MAX_VALUE, (byte) 1 );
+            array.set( 1L << 31, (byte) 2 );
+            array.fill( length - 3, length, (byte) 3 );
+            assertEquals( 1, array.get( Integer.MAX_VALUE ) );
+            assertEquals( 2, array.get( 1L << 31 ) );
+
+            final byte[] read = new byte[4];
+            array.get( length - 4, read, 0, 4 );
+            assertEquals( 3, read[1] );
+            assertEquals( 3, read[3] );
+        }
+        finally
+        {
+            array.close();
+            allocator.close();
+        }
+    }
+
+    @Test
+    public void accessesOutOfTheArrayAreRejected()
+        throws IOException
+    {
+        final OffHeapLongArray array = new OffHeapLongArray( 10 );
+        try
+        {
+            array.get( 10 );
+            fail();
+        }
+        catch ( IndexOutOfBoundsException e )
+        {
+            // expected
+        }
+        try
+        {
+            array.set( 8, new long[3], 0, 3 );
+            fail();
+        }
+        catch ( IndexOutOfBoundsException e )
+        {
+            // expected
+        }
+
+        array.close();
+        try
+        {
+            array.get( 0 );
+            fail();
+        }
+        catch ( IllegalStateException e )
+        {
+            // expected
+        }
+    }
+
+}
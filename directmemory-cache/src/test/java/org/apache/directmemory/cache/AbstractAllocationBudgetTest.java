@@ -0,0 +1,233 @@
+package org.apache.directmemory.cache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.measures.ThreadAllocation;
+import org.apache.directmemory.memory.MemoryManagerService;
+import org.apache.directmemory.misc.DummyPojo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.lang.String.format;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures the heap bytes allocated per {@link CacheService} operation with a given memory manager, and fails when
+ * they exceed the budgets of <code>allocation-budgets.properties</code>. A budget can be overridden with a
+ * <code>directmemory.allocation.budget.&lt;memory manager&gt;.&lt;operation&gt;</code> system property, for instance
+ * when working on an optimization.
+ */
+public abstract class AbstractAllocationBudgetTest
+{
+
+    private static final String BUDGETS_RESOURCE = "/allocation-budgets.properties";
+
+    private static final String BUDGET_PROPERTY_PREFIX = "directmemory.allocation.budget.";
+
+    private static final int ENTRIES = 10000;
+
+    private static final int WARMUP_ROUNDS = 5;
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private CacheService<String, Object> cacheService;
+
+    private String[] keys;
+
+    private DummyPojo value;
+
+    private byte[] payload;
+
+    /**
+     * @return the name of the memory manager in the budget keys
+     */
+    protected abstract String getMemoryManagerName();
+
+    protected abstract MemoryManagerService<Object> instanciateMemoryManagerService();
+
+    @Before
+    public void setUp()
+    {
+        assumeTrue( ThreadAllocation.isSupported() );
+
+        cacheService = new DirectMemory<String, Object>()
+            .setMemoryManager( instanciateMemoryManagerService() )
+            .setNumberOfBuffers( 1 )
+            .setSize( Ram.Mb( 16 ) )
+            .setInitialCapacity( ENTRIES * 2 )
+            .newCacheService();
+
+        keys = new String[ENTRIES];
+        for ( int i = 0; i < ENTRIES; i++ )
+        {
+            keys[i] = "key-" + i;
+        }
+        value = new DummyPojo( "allocation", 64 );
+        payload = new byte[128];
+    }
+
+    @After
+    public void tearDown()
+        throws IOException
+    {
+        if ( cacheService != null )
+        {
+            cacheService.close();
+        }
+    }
+
+    @Test
+    public void operationsStayWithinBudget()
+        throws IOException
+    {
+        final Properties budgets = loadBudgets();
+
+        for ( int i = 0; i < WARMUP_ROUNDS; i++ )
+        {
+            for ( Operation operation : Operation.values() )
+            {
+                measure( operation );
+            }
+        }
+
+        final StringBuilder exceeded = new StringBuilder();
+        for ( Operation operation : Operation.values() )
+        {
+            final double allocated = measure( operation );
+            final String key = getMemoryManagerName() + "." + operation.getName();
+            final String budget = System.getProperty( BUDGET_PROPERTY_PREFIX + key, budgets.getProperty( key ) );
+            assertNotNull( "no allocation budget for " + key, budget );
+
+            logger.info( format( "%s : %.1f bytes allocated per operation, budget %s", key, allocated, budget ) );
+            if ( allocated > Long.parseLong( budget ) )
+            {
+                exceeded.append( format( "%n  %s allocated %.1f bytes per operation, over its budget of %s", key,
+                                         allocated, budget ) );
+            }
+        }
+        assertTrue( "allocation budgets exceeded :" + exceeded, exceeded.length() == 0 );
+    }
+
+    private static Properties loadBudgets()
+        throws IOException
+    {
+        final Properties budgets = new Properties();
+        final InputStream in = AbstractAllocationBudgetTest.class.getResourceAsStream( BUDGETS_RESOURCE );
+        assertNotNull( BUDGETS_RESOURCE + " not found", in );
+        try
+        {
+            budgets.load( in );
+        }
+        finally
+        {
+            in.close();
+        }
+        return budgets;
+    }
+
+    /**
+     * Runs the operation on every key, the operations being measured in the order they are declared so that each of
+     * them finds the cache in the expected state.
+     *
+     * @return the heap bytes allocated per operation
+     */
+    private double measure( Operation operation )
+    {
+        final long before = ThreadAllocation.allocatedBytes();
+        for ( String key : keys )
+        {
+            operation.run( this, key );
+        }
+        return (double) ( ThreadAllocation.allocatedBytes() - before ) / keys.length;
+    }
+
+    private enum Operation
+    {
+
+        PUT( "put" )
+            {
+                @Override
+                void run( AbstractAllocationBudgetTest test, String key )
+                {
+                    test.cacheService.put( key, test.value );
+                }
+            },
+        RETRIEVE( "retrieve" )
+            {
+                @Override
+                void run( AbstractAllocationBudgetTest test, String key )
+                {
+                    test.cacheService.retrieve( key );
+                }
+            },
+        PUT_BYTE_ARRAY( "putByteArray" )
+            {
+                @Override
+                void run( AbstractAllocationBudgetTest test, String key )
+                {
+                    // replaces the entry stored by put
+                    test.cacheService.putByteArray( key, test.payload );
+                }
+            },
+        RETRIEVE_BYTE_ARRAY( "retrieveByteArray" )
+            {
+                @Override
+                void run( AbstractAllocationBudgetTest test, String key )
+                {
+                    test.cacheService.retrieveByteArray( key );
+                }
+            },
+        FREE( "free" )
+            {
+                @Override
+                void run( AbstractAllocationBudgetTest test, String key )
+                {
+                    test.cacheService.free( key );
+                }
+            };
+
+        private final String name;
+
+        Operation( String name )
+        {
+            this.name = name;
+        }
+
+        String getName()
+        {
+            return name;
+        }
+
+        abstract void run( AbstractAllocationBudgetTest test, String key );
+
+    }
+
+}
@@ -26,10 +26,17 @@ import org.apache.directmemory.memory.MemoryManagerService;
 import org.apache.directmemory.memory.MemoryManagerServiceImpl;
 import org.apache.directmemory.memory.Pointer;
 import org.apache.directmemory.memory.RoundRobinAllocationPolicy;
+import org.apache.directmemory.memory.UnsafeMemoryManagerServiceImpl;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -125,4 +132,121 @@ public class CacheServiceImplTest
         cache.close();
     }
 
+    @Test
+    public void testPayloadsAreStreamedInAndOut()
+        throws IOException
+    {
+        final byte[] payload = new byte[Ram.Kb( 100 ) + 17];
+        new Random( 42 ).nextBytes( payload );
+
+        final MemoryManagerService<byte[]> nio = new MemoryManagerServiceImpl<byte[]>();
+        final MemoryManagerService<byte[]> unsafe = new UnsafeMemoryManagerServiceImpl<byte[]>();
+        for ( MemoryManagerService<byte[]> memoryManager : new MemoryManagerService[] { nio, unsafe } )
+        {
+            CacheService<Integer, byte[]> cache =
+                new DirectMemory<Integer, byte[]>().setMemoryManager( memoryManager ).setNumberOfBuffers( 1 ).setSize( Ram.Mb( 1 ) ).newCacheService();
+
+            assertNotNull( cache.putStream( 1, new ByteArrayInputStream( payload ), payload.length, 0 ) );
+            assertArrayEquals( payload, cache.retrieveByteArray( 1 ) );
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals( payload.length, cache.retrieveStream( 1, out ) );
+            assertArrayEquals( payload, out.toByteArray() );
+
+            assertNotNull( cache.putChannel( 2, Channels.newChannel( new ByteArrayInputStream( payload ) ), 100, 0 ) );
+            out = new ByteArrayOutputStream();
+            assertEquals( 100, cache.retrieveChannel( 2, Channels.newChannel( out ) ) );
+            assertEquals( 100, out.size() );
+            assertEquals( payload[99], out.toByteArray()[99] );
+
+            assertEquals( -1, cache.retrieveStream( 3, out ) );
+
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testTruncatedStreamsAreNotStored()
+        throws IOException
+    {
+        CacheService<Integer, byte[]> cache =
+            new DirectMemory<Integer, byte[]>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 1 ) ).newCacheService();
+        try
+        {
+            cache.putStream( 1, new ByteArrayInputStream( new byte[10] ), 20, 0 );
+            fail( "the stream is shorter than the payload" );
+        }
+        catch ( EOFException e )
+        {
+            assertNull( cache.getPointer( 1 ) );
+            assertEquals( 0, cache.getMemoryManager().used() );
+        }
+        finally
+        {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testTruncatedStreamsKeepThePreviousPayload()
+        throws IOException
+    {
+        CacheService<Integer, byte[]> cache =
+            new DirectMemory<Integer, byte[]>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 1 ) ).newCacheService();
+        final byte[] previous = "previous".getBytes();
+        cache.putByteArray( 1, previous );
+        try
+        {
+            cache.putStream( 1, new ByteArrayInputStream( new byte[10] ), 20, 0 );
+            fail( "the stream is shorter than the payload" );
+        }
+        catch ( EOFException e )
+        {
+            assertArrayEquals( previous, cache.retrieveByteArray( 1 ) );
+            assertEquals( previous.length, cache.getMemoryManager().used() );
+        }
+        finally
+        {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testPayloadsFreedWhileStreamedOutFail()
+        throws IOException
+    {
+        final CacheService<Integer, byte[]> cache =
+            new DirectMemory<Integer, byte[]>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 1 ) ).newCacheService();
+        final byte[] payload = new byte[Ram.Kb( 100 )];
+        cache.putStream( 1, new ByteArrayInputStream( payload ), payload.length, 0 );
+        try
+        {
+            cache.retrieveStream( 1, new OutputStream()
+            {
+
+                @Override
+                public void write( int b )
+                {
+                    cache.free( 1 );
+                }
+
+                @Override
+                public void write( byte[] b, int off, int len )
+                {
+                    cache.free( 1 );
+                }
+
+            } );
+            fail( "the payload was freed after its first piece" );
+        }
+        catch ( IOException e )
+        {
+            assertNull( cache.getPointer( 1 ) );
+        }
+        finally
+        {
+            cache.close();
+        }
+    }
+
 }
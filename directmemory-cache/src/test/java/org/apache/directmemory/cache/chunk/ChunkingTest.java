@@ -0,0 +1,253 @@
+package org.apache.directmemory.cache.chunk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.memory.MemoryManagerService;
+import org.apache.directmemory.memory.MemoryManagerServiceImpl;
+import org.apache.directmemory.memory.Pointer;
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.apache.directmemory.memory.allocator.MergingUnsafeAllocator;
+import org.apache.directmemory.memory.buffer.MemoryBuffer;
+import org.junit.After;
+import org.junit.Test;
+
+public class ChunkingTest
+{
+
+    private final Chunking chunking = new Chunking().setChunkSize( Ram.Kb( 64 ) ).setThreshold( Ram.Kb( 128 ) );
+
+    // buffers smaller than the big payloads
+    private final CacheService<String, String> cache =
+        new DirectMemory<String, String>().setNumberOfBuffers( 8 ).setSize( Ram.Mb( 1 ) ).setChunking( chunking )
+            .newCacheService();
+
+    @After
+    public void close()
+        throws IOException
+    {
+        cache.close();
+    }
+
+    private static byte[] payload( int length )
+    {
+        final byte[] payload = new byte[length];
+        new Random( length ).nextBytes( payload );
+        return payload;
+    }
+
+    @Test
+    public void streamedPayloadsAreStoredInChunks()
+        throws IOException
+    {
+        final byte[] big = payload( Ram.Mb( 3 ) + 17 );
+        assertNotNull( cache.putStream( "big", new ByteArrayInputStream( big ), big.length, 0 ) );
+        assertEquals( 49, chunking.chunks() );
+        assertTrue( chunking.isChunked( cache.getPointer( "big" ) ) );
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals( big.length, cache.retrieveStream( "big", out ) );
+        assertArrayEquals( big, out.toByteArray() );
+    }
+
+    @Test
+    public void payloadsBiggerThanABufferAreStored()
+    {
+        final byte[] big = payload( Ram.Mb( 3 ) + 17 );
+        assertNotNull( cache.putByteArray( "big", big ) );
+        assertNotNull( cache.putByteArray( "small", payload( 100 ) ) );
+        assertEquals( 1, chunking.entries() );
+        assertEquals( 49, chunking.chunks() );
+        assertEquals( big.length, chunking.getChunkedBytes() );
+
+        assertArrayEquals( big, cache.retrieveByteArray( "big" ) );
+        assertArrayEquals( payload( 100 ), cache.retrieveByteArray( "small" ) );
+        assertTrue( chunking.isChunked( cache.getPointer( "big" ) ) );
+        assertFalse( chunking.isChunked( cache.getPointer( "small" ) ) );
+
+        final byte[] bigger = payload( Ram.Mb( 4 ) );
+        assertNotNull( cache.putByteArray( "big", bigger ) );
+        assertArrayEquals( bigger, cache.retrieveByteArray( "big" ) );
+        assertEquals( 64, chunking.chunks() );
+
+        cache.free( "big" );
+        assertEquals( 0, chunking.entries() );
+        assertEquals( 0, chunking.getChunkedBytes() );
+        assertEquals( 100, cache.getMemoryManager().used() );
+    }
+
+    @Test
+    public void chunkedBytesCountThePayloadsNotTheBuffers()
+        throws IOException
+    {
+        // buffers rounded up to a power of two, bigger than the last chunk of the payloads
+        final MemoryManagerService<String> memoryManager = new MemoryManagerServiceImpl<String>()
+        {
+            @Override
+            protected Allocator instanciateAllocator( int allocatorNumber, long size )
+            {
+                return new MergingUnsafeAllocator( allocatorNumber, size )
+                {
+                    @Override
+                    public MemoryBuffer allocate( int size )
+                    {
+                        return super.allocate( Integer.highestOneBit( size - 1 ) << 1 );
+                    }
+                };
+            }
+        };
+        final Chunking chunking = new Chunking().setChunkSize( Ram.Kb( 64 ) ).setThreshold( Ram.Kb( 128 ) );
+        final CacheService<String, String> cache =
+            new DirectMemory<String, String>().setMemoryManager( memoryManager ).setNumberOfBuffers( 1 )
+                .setSize( Ram.Mb( 2 ) ).setChunking( chunking ).newCacheService();
+        try
+        {
+            final byte[] big = payload( Ram.Kb( 200 ) + 17 );
+            assertNotNull( cache.putByteArray( "big", big ) );
+            assertEquals( big.length, chunking.getChunkedBytes() );
+            assertArrayEquals( big, cache.retrieveByteArray( "big" ) );
+
+            cache.free( "big" );
+            assertEquals( 0, chunking.getChunkedBytes() );
+        }
+        finally
+        {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void chunksAreStreamedInOrder()
+        throws IOException
+    {
+        final byte[] big = payload( Ram.Kb( 1000 ) );
+        cache.putByteArray( "big", big );
+        final MemoryManagerService<String> memoryManager = cache.getMemoryManager();
+        final Pointer<String> pointer = cache.getPointer( "big" );
+        assertEquals( big.length, chunking.length( memoryManager, pointer ) );
+
+        final InputStream in = chunking.openStream( memoryManager, pointer );
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[Ram.Kb( 10 )];
+        int read;
+        while ( ( read = in.read( buffer ) ) >= 0 )
+        {
+            out.write( buffer, 0, read );
+        }
+        assertArrayEquals( big, out.toByteArray() );
+        assertEquals( -1, in.read() );
+    }
+
+    @Test
+    public void expiredPayloadsAreFreedWithTheirChunks()
+        throws Exception
+    {
+        cache.putByteArray( "big", payload( Ram.Mb( 2 ) ), 100 );
+        cache.put( "value", new String( new char[Ram.Kb( 200 )] ).replace( '\0', 'x' ) );
+        assertEquals( 2, chunking.entries() );
+        assertEquals( Ram.Kb( 200 ), cache.retrieve( "value" ).length() );
+
+        Thread.sleep( 200 );
+        assertNull( cache.retrieveByteArray( "big" ) );
+        cache.collectExpired();
+        assertEquals( 1, chunking.entries() );
+        assertEquals( Ram.Kb( 200 ), cache.retrieve( "value" ).length() );
+    }
+
+    @Test
+    public void onlyTheHeaderOfAPayloadExpires()
+        throws Exception
+    {
+        cache.putByteArray( "big", payload( Ram.Mb( 2 ) ), 100 );
+        final MemoryManagerService<String> memoryManager = cache.getMemoryManager();
+        final Pointer<String> header = cache.getPointer( "big" );
+        final Set<Pointer<String>> chunks = new HashSet<Pointer<String>>( memoryManager.getPointers() );
+        chunks.remove( header );
+        assertEquals( 32, chunks.size() );
+
+        Thread.sleep( 200 );
+        memoryManager.collectExpired();
+        assertEquals( 1, memoryManager.getExpiredCount() );
+        assertTrue( header.isFree() );
+        for ( Pointer<String> chunk : chunks )
+        {
+            assertFalse( chunk.isFree() );
+        }
+
+        cache.collectExpired();
+        assertEquals( 0, chunking.entries() );
+        assertEquals( 0, chunking.chunks() );
+        assertEquals( 0, memoryManager.used() );
+        for ( Pointer<String> chunk : chunks )
+        {
+            assertTrue( chunk.isFree() );
+        }
+    }
+
+    @Test
+    public void chunksAreNeverEvictedOnTheirOwn()
+    {
+        cache.putByteArray( "big", payload( Ram.Mb( 2 ) ) );
+        final MemoryManagerService<String> memoryManager = cache.getMemoryManager();
+        final Pointer<String> header = cache.getPointer( "big" );
+        final Set<Pointer<String>> chunks = new HashSet<Pointer<String>>( memoryManager.getPointers() );
+        chunks.remove( header );
+        for ( int i = 0; i < 20; i++ )
+        {
+            cache.putByteArray( "small" + i, payload( 100 ) );
+        }
+
+        // the header and the small payloads are the only candidates, evicted a tenth at a time down to 9
+        for ( int i = 0; i < 20; i++ )
+        {
+            memoryManager.collectLFU();
+            for ( Pointer<String> chunk : chunks )
+            {
+                assertFalse( chunk.isFree() );
+            }
+        }
+        assertEquals( 12, memoryManager.getEvictedCount() );
+
+        cache.collectLFU();
+        assertEquals( header.isFree() ? 0 : 1, chunking.entries() );
+        for ( Pointer<String> chunk : chunks )
+        {
+            assertEquals( header.isFree(), chunk.isFree() );
+        }
+    }
+
+}
@@ -0,0 +1,169 @@
+package org.apache.directmemory.cache.dedup;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.compression.Compression;
+import org.apache.directmemory.compression.LzfCodec;
+import org.apache.directmemory.measures.Ram;
+import org.junit.After;
+import org.junit.Test;
+
+public class DeduplicationTest
+{
+
+    private final Deduplication deduplication = new Deduplication();
+
+    private final CacheService<String, String> cache =
+        new DirectMemory<String, String>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 1 ) )
+            .setDeduplication( deduplication ).newCacheService();
+
+    @After
+    public void close()
+        throws IOException
+    {
+        cache.close();
+    }
+
+    private static String variant( int i )
+    {
+        return "shared product variant " + i + " with its default configuration";
+    }
+
+    @Test
+    public void identicalValuesShareOneBlock()
+        throws IOException
+    {
+        for ( int i = 0; i < 100; i++ )
+        {
+            cache.put( "key" + i, variant( i % 5 ) );
+        }
+        assertEquals( 100, cache.entries() );
+        assertEquals( 5, deduplication.blocks() );
+        assertEquals( 5, deduplication.getMisses() );
+        assertEquals( 95, deduplication.getHits() );
+        assertEquals( 0.95, deduplication.getHitRatio(), 0.001 );
+        long distinctBytes = 0;
+        for ( int i = 0; i < 5; i++ )
+        {
+            distinctBytes += cache.getSerializer().serialize( variant( i ) ).length;
+        }
+        assertEquals( 19 * distinctBytes, deduplication.getSavedBytes() );
+        assertSame( cache.getPointer( "key0" ), cache.getPointer( "key5" ) );
+        assertNotSame( cache.getPointer( "key0" ), cache.getPointer( "key1" ) );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            assertEquals( variant( i % 5 ), cache.retrieve( "key" + i ) );
+        }
+    }
+
+    @Test
+    public void blocksAreFreedWithTheirLastReference()
+    {
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.put( "key" + i, variant( 0 ) );
+        }
+        final long used = cache.getMemoryManager().used();
+
+        for ( int i = 0; i < 9; i++ )
+        {
+            cache.free( "key" + i );
+        }
+        assertEquals( used, cache.getMemoryManager().used() );
+        assertEquals( 0, deduplication.getSavedBytes() );
+        assertEquals( variant( 0 ), cache.retrieve( "key9" ) );
+
+        // overwriting releases the previous block too
+        cache.put( "key9", variant( 1 ) );
+        assertEquals( 1, deduplication.blocks() );
+        assertEquals( variant( 1 ), cache.retrieve( "key9" ) );
+
+        cache.free( "key9" );
+        assertEquals( 0, cache.getMemoryManager().used() );
+        assertEquals( 0, deduplication.blocks() );
+    }
+
+    @Test
+    public void expiringEntriesAreNotShared()
+    {
+        cache.put( "key0", variant( 0 ), 60000 );
+        cache.put( "key1", variant( 0 ), 60000 );
+        assertNotSame( cache.getPointer( "key0" ), cache.getPointer( "key1" ) );
+        assertEquals( 0, deduplication.getHits() );
+        assertEquals( 0, deduplication.blocks() );
+    }
+
+    @Test
+    public void forcedFreesReleaseEveryKey()
+    {
+        cache.put( "key0", variant( 0 ) );
+        cache.put( "key1", variant( 0 ) );
+        cache.free( cache.getPointer( "key0" ) );
+
+        assertNull( cache.retrieve( "key0" ) );
+        assertNull( cache.retrieve( "key1" ) );
+        assertEquals( 0, deduplication.blocks() );
+        assertEquals( 0, deduplication.getSavedBytes() );
+
+        // a new block is stored
+        cache.put( "key2", variant( 0 ) );
+        assertEquals( variant( 0 ), cache.retrieve( "key2" ) );
+        assertEquals( 1, deduplication.blocks() );
+    }
+
+    @Test
+    public void compressedPayloadsAreShared()
+        throws IOException
+    {
+        final Deduplication deduplication = new Deduplication();
+        final CacheService<String, byte[]> cache =
+            new DirectMemory<String, byte[]>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 1 ) )
+                .setCompression( new Compression( new LzfCodec(), 0 ) ).setDeduplication( deduplication )
+                .newCacheService();
+        try
+        {
+            final byte[] payload = new byte[1000];
+            for ( int i = 0; i < 10; i++ )
+            {
+                cache.putByteArray( "key" + i, payload );
+            }
+            assertEquals( 1, deduplication.blocks() );
+            assertEquals( 9, deduplication.getHits() );
+            assertArrayEquals( payload, cache.retrieveByteArray( "key3" ) );
+        }
+        finally
+        {
+            cache.close();
+        }
+    }
+
+}
@@ -0,0 +1,376 @@
+package org.apache.directmemory.cache.journal;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.measures.Ram;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JournalTest
+{
+
+    private File directory;
+
+    @Before
+    public void createDirectory()
+        throws IOException
+    {
+        directory = File.createTempFile( "directmemory", ".journal" );
+        directory.delete();
+    }
+
+    @After
+    public void deleteDirectory()
+    {
+        final File[] files = directory.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private CacheService<String, String> open( Journal<String, String> journal )
+    {
+        return new DirectMemory<String, String>().setNumberOfBuffers( 2 ).setSize( Ram.Mb( 2 ) )
+            .setJournal( journal ).newCacheService();
+    }
+
+    private CacheService<String, String> open( FsyncPolicy fsyncPolicy )
+    {
+        return open( new Journal<String, String>( directory ).setFsyncPolicy( fsyncPolicy ) );
+    }
+
+    private List<File> files( String suffix )
+    {
+        final List<File> files = new ArrayList<File>();
+        for ( File file : directory.listFiles() )
+        {
+            if ( file.getName().endsWith( suffix ) )
+            {
+                files.add( file );
+            }
+        }
+        return files;
+    }
+
+    @Test
+    public void putsAndFreesAreRecovered()
+        throws IOException
+    {
+        for ( FsyncPolicy fsyncPolicy : FsyncPolicy.values() )
+        {
+            final CacheService<String, String> cache = open( fsyncPolicy );
+            assertTrue( cache instanceof JournalingCacheService );
+            for ( int i = 0; i < 100; i++ )
+            {
+                assertNotNull( cache.put( "key" + i, "value" + i ) );
+            }
+            for ( int i = 0; i < 100; i += 2 )
+            {
+                cache.free( "key" + i );
+            }
+            assertNotNull( cache.put( "key1", "overwritten" ) );
+            assertNotNull( cache.putByteArray( "raw", new byte[] { 1, 2, 3 }, 60000 ) );
+            cache.close();
+
+            final CacheService<String, String> recovered = open( fsyncPolicy );
+            try
+            {
+                assertEquals( fsyncPolicy.name(), 51, recovered.entries() );
+                assertEquals( "overwritten", recovered.retrieve( "key1" ) );
+                for ( int i = 0; i < 100; i++ )
+                {
+                    if ( i % 2 == 0 )
+                    {
+                        assertNull( recovered.getPointer( "key" + i ) );
+                    }
+                    else if ( i > 1 )
+                    {
+                        assertEquals( "value" + i, recovered.retrieve( "key" + i ) );
+                        assertEquals( String.class, recovered.getPointer( "key" + i ).getClazz() );
+                    }
+                }
+                assertArrayEquals( new byte[] { 1, 2, 3 }, recovered.retrieveByteArray( "raw" ) );
+                assertTrue( recovered.getPointer( "raw" ).getExpiresIn() > 0 );
+
+                recovered.clear();
+            }
+            finally
+            {
+                recovered.close();
+            }
+
+            final CacheService<String, String> cleared = open( fsyncPolicy );
+            try
+            {
+                assertEquals( 0, cleared.entries() );
+            }
+            finally
+            {
+                cleared.close();
+            }
+        }
+    }
+
+    @Test
+    public void expiredEntriesAreNotRecovered()
+        throws Exception
+    {
+        final CacheService<String, String> cache = open( FsyncPolicy.BATCH );
+        cache.putByteArray( "key", new byte[10] );
+        cache.putByteArray( "key", new byte[10], 100 );
+        cache.close();
+
+        Thread.sleep( 200 );
+
+        final CacheService<String, String> recovered = open( FsyncPolicy.BATCH );
+        try
+        {
+            assertEquals( 0, recovered.entries() );
+        }
+        finally
+        {
+            recovered.close();
+        }
+    }
+
+    @Test
+    public void tornRecordsAreIgnored()
+        throws IOException
+    {
+        final CacheService<String, String> cache = open( FsyncPolicy.BATCH );
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.put( "key" + i, "value" + i );
+        }
+        cache.close();
+
+        // a record whose write was interrupted by a crash
+        final FileOutputStream out = new FileOutputStream( files( Journal.SEGMENT_SUFFIX ).get( 0 ), true );
+        try
+        {
+            out.write( new byte[] { 0, 0, 1, 0, 42, 42 } );
+        }
+        finally
+        {
+            out.close();
+        }
+
+        final CacheService<String, String> recovered = open( FsyncPolicy.BATCH );
+        try
+        {
+            assertEquals( 10, recovered.entries() );
+            assertEquals( "value9", recovered.retrieve( "key9" ) );
+        }
+        finally
+        {
+            recovered.close();
+        }
+    }
+
+    @Test
+    public void compactionReplacesTheFullSegments()
+        throws IOException
+    {
+        final Journal<String, String> journal =
+            new Journal<String, String>( directory ).setSegmentSize( Ram.Kb( 4 ) ).setCompactionThreshold( 0 );
+        final CacheService<String, String> cache = open( journal );
+        for ( int round = 0; round < 20; round++ )
+        {
+            for ( int i = 0; i < 50; i++ )
+            {
+                cache.put( "key" + i, "value" + i + "-" + round );
+            }
+        }
+        assertTrue( files( Journal.SEGMENT_SUFFIX ).size() > 10 );
+
+        journal.compact();
+        assertEquals( 1, files( Journal.SNAPSHOT_SUFFIX ).size() );
+        assertEquals( 1, files( Journal.SEGMENT_SUFFIX ).size() );
+
+        cache.put( "key0", "after compaction" );
+        cache.free( "key1" );
+        cache.close();
+
+        final CacheService<String, String> recovered = open( FsyncPolicy.BATCH );
+        try
+        {
+            assertEquals( 49, recovered.entries() );
+            assertEquals( "after compaction", recovered.retrieve( "key0" ) );
+            assertNull( recovered.getPointer( "key1" ) );
+            assertEquals( "value49-19", recovered.retrieve( "key49" ) );
+        }
+        finally
+        {
+            recovered.close();
+        }
+    }
+
+    @Test
+    public void fullSegmentsAreCompactedInTheBackground()
+        throws Exception
+    {
+        final Journal<String, String> journal =
+            new Journal<String, String>( directory ).setSegmentSize( Ram.Kb( 4 ) ).setCompactionThreshold( 2 );
+        final CacheService<String, String> cache = open( journal );
+        for ( int round = 0; round < 20; round++ )
+        {
+            for ( int i = 0; i < 50; i++ )
+            {
+                cache.put( "key" + i, "value" + i + "-" + round );
+            }
+        }
+        cache.close();
+        assertFalse( files( Journal.SNAPSHOT_SUFFIX ).isEmpty() );
+        assertTrue( files( Journal.SEGMENT_SUFFIX ).size() < 10 );
+
+        final CacheService<String, String> recovered = open( FsyncPolicy.BATCH );
+        try
+        {
+            assertEquals( 50, recovered.entries() );
+            for ( int i = 0; i < 50; i++ )
+            {
+                assertEquals( "value" + i + "-19", recovered.retrieve( "key" + i ) );
+            }
+        }
+        finally
+        {
+            recovered.close();
+        }
+    }
+
+    @Test
+    public void concurrentWritersShareTheBatches()
+        throws Exception
+    {
+        final CacheService<String, String> cache = open( FsyncPolicy.BATCH );
+        final Journal<String, String> journal = ( (JournalingCacheService<String, String>) cache ).getJournal();
+
+        final List<Thread> writers = new ArrayList<Thread>();
+        for ( int t = 0; t < 8; t++ )
+        {
+            final int first = t;
+            writers.add( new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for ( int i = first; i < 2000; i += 8 )
+                    {
+                        cache.put( "key" + i, "value" + i );
+                    }
+                }
+            } );
+        }
+        for ( Thread writer : writers )
+        {
+            writer.start();
+        }
+        for ( Thread writer : writers )
+        {
+            writer.join();
+        }
+
+        assertEquals( 2000, journal.getRecords() );
+        assertTrue( journal.getBatches() < journal.getRecords() );
+        assertFalse( journal.isFailed() );
+        cache.close();
+
+        final CacheService<String, String> recovered = open( FsyncPolicy.BATCH );
+        try
+        {
+            assertEquals( 2000, recovered.entries() );
+        }
+        finally
+        {
+            recovered.close();
+        }
+    }
+
+    @Test
+    public void concurrentPutsOfAKeyAreJournaledInTheirOrder()
+        throws Exception
+    {
+        final CacheService<String, String> cache = open( FsyncPolicy.NEVER );
+        final List<Thread> writers = new ArrayList<Thread>();
+        for ( int t = 0; t < 8; t++ )
+        {
+            final int writer = t;
+            writers.add( new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for ( int i = 0; i < 500; i++ )
+                    {
+                        cache.put( "shared", "value" + writer + "-" + i );
+                    }
+                }
+            } );
+        }
+        for ( Thread writer : writers )
+        {
+            writer.start();
+        }
+        for ( Thread writer : writers )
+        {
+            writer.join();
+        }
+        final String last = cache.retrieve( "shared" );
+
+        // a free by pointer removes the key from the journal too
+        assertNotNull( cache.put( "freed", "value" ) );
+        cache.free( cache.getPointer( "freed" ) );
+        cache.close();
+
+        final CacheService<String, String> recovered = open( FsyncPolicy.NEVER );
+        try
+        {
+            assertEquals( last, recovered.retrieve( "shared" ) );
+            assertNull( recovered.getPointer( "freed" ) );
+            assertEquals( 1, recovered.entries() );
+        }
+        finally
+        {
+            recovered.close();
+        }
+    }
+
+}
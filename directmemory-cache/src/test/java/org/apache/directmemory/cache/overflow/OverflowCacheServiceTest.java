@@ -0,0 +1,267 @@
+package org.apache.directmemory.cache.overflow;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.measures.Ram;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OverflowCacheServiceTest
+{
+
+    private File directory;
+
+    @Before
+    public void createDirectory()
+        throws IOException
+    {
+        directory = File.createTempFile( "directmemory", ".overflow" );
+        directory.delete();
+    }
+
+    @After
+    public void deleteDirectory()
+    {
+        final File[] files = directory.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private CacheService<String, String> newCache( OverflowStore<String> store )
+    {
+        return new DirectMemory<String, String>().setNumberOfBuffers( 1 ).setSize( Ram.Kb( 64 ) )
+            .setOverflowStore( store ).newCacheService();
+    }
+
+    @Test
+    public void evictedEntriesAreReadBackAndPromoted()
+    {
+        final OverflowStore<String> store = new OverflowStore<String>( directory );
+        final CacheService<String, String> cache = newCache( store );
+        try
+        {
+            for ( int i = 0; i < 100; i++ )
+            {
+                assertNotNull( cache.put( "key" + i, "value" + i ) );
+            }
+            // the entries read are more frequently used than the others
+            for ( int i = 10; i < 100; i++ )
+            {
+                cache.retrieve( "key" + i );
+            }
+
+            cache.collectLFU();
+            assertEquals( 90, cache.entries() );
+            assertEquals( 10, store.entries() );
+            for ( int i = 0; i < 10; i++ )
+            {
+                assertNull( cache.getPointer( "key" + i ) );
+            }
+
+            assertEquals( "value3", cache.retrieve( "key3" ) );
+            // promoted back to the off-heap memory
+            assertNotNull( cache.getPointer( "key3" ) );
+            assertEquals( String.class, cache.getPointer( "key3" ).getClazz() );
+            assertEquals( 9, store.entries() );
+            assertEquals( 1, store.getHits() );
+
+            cache.free( "key4" );
+            assertNull( cache.retrieve( "key4" ) );
+            assertEquals( 8, store.entries() );
+
+            cache.put( "key5", "overwritten" );
+            assertEquals( 7, store.entries() );
+            assertEquals( "overwritten", cache.retrieve( "key5" ) );
+        }
+        finally
+        {
+            close( cache );
+        }
+        assertEquals( 0, directory.listFiles().length );
+    }
+
+    @Test
+    public void entriesWhichDoNotFitGoToTheDisk()
+    {
+        final OverflowStore<String> store = new OverflowStore<String>( directory ).setPromoteOnHit( false );
+        final CacheService<String, String> cache = newCache( store );
+        try
+        {
+            final byte[] big = new byte[Ram.Kb( 16 )];
+            int stored = 0;
+            for ( int i = 0; i < 10; i++ )
+            {
+                big[0] = (byte) i;
+                if ( cache.putByteArray( "key" + i, big, 60000 ) != null )
+                {
+                    stored++;
+                }
+            }
+            assertTrue( stored < 10 );
+            assertEquals( 10 - stored, store.entries() );
+
+            for ( int i = 0; i < 10; i++ )
+            {
+                final byte[] payload = cache.retrieveByteArray( "key" + i );
+                assertNotNull( payload );
+                assertEquals( i, payload[0] );
+            }
+            // not promoted
+            assertEquals( 10 - stored, store.entries() );
+        }
+        finally
+        {
+            close( cache );
+        }
+    }
+
+    @Test
+    public void expiredEntriesAreNotReadBack()
+        throws Exception
+    {
+        final OverflowStore<String> store = new OverflowStore<String>( directory );
+        store.write( "short", new byte[10], null, System.currentTimeMillis() + 100 );
+        store.write( "long", new byte[10], null, System.currentTimeMillis() + 60000 );
+        try
+        {
+            Thread.sleep( 200 );
+            assertNull( store.read( "short" ) );
+            assertFalse( store.contains( "short" ) );
+            assertNotNull( store.read( "long" ) );
+            assertEquals( 1, store.entries() );
+        }
+        finally
+        {
+            store.close();
+        }
+    }
+
+    @Test
+    public void oldestSegmentsAreDroppedBeyondTheCapacity()
+        throws IOException
+    {
+        final OverflowStore<String> store =
+            new OverflowStore<String>( directory ).setSegmentSize( Ram.Kb( 16 ) ).setCapacity( Ram.Kb( 64 ) );
+        try
+        {
+            for ( int i = 0; i < 100; i++ )
+            {
+                final byte[] payload = new byte[Ram.Kb( 1 )];
+                payload[0] = (byte) i;
+                assertTrue( store.write( "key" + i, payload, null, 0 ) );
+            }
+            assertTrue( store.size() <= Ram.Kb( 64 ) );
+            assertTrue( store.getDropped() > 0 );
+            assertEquals( 100, store.entries() + store.getDropped() );
+            assertNull( store.read( "key0" ) );
+
+            final OverflowEntry last = store.read( "key99" );
+            assertNotNull( last );
+            assertEquals( 99, last.getPayload()[0] );
+
+            // bigger than a segment
+            assertFalse( store.write( "huge", new byte[Ram.Kb( 32 )], null, 0 ) );
+        }
+        finally
+        {
+            store.close();
+        }
+    }
+
+    @Test
+    public void capacityLowerThanASegmentIsEnforced()
+        throws IOException
+    {
+        final OverflowStore<String> store =
+            new OverflowStore<String>( directory ).setSegmentSize( Ram.Kb( 16 ) ).setCapacity( Ram.Kb( 4 ) );
+        try
+        {
+            for ( int i = 0; i < 100; i++ )
+            {
+                final byte[] payload = new byte[Ram.Kb( 1 )];
+                payload[0] = (byte) i;
+                assertTrue( store.write( "key" + i, payload, null, 0 ) );
+                assertTrue( store.size() <= Ram.Kb( 4 ) );
+            }
+            assertEquals( 100, store.entries() + store.getDropped() );
+            assertEquals( 99, store.read( "key99" ).getPayload()[0] );
+        }
+        finally
+        {
+            store.close();
+        }
+    }
+
+    @Test
+    public void payloadsBiggerThanTheWriteBufferAreReadBack()
+        throws IOException
+    {
+        final OverflowStore<String> store = new OverflowStore<String>( directory );
+        try
+        {
+            final byte[] payload = new byte[Ram.Mb( 2 )];
+            payload[payload.length - 1] = 42;
+            assertTrue( store.write( "small", new byte[] { 1 }, String.class, 0 ) );
+            assertTrue( store.write( "big", payload, null, 0 ) );
+            assertTrue( store.write( "small again", new byte[] { 2 }, null, 0 ) );
+
+            assertArrayEquals( payload, store.read( "big" ).getPayload() );
+            assertArrayEquals( new byte[] { 1 }, store.read( "small" ).getPayload() );
+            assertEquals( String.class, store.read( "small" ).getClazz() );
+            assertArrayEquals( new byte[] { 2 }, store.read( "small again" ).getPayload() );
+        }
+        finally
+        {
+            store.close();
+        }
+    }
+
+    private static void close( CacheService<?, ?> cache )
+    {
+        try
+        {
+            cache.close();
+        }
+        catch ( IOException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+package org.apache.directmemory.cache.primitive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.memory.Pointer;
+import org.apache.directmemory.memory.PointerImpl;
+import org.junit.Test;
+
+public class LongKeyCacheServiceTest
+{
+
+    private static DirectMemory<Long, String> directMemory()
+    {
+        return new DirectMemory<Long, String>().setNumberOfBuffers( 2 ).setSize( Ram.Mb( 4 ) );
+    }
+
+    @Test
+    public void valuesAreStoredByPrimitiveKey()
+        throws IOException
+    {
+        final LongKeyCacheService<String> cache = directMemory().newLongKeyCacheService();
+        try
+        {
+            for ( long key = -1000; key < 1000; key++ )
+            {
+                assertNotNull( cache.put( key * 1000000007L, "value" + key ) );
+            }
+            assertEquals( 2000, cache.entries() );
+            for ( long key = -1000; key < 1000; key++ )
+            {
+                assertEquals( "value" + key, cache.retrieve( key * 1000000007L ) );
+            }
+            assertNull( cache.retrieve( 1 ) );
+
+            cache.put( 0, "overwritten" );
+            assertEquals( "overwritten", cache.retrieve( 0 ) );
+            assertEquals( String.class, cache.getPointer( 0 ).getClazz() );
+            assertEquals( 2000, cache.entries() );
+
+            cache.putByteArray( Long.MAX_VALUE, new byte[] { 1, 2, 3 } );
+            assertArrayEquals( new byte[] { 1, 2, 3 }, cache.retrieveByteArray( Long.MAX_VALUE ) );
+
+            cache.free( 0 );
+            assertNull( cache.retrieve( 0 ) );
+            assertEquals( 2000, cache.entries() );
+
+            assertEquals( 2004, cache.getStatistics().getHits() + cache.getStatistics().getMisses() );
+
+            cache.clear();
+            assertEquals( 0, cache.entries() );
+            assertEquals( 0, cache.getMemoryManager().used() );
+        }
+        finally
+        {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void expiredAndCollectedEntriesAreRemoved()
+        throws Exception
+    {
+        final IntKeyCacheService<String> cache = directMemory().newIntKeyCacheService();
+        try
+        {
+            cache.put( 1, "short", 100 );
+            cache.put( 2, "long", 60000 );
+            cache.put( 3, "expired meanwhile", 100 );
+            Thread.sleep( 200 );
+
+            assertNull( cache.retrieve( 1 ) );
+            assertEquals( "long", cache.retrieve( 2 ) );
+            assertEquals( 2, cache.entries() );
+            assertEquals( 1, cache.getStatistics().getExpirations() );
+
+            cache.collectExpired();
+            assertEquals( 1, cache.entries() );
+            assertNull( cache.getPointer( 3 ) );
+        }
+        finally
+        {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void indexMatchesAMap()
+    {
+        final LongPointerIndex<String> index = new LongPointerIndex<String>( 4, 0 );
+        final Map<Long, Pointer<String>> expected = new HashMap<Long, Pointer<String>>();
+        final Random random = new Random( 42 );
+        for ( int i = 0; i < 200000; i++ )
+        {
+            // few keys, so that the removals shift back colliding entries
+            final long key = random.nextInt( 5000 ) * 4096L;
+            switch ( random.nextInt( 3 ) )
+            {
+                case 0:
+                    final Pointer<String> pointer = new PointerImpl<String>( null, 0 );
+                    pointer.setFree( false );
+                    assertEquals( expected.put( key, pointer ), index.put( key, pointer ) );
+                    break;
+                case 1:
+                    assertEquals( expected.remove( key ), index.remove( key ) );
+                    break;
+                default:
+                    assertEquals( expected.get( key ), index.get( key ) );
+            }
+        }
+        assertEquals( expected.size(), index.size() );
+
+        final List<Long> freed = new ArrayList<Long>();
+        for ( Map.Entry<Long, Pointer<String>> entry : expected.entrySet() )
+        {
+            if ( random.nextBoolean() )
+            {
+                entry.getValue().setFree( true );
+                freed.add( entry.getKey() );
+            }
+        }
+        assertEquals( freed.size(), index.removeFreed() );
+        for ( Map.Entry<Long, Pointer<String>> entry : expected.entrySet() )
+        {
+            assertEquals( entry.getValue().isFree() ? null : entry.getValue(), index.get( entry.getKey() ) );
+        }
+    }
+
+    @Test
+    public void concurrentWritersAndReaders()
+        throws Exception
+    {
+        final LongKeyCacheService<String> cache = directMemory().setConcurrencyLevel( 8 ).newLongKeyCacheService();
+        try
+        {
+            final AtomicInteger errors = new AtomicInteger();
+            final List<Thread> threads = new ArrayList<Thread>();
+            for ( int t = 0; t < 8; t++ )
+            {
+                final int first = t;
+                threads.add( new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        for ( long key = first; key < 20000; key += 8 )
+                        {
+                            cache.put( key, "value" + key );
+                            if ( !( "value" + key ).equals( cache.retrieve( key ) ) )
+                            {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                } );
+            }
+            for ( Thread thread : threads )
+            {
+                thread.start();
+            }
+            for ( Thread thread : threads )
+            {
+                thread.join();
+            }
+            assertEquals( 0, errors.get() );
+            assertEquals( 20000, cache.entries() );
+            assertTrue( cache.getMemoryManager().used() > 0 );
+        }
+        finally
+        {
+            cache.close();
+        }
+    }
+
+}
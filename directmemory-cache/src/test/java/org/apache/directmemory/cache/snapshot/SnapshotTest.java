@@ -0,0 +1,308 @@
+package org.apache.directmemory.cache.snapshot;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.memory.Pointer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SnapshotTest
+{
+
+    private File file;
+
+    @Before
+    public void createFile()
+        throws IOException
+    {
+        file = File.createTempFile( "directmemory", ".snapshot" );
+        file.delete();
+    }
+
+    @After
+    public void deleteFile()
+    {
+        file.delete();
+        new File( file.getPath() + ".tmp" ).delete();
+    }
+
+    private static CacheService<String, String> newCache( int size )
+    {
+        return new DirectMemory<String, String>().setNumberOfBuffers( 2 ).setSize( size ).newCacheService();
+    }
+
+    private CacheService<String, String> restart( int size )
+    {
+        return new DirectMemory<String, String>().setNumberOfBuffers( 2 ).setSize( size ).setSnapshot( file )
+            .newCacheService();
+    }
+
+    @Test
+    public void entriesSurviveARestart()
+        throws IOException
+    {
+        final CacheService<String, String> cache = newCache( Ram.Mb( 1 ) );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            assertNotNull( cache.put( "key" + i, "value" + i ) );
+        }
+        final byte[] payload = { 1, 2, 3 };
+        assertNotNull( cache.putByteArray( "raw", payload, 60000 ) );
+
+        assertEquals( 1001, new SnapshotWriter<String, String>( cache ).write( file ) );
+        cache.close();
+        assertFalse( new File( file.getPath() + ".tmp" ).exists() );
+
+        final CacheService<String, String> restarted = restart( Ram.Mb( 1 ) );
+        try
+        {
+            assertEquals( 1001, restarted.entries() );
+            for ( int i = 0; i < 1000; i++ )
+            {
+                assertEquals( "value" + i, restarted.retrieve( "key" + i ) );
+                assertEquals( String.class, restarted.getPointer( "key" + i ).getClazz() );
+            }
+
+            assertArrayEquals( payload, restarted.retrieveByteArray( "raw" ) );
+            final Pointer<String> raw = restarted.getPointer( "raw" );
+            assertNull( raw.getClazz() );
+            // the entry keeps the time to live left at the snapshot
+            assertTrue( raw.getExpiresIn() > 0 && raw.getExpiresIn() <= 60000 );
+            assertEquals( 0, restarted.getPointer( "key0" ).getExpiresIn() );
+        }
+        finally
+        {
+            restarted.close();
+        }
+    }
+
+    @Test
+    public void expiredEntriesAreNotLoaded()
+        throws Exception
+    {
+        final CacheService<String, String> cache = newCache( Ram.Mb( 1 ) );
+        assertNotNull( cache.putByteArray( "short", new byte[10], 200 ) );
+        assertNotNull( cache.putByteArray( "long", new byte[10], 60000 ) );
+        assertEquals( 2, new SnapshotWriter<String, String>( cache ).write( file ) );
+        cache.close();
+
+        Thread.sleep( 300 );
+
+        final CacheService<String, String> restarted = newCache( Ram.Mb( 1 ) );
+        try
+        {
+            final SnapshotLoader<String, String> loader = new SnapshotLoader<String, String>( restarted );
+            assertEquals( 1, loader.load( file ) );
+            assertEquals( 1, loader.getExpired() );
+            assertNull( restarted.getPointer( "short" ) );
+            assertNotNull( restarted.retrieveByteArray( "long" ) );
+        }
+        finally
+        {
+            restarted.close();
+        }
+    }
+
+    @Test
+    public void recordsBiggerThanAChunkAreLoadedInParallel()
+        throws IOException
+    {
+        final CacheService<String, String> cache = newCache( Ram.Mb( 1 ) );
+        for ( int i = 0; i < 500; i++ )
+        {
+            assertNotNull( cache.putByteArray( "key" + i, payload( i, i % 10 == 0 ? 1000 : 10 ) ) );
+        }
+        assertEquals( 500, new SnapshotWriter<String, String>( cache, SnapshotWriter.MIN_CHUNK_SIZE ).write( file ) );
+        cache.close();
+
+        final CacheService<String, String> restarted = newCache( Ram.Mb( 1 ) );
+        try
+        {
+            assertEquals( 500, new SnapshotLoader<String, String>( restarted, 4 ).load( file ) );
+            for ( int i = 0; i < 500; i++ )
+            {
+                assertArrayEquals( payload( i, i % 10 == 0 ? 1000 : 10 ), restarted.retrieveByteArray( "key" + i ) );
+            }
+        }
+        finally
+        {
+            restarted.close();
+        }
+    }
+
+    @Test
+    public void entriesWhichDoNotFitAreDropped()
+        throws IOException
+    {
+        final CacheService<String, String> cache = newCache( Ram.Mb( 1 ) );
+        for ( int i = 0; i < 100; i++ )
+        {
+            assertNotNull( cache.putByteArray( "key" + i, new byte[Ram.Kb( 10 )] ) );
+        }
+        new SnapshotWriter<String, String>( cache ).write( file );
+        cache.close();
+
+        final CacheService<String, String> restarted = newCache( Ram.Kb( 256 ) );
+        try
+        {
+            final SnapshotLoader<String, String> loader = new SnapshotLoader<String, String>( restarted );
+            final long loaded = loader.load( file );
+            assertTrue( loaded > 0 && loaded < 100 );
+            assertEquals( 100, loaded + loader.getDropped() );
+        }
+        finally
+        {
+            restarted.close();
+        }
+    }
+
+    @Test
+    public void snapshotDoesNotStopTheWriters()
+        throws Exception
+    {
+        final CacheService<String, String> cache = newCache( Ram.Mb( 4 ) );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            cache.put( "key" + i, "key" + i + "-0" );
+        }
+
+        final AtomicBoolean running = new AtomicBoolean( true );
+        final Thread writer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                for ( int round = 1; running.get(); round++ )
+                {
+                    for ( int i = 0; i < 1000; i++ )
+                    {
+                        cache.put( "key" + i, "key" + i + "-" + round );
+                    }
+                }
+            }
+        };
+        writer.start();
+        try
+        {
+            for ( int i = 0; i < 5; i++ )
+            {
+                new SnapshotWriter<String, String>( cache ).write( file );
+            }
+        }
+        finally
+        {
+            running.set( false );
+            writer.join();
+            cache.close();
+        }
+
+        final CacheService<String, String> restarted = restart( Ram.Mb( 4 ) );
+        try
+        {
+            assertTrue( restarted.entries() > 0 );
+            for ( String key : restarted.getMap().keySet() )
+            {
+                // every entry is whole, whatever the round it was copied at
+                assertTrue( restarted.retrieve( key ).startsWith( key + "-" ) );
+            }
+        }
+        finally
+        {
+            restarted.close();
+        }
+    }
+
+    @Test
+    public void truncatedSnapshotsAreRejected()
+        throws IOException
+    {
+        final CacheService<String, String> cache = newCache( Ram.Mb( 1 ) );
+        for ( int i = 0; i < 100; i++ )
+        {
+            cache.put( "key" + i, "value" + i );
+        }
+        new SnapshotWriter<String, String>( cache ).write( file );
+        cache.close();
+
+        final RandomAccessFile truncated = new RandomAccessFile( file, "rw" );
+        try
+        {
+            truncated.setLength( truncated.length() - 4 );
+        }
+        finally
+        {
+            truncated.close();
+        }
+
+        final CacheService<String, String> empty = newCache( Ram.Mb( 1 ) );
+        try
+        {
+            new SnapshotLoader<String, String>( empty ).load( file );
+            fail( "a truncated snapshot must not load" );
+        }
+        catch ( IOException e )
+        {
+            // expected
+        }
+        finally
+        {
+            empty.close();
+        }
+
+        // the builder falls back to a cold start
+        final CacheService<String, String> restarted = restart( Ram.Mb( 1 ) );
+        try
+        {
+            assertEquals( 0, restarted.entries() );
+        }
+        finally
+        {
+            restarted.close();
+        }
+    }
+
+    private static byte[] payload( int seed, int size )
+    {
+        final byte[] payload = new byte[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            payload[i] = (byte) ( seed + i );
+        }
+        return payload;
+    }
+
+}
@@ -0,0 +1,112 @@
+package org.apache.directmemory.cache.trace;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TraceWriterTest
+{
+
+    @Test
+    public void roundTrip()
+        throws IOException
+    {
+        final long before = System.currentTimeMillis();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final TraceWriter writer = new TraceWriter( bytes );
+
+        // enough records to flush the buffer several times
+        final int count = 50000;
+        for ( int i = 0; i < count; i++ )
+        {
+            writer.record( TraceOperation.values()[i % 3], i * 31 - 7, i % 5000, i % 2 == 0 ? 0 : 60000L * i );
+        }
+        assertEquals( count, writer.getRecords() );
+        writer.close();
+
+        // 13 bytes of header, then less than 15 bytes per record
+        assertTrue( bytes.size() < 13 + 15 * count );
+
+        final TraceReader reader = new TraceReader( new ByteArrayInputStream( bytes.toByteArray() ) );
+        assertTrue( reader.getStartTime() >= before && reader.getStartTime() <= System.currentTimeMillis() );
+
+        final TraceRecord record = new TraceRecord();
+        long previous = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            assertTrue( reader.next( record ) );
+            assertEquals( TraceOperation.values()[i % 3], record.getOperation() );
+            assertEquals( i * 31 - 7, record.getKeyHash() );
+            assertEquals( i % 5000, record.getValueSize() );
+            assertEquals( i % 2 == 0 ? 0 : 60000L * i, record.getExpiresIn() );
+            assertTrue( record.getTimestamp() >= previous );
+            previous = record.getTimestamp();
+        }
+        assertFalse( reader.next( record ) );
+        reader.close();
+    }
+
+    @Test
+    public void recordsAfterCloseAreDropped()
+        throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final TraceWriter writer = new TraceWriter( bytes );
+        writer.record( TraceOperation.PUT, 1, 1, 0 );
+        writer.close();
+        writer.record( TraceOperation.GET, 1, 1, 0 );
+
+        final TraceReader reader = new TraceReader( new ByteArrayInputStream( bytes.toByteArray() ) );
+        final TraceRecord record = new TraceRecord();
+        assertTrue( reader.next( record ) );
+        assertFalse( reader.next( record ) );
+    }
+
+    @Test( expected = IOException.class )
+    public void notATrace()
+        throws IOException
+    {
+        new TraceReader( new ByteArrayInputStream( "not a trace at all".getBytes( "UTF-8" ) ) );
+    }
+
+    @Test( expected = EOFException.class )
+    public void truncatedRecord()
+        throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final TraceWriter writer = new TraceWriter( bytes );
+        writer.record( TraceOperation.PUT, 1, 100000, 0 );
+        writer.close();
+
+        final byte[] truncated = Arrays.copyOf( bytes.toByteArray(), bytes.size() - 2 );
+        new TraceReader( new ByteArrayInputStream( truncated ) ).next( new TraceRecord() );
+    }
+
+}
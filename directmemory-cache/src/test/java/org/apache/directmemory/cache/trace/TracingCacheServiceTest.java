@@ -0,0 +1,95 @@
+package org.apache.directmemory.cache.trace;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.measures.Ram;
+import org.junit.Test;
+
+public class TracingCacheServiceTest
+{
+
+    @Test
+    public void operationsAreRecorded()
+        throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final CacheService<String, String> cache =
+            new DirectMemory<String, String>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 1 ) )
+                .setTraceWriter( new TraceWriter( bytes ) ).newCacheService();
+        assertTrue( cache instanceof TracingCacheService );
+
+        assertNotNull( cache.putByteArray( "a", new byte[100], 5000 ) );
+        assertNotNull( cache.retrieveByteArray( "a" ) );
+        assertNull( cache.retrieveByteArray( "b" ) );
+        assertNotNull( cache.put( "c", "value of c" ) );
+        assertEquals( "value of c", cache.retrieve( "c" ) );
+        cache.free( "a" );
+        cache.close();
+
+        final TraceReader reader = new TraceReader( new ByteArrayInputStream( bytes.toByteArray() ) );
+        final TraceRecord record = new TraceRecord();
+
+        assertTrue( reader.next( record ) );
+        assertEquals( TraceOperation.PUT, record.getOperation() );
+        assertEquals( "a".hashCode(), record.getKeyHash() );
+        assertEquals( 100, record.getValueSize() );
+        assertEquals( 5000, record.getExpiresIn() );
+
+        assertTrue( reader.next( record ) );
+        assertEquals( TraceOperation.GET, record.getOperation() );
+        assertEquals( "a".hashCode(), record.getKeyHash() );
+        assertEquals( 100, record.getValueSize() );
+
+        assertTrue( reader.next( record ) );
+        assertEquals( TraceOperation.GET, record.getOperation() );
+        assertEquals( "b".hashCode(), record.getKeyHash() );
+        assertEquals( 0, record.getValueSize() );
+
+        assertTrue( reader.next( record ) );
+        assertEquals( TraceOperation.PUT, record.getOperation() );
+        assertEquals( "c".hashCode(), record.getKeyHash() );
+        final int serializedSize = record.getValueSize();
+        assertTrue( serializedSize > 0 );
+        assertEquals( 0, record.getExpiresIn() );
+
+        assertTrue( reader.next( record ) );
+        assertEquals( TraceOperation.GET, record.getOperation() );
+        assertEquals( serializedSize, record.getValueSize() );
+
+        assertTrue( reader.next( record ) );
+        assertEquals( TraceOperation.FREE, record.getOperation() );
+        assertEquals( "a".hashCode(), record.getKeyHash() );
+
+        assertFalse( reader.next( record ) );
+    }
+
+}
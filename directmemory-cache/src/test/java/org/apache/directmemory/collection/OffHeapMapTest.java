@@ -0,0 +1,267 @@
+package org.apache.directmemory.collection;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.apache.directmemory.memory.allocator.LazyUnsafeAllocator;
+import org.apache.directmemory.memory.allocator.MergingByteBufferAllocator;
+import org.apache.directmemory.serialization.StandardSerializer;
+import org.junit.Test;
+
+public class OffHeapMapTest
+{
+
+    private static OffHeapMap<String, Long> newMap( Allocator allocator )
+    {
+        return new OffHeapMap<String, Long>( String.class, Long.class, new StandardSerializer(), allocator, 4, 0 );
+    }
+
+    @Test
+    public void behavesLikeAConcurrentMap()
+        throws IOException
+    {
+        final OffHeapMap<String, Long> map = new OffHeapMap<String, Long>( String.class, Long.class, Ram.Mb( 1 ) );
+        try
+        {
+            assertTrue( map.isEmpty() );
+            assertNull( map.put( "a", 1L ) );
+            assertEquals( Long.valueOf( 1 ), map.put( "a", 2L ) );
+            assertEquals( Long.valueOf( 2 ), map.get( "a" ) );
+            assertTrue( map.containsKey( "a" ) );
+            assertFalse( map.containsKey( 42 ) );
+            assertNull( map.get( "b" ) );
+
+            assertEquals( Long.valueOf( 2 ), map.putIfAbsent( "a", 3L ) );
+            assertNull( map.putIfAbsent( "b", 3L ) );
+            assertFalse( map.replace( "a", 1L, 4L ) );
+            assertTrue( map.replace( "a", 2L, 4L ) );
+            assertEquals( Long.valueOf( 4 ), map.replace( "a", 5L ) );
+            assertNull( map.replace( "c", 5L ) );
+            assertFalse( map.remove( "a", 4L ) );
+            assertTrue( map.remove( "a", 5L ) );
+            assertEquals( Long.valueOf( 3 ), map.remove( "b" ) );
+            assertTrue( map.isEmpty() );
+            assertEquals( 0, map.sizeInBytes() );
+        }
+        finally
+        {
+            map.close();
+        }
+    }
+
+    @Test
+    public void segmentsGrowAndIterate()
+        throws IOException
+    {
+        final Allocator allocator = new LazyUnsafeAllocator( 1, Ram.Mb( 8 ) );
+        final OffHeapMap<String, Long> map = newMap( allocator );
+        try
+        {
+            final Map<String, Long> expected = new HashMap<String, Long>();
+            for ( long i = 0; i < 10000; i++ )
+            {
+                map.put( "key" + i, i );
+                expected.put( "key" + i, i );
+            }
+            for ( long i = 0; i < 10000; i += 2 )
+            {
+                map.remove( "key" + i );
+                expected.remove( "key" + i );
+            }
+            assertEquals( 5000, map.size() );
+            assertEquals( expected, map );
+            assertEquals( expected, new HashMap<String, Long>( map ) );
+
+            for ( Iterator<Map.Entry<String, Long>> iterator = map.entrySet().iterator(); iterator.hasNext(); )
+            {
+                final Map.Entry<String, Long> entry = iterator.next();
+                if ( entry.getValue() % 3 == 0 )
+                {
+                    iterator.remove();
+                }
+                else
+                {
+                    entry.setValue( -entry.getValue() );
+                }
+            }
+            assertEquals( Long.valueOf( -1 ), map.get( "key1" ) );
+            assertNull( map.get( "key3" ) );
+            assertEquals( 3333, map.size() );
+        }
+        finally
+        {
+            map.close();
+        }
+        assertEquals( Ram.Mb( 8 ), allocator.getFreeCapacity() );
+    }
+
+    @Test
+    public void entriesAreStoredInAnyAllocator()
+        throws IOException
+    {
+        final Allocator allocator = new MergingByteBufferAllocator( 0, Ram.Mb( 1 ) );
+        final OffHeapMap<String, Long> map = newMap( allocator );
+        try
+        {
+            for ( long i = 0; i < 100; i++ )
+            {
+                map.put( "key" + i, i );
+            }
+            for ( Map.Entry<String, Long> entry : map.entrySet() )
+            {
+                assertEquals( entry.getKey(), "key" + entry.getValue() );
+            }
+            assertEquals( Long.valueOf( 42 ), map.get( "key42" ) );
+        }
+        finally
+        {
+            map.close();
+            allocator.close();
+        }
+    }
+
+    @Test
+    public void concurrentWritersDoNotLoseEntries()
+        throws Exception
+    {
+        final OffHeapMap<String, Long> map = new OffHeapMap<String, Long>( String.class, Long.class, Ram.Mb( 8 ) );
+        try
+        {
+            final List<Thread> writers = new ArrayList<Thread>();
+            for ( int t = 0; t < 8; t++ )
+            {
+                final int first = t;
+                writers.add( new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        for ( long i = first; i < 20000; i += 8 )
+                        {
+                            map.put( "key" + i, i );
+                            if ( i % 5 == 0 )
+                            {
+                                map.remove( "key" + i );
+                            }
+                        }
+                    }
+                } );
+            }
+            for ( Thread writer : writers )
+            {
+                writer.start();
+            }
+            for ( Thread writer : writers )
+            {
+                writer.join();
+            }
+
+            assertEquals( 16000, map.size() );
+            for ( long i = 0; i < 20000; i++ )
+            {
+                assertEquals( i % 5 == 0 ? null : Long.valueOf( i ), map.get( "key" + i ) );
+            }
+        }
+        finally
+        {
+            map.close();
+        }
+    }
+
+    @Test
+    public void pagesOfRemovedEntriesAreReturned()
+        throws IOException
+    {
+        final Allocator allocator = new LazyUnsafeAllocator( 1, Ram.Mb( 8 ) );
+        final OffHeapMap<String, Long> map = newMap( allocator );
+        try
+        {
+            for ( long i = 0; i < 10000; i++ )
+            {
+                map.put( "key" + i, i );
+            }
+            final long full = map.sizeInBytes();
+            for ( long i = 0; i < 10000; i++ )
+            {
+                if ( i % 100 != 0 )
+                {
+                    map.remove( "key" + i );
+                }
+            }
+            // the entries left are moved out of the pages mostly emptied
+            assertTrue( map.sizeInBytes() < full / 10 );
+            assertEquals( Ram.Mb( 8 ) - map.sizeInBytes(), allocator.getFreeCapacity() );
+            assertEquals( 100, map.size() );
+            for ( long i = 0; i < 10000; i += 100 )
+            {
+                assertEquals( Long.valueOf( i ), map.get( "key" + i ) );
+            }
+        }
+        finally
+        {
+            map.close();
+        }
+        assertEquals( Ram.Mb( 8 ), allocator.getFreeCapacity() );
+    }
+
+    @Test
+    public void putsWhichDoNotFitAreRejected()
+        throws IOException
+    {
+        final Allocator allocator = new LazyUnsafeAllocator( 1, Ram.Kb( 4 ) );
+        final OffHeapMap<String, Long> map = newMap( allocator );
+        try
+        {
+            map.put( "small", 1L );
+            try
+            {
+                map.put( new String( new char[Ram.Kb( 8 )] ), 2L );
+                fail();
+            }
+            catch ( BufferOverflowException e )
+            {
+                // expected
+            }
+            assertEquals( 1, map.size() );
+            assertEquals( Long.valueOf( 1 ), map.get( "small" ) );
+        }
+        finally
+        {
+            map.close();
+            allocator.close();
+        }
+    }
+
+}
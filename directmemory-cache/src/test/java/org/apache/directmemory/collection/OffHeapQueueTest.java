@@ -0,0 +1,206 @@
+package org.apache.directmemory.collection;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.apache.directmemory.memory.allocator.MergingByteBufferAllocator;
+import org.junit.Test;
+
+public class OffHeapQueueTest
+{
+
+    private static byte[] record( int i )
+    {
+        final byte[] record = new byte[i % 300];
+        Arrays.fill( record, (byte) i );
+        return record;
+    }
+
+    @Test
+    public void recordsComeOutInOrderAcrossTheWraps()
+        throws IOException
+    {
+        final Allocator allocator = new MergingByteBufferAllocator( 0, Ram.Kb( 4 ) );
+        final OffHeapQueue queue = new OffHeapQueue( allocator, Ram.Kb( 1 ), false );
+        try
+        {
+            assertNull( queue.poll() );
+            int next = 0;
+            for ( int i = 0; i < 1000; i++ )
+            {
+                assertTrue( queue.offer( record( i ) ) );
+                if ( i % 3 == 2 )
+                {
+                    // keeps two records in the queue
+                    assertArrayEquals( record( next ), queue.poll() );
+                    next++;
+                }
+                while ( queue.usedBytes() > Ram.Kb( 1 ) / 2 )
+                {
+                    assertArrayEquals( record( next ), queue.poll() );
+                    next++;
+                }
+            }
+            while ( !queue.isEmpty() )
+            {
+                assertArrayEquals( record( next ), queue.poll() );
+                next++;
+            }
+            assertEquals( 1000, next );
+            assertEquals( 0, queue.usedBytes() );
+        }
+        finally
+        {
+            queue.close();
+            allocator.close();
+        }
+    }
+
+    @Test
+    public void fullQueuesRefuseRecords()
+        throws IOException
+    {
+        final OffHeapQueue queue = new OffHeapQueue( 256 );
+        try
+        {
+            try
+            {
+                queue.offer( new byte[queue.maxRecordSize() + 1] );
+                fail();
+            }
+            catch ( IllegalArgumentException e )
+            {
+                // expected
+            }
+
+            final List<byte[]> batch = new ArrayList<byte[]>();
+            for ( int i = 0; i < 30; i++ )
+            {
+                batch.add( new byte[] { (byte) i, 1, 2, 3, 4, 5, 6, 7 } );
+            }
+            // 10 bytes per record
+            assertEquals( 25, queue.offer( batch ) );
+            assertFalse( queue.offer( new byte[5] ) );
+            assertEquals( 6, queue.getRefused() );
+
+            final List<byte[]> drained = new ArrayList<byte[]>();
+            assertEquals( 20, queue.drainTo( drained, 20 ) );
+            assertEquals( 5, queue.drainTo( drained, 20 ) );
+            for ( int i = 0; i < 25; i++ )
+            {
+                assertEquals( i, drained.get( i )[0] );
+            }
+            assertTrue( queue.offer( new byte[queue.maxRecordSize()] ) );
+        }
+        finally
+        {
+            queue.close();
+        }
+    }
+
+    @Test
+    public void producersAndConsumersRunConcurrently()
+        throws Exception
+    {
+        final OffHeapQueue queue = new OffHeapQueue( Ram.Kb( 16 ) );
+        final int producerCount = 4;
+        final int perProducer = 20000;
+        final AtomicInteger failures = new AtomicInteger();
+        try
+        {
+            final List<Thread> producers = new ArrayList<Thread>();
+            for ( int t = 0; t < producerCount; t++ )
+            {
+                final int producer = t;
+                producers.add( new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        for ( int i = 0; i < perProducer; i++ )
+                        {
+                            final byte[] record = new byte[4 + i % 50];
+                            record[0] = (byte) producer;
+                            record[1] = (byte) ( i >> 16 );
+                            record[2] = (byte) ( i >> 8 );
+                            record[3] = (byte) i;
+                            while ( !queue.offer( record ) )
+                            {
+                                Thread.yield();
+                            }
+                        }
+                    }
+                } );
+            }
+            for ( Thread producer : producers )
+            {
+                producer.start();
+            }
+
+            // the records of every producer come out in their order
+            final int[] expected = new int[producerCount];
+            final List<byte[]> records = new ArrayList<byte[]>();
+            int consumed = 0;
+            while ( consumed < producerCount * perProducer )
+            {
+                records.clear();
+                if ( queue.drainTo( records, 64 ) == 0 )
+                {
+                    Thread.yield();
+                }
+                for ( byte[] record : records )
+                {
+                    final int i = ( ( record[1] & 0xFF ) << 16 ) | ( ( record[2] & 0xFF ) << 8 ) | ( record[3] & 0xFF );
+                    if ( i != expected[record[0]]++ || record.length != 4 + i % 50 )
+                    {
+                        failures.incrementAndGet();
+                    }
+                    consumed++;
+                }
+            }
+            for ( Thread producer : producers )
+            {
+                producer.join();
+            }
+            assertEquals( 0, failures.get() );
+            assertTrue( queue.isEmpty() );
+            assertEquals( producerCount * perProducer, queue.getOffered() );
+        }
+        finally
+        {
+            queue.close();
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+package org.apache.directmemory.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CodecTest
+{
+
+    private static final List<Codec> CODECS = Arrays.<Codec> asList( new LzfCodec(), new DeflateCodec( 1 ),
+                                                                     new DeflateCodec(), new DeflateCodec( 9 ) );
+
+    private static byte[] repetitive( int length )
+    {
+        final StringBuilder builder = new StringBuilder();
+        for ( int i = 0; builder.length() < length; i++ )
+        {
+            builder.append( "{\"id\":" ).append( i ).append( ",\"name\":\"customer" ).append( i % 17 )
+                .append( "\",\"active\":true}," );
+        }
+        return builder.substring( 0, length ).getBytes();
+    }
+
+    private static byte[] random( int length )
+    {
+        final byte[] data = new byte[length];
+        new Random( 42 ).nextBytes( data );
+        return data;
+    }
+
+    private static byte[] roundTrip( Codec codec, byte[] data )
+        throws IOException
+    {
+        final byte[] compressed = new byte[7 + data.length * 2 + 64];
+        final int length = codec.compress( data, compressed, 7, compressed.length - 7 );
+        assertTrue( codec + " gave up", length >= 0 );
+
+        final byte[] decompressed = new byte[data.length];
+        codec.decompress( compressed, 7, length, decompressed );
+        return decompressed;
+    }
+
+    @Test
+    public void repetitiveDataIsCompressed()
+        throws IOException
+    {
+        for ( Codec codec : CODECS )
+        {
+            for ( int length : new int[] { 1, 2, 3, 100, 4096, 100000 } )
+            {
+                final byte[] data = repetitive( length );
+                assertArrayEquals( codec + " " + length, data, roundTrip( codec, data ) );
+            }
+
+            final byte[] data = repetitive( 4096 );
+            final byte[] compressed = new byte[data.length];
+            assertTrue( codec.toString(), codec.compress( data, compressed, 0, data.length ) < data.length / 3 );
+        }
+    }
+
+    @Test
+    public void randomDataIsPreserved()
+        throws IOException
+    {
+        for ( Codec codec : CODECS )
+        {
+            for ( int length : new int[] { 1, 31, 32, 33, 1000, 100000 } )
+            {
+                final byte[] data = random( length );
+                assertArrayEquals( codec + " " + length, data, roundTrip( codec, data ) );
+            }
+        }
+    }
+
+    @Test
+    public void emptyDataIsPreserved()
+        throws IOException
+    {
+        for ( Codec codec : CODECS )
+        {
+            assertEquals( 0, roundTrip( codec, new byte[0] ).length );
+        }
+    }
+
+    @Test
+    public void compressionGivesUpBeyondTheMaxLength()
+    {
+        final byte[] data = random( 1000 );
+        for ( Codec codec : CODECS )
+        {
+            final byte[] compressed = new byte[data.length];
+            assertEquals( codec.toString(), -1, codec.compress( data, compressed, 0, data.length - 1 ) );
+        }
+    }
+
+    @Test
+    public void corruptedDataIsRejected()
+    {
+        final byte[] data = repetitive( 4096 );
+        for ( Codec codec : CODECS )
+        {
+            final byte[] compressed = new byte[data.length];
+            final int length = codec.compress( data, compressed, 0, data.length );
+            // truncated
+            try
+            {
+                codec.decompress( compressed, 0, length / 2, new byte[data.length] );
+                fail( codec.toString() );
+            }
+            catch ( IOException e )
+            {
+                // expected
+            }
+            // bigger than announced
+            try
+            {
+                codec.decompress( compressed, 0, length, new byte[data.length / 2] );
+                fail( codec.toString() );
+            }
+            catch ( IOException e )
+            {
+                // expected
+            }
+        }
+    }
+
+}
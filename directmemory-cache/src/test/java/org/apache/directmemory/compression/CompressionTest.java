@@ -0,0 +1,207 @@
+package org.apache.directmemory.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.cache.snapshot.SnapshotWriter;
+import org.apache.directmemory.measures.Ram;
+import org.junit.Test;
+
+public class CompressionTest
+{
+
+    private static String text( int i )
+    {
+        final StringBuilder builder = new StringBuilder();
+        while ( builder.length() < 2000 )
+        {
+            builder.append( "entry " ).append( i ).append( " of the compressed cache, " );
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void onlyTheCompressiblePayloadsAboveTheThresholdAreCompressed()
+        throws IOException
+    {
+        final Compression compression = new Compression( new LzfCodec(), 100 );
+
+        final byte[] small = text( 1 ).substring( 0, 99 ).getBytes();
+        byte[] stored = compression.encode( small );
+        assertEquals( Compression.UNCOMPRESSED, stored[0] );
+        assertEquals( small.length + 1, stored.length );
+        assertArrayEquals( small, compression.decode( stored ) );
+
+        final byte[] random = new byte[1000];
+        new Random( 42 ).nextBytes( random );
+        stored = compression.encode( random );
+        assertEquals( Compression.UNCOMPRESSED, stored[0] );
+        assertArrayEquals( random, compression.decode( stored ) );
+
+        final byte[] large = text( 2 ).getBytes();
+        stored = compression.encode( large );
+        assertEquals( new LzfCodec().getId(), stored[0] );
+        assertTrue( stored.length < large.length / 2 );
+        assertArrayEquals( large, compression.decode( stored ) );
+
+        assertEquals( 1, compression.getCompressedEntries() );
+        assertEquals( 2, compression.getUncompressedEntries() );
+        assertEquals( small.length + random.length + large.length, compression.getPayloadBytes() );
+        assertTrue( compression.getRatio() > 1 );
+    }
+
+    @Test
+    public void entriesCompressedByAnotherCodecAreReadable()
+        throws IOException
+    {
+        final byte[] payload = text( 3 ).getBytes();
+        final byte[] stored = new Compression( new DeflateCodec( 9 ) ).encode( payload );
+        assertArrayEquals( payload, new Compression( new LzfCodec() ).decode( stored ) );
+
+        stored[0] = 42;
+        try
+        {
+            new Compression( new LzfCodec() ).decode( stored );
+            fail();
+        }
+        catch ( IOException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void cachedValuesAreCompressed()
+        throws IOException
+    {
+        final Compression compression = new Compression( new LzfCodec() );
+        final CacheService<String, String> plain =
+            new DirectMemory<String, String>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 2 ) ).newCacheService();
+        final CacheService<String, String> compressed =
+            new DirectMemory<String, String>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 2 ) )
+                .setCompression( compression ).newCacheService();
+        final File snapshot = File.createTempFile( "directmemory", ".snapshot" );
+        try
+        {
+            for ( int i = 0; i < 100; i++ )
+            {
+                plain.put( "key" + i, text( i ) );
+                compressed.put( "key" + i, text( i ) );
+            }
+            compressed.putByteArray( "raw", text( 100 ).getBytes() );
+
+            assertTrue( compressed.getMemoryManager().used() < plain.getMemoryManager().used() / 2 );
+            assertEquals( 101, compression.getCompressedEntries() );
+            for ( int i = 0; i < 100; i++ )
+            {
+                assertEquals( text( i ), compressed.retrieve( "key" + i ) );
+            }
+            assertArrayEquals( text( 100 ).getBytes(), compressed.retrieveByteArray( "raw" ) );
+            assertArrayEquals( text( 100 ).getBytes(),
+                               compressed.retrievePayload( compressed.getPointer( "raw" ) ) );
+
+            // the snapshots hold the uncompressed payloads
+            assertEquals( 101, new SnapshotWriter<String, String>( compressed ).write( snapshot ) );
+            final CacheService<String, String> restored =
+                new DirectMemory<String, String>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 2 ) )
+                    .setSnapshot( snapshot ).newCacheService();
+            try
+            {
+                assertEquals( 101, restored.entries() );
+                assertEquals( text( 42 ), restored.retrieve( "key42" ) );
+            }
+            finally
+            {
+                restored.close();
+            }
+        }
+        finally
+        {
+            snapshot.delete();
+            plain.close();
+            compressed.close();
+        }
+    }
+
+    @Test
+    public void allocatedEntriesAreReadAsWritten()
+        throws IOException
+    {
+        final File snapshot = File.createTempFile( "compressed", ".snapshot" );
+        final CacheService<String, Object> cache =
+            new DirectMemory<String, Object>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 1 ) )
+                .setCompression( new Compression( new DeflateCodec(), 0 ) ).newCacheService();
+        try
+        {
+            // a zeroed record reads as an uncompressed payload, the other one starts with the id of a codec
+            final byte[] zeroed = new byte[12];
+            final byte[] record = new byte[12];
+            record[0] = LzfCodec.ID;
+            record[11] = 42;
+            cache.allocate( "zeroed", Object.class, zeroed.length ).getMemoryBuffer().writeBytes( zeroed );
+            cache.allocate( "record", Object.class, record.length ).getMemoryBuffer().writeBytes( record );
+            cache.putByteArray( "compressed", text( 1 ).getBytes() );
+
+            assertArrayEquals( zeroed, cache.retrieveByteArray( "zeroed" ) );
+            assertArrayEquals( record, cache.retrieveByteArray( "record" ) );
+            assertArrayEquals( record, cache.retrievePayload( cache.getPointer( "record" ) ) );
+            assertArrayEquals( text( 1 ).getBytes(), cache.retrieveByteArray( "compressed" ) );
+            assertEquals( 0, cache.getStatistics().getUndecodable() );
+
+            // and are restored as regular entries
+            assertEquals( 3, new SnapshotWriter<String, Object>( cache ).write( snapshot ) );
+            final CacheService<String, Object> restored =
+                new DirectMemory<String, Object>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 1 ) )
+                    .setCompression( new Compression( new DeflateCodec(), 0 ) ).setSnapshot( snapshot )
+                    .newCacheService();
+            try
+            {
+                assertArrayEquals( zeroed, restored.retrieveByteArray( "zeroed" ) );
+                assertArrayEquals( record, restored.retrieveByteArray( "record" ) );
+            }
+            finally
+            {
+                restored.close();
+            }
+
+            // the pointer of a freed entry does not stay raw once its memory is reused
+            cache.free( "record" );
+            cache.putByteArray( "record", record );
+            assertArrayEquals( record, cache.retrieveByteArray( "record" ) );
+        }
+        finally
+        {
+            snapshot.delete();
+            cache.close();
+        }
+    }
+
+}
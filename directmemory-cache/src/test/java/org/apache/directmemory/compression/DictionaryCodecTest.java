@@ -0,0 +1,239 @@
+package org.apache.directmemory.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.memory.Pointer;
+import org.junit.Test;
+
+public class DictionaryCodecTest
+{
+
+    private final Random random = new Random( 42 );
+
+    private byte[] record()
+    {
+        return ( "{\"id\":" + random.nextInt( 1000000 ) + ",\"name\":\"customer-"
+            + Long.toString( random.nextLong(), 36 ) + "\",\"email\":\"" + Long.toString( random.nextLong(), 36 )
+            + "@example.com\",\"address\":{\"street\":\"" + random.nextInt( 500 )
+            + " main street\",\"city\":\"Springfield\",\"country\":\"US\"},\"score\":" + random.nextInt( 100 )
+            + ",\"active\":" + random.nextBoolean() + ",\"tags\":[\"premium\",\"newsletter\"]}" ).getBytes();
+    }
+
+    private long storedBytes( Compression compression, int records )
+    {
+        long stored = 0;
+        for ( int i = 0; i < records; i++ )
+        {
+            stored += compression.encode( record() ).length;
+        }
+        return stored;
+    }
+
+    @Test
+    public void trainedDictionaryCompressesSmallValues()
+        throws IOException
+    {
+        final DictionaryCodec codec = new DictionaryCodec().setSampling( 200, 1 ).setRetrainEvery( 0 );
+        final Compression compression = new Compression( codec, 0 );
+
+        final long withoutDictionary = storedBytes( compression, 200 );
+        assertEquals( 1, codec.getVersion() );
+        final long withDictionary = storedBytes( compression, 200 );
+        assertTrue( withDictionary + " " + withoutDictionary, withDictionary < withoutDictionary * 2 / 3 );
+
+        final long plain = storedBytes( new Compression( new DeflateCodec(), 0 ), 200 );
+        assertTrue( withDictionary + " " + plain, withDictionary < plain * 2 / 3 );
+
+        final byte[] payload = record();
+        assertArrayEquals( payload, compression.decode( compression.encode( payload ) ) );
+        assertEquals( 1, codec.getVersion() );
+    }
+
+    @Test
+    public void entriesReferenceTheirDictionaryVersion()
+        throws IOException
+    {
+        final DictionaryCodec codec =
+            new DictionaryCodec().setSampling( 50, 1 ).setRetrainEvery( 50 ).setRetainedDictionaries( 2 );
+        final Compression compression = new Compression( codec, 0 );
+
+        final List<byte[]> payloads = new ArrayList<byte[]>();
+        final List<byte[]> stored = new ArrayList<byte[]>();
+        for ( int i = 0; i < 200; i++ )
+        {
+            payloads.add( record() );
+            stored.add( compression.encode( payloads.get( i ) ) );
+        }
+        assertEquals( 4, codec.getVersion() );
+
+        // the dictionaries 3 and 4 are retained
+        for ( int i = 149; i < 200; i++ )
+        {
+            assertArrayEquals( payloads.get( i ), compression.decode( stored.get( i ) ) );
+        }
+        // the entries compressed before the first training do not need a dictionary
+        assertArrayEquals( payloads.get( 0 ), compression.decode( stored.get( 0 ) ) );
+        try
+        {
+            compression.decode( stored.get( 60 ) );
+            fail();
+        }
+        catch ( IOException e )
+        {
+            // expected, the dictionary 1 was dropped
+        }
+    }
+
+    @Test
+    public void trainerKeepsWhatTheSamplesHaveInCommon()
+    {
+        final List<byte[]> samples = new ArrayList<byte[]>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            samples.add( record() );
+        }
+        final String dictionary = new String( DictionaryTrainer.train( samples, 1024 ) );
+        assertTrue( dictionary.length() <= 1024 );
+        assertTrue( dictionary, dictionary.contains( "main street" ) );
+        assertTrue( dictionary, dictionary.contains( "newsletter" ) );
+
+        final List<byte[]> unrelated = new ArrayList<byte[]>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            final byte[] sample = new byte[100];
+            random.nextBytes( sample );
+            unrelated.add( sample );
+        }
+        assertEquals( 0, DictionaryTrainer.train( unrelated, 1024 ).length );
+    }
+
+    @Test
+    public void cachedValuesAreCompressedWithTheDictionary()
+        throws IOException
+    {
+        final DictionaryCodec codec = new DictionaryCodec().setSampling( 100, 1 );
+        final CacheService<String, byte[]> cache =
+            new DirectMemory<String, byte[]>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 1 ) )
+                .setCompression( new Compression( codec, 64 ) ).newCacheService();
+        try
+        {
+            final List<byte[]> payloads = new ArrayList<byte[]>();
+            for ( int i = 0; i < 1000; i++ )
+            {
+                payloads.add( record() );
+                cache.putByteArray( "key" + i, payloads.get( i ) );
+            }
+            assertEquals( 1, codec.getVersion() );
+            for ( int i = 0; i < 1000; i++ )
+            {
+                assertArrayEquals( payloads.get( i ), cache.retrieveByteArray( "key" + i ) );
+            }
+        }
+        finally
+        {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void entriesOfDroppedDictionariesAreUndecodable()
+        throws IOException
+    {
+        final DictionaryCodec codec =
+            new DictionaryCodec().setSampling( 50, 1 ).setRetrainEvery( 50 ).setRetainedDictionaries( 2 );
+        final CacheService<String, byte[]> cache =
+            new DirectMemory<String, byte[]>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 1 ) )
+                .setCompression( new Compression( codec, 0 ) ).newCacheService();
+        try
+        {
+            for ( int i = 0; i < 200; i++ )
+            {
+                cache.putByteArray( "key" + i, record() );
+            }
+            assertEquals( 4, codec.getVersion() );
+            final long used = cache.getMemoryManager().used();
+
+            // compressed with the dictionary 1, which was dropped
+            try
+            {
+                cache.retrieveByteArray( "key60" );
+                fail();
+            }
+            catch ( UndecodablePayloadException e )
+            {
+                assertEquals( 1, cache.getStatistics().getUndecodable() );
+            }
+            assertNotNull( cache.getPointer( "key60" ) );
+            assertEquals( used, cache.getMemoryManager().used() );
+
+            final Pointer<byte[]> pointer = cache.getPointer( "key70" );
+            try
+            {
+                cache.retrievePayload( pointer );
+                fail();
+            }
+            catch ( UndecodablePayloadException e )
+            {
+                assertEquals( 2, cache.getStatistics().getUndecodable() );
+            }
+            assertFalse( pointer.isFree() );
+            try
+            {
+                cache.retrieveStream( "key70", new ByteArrayOutputStream() );
+                fail();
+            }
+            catch ( IOException e )
+            {
+                assertEquals( 3, cache.getStatistics().getUndecodable() );
+            }
+
+            // the caller frees the entries it can not read
+            cache.free( "key60" );
+            assertTrue( cache.getMemoryManager().used() < used );
+
+            assertNotNull( cache.retrieveByteArray( "key0" ) );
+            assertNotNull( cache.retrieveByteArray( "key199" ) );
+            assertEquals( 199, cache.entries() );
+        }
+        finally
+        {
+            cache.close();
+        }
+    }
+
+}
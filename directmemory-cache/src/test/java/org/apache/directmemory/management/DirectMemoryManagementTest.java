@@ -0,0 +1,97 @@
+package org.apache.directmemory.management;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.measures.Ram;
+import org.junit.Test;
+
+public class DirectMemoryManagementTest
+{
+
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @Test
+    public void registerAndUnregister()
+        throws IOException, JMException
+    {
+        CacheService<String, String> cache =
+            new DirectMemory<String, String>().setName( "registerAndUnregister" ).setJmxEnabled( true ).setNumberOfBuffers( 2 ).setSize( Ram.Kb( 64 ) ).newCacheService();
+
+        ObjectName cacheName = DirectMemoryManagement.cacheServiceName( "registerAndUnregister" );
+        ObjectName memoryManagerName = DirectMemoryManagement.memoryManagerName( "registerAndUnregister" );
+        ObjectName allocatorName = DirectMemoryManagement.allocatorName( "registerAndUnregister", 1 );
+
+        assertTrue( server.isRegistered( cacheName ) );
+        assertTrue( server.isRegistered( memoryManagerName ) );
+        assertTrue( server.isRegistered( DirectMemoryManagement.allocatorName( "registerAndUnregister", 0 ) ) );
+        assertTrue( server.isRegistered( allocatorName ) );
+
+        cache.close();
+
+        assertFalse( server.isRegistered( cacheName ) );
+        assertFalse( server.isRegistered( memoryManagerName ) );
+        assertFalse( server.isRegistered( allocatorName ) );
+    }
+
+    @Test
+    public void attributesAndOperations()
+        throws IOException, JMException
+    {
+        CacheService<String, String> cache =
+            new DirectMemory<String, String>().setName( "attributesAndOperations" ).setJmxEnabled( true ).setNumberOfBuffers( 1 ).setSize( Ram.Kb( 64 ) ).newCacheService();
+
+        ObjectName cacheName = DirectMemoryManagement.cacheServiceName( "attributesAndOperations" );
+        ObjectName allocatorName = DirectMemoryManagement.allocatorName( "attributesAndOperations", 0 );
+
+        cache.putByteArray( "a", new byte[100] );
+        cache.putByteArray( "b", new byte[100] );
+        cache.retrieveByteArray( "a" );
+        cache.retrieveByteArray( "c" );
+
+        assertEquals( 2L, server.getAttribute( cacheName, "Entries" ) );
+        assertEquals( 200L, server.getAttribute( cacheName, "UsedMemory" ) );
+        assertEquals( (long) Ram.Kb( 64 ), server.getAttribute( cacheName, "Capacity" ) );
+        assertEquals( 1L, server.getAttribute( cacheName, "Hits" ) );
+        assertEquals( 1L, server.getAttribute( cacheName, "Misses" ) );
+        assertEquals( (long) Ram.Kb( 64 ) - 200, server.getAttribute( allocatorName, "FreeCapacity" ) );
+
+        server.invoke( cacheName, "clear", null, null );
+
+        assertEquals( 0L, server.getAttribute( cacheName, "Entries" ) );
+        assertEquals( (long) Ram.Kb( 64 ), server.getAttribute( allocatorName, "FreeCapacity" ) );
+        assertEquals( (long) Ram.Kb( 64 ), server.getAttribute( allocatorName, "LargestFreeBlock" ) );
+
+        cache.close();
+    }
+
+}
@@ -75,6 +75,36 @@ public abstract class AbstractMemoryManagerServiceTest
 
     }
 
+    /**
+     * Fills a buffer of 4 small payloads and stores a 5th one, which must fail, then frees the 1st and 3rd payloads and
+     * stores a payload twice as big : 8 bytes are free, but in two blocks of 4 bytes for the allocators needing
+     * contiguous blocks. The subclasses check how the failures are reported by
+     * {@link MemoryManagerService#getFragmentationStatistics()}.
+     *
+     * @return the pointer to the payload twice as big, null if its store failed
+     */
+    protected Pointer<Object> storeInFragmentedBuffer()
+    {
+        final int NUMBER_OF_OBJECTS = 4;
+        final int BUFFER_SIZE = NUMBER_OF_OBJECTS * SMALL_PAYLOAD_LENGTH;
+
+        mms = instanciateMemoryManagerService( BUFFER_SIZE );
+
+        List<Pointer<Object>> pointers = new ArrayList<Pointer<Object>>( NUMBER_OF_OBJECTS );
+        for ( int i = 0; i < NUMBER_OF_OBJECTS; i++ )
+        {
+            pointers.add( mms.store( SMALL_PAYLOAD ) );
+        }
+
+        Assert.assertNull( mms.store( SMALL_PAYLOAD ) );
+        Assert.assertEquals( 1, mms.getFragmentationStatistics().getStoreFailures() );
+
+        mms.free( pointers.get( 0 ) );
+        mms.free( pointers.get( 2 ) );
+
+        return mms.store( MemoryTestUtils.generateRandomPayload( 2 * SMALL_PAYLOAD_LENGTH ) );
+    }
+
     /**
      * Ensure no byte is leaking when allocating several objects.
      */
@@ -3,6 +3,9 @@ package org.apache.directmemory.memory;
 import java.util.Arrays;
 import java.util.Collection;
 
+import junit.framework.Assert;
+
+import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
@@ -60,4 +63,28 @@ public class DefaultMemoryManagerServiceTest
         }
     }
 
+    @Test
+    public void testStoreFailuresReported()
+    {
+        final Pointer<Object> pointer = storeInFragmentedBuffer();
+        final FragmentationStatistics statistics = mms.getFragmentationStatistics();
+        if ( MemoryManagerServiceImpl.class.equals( memoryManagerServiceClass ) )
+        {
+            // the merging allocator can not merge the two free blocks, which are not adjacent
+            Assert.assertNull( pointer );
+            Assert.assertEquals( 2, statistics.getStoreFailures() );
+            Assert.assertEquals( 1, statistics.getFragmentedStoreFailures() );
+            Assert.assertEquals( 2 * SMALL_PAYLOAD_LENGTH, statistics.getFreeCapacity() );
+            Assert.assertTrue( statistics.getLargestFreeBlock() < 2 * SMALL_PAYLOAD_LENGTH );
+            Assert.assertTrue( statistics.getFragmentation() > 0 );
+        }
+        else
+        {
+            // one allocation per entry, the freed bytes are reusable whatever their location
+            Assert.assertNotNull( pointer );
+            Assert.assertEquals( 1, statistics.getStoreFailures() );
+            Assert.assertEquals( 0, statistics.getFragmentedStoreFailures() );
+        }
+    }
+
 }
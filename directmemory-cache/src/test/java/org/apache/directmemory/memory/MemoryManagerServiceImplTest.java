@@ -26,6 +26,7 @@ import java.util.Random;
 
 import junit.framework.Assert;
 
+import org.apache.directmemory.measures.Ram;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
@@ -89,6 +90,27 @@ public class MemoryManagerServiceImplTest
         memoryManagerService.close();
     }
 
+    @Test
+    public void testBuffersBiggerThan2Gb()
+        throws IOException
+    {
+
+        // the pages of such buffers are only provided by the system once written, so that the test does not need 6GB
+        // of RAM
+
+        final MemoryManagerService<Object> memoryManagerService = getMemoryManagerService();
+
+        memoryManagerService.init( 2, Ram.Gb( 3 ) );
+
+        Assert.assertEquals( 2 * Ram.Gb( 3 ), memoryManagerService.capacity() );
+
+        Pointer<Object> pointer = memoryManagerService.store( SMALL_PAYLOAD );
+        Assert.assertNotNull( pointer );
+        Assert.assertEquals( new String( SMALL_PAYLOAD ), new String( memoryManagerService.retrieve( pointer ) ) );
+
+        memoryManagerService.close();
+    }
+
     @Test
     public void testAllocateMultipleBuffers()
         throws IOException
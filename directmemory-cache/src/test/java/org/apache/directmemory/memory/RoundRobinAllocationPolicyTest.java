@@ -138,7 +138,31 @@ public class RoundRobinAllocationPolicyTest
         }
 
         @Override
-        public int getCapacity()
+        public long getCapacity()
+        {
+            return 0;
+        }
+
+        @Override
+        public long getFreeCapacity()
+        {
+            return 0;
+        }
+
+        @Override
+        public long getLargestFreeBlock()
+        {
+            return 0;
+        }
+
+        @Override
+        public long[] getFreeBlockHistogram()
+        {
+            return new long[0];
+        }
+
+        @Override
+        public long getAllocationFailures()
         {
             return 0;
         }
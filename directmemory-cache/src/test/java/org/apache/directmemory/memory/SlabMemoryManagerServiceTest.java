@@ -22,6 +22,8 @@ package org.apache.directmemory.memory;
 import java.util.Collection;
 import java.util.HashSet;
 
+import junit.framework.Assert;
+
 import org.apache.directmemory.memory.allocator.Allocator;
 import org.apache.directmemory.memory.allocator.FixedSizeByteBufferAllocatorImpl;
 import org.apache.directmemory.memory.allocator.SlabByteBufferAllocator;
@@ -78,4 +80,15 @@ public class SlabMemoryManagerServiceTest
 
     }
 
+    @Test
+    public void testStoreFailuresReported()
+    {
+        // the payload twice as big goes to the empty slab of its size
+        Assert.assertNotNull( storeInFragmentedBuffer() );
+        final FragmentationStatistics statistics = mms.getFragmentationStatistics();
+        Assert.assertEquals( 1, statistics.getStoreFailures() );
+        // the other slabs still had free slices when the slab of the small payloads was full
+        Assert.assertEquals( 1, statistics.getFragmentedStoreFailures() );
+    }
+
 }
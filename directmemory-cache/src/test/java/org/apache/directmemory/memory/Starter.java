@@ -83,7 +83,7 @@ public class Starter
     {
         Allocator allocator = new MergingByteBufferAllocator( 1, megabytes * 1024 * 1024 );
         assertNotNull( allocator );
-        int size = allocator.getCapacity() / ( howMany );
+        int size = (int) ( allocator.getCapacity() / howMany );
         size -= size / 100 * 1;
         logger.info( "payload size=" + size );
         logger.info( "entries=" + howMany );
@@ -1,5 +1,7 @@
 package org.apache.directmemory.memory;
 
+import junit.framework.Assert;
+
 import org.junit.Test;
 
 /*
@@ -38,4 +40,14 @@ public class UnsafeMemoryManagerTest
         
     }
 
+    @Test
+    public void testStoreFailuresReported()
+    {
+        // one allocation per entry, the freed bytes are reusable whatever their location
+        Assert.assertNotNull( storeInFragmentedBuffer() );
+        final FragmentationStatistics statistics = mms.getFragmentationStatistics();
+        Assert.assertEquals( 1, statistics.getStoreFailures() );
+        Assert.assertEquals( 0, statistics.getFragmentedStoreFailures() );
+    }
+
 }
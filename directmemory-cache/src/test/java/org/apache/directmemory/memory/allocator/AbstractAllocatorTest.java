@@ -0,0 +1,87 @@
+package org.apache.directmemory.memory.allocator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.directmemory.memory.buffer.MemoryBuffer;
+import org.junit.Test;
+
+/**
+ * Checks every {@link Allocator} implementation has to pass, whatever its allocation policy.
+ */
+public abstract class AbstractAllocatorTest
+{
+
+    /**
+     * @param capacity the capacity of the allocator, in bytes
+     * @param size the size of the buffers the test allocates
+     */
+    protected abstract Allocator instanciateAllocator( int capacity, int size );
+
+    /**
+     * Allocates and frees many more buffers than needed for the identity hash codes of some of them to collide : each
+     * block must be handed out once and freed once, whatever the hash codes.
+     */
+    @Test
+    public void manyBuffersAreFreedExactlyOnce()
+        throws IOException
+    {
+        final int count = 100000;
+        final int size = 128;
+        final Allocator allocator = instanciateAllocator( count * size, size );
+        try
+        {
+            for ( int round = 0; round < 4; round++ )
+            {
+                final List<MemoryBuffer> buffers = new ArrayList<MemoryBuffer>( count );
+                for ( int i = 0; i < count; i++ )
+                {
+                    final MemoryBuffer buffer = allocator.allocate( size );
+                    Assert.assertNotNull( buffer );
+                    buffer.writerIndex( 0 );
+                    buffer.writeInt( i );
+                    buffers.add( buffer );
+                }
+                Assert.assertNull( allocator.allocate( size ) );
+
+                for ( int i = 0; i < count; i++ )
+                {
+                    final MemoryBuffer buffer = buffers.get( i );
+                    // a block handed out twice holds the index of the last buffer written
+                    buffer.readerIndex( 0 );
+                    Assert.assertEquals( i, buffer.readInt() );
+                    allocator.free( buffer );
+                }
+                // a block freed twice or leaked shows in the free capacity
+                Assert.assertEquals( allocator.getCapacity(), allocator.getFreeCapacity() );
+            }
+        }
+        finally
+        {
+            allocator.close();
+        }
+    }
+
+}
@@ -27,7 +27,15 @@ import org.apache.directmemory.memory.buffer.MemoryBuffer;
 import org.junit.Test;
 
 public class FixedSizeByteBufferAllocatorImplTest
+    extends AbstractAllocatorTest
 {
+
+    @Override
+    protected Allocator instanciateAllocator( int capacity, int size )
+    {
+        return new FixedSizeByteBufferAllocatorImpl( 0, capacity, size, 1 );
+    }
+
     @Test
     public void allocationTest()
         throws IOException
@@ -60,6 +68,38 @@ public class FixedSizeByteBufferAllocatorImplTest
         allocator.close();
     }
 
+    @Test
+    public void freeCapacityTest()
+        throws IOException
+    {
+
+        Allocator allocator = new FixedSizeByteBufferAllocatorImpl( 0, 1024, 256, 1 );
+
+        Assert.assertEquals( 1024, allocator.getFreeCapacity() );
+        Assert.assertEquals( 256, allocator.getLargestFreeBlock() );
+
+        MemoryBuffer bf1 = allocator.allocate( 10 );
+        allocator.allocate( 10 );
+        allocator.allocate( 10 );
+        allocator.allocate( 10 );
+
+        Assert.assertEquals( 0, allocator.getFreeCapacity() );
+        Assert.assertEquals( 0, allocator.getLargestFreeBlock() );
+
+        Assert.assertNull( allocator.allocate( 10 ) );
+        Assert.assertEquals( 1, allocator.getAllocationFailures() );
+
+        allocator.free( bf1 );
+        Assert.assertEquals( 256, allocator.getFreeCapacity() );
+        Assert.assertEquals( 256, allocator.getLargestFreeBlock() );
+        Assert.assertEquals( 1, allocator.getFreeBlockHistogram()[FreeBlockHistogram.bucketOf( 256 )] );
+
+        allocator.clear();
+        Assert.assertEquals( 1024, allocator.getFreeCapacity() );
+
+        allocator.close();
+    }
+
     @Test
     public void releaseTest()
         throws IOException
@@ -33,7 +33,15 @@ import org.apache.directmemory.memory.buffer.MemoryBuffer;
 import org.junit.Test;
 
 public class MergingByteBufferAllocatorTest
+    extends AbstractAllocatorTest
 {
+
+    @Override
+    protected Allocator instanciateAllocator( int capacity, int size )
+    {
+        return new MergingByteBufferAllocator( 0, capacity );
+    }
+
     @Test
     public void allocationTest()
         throws IOException
@@ -103,6 +111,85 @@ public class MergingByteBufferAllocatorTest
         allocator.close();
     }
 
+    @Test
+    public void freeCapacityTest()
+        throws IOException
+    {
+
+        Allocator allocator = new MergingByteBufferAllocator( 0, 1000 );
+
+        Assert.assertEquals( 1000, allocator.getFreeCapacity() );
+        Assert.assertEquals( 1000, allocator.getLargestFreeBlock() );
+
+        MemoryBuffer bf1 = allocator.allocate( 250 );
+        MemoryBuffer bf2 = allocator.allocate( 250 );
+        MemoryBuffer bf3 = allocator.allocate( 250 );
+
+        Assert.assertEquals( 250, allocator.getFreeCapacity() );
+        Assert.assertEquals( 250, allocator.getLargestFreeBlock() );
+
+        // freeing the middle buffer fragments the free space
+        allocator.free( bf2 );
+        Assert.assertEquals( 500, allocator.getFreeCapacity() );
+        Assert.assertEquals( 250, allocator.getLargestFreeBlock() );
+
+        // freeing the last buffer merges it with both neighbors
+        allocator.free( bf3 );
+        Assert.assertEquals( 750, allocator.getFreeCapacity() );
+        Assert.assertEquals( 750, allocator.getLargestFreeBlock() );
+
+        allocator.free( bf1 );
+        Assert.assertEquals( 1000, allocator.getFreeCapacity() );
+        Assert.assertEquals( 1000, allocator.getLargestFreeBlock() );
+
+        allocator.allocate( 100 );
+        allocator.clear();
+        Assert.assertEquals( 1000, allocator.getFreeCapacity() );
+        Assert.assertEquals( 1000, allocator.getLargestFreeBlock() );
+
+        allocator.close();
+    }
+
+    @Test
+    public void fragmentationTest()
+        throws IOException
+    {
+
+        Allocator allocator = new MergingByteBufferAllocator( 0, 1000 );
+
+        long[] histogram = allocator.getFreeBlockHistogram();
+        Assert.assertEquals( FreeBlockHistogram.BUCKETS, histogram.length );
+        Assert.assertEquals( 1, histogram[FreeBlockHistogram.bucketOf( 1000 )] );
+
+        MemoryBuffer bf1 = allocator.allocate( 250 );
+        allocator.allocate( 250 );
+        MemoryBuffer bf3 = allocator.allocate( 250 );
+        allocator.allocate( 250 );
+
+        Assert.assertEquals( 0, allocator.getFreeCapacity() );
+        Assert.assertEquals( 0, allocator.getFreeBlockHistogram()[FreeBlockHistogram.bucketOf( 1000 )] );
+
+        allocator.free( bf1 );
+        allocator.free( bf3 );
+
+        // 500 bytes are free, but split in 2 blocks of 250 bytes
+        histogram = allocator.getFreeBlockHistogram();
+        Assert.assertEquals( 2, histogram[FreeBlockHistogram.bucketOf( 250 )] );
+        Assert.assertEquals( 500, allocator.getFreeCapacity() );
+        Assert.assertEquals( 250, allocator.getLargestFreeBlock() );
+
+        Assert.assertEquals( 0, allocator.getAllocationFailures() );
+        Assert.assertNull( allocator.allocate( 400 ) );
+        Assert.assertEquals( 1, allocator.getAllocationFailures() );
+
+        allocator.clear();
+        histogram = allocator.getFreeBlockHistogram();
+        Assert.assertEquals( 0, histogram[FreeBlockHistogram.bucketOf( 250 )] );
+        Assert.assertEquals( 1, histogram[FreeBlockHistogram.bucketOf( 1000 )] );
+
+        allocator.close();
+    }
+
     @Test
     public void allocateAndFreeTest()
         throws IOException
@@ -0,0 +1,249 @@
+package org.apache.directmemory.memory.allocator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.memory.buffer.MemoryBuffer;
+import org.junit.Test;
+
+public class MergingUnsafeAllocatorTest
+    extends AbstractAllocatorTest
+{
+
+    @Override
+    protected Allocator instanciateAllocator( int capacity, int size )
+    {
+        return new MergingUnsafeAllocator( 0, capacity );
+    }
+
+    @Test
+    public void allocationTest()
+        throws IOException
+    {
+
+        Allocator allocator = new MergingUnsafeAllocator( 0, 1000 );
+
+        MemoryBuffer bf1 = allocator.allocate( 250 );
+        Assert.assertEquals( 250, bf1.maxCapacity() );
+        Assert.assertEquals( 250, bf1.capacity() );
+
+        MemoryBuffer bf2 = allocator.allocate( 251 );
+        Assert.assertEquals( 251, bf2.capacity() );
+
+        MemoryBuffer bf3 = allocator.allocate( 499 );
+        Assert.assertEquals( 499, bf3.capacity() );
+
+        Assert.assertNull( allocator.allocate( 1 ) );
+        Assert.assertEquals( 1, allocator.getAllocationFailures() );
+
+        allocator.close();
+    }
+
+    @Test
+    public void releaseTest()
+        throws IOException
+    {
+
+        Allocator allocator = new MergingUnsafeAllocator( 0, 1000 );
+
+        MemoryBuffer bf1 = allocator.allocate( 250 );
+        MemoryBuffer bf2 = allocator.allocate( 251 );
+        allocator.allocate( 252 );
+
+        Assert.assertNull( allocator.allocate( 500 ) );
+
+        allocator.free( bf1 );
+        allocator.free( bf2 );
+
+        MemoryBuffer bf5 = allocator.allocate( 500 );
+        Assert.assertEquals( 500, bf5.capacity() );
+
+        allocator.close();
+    }
+
+    @Test
+    public void freeCapacityTest()
+        throws IOException
+    {
+
+        Allocator allocator = new MergingUnsafeAllocator( 0, 1000 );
+
+        Assert.assertEquals( 1000, allocator.getFreeCapacity() );
+        Assert.assertEquals( 1000, allocator.getLargestFreeBlock() );
+
+        MemoryBuffer bf1 = allocator.allocate( 250 );
+        MemoryBuffer bf2 = allocator.allocate( 250 );
+        MemoryBuffer bf3 = allocator.allocate( 250 );
+
+        Assert.assertEquals( 250, allocator.getFreeCapacity() );
+        Assert.assertEquals( 250, allocator.getLargestFreeBlock() );
+
+        // freeing the middle buffer fragments the free space
+        allocator.free( bf2 );
+        Assert.assertEquals( 500, allocator.getFreeCapacity() );
+        Assert.assertEquals( 250, allocator.getLargestFreeBlock() );
+        Assert.assertEquals( 2, allocator.getFreeBlockHistogram()[FreeBlockHistogram.bucketOf( 250 )] );
+
+        // freeing the last buffer merges it with both neighbors
+        allocator.free( bf3 );
+        Assert.assertEquals( 750, allocator.getFreeCapacity() );
+        Assert.assertEquals( 750, allocator.getLargestFreeBlock() );
+
+        allocator.free( bf1 );
+        Assert.assertEquals( 1000, allocator.getFreeCapacity() );
+        Assert.assertEquals( 1000, allocator.getLargestFreeBlock() );
+
+        // freeing twice is ignored
+        allocator.free( bf1 );
+        Assert.assertEquals( 1000, allocator.getFreeCapacity() );
+
+        allocator.allocate( 100 );
+        allocator.clear();
+        Assert.assertEquals( 1000, allocator.getFreeCapacity() );
+        Assert.assertEquals( 1000, allocator.getLargestFreeBlock() );
+        Assert.assertEquals( 1, allocator.getFreeBlockHistogram()[FreeBlockHistogram.bucketOf( 1000 )] );
+
+        allocator.close();
+    }
+
+    @Test
+    public void smallestFreeBlockIsAllocated()
+        throws IOException
+    {
+
+        Allocator allocator = new MergingUnsafeAllocator( 0, 1000 );
+
+        MemoryBuffer bf1 = allocator.allocate( 300 );
+        allocator.allocate( 100 );
+        MemoryBuffer bf3 = allocator.allocate( 50 );
+        allocator.allocate( 100 );
+
+        // free blocks of 300, 50 and 450 bytes
+        allocator.free( bf1 );
+        allocator.free( bf3 );
+
+        MemoryBuffer bf5 = allocator.allocate( 40 );
+        MemoryBuffer bf6 = allocator.allocate( 400 );
+        Assert.assertNotNull( bf6 );
+        Assert.assertEquals( 300, allocator.getLargestFreeBlock() );
+        Assert.assertEquals( 1000 - 200 - 40 - 400, allocator.getFreeCapacity() );
+
+        allocator.free( bf5 );
+        allocator.free( bf6 );
+        Assert.assertEquals( 450, allocator.getLargestFreeBlock() );
+
+        allocator.close();
+    }
+
+    @Test( expected = BufferOverflowException.class )
+    public void allocationThrowingBOExceptionTest()
+        throws IOException
+    {
+
+        MergingUnsafeAllocator allocator = new MergingUnsafeAllocator( 0, 200 );
+        allocator.setReturnNullWhenBufferIsFull( false );
+
+        try
+        {
+            allocator.allocate( 210 );
+            Assert.fail();
+        }
+        finally
+        {
+            allocator.close();
+        }
+    }
+
+    @Test
+    public void regionBiggerThan2Gb()
+        throws IOException
+    {
+
+        // only the pages written are provided by the system
+        Allocator allocator = new MergingUnsafeAllocator( 0, Ram.Gb( 3 ) );
+        Assert.assertEquals( Ram.Gb( 3 ), allocator.getCapacity() );
+
+        Assert.assertNotNull( allocator.allocate( Integer.MAX_VALUE ) );
+        MemoryBuffer beyond = allocator.allocate( 128 );
+        beyond.writerIndex( 0 );
+        beyond.writeLong( 42L );
+        beyond.writeBytes( "ABCD".getBytes() );
+
+        beyond.readerIndex( 0 );
+        Assert.assertEquals( 42L, beyond.readLong() );
+        final byte[] bytes = new byte[4];
+        beyond.readBytes( bytes );
+        Assert.assertEquals( "ABCD", new String( bytes ) );
+
+        Assert.assertEquals( Ram.Gb( 3 ) - Integer.MAX_VALUE - 128, allocator.getFreeCapacity() );
+
+        allocator.close();
+    }
+
+    /**
+     * Frees the buffers in a scrambled order : the free blocks must merge back into a single one.
+     */
+    @Test
+    public void buffersFreedInAnyOrderMergeBack()
+        throws IOException
+    {
+        final int count = 10000;
+        final int size = 128;
+        final Allocator allocator = new MergingUnsafeAllocator( 0, count * size );
+        try
+        {
+            for ( int round = 0; round < 4; round++ )
+            {
+                final List<MemoryBuffer> buffers = new ArrayList<MemoryBuffer>( count );
+                for ( int i = 0; i < count; i++ )
+                {
+                    final MemoryBuffer buffer = allocator.allocate( size );
+                    Assert.assertNotNull( buffer );
+                    buffer.writerIndex( 0 );
+                    buffer.writeInt( i );
+                    buffers.add( buffer );
+                }
+                Assert.assertNull( allocator.allocate( size ) );
+
+                for ( int i = 0; i < count; i++ )
+                {
+                    final MemoryBuffer buffer = buffers.get( ( i * 7919 ) % count );
+                    buffer.readerIndex( 0 );
+                    Assert.assertEquals( ( i * 7919 ) % count, buffer.readInt() );
+                    allocator.free( buffer );
+                }
+                Assert.assertEquals( allocator.getCapacity(), allocator.getFreeCapacity() );
+                Assert.assertEquals( allocator.getCapacity(), allocator.getLargestFreeBlock() );
+            }
+        }
+        finally
+        {
+            allocator.close();
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package org.apache.directmemory.memory.allocator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.directmemory.memory.buffer.MemoryBuffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * The buffers of the {@link java.nio.ByteBuffer} backed allocators must read and write the byte arrays at their
+ * reader and writer indexes, like the other values.
+ */
+@RunWith( Parameterized.class )
+public class NioMemoryBufferTest
+{
+
+    @Parameters
+    public static Collection<Object[]> data()
+    {
+        return Arrays.asList( new Object[][] { { new MergingByteBufferAllocator( 0, 1024 ) },
+            { new FixedSizeByteBufferAllocatorImpl( 0, 1024, 128, 1 ) } } );
+    }
+
+    private final Allocator allocator;
+
+    public NioMemoryBufferTest( Allocator allocator )
+    {
+        this.allocator = allocator;
+    }
+
+    @Test
+    public void bytesAreWrittenAndReadAtTheIndexes()
+        throws IOException
+    {
+        try
+        {
+            final MemoryBuffer buffer = allocator.allocate( 100 );
+            final byte[] first = { 1, 2, 3 };
+            final byte[] second = { 4, 5, 6, 7, 8 };
+
+            buffer.writerIndex( 0 );
+            buffer.writeInt( first.length );
+            buffer.writeBytes( first );
+            buffer.writeLong( 42L );
+            buffer.writeBytes( second, 1, 3 );
+            assertEquals( 4 + 3 + 8 + 3, buffer.writerIndex() );
+
+            buffer.readerIndex( 0 );
+            assertEquals( 3, buffer.readInt() );
+            final byte[] read = new byte[3];
+            buffer.readBytes( read );
+            assertArrayEquals( first, read );
+            assertEquals( 42L, buffer.readLong() );
+            buffer.readBytes( read );
+            assertArrayEquals( new byte[] { 5, 6, 7 }, read );
+            assertEquals( buffer.writerIndex(), buffer.readerIndex() );
+
+            // the reads do not move the writes and the other way round
+            buffer.readerIndex( 4 );
+            buffer.writeByte( (byte) 9 );
+            buffer.readBytes( read );
+            assertArrayEquals( first, read );
+            buffer.readerIndex( buffer.writerIndex() - 1 );
+            assertEquals( 9, buffer.readByte() );
+
+            // the bulk accesses do not go through the position shared by the readers and the writers of the buffer
+            final ByteBuffer byteBuffer = ( (NioMemoryBuffer) buffer ).getByteBuffer();
+            final int position = byteBuffer.position();
+            buffer.writeBytes( first );
+            buffer.readBytes( read );
+            assertEquals( position, byteBuffer.position() );
+        }
+        finally
+        {
+            allocator.close();
+        }
+    }
+
+}
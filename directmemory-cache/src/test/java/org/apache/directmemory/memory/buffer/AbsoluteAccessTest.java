@@ -0,0 +1,164 @@
+package org.apache.directmemory.memory.buffer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.apache.directmemory.memory.allocator.FixedSizeUnsafeAllocator;
+import org.apache.directmemory.memory.allocator.LazyUnsafeAllocator;
+import org.apache.directmemory.memory.allocator.MergingByteBufferAllocator;
+import org.apache.directmemory.memory.allocator.MergingUnsafeAllocator;
+import org.junit.Test;
+
+public class AbsoluteAccessTest
+{
+
+    private static void checkAbsoluteAccesses( MemoryBuffer buffer )
+    {
+        buffer.writerIndex( 3 );
+        buffer.readerIndex( 1 );
+
+        buffer.putByte( 0, (byte) -7 );
+        buffer.putShort( 2, (short) -300 );
+        buffer.putInt( 4, 123456789 );
+        buffer.putLong( 8, -1234567890123L );
+        buffer.putFloat( 16, 1.5f );
+        buffer.putDouble( 24, -2.25 );
+
+        assertEquals( -7, buffer.getByte( 0 ) );
+        assertEquals( -300, buffer.getShort( 2 ) );
+        assertEquals( 123456789, buffer.getInt( 4 ) );
+        assertEquals( -1234567890123L, buffer.getLong( 8 ) );
+        assertEquals( 1.5f, buffer.getFloat( 16 ), 0 );
+        assertEquals( -2.25, buffer.getDouble( 24 ), 0 );
+
+        // the indexes do not move
+        assertEquals( 3, buffer.writerIndex() );
+        assertEquals( 1, buffer.readerIndex() );
+
+        // and the relative accesses agree with the absolute ones
+        buffer.readerIndex( 8 );
+        assertEquals( -1234567890123L, buffer.readLong() );
+        buffer.writerIndex( 32 );
+        buffer.writeInt( 42 );
+        assertEquals( 42, buffer.getInt( 32 ) );
+    }
+
+    private static void checkAllocator( Allocator allocator )
+        throws IOException
+    {
+        try
+        {
+            checkAbsoluteAccesses( allocator.allocate( 64 ) );
+        }
+        finally
+        {
+            allocator.close();
+        }
+    }
+
+    @Test
+    public void nioBuffers()
+        throws IOException
+    {
+        checkAllocator( new MergingByteBufferAllocator( 0, 1024 ) );
+    }
+
+    @Test
+    public void unsafeBuffers()
+        throws IOException
+    {
+        checkAllocator( new LazyUnsafeAllocator( 0, 1024 ) );
+        checkAllocator( new FixedSizeUnsafeAllocator( 1, 64 ) );
+        checkAllocator( new MergingUnsafeAllocator( 0, 1024 ) );
+    }
+
+    @Test
+    public void defaultAccessesFollowTheByteOrder()
+    {
+        for ( final ByteOrder byteOrder : new ByteOrder[] { ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN } )
+        {
+            final byte[] bytes = new byte[64];
+            checkAbsoluteAccesses( new AbstractMemoryBuffer()
+            {
+
+                @Override
+                public long capacity()
+                {
+                    return bytes.length;
+                }
+
+                @Override
+                public long maxCapacity()
+                {
+                    return bytes.length;
+                }
+
+                @Override
+                public boolean growing()
+                {
+                    return false;
+                }
+
+                @Override
+                public ByteOrder byteOrder()
+                {
+                    return byteOrder;
+                }
+
+                @Override
+                public void byteOrder( ByteOrder byteOrder )
+                {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void free()
+                {
+                }
+
+                @Override
+                public void clear()
+                {
+                }
+
+                @Override
+                protected void writeByte( long offset, byte value )
+                {
+                    bytes[(int) offset] = value;
+                }
+
+                @Override
+                protected byte readByte( long offset )
+                {
+                    return bytes[(int) offset];
+                }
+
+            } );
+            final int first = byteOrder == ByteOrder.BIG_ENDIAN ? 4 : 7;
+            assertEquals( ( 123456789 >>> 24 ), bytes[first] );
+        }
+    }
+
+}
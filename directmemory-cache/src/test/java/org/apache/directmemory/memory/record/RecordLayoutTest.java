@@ -0,0 +1,244 @@
+package org.apache.directmemory.memory.record;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.compression.Compression;
+import org.apache.directmemory.compression.LzfCodec;
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.memory.Pointer;
+import org.junit.After;
+import org.junit.Test;
+
+public class RecordLayoutTest
+{
+
+    private final RecordLayout layout = new RecordLayout();
+
+    private final RecordLayout.LongField id = layout.addLong( "id" );
+
+    private final RecordLayout.DoubleField price = layout.addDouble( "price" );
+
+    private final RecordLayout.IntField stock = layout.addInt( "stock" );
+
+    private final RecordLayout.ShortField category = layout.addShort( "category" );
+
+    private final RecordLayout.ByteField flags = layout.addByte( "flags" );
+
+    private final RecordLayout.FloatField rating = layout.addFloat( "rating" );
+
+    private final RecordLayout.BytesField name = layout.addBytes( "name", 16 );
+
+    private final CacheService<String, Object> cache =
+        new DirectMemory<String, Object>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 1 ) ).newCacheService();
+
+    @After
+    public void close()
+        throws IOException
+    {
+        cache.close();
+    }
+
+    @Test
+    public void fieldsAreLaidOutInTheirOrder()
+    {
+        assertEquals( 0, id.getOffset() );
+        assertEquals( 8, price.getOffset() );
+        assertEquals( 16, stock.getOffset() );
+        assertEquals( 20, category.getOffset() );
+        assertEquals( 22, flags.getOffset() );
+        assertEquals( 23, rating.getOffset() );
+        assertEquals( 27, name.getOffset() );
+        assertEquals( 43, layout.size() );
+        assertEquals( 7, layout.getFields().size() );
+
+        layout.newRecord();
+        try
+        {
+            layout.addInt( "late" );
+            fail();
+        }
+        catch ( IllegalStateException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void fieldsAreReadAndWrittenInPlace()
+    {
+        final Record product = layout.allocate( cache, "product", Object.class );
+        assertEquals( 0, id.get( product ) );
+        assertEquals( 0, stock.get( product ) );
+
+        id.set( product, 42L );
+        price.set( product, 9.99 );
+        stock.set( product, 100 );
+        category.set( product, (short) -3 );
+        flags.set( product, (byte) 7 );
+        rating.set( product, 4.5f );
+        name.set( product, "widget".getBytes() );
+
+        // read through another flyweight
+        final Record view = layout.newRecord().wrap( cache.getPointer( "product" ) );
+        assertEquals( 42L, id.get( view ) );
+        assertEquals( 9.99, price.get( view ), 0 );
+        assertEquals( 100, stock.get( view ) );
+        assertEquals( -3, category.get( view ) );
+        assertEquals( 7, flags.get( view ) );
+        assertEquals( 4.5f, rating.get( view ), 0 );
+        assertEquals( "widget", new String( name.get( view ) ).trim() );
+
+        assertEquals( 99, stock.add( view, -1 ) );
+        assertEquals( 43L, id.add( view, 1L ) );
+        price.set( view, 10.5 );
+        assertEquals( 10.5, price.get( product ), 0 );
+
+        // the whole record is the payload of the entry
+        final byte[] payload = cache.retrieveByteArray( "product" );
+        assertEquals( layout.size(), payload.length );
+        assertEquals( 43, payload[7] );
+    }
+
+    @Test
+    public void oneFlyweightWalksManyRecords()
+    {
+        final Pointer<Object> pointer = cache.allocate( "products", Object.class, layout.size() * 100 );
+        final Record record = layout.newRecord();
+        for ( int i = 0; i < 100; i++ )
+        {
+            record.wrap( pointer.getMemoryBuffer(), (long) i * layout.size() );
+            id.set( record, i );
+            stock.set( record, i * 2 );
+        }
+        long total = 0;
+        for ( int i = 0; i < 100; i++ )
+        {
+            record.wrap( pointer.getMemoryBuffer(), (long) i * layout.size() );
+            assertEquals( i, id.get( record ) );
+            total += stock.get( record );
+        }
+        assertEquals( 9900, total );
+
+        try
+        {
+            record.wrap( pointer.getMemoryBuffer(), pointer.getMemoryBuffer().maxCapacity() - 1 );
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void countersAreUpdatedAtomically()
+        throws InterruptedException
+    {
+        layout.allocate( cache, "counter", Object.class );
+        final List<Thread> threads = new ArrayList<Thread>();
+        for ( int t = 0; t < 4; t++ )
+        {
+            threads.add( new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    final Record record = layout.newRecord().wrap( cache.getPointer( "counter" ) );
+                    for ( int i = 0; i < 10000; i++ )
+                    {
+                        stock.add( record, 1 );
+                        id.add( record, 2L );
+                    }
+                }
+            } );
+        }
+        for ( Thread thread : threads )
+        {
+            thread.start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+        final Record record = layout.newRecord().wrap( cache.getPointer( "counter" ) );
+        assertEquals( 40000, stock.get( record ) );
+        assertEquals( 80000L, id.get( record ) );
+    }
+
+    @Test
+    public void bytesFieldsArePadded()
+    {
+        final Record record = layout.allocate( cache, "name", Object.class );
+        name.set( record, new byte[] { 1, 2, 3 } );
+        final byte[] expected = new byte[16];
+        expected[0] = 1;
+        expected[1] = 2;
+        expected[2] = 3;
+        assertArrayEquals( expected, name.get( record ) );
+        try
+        {
+            name.set( record, new byte[17] );
+            fail();
+        }
+        catch ( IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void recordsAreReadAsWrittenWithACompression()
+        throws IOException
+    {
+        final CacheService<String, Object> compressed =
+            new DirectMemory<String, Object>().setNumberOfBuffers( 1 ).setSize( Ram.Mb( 1 ) )
+                .setCompression( new Compression( new LzfCodec(), 0 ) ).newCacheService();
+        try
+        {
+            // a zeroed record, then one starting with the id of a codec
+            layout.allocate( compressed, "zeroed", Object.class );
+            final Record product = layout.allocate( compressed, "product", Object.class );
+            id.set( product, (long) LzfCodec.ID << 56 );
+            stock.set( product, 42 );
+
+            assertArrayEquals( new byte[layout.size()], compressed.retrieveByteArray( "zeroed" ) );
+            final byte[] payload = compressed.retrieveByteArray( "product" );
+            assertEquals( layout.size(), payload.length );
+            assertEquals( LzfCodec.ID, payload[0] );
+            assertArrayEquals( payload, compressed.retrievePayload( compressed.getPointer( "product" ) ) );
+        }
+        finally
+        {
+            compressed.close();
+        }
+    }
+
+}
@@ -41,7 +41,7 @@ public final class Configuration
         return configurationService.getInitialCapacity();
     }
 
-    public static int getRamMegaBytes()
+    public static long getRamMegaBytes()
     {
         return configurationService.getRamMegaBytes();
     }
@@ -28,7 +28,7 @@ public interface ConfigurationService
 
     int getInitialCapacity();
 
-    int getRamMegaBytes();
+    long getRamMegaBytes();
 
     int getConcurrencyLevel();
 
@@ -38,7 +38,7 @@ public interface ConfigurationService
 
     void setInitialCapacity( int initialCapacity );
 
-    void setRamMegaBytes( int ramMegaBytes );
+    void setRamMegaBytes( long ramMegaBytes );
 
     void setConcurrencyLevel( int concurrencyLevel );
 
@@ -29,7 +29,7 @@ public abstract class DefaultConfiguration
 
     private int initialCapacity = 100000;
 
-    private int ramMegaBytes = 1;
+    private long ramMegaBytes = 1;
 
     private int concurrencyLevel = 4;
 
@@ -48,7 +48,7 @@ public abstract class DefaultConfiguration
     }
 
     @Override
-    public int getRamMegaBytes()
+    public long getRamMegaBytes()
     {
         return ramMegaBytes;
     }
@@ -78,7 +78,7 @@ public abstract class DefaultConfiguration
     }
 
     @Override
-    public void setRamMegaBytes( int ramMegaBytes )
+    public void setRamMegaBytes( long ramMegaBytes )
     {
         this.ramMegaBytes = ramMegaBytes;
     }
@@ -41,7 +41,7 @@ public class SimplePropertiesConfiguration
             properties.load( this.getClass().getClassLoader().getResourceAsStream( "directmemory.properties" ) );
             this.setNumberOfBuffers( new Integer( properties.getProperty( "numberOfBuffers" ) ) );
             this.setInitialCapacity( new Integer( properties.getProperty( "initialCapacity" ) ) );
-            this.setRamMegaBytes( new Integer( properties.getProperty( "ramMegaBytes" ) ) );
+            this.setRamMegaBytes( new Long( properties.getProperty( "ramMegaBytes" ) ) );
             this.setConcurrencyLevel( new Integer( properties.getProperty( "concurrencyLevel" ) ) );
             this.setDisposalTime( new Long( properties.getProperty( "disposalTime" ) ) );
         }
@@ -0,0 +1,138 @@
+package org.apache.directmemory.test;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+
+/**
+ * Small object made of primitive fields, part of the {@link SerializerCorpus}.
+ */
+public class Bottle
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+
+    private long id;
+
+    private String label;
+
+    private int year;
+
+    private double volume;
+
+    private boolean sparkling;
+
+    public Bottle()
+    {
+        // no op
+    }
+
+    public Bottle( long id, String label, int year, double volume, boolean sparkling )
+    {
+        this.id = id;
+        this.label = label;
+        this.year = year;
+        this.volume = volume;
+        this.sparkling = sparkling;
+    }
+
+    public long getId()
+    {
+        return id;
+    }
+
+    public void setId( long id )
+    {
+        this.id = id;
+    }
+
+    public String getLabel()
+    {
+        return label;
+    }
+
+    public void setLabel( String label )
+    {
+        this.label = label;
+    }
+
+    public int getYear()
+    {
+        return year;
+    }
+
+    public void setYear( int year )
+    {
+        this.year = year;
+    }
+
+    public double getVolume()
+    {
+        return volume;
+    }
+
+    public void setVolume( double volume )
+    {
+        this.volume = volume;
+    }
+
+    public boolean isSparkling()
+    {
+        return sparkling;
+    }
+
+    public void setSparkling( boolean sparkling )
+    {
+        this.sparkling = sparkling;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+
+        Bottle bottle = (Bottle) o;
+
+        if ( id != bottle.id || year != bottle.year || sparkling != bottle.sparkling
+            || Double.compare( bottle.volume, volume ) != 0 )
+        {
+            return false;
+        }
+        return label != null ? label.equals( bottle.label ) : bottle.label == null;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = (int) ( id ^ ( id >>> 32 ) );
+        result = 31 * result + ( label != null ? label.hashCode() : 0 );
+        result = 31 * result + year;
+        return result;
+    }
+
+}
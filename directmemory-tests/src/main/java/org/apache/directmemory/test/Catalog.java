@@ -0,0 +1,117 @@
+package org.apache.directmemory.test;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Object made of collections of strings and numbers, part of the {@link SerializerCorpus}.
+ */
+public class Catalog
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+
+    private String name;
+
+    private List<String> references;
+
+    private Map<String, Integer> stock;
+
+    public Catalog()
+    {
+        // no op
+    }
+
+    public Catalog( String name, List<String> references, Map<String, Integer> stock )
+    {
+        this.name = name;
+        this.references = references;
+        this.stock = stock;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public void setName( String name )
+    {
+        this.name = name;
+    }
+
+    public List<String> getReferences()
+    {
+        return references;
+    }
+
+    public void setReferences( List<String> references )
+    {
+        this.references = references;
+    }
+
+    public Map<String, Integer> getStock()
+    {
+        return stock;
+    }
+
+    public void setStock( Map<String, Integer> stock )
+    {
+        this.stock = stock;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+
+        Catalog catalog = (Catalog) o;
+
+        if ( name != null ? !name.equals( catalog.name ) : catalog.name != null )
+        {
+            return false;
+        }
+        if ( references != null ? !references.equals( catalog.references ) : catalog.references != null )
+        {
+            return false;
+        }
+        return stock != null ? stock.equals( catalog.stock ) : catalog.stock == null;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = name != null ? name.hashCode() : 0;
+        result = 31 * result + ( references != null ? references.hashCode() : 0 );
+        result = 31 * result + ( stock != null ? stock.hashCode() : 0 );
+        return result;
+    }
+
+}
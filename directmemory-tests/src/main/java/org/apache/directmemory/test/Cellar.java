@@ -0,0 +1,98 @@
+package org.apache.directmemory.test;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Large object graph, made of {@link Rack}s of {@link Bottle}s, part of the {@link SerializerCorpus}.
+ */
+public class Cellar
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+
+    private String owner;
+
+    private List<Rack> racks;
+
+    public Cellar()
+    {
+        // no op
+    }
+
+    public Cellar( String owner, List<Rack> racks )
+    {
+        this.owner = owner;
+        this.racks = racks;
+    }
+
+    public String getOwner()
+    {
+        return owner;
+    }
+
+    public void setOwner( String owner )
+    {
+        this.owner = owner;
+    }
+
+    public List<Rack> getRacks()
+    {
+        return racks;
+    }
+
+    public void setRacks( List<Rack> racks )
+    {
+        this.racks = racks;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+
+        Cellar cellar = (Cellar) o;
+
+        if ( owner != null ? !owner.equals( cellar.owner ) : cellar.owner != null )
+        {
+            return false;
+        }
+        return racks != null ? racks.equals( cellar.racks ) : cellar.racks == null;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = owner != null ? owner.hashCode() : 0;
+        result = 31 * result + ( racks != null ? racks.hashCode() : 0 );
+        return result;
+    }
+
+}
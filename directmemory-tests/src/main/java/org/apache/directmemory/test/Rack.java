@@ -0,0 +1,116 @@
+package org.apache.directmemory.test;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Rack of a {@link Cellar}.
+ */
+public class Rack
+    implements Serializable
+{
+
+    private static final long serialVersionUID = 1L;
+
+    private int number;
+
+    private Wine wine;
+
+    private List<Bottle> bottles;
+
+    public Rack()
+    {
+        // no op
+    }
+
+    public Rack( int number, Wine wine, List<Bottle> bottles )
+    {
+        this.number = number;
+        this.wine = wine;
+        this.bottles = bottles;
+    }
+
+    public int getNumber()
+    {
+        return number;
+    }
+
+    public void setNumber( int number )
+    {
+        this.number = number;
+    }
+
+    public Wine getWine()
+    {
+        return wine;
+    }
+
+    public void setWine( Wine wine )
+    {
+        this.wine = wine;
+    }
+
+    public List<Bottle> getBottles()
+    {
+        return bottles;
+    }
+
+    public void setBottles( List<Bottle> bottles )
+    {
+        this.bottles = bottles;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+
+        Rack rack = (Rack) o;
+
+        if ( number != rack.number )
+        {
+            return false;
+        }
+        if ( wine != null ? !wine.equals( rack.wine ) : rack.wine != null )
+        {
+            return false;
+        }
+        return bottles != null ? bottles.equals( rack.bottles ) : rack.bottles == null;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = number;
+        result = 31 * result + ( wine != null ? wine.hashCode() : 0 );
+        result = 31 * result + ( bottles != null ? bottles.hashCode() : 0 );
+        return result;
+    }
+
+}
@@ -0,0 +1,414 @@
+package org.apache.directmemory.test;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.directmemory.measures.ThreadAllocation;
+import org.apache.directmemory.serialization.Serializer;
+
+import static java.lang.String.format;
+import static java.util.ServiceLoader.load;
+
+/**
+ * Measures a {@link Serializer} on each sample of a corpus : average serialization and deserialization time, size of
+ * the serialized form and heap bytes allocated per operation. Every measurement runs on the calling thread, after a
+ * warmup of the given duration.
+ * <p>
+ * {@link #main(String[])} compares all the serializers found on the class path on the {@link SerializerCorpus}, the
+ * serializer modules running the same comparison in their {@link AbstractSerializerComparisonTest}.
+ */
+public class SerializerComparison
+{
+
+    public static final String WARMUP_PROPERTY = "directmemory.serializer.comparison.warmup";
+
+    public static final String MEASUREMENT_PROPERTY = "directmemory.serializer.comparison.measurement";
+
+    /**
+     * Start of the failure of the results whose deserialized copy is not equal to the sample.
+     */
+    public static final String MISMATCH = "the deserialized copy differs from the sample";
+
+    /**
+     * The measured operations are run in batches of about this duration, to keep the clock reads out of the way.
+     */
+    private static final long BATCH_NANOS = 1000000L;
+
+    private final long warmupMillis;
+
+    private final long measurementMillis;
+
+    /**
+     * Prevents the JIT from getting rid of the measured operations.
+     */
+    private volatile int sink;
+
+    public SerializerComparison( long warmupMillis, long measurementMillis )
+    {
+        this.warmupMillis = warmupMillis;
+        this.measurementMillis = measurementMillis;
+    }
+
+    /**
+     * Reads the durations from the {@link #WARMUP_PROPERTY} and {@link #MEASUREMENT_PROPERTY} system properties, in
+     * milliseconds.
+     */
+    public static SerializerComparison fromSystemProperties( long defaultWarmupMillis, long defaultMeasurementMillis )
+    {
+        return new SerializerComparison( Long.getLong( WARMUP_PROPERTY, defaultWarmupMillis ),
+                                         Long.getLong( MEASUREMENT_PROPERTY, defaultMeasurementMillis ) );
+    }
+
+    public static void main( String[] args )
+        throws Exception
+    {
+        final SerializerComparison comparison = fromSystemProperties( 1000, 3000 );
+        final Map<String, Object> corpus = SerializerCorpus.newCorpus();
+
+        final List<Result> results = new ArrayList<Result>();
+        for ( Serializer serializer : load( Serializer.class ) )
+        {
+            results.addAll( comparison.compare( serializer, corpus ) );
+        }
+        System.out.println( report( results ) );
+    }
+
+    public List<Result> compare( Serializer serializer, Map<String, Object> corpus )
+    {
+        final List<Result> results = new ArrayList<Result>();
+        for ( Map.Entry<String, Object> sample : corpus.entrySet() )
+        {
+            results.add( measure( serializer, sample.getKey(), sample.getValue() ) );
+        }
+        return results;
+    }
+
+    public Result measure( Serializer serializer, String sampleName, Object sample )
+    {
+        final String serializerName = serializer.getClass().getSimpleName();
+
+        final byte[] bytes;
+        try
+        {
+            bytes = serializer.serialize( sample );
+            final Object copy = serializer.deserialize( bytes, sample.getClass() );
+            if ( !sample.equals( copy ) )
+            {
+                return Result.failed( serializerName, sampleName, MISMATCH );
+            }
+        }
+        catch ( Exception e )
+        {
+            return Result.failed( serializerName, sampleName, "not supported, " + e );
+        }
+        catch ( LinkageError e )
+        {
+            return Result.failed( serializerName, sampleName, "not supported, " + e );
+        }
+
+        try
+        {
+            final Measure serialization = measure( new SerializeOperation( serializer, sample ) );
+            final Measure deserialization = measure( new DeserializeOperation( serializer, bytes, sample.getClass() ) );
+            return new Result( serializerName, sampleName, bytes.length, serialization, deserialization );
+        }
+        catch ( Exception e )
+        {
+            return Result.failed( serializerName, sampleName, "failed while being measured, " + e );
+        }
+    }
+
+    private Measure measure( Operation operation )
+        throws Exception
+    {
+        // warmup, also sizing the batches
+        long operations = 0;
+        long batch = 1;
+        final long warmupStart = System.nanoTime();
+        final long warmupEnd = warmupStart + warmupMillis * 1000000L;
+        long now;
+        do
+        {
+            run( operation, batch );
+            operations += batch;
+            now = System.nanoTime();
+            if ( now - warmupStart < BATCH_NANOS )
+            {
+                batch *= 2;
+            }
+        }
+        while ( now < warmupEnd );
+        batch = Math.max( 1, operations * BATCH_NANOS / Math.max( 1, now - warmupStart ) );
+
+        operations = 0;
+        final long allocatedBefore = ThreadAllocation.allocatedBytes();
+        final long start = System.nanoTime();
+        final long end = start + measurementMillis * 1000000L;
+        do
+        {
+            run( operation, batch );
+            operations += batch;
+            now = System.nanoTime();
+        }
+        while ( now < end );
+        final long allocated = ThreadAllocation.isSupported() ? ThreadAllocation.allocatedBytes() - allocatedBefore : -1;
+
+        return new Measure( operations, now - start, allocated );
+    }
+
+    private void run( Operation operation, long times )
+        throws Exception
+    {
+        int hash = 0;
+        for ( long i = 0; i < times; i++ )
+        {
+            hash += operation.run();
+        }
+        sink += hash;
+    }
+
+    /**
+     * @return a table of the results
+     */
+    public static String report( List<Result> results )
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append( format( "%-40s %-12s %14s %14s %10s %16s %16s%n", "serializer", "sample", "serialize ns",
+                           "deserialize ns", "bytes", "ser. alloc B/op", "deser. alloc B/op" ) );
+        for ( Result result : results )
+        {
+            if ( result.getFailure() != null )
+            {
+                sb.append( format( "%-40s %-12s %s%n", result.getSerializer(), result.getSample(),
+                                   result.getFailure() ) );
+            }
+            else
+            {
+                sb.append( format( "%-40s %-12s %14.1f %14.1f %10d %16s %16s%n", result.getSerializer(),
+                                   result.getSample(), result.getSerializeNanos(), result.getDeserializeNanos(),
+                                   result.getBytes(), allocation( result.getSerializeAllocatedBytes() ),
+                                   allocation( result.getDeserializeAllocatedBytes() ) ) );
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String allocation( double bytes )
+    {
+        return bytes < 0 ? "n/a" : format( "%.0f", bytes );
+    }
+
+    private interface Operation
+    {
+
+        /**
+         * @return something depending on the result, fed to the {@link #sink}
+         */
+        int run()
+            throws Exception;
+
+    }
+
+    private static class SerializeOperation
+        implements Operation
+    {
+
+        private final Serializer serializer;
+
+        private final Object sample;
+
+        SerializeOperation( Serializer serializer, Object sample )
+        {
+            this.serializer = serializer;
+            this.sample = sample;
+        }
+
+        @Override
+        public int run()
+            throws Exception
+        {
+            return serializer.serialize( sample ).length;
+        }
+
+    }
+
+    private static class DeserializeOperation
+        implements Operation
+    {
+
+        private final Serializer serializer;
+
+        private final byte[] bytes;
+
+        private final Class<?> type;
+
+        DeserializeOperation( Serializer serializer, byte[] bytes, Class<?> type )
+        {
+            this.serializer = serializer;
+            this.bytes = bytes;
+            this.type = type;
+        }
+
+        @Override
+        public int run()
+            throws Exception
+        {
+            return System.identityHashCode( serializer.deserialize( bytes, type ) );
+        }
+
+    }
+
+    private static final class Measure
+    {
+
+        final long operations;
+
+        final long nanos;
+
+        final long allocatedBytes;
+
+        Measure( long operations, long nanos, long allocatedBytes )
+        {
+            this.operations = operations;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        double nanosPerOperation()
+        {
+            return (double) nanos / operations;
+        }
+
+        double allocatedBytesPerOperation()
+        {
+            return allocatedBytes < 0 ? -1 : (double) allocatedBytes / operations;
+        }
+
+    }
+
+    /**
+     * Outcome of the measure of a serializer on a sample.
+     */
+    public static final class Result
+    {
+
+        private final String serializer;
+
+        private final String sample;
+
+        private final String failure;
+
+        private final int bytes;
+
+        private final double serializeNanos;
+
+        private final double deserializeNanos;
+
+        private final double serializeAllocatedBytes;
+
+        private final double deserializeAllocatedBytes;
+
+        Result( String serializer, String sample, int bytes, Measure serialization, Measure deserialization )
+        {
+            this.serializer = serializer;
+            this.sample = sample;
+            this.failure = null;
+            this.bytes = bytes;
+            this.serializeNanos = serialization.nanosPerOperation();
+            this.deserializeNanos = deserialization.nanosPerOperation();
+            this.serializeAllocatedBytes = serialization.allocatedBytesPerOperation();
+            this.deserializeAllocatedBytes = deserialization.allocatedBytesPerOperation();
+        }
+
+        private Result( String serializer, String sample, String failure )
+        {
+            this.serializer = serializer;
+            this.sample = sample;
+            this.failure = failure;
+            this.bytes = -1;
+            this.serializeNanos = Double.NaN;
+            this.deserializeNanos = Double.NaN;
+            this.serializeAllocatedBytes = -1;
+            this.deserializeAllocatedBytes = -1;
+        }
+
+        static Result failed( String serializer, String sample, String failure )
+        {
+            return new Result( serializer, sample, failure );
+        }
+
+        public String getSerializer()
+        {
+            return serializer;
+        }
+
+        public String getSample()
+        {
+            return sample;
+        }
+
+        /**
+         * @return why the serializer could not be measured on the sample, <code>null</code> if it has been
+         */
+        public String getFailure()
+        {
+            return failure;
+        }
+
+        /**
+         * @return size of the serialized sample
+         */
+        public int getBytes()
+        {
+            return bytes;
+        }
+
+        public double getSerializeNanos()
+        {
+            return serializeNanos;
+        }
+
+        public double getDeserializeNanos()
+        {
+            return deserializeNanos;
+        }
+
+        /**
+         * @return heap bytes allocated per serialization, -1 if the JVM does not report it
+         */
+        public double getSerializeAllocatedBytes()
+        {
+            return serializeAllocatedBytes;
+        }
+
+        /**
+         * @return heap bytes allocated per deserialization, -1 if the JVM does not report it
+         */
+        public double getDeserializeAllocatedBytes()
+        {
+            return deserializeAllocatedBytes;
+        }
+
+    }
+
+}
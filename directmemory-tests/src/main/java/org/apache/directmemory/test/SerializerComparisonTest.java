@@ -0,0 +1,117 @@
+package org.apache.directmemory.test;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+import org.apache.directmemory.serialization.Serializer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the {@link SerializerComparison} of every serializer found by the {@link ServiceLoader} on the
+ * {@link SerializerCorpus}, so every serializer module reports figures measured the same way, next to the ones of the
+ * serializers it is compared with. The serializer modules run it by scanning this jar for tests. Short measurements
+ * are run by default, longer ones can be configured through the {@link SerializerComparison#WARMUP_PROPERTY} and
+ * {@link SerializerComparison#MEASUREMENT_PROPERTY} system properties.
+ */
+@RunWith( Parameterized.class )
+public class SerializerComparisonTest
+{
+
+    private final Logger logger = LoggerFactory.getLogger( getClass() );
+
+    private final String name;
+
+    private final Serializer serializer;
+
+    public SerializerComparisonTest( String name, Serializer serializer )
+    {
+        this.name = name;
+        this.serializer = serializer;
+    }
+
+    @Parameters( name = "{0}" )
+    public static Collection<Object[]> serializers()
+    {
+        final List<Object[]> serializers = new ArrayList<Object[]>();
+        for ( Serializer serializer : ServiceLoader.load( Serializer.class ) )
+        {
+            serializers.add( new Object[] { serializer.getClass().getSimpleName(), serializer } );
+        }
+        return serializers;
+    }
+
+    /**
+     * Serializers which can not handle plain java objects provide their own {@link SerializerSamples}.
+     */
+    private Map<String, Object> getCorpus()
+    {
+        for ( SerializerSamples samples : ServiceLoader.load( SerializerSamples.class ) )
+        {
+            if ( samples.accepts( serializer ) )
+            {
+                return samples.newCorpus();
+            }
+        }
+        return SerializerCorpus.newCorpus();
+    }
+
+    @Test
+    public void compareOnCorpus()
+        throws Exception
+    {
+        final List<SerializerComparison.Result> results =
+            SerializerComparison.fromSystemProperties( 100, 200 ).compare( serializer, getCorpus() );
+
+        logger.info( "Comparison of {} on the serializer corpus\n{}", name, SerializerComparison.report( results ) );
+
+        boolean measured = false;
+        for ( SerializerComparison.Result result : results )
+        {
+            if ( result.getFailure() == null )
+            {
+                measured = true;
+                assertTrue( result.getBytes() > 0 );
+                assertTrue( result.getSerializeNanos() > 0 );
+                assertTrue( result.getDeserializeNanos() > 0 );
+            }
+            else
+            {
+                // serializers may not support every sample, but they must not corrupt those they support
+                assertFalse( result.getSerializer() + " on " + result.getSample() + " : " + result.getFailure(),
+                             result.getFailure().startsWith( SerializerComparison.MISMATCH ) );
+            }
+        }
+        assertTrue( "no sample of the corpus could be measured", measured );
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.apache.directmemory.test;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Objects every serializer is compared on : a {@link Wine}, a small {@link Bottle} of primitives, a {@link Catalog}
+ * of collections and a large {@link Cellar} graph. The instances are built the same way every time, so the results
+ * of the different serializer modules can be compared.
+ */
+public final class SerializerCorpus
+{
+
+    public static final String WINE = "wine";
+
+    public static final String SMALL_POJO = "small-pojo";
+
+    public static final String COLLECTIONS = "collections";
+
+    public static final String LARGE_GRAPH = "large-graph";
+
+    /**
+     * @return the samples of the corpus, by name
+     */
+    public static Map<String, Object> newCorpus()
+    {
+        final Map<String, Object> corpus = new LinkedHashMap<String, Object>();
+        corpus.put( WINE, new Wine( "Gevrey-Chambertin", "nice French wine from Bourgogne" ) );
+        corpus.put( SMALL_POJO, newBottle( 42 ) );
+        corpus.put( COLLECTIONS, newCatalog( 100 ) );
+        corpus.put( LARGE_GRAPH, newCellar( 50, 100 ) );
+        return corpus;
+    }
+
+    public static Bottle newBottle( long id )
+    {
+        return new Bottle( id, "Bottle #" + id, 1990 + (int) ( id % 25 ), 0.75d, id % 7 == 0 );
+    }
+
+    public static Catalog newCatalog( int size )
+    {
+        final List<String> references = new ArrayList<String>( size );
+        final Map<String, Integer> stock = new HashMap<String, Integer>();
+        for ( int i = 0; i < size; i++ )
+        {
+            final String reference = "REF-" + ( 100000 + i * 37 );
+            references.add( reference );
+            stock.put( reference, i * 3 % 120 );
+        }
+        return new Catalog( "Catalog of " + size + " references", references, stock );
+    }
+
+    public static Cellar newCellar( int racks, int bottlesPerRack )
+    {
+        final List<Rack> rackList = new ArrayList<Rack>( racks );
+        long id = 0;
+        for ( int i = 0; i < racks; i++ )
+        {
+            final List<Bottle> bottles = new ArrayList<Bottle>( bottlesPerRack );
+            for ( int j = 0; j < bottlesPerRack; j++ )
+            {
+                bottles.add( newBottle( id++ ) );
+            }
+            rackList.add( new Rack( i, new Wine( "Wine of rack " + i, "a wine stored in rack " + i ), bottles ) );
+        }
+        return new Cellar( "Cellar of " + racks * bottlesPerRack + " bottles", rackList );
+    }
+
+    /**
+     * Hidden constructor, this class cannot be instantiated
+     */
+    private SerializerCorpus()
+    {
+        // do nothing
+    }
+
+}
@@ -0,0 +1,44 @@
+package org.apache.directmemory.test;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Map;
+
+import org.apache.directmemory.serialization.Serializer;
+
+/**
+ * Samples shaped like the {@link SerializerCorpus} for a serializer which can not handle plain java objects. The
+ * {@link SerializerComparisonTest} finds them through the {@link java.util.ServiceLoader}, a serializer module
+ * registering its own in the <code>META-INF/services</code> of its tests.
+ */
+public interface SerializerSamples
+{
+
+    /**
+     * @return true when the samples are meant for the given serializer
+     */
+    boolean accepts( Serializer serializer );
+
+    /**
+     * @return the samples, by the names of the {@link SerializerCorpus}
+     */
+    Map<String, Object> newCorpus();
+
+}
@@ -61,4 +61,33 @@ public class Wine
     {
         this.description = description;
     }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+
+        Wine wine = (Wine) o;
+
+        if ( name != null ? !name.equals( wine.name ) : wine.name != null )
+        {
+            return false;
+        }
+        return description != null ? description.equals( wine.description ) : wine.description == null;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = name != null ? name.hashCode() : 0;
+        result = 31 * result + ( description != null ? description.hashCode() : 0 );
+        return result;
+    }
 }
@@ -159,6 +159,11 @@ public class DirectMemoryCache<K, V>
         return cacheService.getMemoryManager();
     }
 
+    public CacheService<K, V> getCacheService()
+    {
+        return cacheService;
+    }
+
     public Pointer<V> allocate( K key, Class<V> type, int size )
     {
         return cacheService.allocate( key, type, size );
@@ -33,6 +33,7 @@ import net.sf.ehcache.store.TierableStore;
 import net.sf.ehcache.store.disk.StoreUpdateException;
 import net.sf.ehcache.writer.CacheWriterManager;
 import org.apache.directmemory.cache.CacheServiceImpl;
+import org.apache.directmemory.management.CacheServiceMXBeanImpl;
 import org.apache.directmemory.measures.Ram;
 import org.apache.directmemory.memory.Pointer;
 import org.slf4j.Logger;
@@ -61,6 +62,8 @@ public class DirectMemoryStore
 
     private List<ReentrantLock> bufferLocks;
 
+    private String name = "DirectMemoryStore";
+
     DirectMemoryCache<Object, Element> directMemoryCache;
 
     public DirectMemoryStore( Ehcache cache, Pool<PoolableStore> offHeapPool )
@@ -78,6 +81,7 @@ public class DirectMemoryStore
         else
         {
             offHeapSizeBytes = cache.getCacheConfiguration().getMaxMemoryOffHeapInBytes();
+            name = cache.getName();
         }
         init( offHeapSizeBytes );
     }
@@ -487,8 +491,7 @@ public class DirectMemoryStore
     @Override
     public Object getMBean()
     {
-        //no operation
-        return null;
+        return new CacheServiceMXBeanImpl( name, directMemoryCache.getCacheService() );
     }
 
     @Override
@@ -0,0 +1,93 @@
+package org.apache.directmemory.serialization.protobuf;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.directmemory.serialization.Serializer;
+import org.apache.directmemory.test.SerializerCorpus;
+import org.apache.directmemory.test.SerializerSamples;
+
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+
+/**
+ * Protobuf only serializes generated messages : the corpus is made of the descriptor messages shipped with
+ * protobuf-java, shaped like the samples of the {@link SerializerCorpus}.
+ */
+public class ProtobufSerializerSamples
+    implements SerializerSamples
+{
+
+    @Override
+    public boolean accepts( Serializer serializer )
+    {
+        return serializer instanceof ProtobufSerializer;
+    }
+
+    @Override
+    public Map<String, Object> newCorpus()
+    {
+        final Map<String, Object> corpus = new LinkedHashMap<String, Object>();
+        corpus.put( SerializerCorpus.WINE, FileDescriptorProto.newBuilder()
+            .setName( "Gevrey-Chambertin" )
+            .setPackage( "nice French wine from Bourgogne" )
+            .build() );
+        corpus.put( SerializerCorpus.SMALL_POJO, newField( 42 ) );
+
+        final FileDescriptorProto.Builder collections =
+            FileDescriptorProto.newBuilder().setName( "Catalog of 100 references" );
+        for ( int i = 0; i < 100; i++ )
+        {
+            collections.addDependency( "REF-" + ( 100000 + i * 37 ) );
+        }
+        corpus.put( SerializerCorpus.COLLECTIONS, collections.build() );
+
+        final FileDescriptorProto.Builder graph =
+            FileDescriptorProto.newBuilder().setName( "Cellar of 5000 bottles" );
+        int number = 0;
+        for ( int i = 0; i < 50; i++ )
+        {
+            final DescriptorProto.Builder rack = DescriptorProto.newBuilder().setName( "Wine of rack " + i );
+            for ( int j = 0; j < 100; j++ )
+            {
+                rack.addField( newField( number++ ) );
+            }
+            graph.addMessageType( rack );
+        }
+        corpus.put( SerializerCorpus.LARGE_GRAPH, graph.build() );
+
+        return corpus;
+    }
+
+    private static FieldDescriptorProto newField( int number )
+    {
+        return FieldDescriptorProto.newBuilder()
+            .setName( "Bottle #" + number )
+            .setNumber( number + 1 )
+            .setLabel( FieldDescriptorProto.Label.LABEL_OPTIONAL )
+            .setType( number % 7 == 0 ? FieldDescriptorProto.Type.TYPE_BOOL : FieldDescriptorProto.Type.TYPE_INT64 )
+            .setDefaultValue( Integer.toString( 1990 + number % 25 ) )
+            .build();
+    }
+
+}
@@ -0,0 +1,419 @@
+package org.apache.directmemory.server.client.binary;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.directmemory.server.commons.BinaryProtocol;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.apache.directmemory.server.commons.BinaryProtocol.DELETE;
+import static org.apache.directmemory.server.commons.BinaryProtocol.DELETED;
+import static org.apache.directmemory.server.commons.BinaryProtocol.ERROR;
+import static org.apache.directmemory.server.commons.BinaryProtocol.FOUND;
+import static org.apache.directmemory.server.commons.BinaryProtocol.GET;
+import static org.apache.directmemory.server.commons.BinaryProtocol.KEY_CHARSET;
+import static org.apache.directmemory.server.commons.BinaryProtocol.MULTI_GET;
+import static org.apache.directmemory.server.commons.BinaryProtocol.NOT_FOUND;
+import static org.apache.directmemory.server.commons.BinaryProtocol.NOT_STORED;
+import static org.apache.directmemory.server.commons.BinaryProtocol.PUT;
+import static org.apache.directmemory.server.commons.BinaryProtocol.STORED;
+
+/**
+ * Client of the {@link BinaryProtocol}, holding one connection to the server over a blocking {@link SocketChannel}.
+ * The values are raw byte arrays, the serialization being left to the caller. A {@link Pipeline} sends its requests
+ * together and reads their responses together, which spares a round trip per request and is how a client reaches its
+ * highest throughput.
+ * <p>
+ * A client is not thread safe, each thread needing its own client.
+ */
+public class BinaryDirectMemoryClient
+    implements Closeable
+{
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final SocketChannel channel;
+
+    private final int bufferSize;
+
+    private final ByteBuffer defaultIn;
+
+    private final ByteBuffer defaultOut;
+
+    // the bytes received and not decoded yet, from the position to the limit
+    private ByteBuffer in;
+
+    // the requests not sent yet, from 0 to the position
+    private ByteBuffer out;
+
+    public BinaryDirectMemoryClient( String host, int port )
+        throws IOException
+    {
+        this( host, port, DEFAULT_BUFFER_SIZE );
+    }
+
+    public BinaryDirectMemoryClient( String host, int port, int bufferSize )
+        throws IOException
+    {
+        checkArgument( bufferSize >= 16, "Impossible to connect with buffers of %s bytes", bufferSize );
+        this.bufferSize = bufferSize;
+        defaultIn = ByteBuffer.allocateDirect( bufferSize );
+        defaultIn.flip();
+        defaultOut = ByteBuffer.allocateDirect( bufferSize );
+        in = defaultIn;
+        out = defaultOut;
+        channel = SocketChannel.open( new InetSocketAddress( host, port ) );
+        channel.socket().setTcpNoDelay( true );
+    }
+
+    /**
+     * @return the value or null if the key is not in the cache
+     */
+    public byte[] get( String key )
+        throws IOException
+    {
+        return (byte[]) pipeline().get( key ).execute().get( 0 );
+    }
+
+    /**
+     * @param expiresIn the time to live of the entry in milliseconds, 0 if it never expires
+     * @return true if the value is stored, false if it does not fit in the cache
+     */
+    public boolean put( String key, byte[] value, long expiresIn )
+        throws IOException
+    {
+        return (Boolean) pipeline().put( key, value, expiresIn ).execute().get( 0 );
+    }
+
+    /**
+     * @return true if the key was in the cache
+     */
+    public boolean delete( String key )
+        throws IOException
+    {
+        return (Boolean) pipeline().delete( key ).execute().get( 0 );
+    }
+
+    /**
+     * @return the values of the keys in the same order, null for the keys not in the cache
+     */
+    @SuppressWarnings( "unchecked" )
+    public List<byte[]> multiGet( List<String> keys )
+        throws IOException
+    {
+        return (List<byte[]>) pipeline().multiGet( keys ).execute().get( 0 );
+    }
+
+    /**
+     * @return a new pipeline of requests, which must be executed before the client sends any other request
+     */
+    public Pipeline pipeline()
+    {
+        return new Pipeline();
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Requests sent together, {@link #execute()} returning their responses in the same order. The requests are sent
+     * as soon as they fill the buffer of the client, the responses received meanwhile being kept until the execution,
+     * so that a pipeline may hold any number of requests without the client and the server blocking each other.
+     */
+    public final class Pipeline
+    {
+
+        private final List<Byte> operations = new ArrayList<Byte>();
+
+        private final List<Object> responses = new ArrayList<Object>();
+
+        private Pipeline()
+        {
+        }
+
+        public Pipeline get( String key )
+            throws IOException
+        {
+            final byte[] bytes = key.getBytes( KEY_CHARSET );
+            begin( GET, 9 + bytes.length );
+            out.put( GET );
+            putKey( bytes );
+            return this;
+        }
+
+        /**
+         * @param expiresIn the time to live of the entry in milliseconds, 0 if it never expires
+         */
+        public Pipeline put( String key, byte[] value, long expiresIn )
+            throws IOException
+        {
+            checkArgument( expiresIn >= 0, "Impossible to put an entry expiring in %s milliseconds", expiresIn );
+            final byte[] bytes = key.getBytes( KEY_CHARSET );
+            begin( PUT, 17 + bytes.length + value.length );
+            out.put( PUT );
+            putKey( bytes );
+            out.putLong( expiresIn );
+            out.put( value );
+            return this;
+        }
+
+        public Pipeline delete( String key )
+            throws IOException
+        {
+            final byte[] bytes = key.getBytes( KEY_CHARSET );
+            begin( DELETE, 9 + bytes.length );
+            out.put( DELETE );
+            putKey( bytes );
+            return this;
+        }
+
+        public Pipeline multiGet( List<String> keys )
+            throws IOException
+        {
+            final List<byte[]> encoded = new ArrayList<byte[]>( keys.size() );
+            int size = 9;
+            for ( String key : keys )
+            {
+                final byte[] bytes = key.getBytes( KEY_CHARSET );
+                encoded.add( bytes );
+                size += 4 + bytes.length;
+            }
+            begin( MULTI_GET, size );
+            out.put( MULTI_GET );
+            out.putInt( encoded.size() );
+            for ( byte[] bytes : encoded )
+            {
+                putKey( bytes );
+            }
+            return this;
+        }
+
+        /**
+         * Sends the requests left and reads the responses.
+         *
+         * @return a byte array or null for each get, a Boolean for each put and delete, a list of byte arrays for
+         *         each multi-get
+         * @throws IOException if the server rejected a request, such as a get of a value bigger than the max frame
+         *             size of the server, the responses of the other requests sent being read all the same
+         */
+        public List<Object> execute()
+            throws IOException
+        {
+            drain();
+            return Collections.unmodifiableList( responses );
+        }
+
+        /**
+         * Starts a request of the given size, sending the previous ones first if it does not fit in the buffer.
+         */
+        private void begin( byte operation, int size )
+            throws IOException
+        {
+            if ( out.position() > 0 && out.position() + size > bufferSize )
+            {
+                drain();
+            }
+            if ( out.remaining() < size )
+            {
+                final ByteBuffer bigger = ByteBuffer.allocate( out.position() + size );
+                out.flip();
+                bigger.put( out );
+                out = bigger;
+            }
+            out.putInt( size - 4 );
+            operations.add( operation );
+        }
+
+        private void putKey( byte[] bytes )
+        {
+            out.putInt( bytes.length );
+            out.put( bytes );
+        }
+
+        /**
+         * Sends the requests buffered and reads the responses of all the requests sent.
+         */
+        private void drain()
+            throws IOException
+        {
+            out.flip();
+            while ( out.hasRemaining() )
+            {
+                channel.write( out );
+            }
+            defaultOut.clear();
+            out = defaultOut;
+
+            // the responses following a rejected request are read all the same, to stay in step with the server
+            IOException rejected = null;
+            for ( int i = responses.size(); i < operations.size(); i++ )
+            {
+                final ByteBuffer frame;
+                try
+                {
+                    frame = readFrame();
+                }
+                catch ( IOException e )
+                {
+                    // the connection is closed once a malformed request is rejected
+                    throw rejected != null ? rejected : e;
+                }
+                try
+                {
+                    responses.add( decode( operations.get( i ), frame ) );
+                }
+                catch ( IOException e )
+                {
+                    responses.add( null );
+                    rejected = rejected != null ? rejected : e;
+                }
+            }
+            if ( rejected != null )
+            {
+                throw rejected;
+            }
+        }
+
+        private Object decode( byte operation, ByteBuffer frame )
+            throws IOException
+        {
+            final byte status = frame.get();
+            if ( status == ERROR )
+            {
+                final byte[] message = new byte[frame.remaining()];
+                frame.get( message );
+                throw new IOException( "The server rejected the request : " + new String( message, KEY_CHARSET ) );
+            }
+            switch ( operation )
+            {
+                case GET:
+                    if ( status == FOUND )
+                    {
+                        return bytes( frame, frame.remaining() );
+                    }
+                    checkStatus( status == NOT_FOUND, status );
+                    return null;
+                case PUT:
+                    checkStatus( status == STORED || status == NOT_STORED, status );
+                    return status == STORED;
+                case DELETE:
+                    checkStatus( status == DELETED || status == NOT_FOUND, status );
+                    return status == DELETED;
+                default:
+                    checkStatus( status == FOUND, status );
+                    final int count = frame.getInt();
+                    final List<byte[]> values = new ArrayList<byte[]>( count );
+                    for ( int i = 0; i < count; i++ )
+                    {
+                        final int length = frame.getInt();
+                        values.add( length < 0 ? null : bytes( frame, length ) );
+                    }
+                    return values;
+            }
+        }
+
+        private void checkStatus( boolean expected, byte status )
+            throws IOException
+        {
+            if ( !expected )
+            {
+                throw new IOException( "Unexpected status " + status );
+            }
+        }
+
+        private byte[] bytes( ByteBuffer frame, int length )
+        {
+            final byte[] bytes = new byte[length];
+            frame.get( bytes );
+            return bytes;
+        }
+
+    }
+
+    /**
+     * @return the next response frame, valid until the next one is read
+     */
+    private ByteBuffer readFrame()
+        throws IOException
+    {
+        fill( 4 );
+        final int length = in.getInt();
+        if ( length < 1 )
+        {
+            throw new IOException( "Invalid frame length " + length );
+        }
+        fill( length );
+        final ByteBuffer frame = in.slice();
+        frame.limit( length );
+        in.position( in.position() + length );
+
+        // back to the direct buffer once the frames bigger than it are read
+        if ( in != defaultIn && in.remaining() <= bufferSize )
+        {
+            defaultIn.clear();
+            defaultIn.put( in );
+            defaultIn.flip();
+            in = defaultIn;
+        }
+        return frame;
+    }
+
+    /**
+     * Receives bytes until the given number of bytes is available, in a bigger heap buffer if needed.
+     */
+    private void fill( int bytes )
+        throws IOException
+    {
+        if ( in.remaining() >= bytes )
+        {
+            return;
+        }
+        if ( bytes > in.capacity() )
+        {
+            final ByteBuffer bigger = ByteBuffer.allocate( bytes );
+            bigger.put( in );
+            bigger.flip();
+            in = bigger;
+        }
+        in.compact();
+        while ( in.position() < bytes )
+        {
+            if ( channel.read( in ) < 0 )
+            {
+                throw new EOFException( "Connection closed by the server" );
+            }
+        }
+        in.flip();
+    }
+
+}
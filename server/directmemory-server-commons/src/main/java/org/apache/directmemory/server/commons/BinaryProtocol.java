@@ -0,0 +1,77 @@
+package org.apache.directmemory.server.commons;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Constants of the binary protocol spoken over TCP between the binary protocol server and client, a lean alternative
+ * to the http exchanges. Every frame is prefixed by its length, as a big-endian int not counting the prefix itself. A
+ * request frame starts with an operation code and a response frame with a status, the keys being encoded in UTF-8 and
+ * prefixed by their length :
+ * <ul>
+ * <li>{@link #GET} : <code>[GET][key]</code>, answered by <code>[FOUND][value]</code> or <code>[NOT_FOUND]</code></li>
+ * <li>{@link #PUT} : <code>[PUT][key][long expiresIn][value]</code>, the value running up to the end of the frame,
+ * answered by <code>[STORED]</code> or <code>[NOT_STORED]</code></li>
+ * <li>{@link #DELETE} : <code>[DELETE][key]</code>, answered by <code>[DELETED]</code> or <code>[NOT_FOUND]</code></li>
+ * <li>{@link #MULTI_GET} : <code>[MULTI_GET][int count][key]...</code>, answered by
+ * <code>[FOUND][int count][int length][value]...</code>, the length of a value not found being -1</li>
+ * </ul>
+ * The requests can be pipelined, the responses being sent in the order of the requests. A malformed request is
+ * answered by <code>[ERROR]</code> followed by a message in UTF-8, and the server closes the connection. A get or a
+ * multi-get whose response would be bigger than the max frame size is answered by <code>[ERROR]</code> too, the
+ * connection staying open.
+ */
+public final class BinaryProtocol
+{
+
+    public static final int DEFAULT_PORT = 9191;
+
+    /**
+     * the default size in bytes of the biggest frame accepted or sent by the server
+     */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+    public static final String KEY_CHARSET = "UTF-8";
+
+    public static final byte GET = 1;
+
+    public static final byte PUT = 2;
+
+    public static final byte DELETE = 3;
+
+    public static final byte MULTI_GET = 4;
+
+    public static final byte FOUND = 0;
+
+    public static final byte NOT_FOUND = 1;
+
+    public static final byte STORED = 2;
+
+    public static final byte NOT_STORED = 3;
+
+    public static final byte DELETED = 4;
+
+    public static final byte ERROR = 5;
+
+    private BinaryProtocol()
+    {
+        // no op
+    }
+
+}
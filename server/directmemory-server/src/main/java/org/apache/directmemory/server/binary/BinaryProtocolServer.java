@@ -0,0 +1,820 @@
+package org.apache.directmemory.server.binary;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.server.commons.BinaryProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static org.apache.directmemory.server.commons.BinaryProtocol.DELETE;
+import static org.apache.directmemory.server.commons.BinaryProtocol.DELETED;
+import static org.apache.directmemory.server.commons.BinaryProtocol.ERROR;
+import static org.apache.directmemory.server.commons.BinaryProtocol.FOUND;
+import static org.apache.directmemory.server.commons.BinaryProtocol.GET;
+import static org.apache.directmemory.server.commons.BinaryProtocol.KEY_CHARSET;
+import static org.apache.directmemory.server.commons.BinaryProtocol.MULTI_GET;
+import static org.apache.directmemory.server.commons.BinaryProtocol.NOT_FOUND;
+import static org.apache.directmemory.server.commons.BinaryProtocol.NOT_STORED;
+import static org.apache.directmemory.server.commons.BinaryProtocol.PUT;
+import static org.apache.directmemory.server.commons.BinaryProtocol.STORED;
+
+/**
+ * Server of the {@link BinaryProtocol} over TCP, built on {@link Selector}s without any other dependency. The
+ * connections are spread over a few selector threads, each running the requests of its connections as soon as their
+ * frames are complete, so that the pipelined requests of a client are served without a thread or a round trip per
+ * request. The values are copied between the direct buffers of the connections and the off-heap memory by
+ * {@link CacheService#putStream} and {@link CacheService#retrieveStream}, never as a whole on heap, only the frames
+ * bigger than the buffers being received or sent through a bigger heap buffer.
+ * <p>
+ * A connection stops reading requests while the responses it did not send yet fill its buffer, so that a client which
+ * does not read its responses can not make the server buffer them without limit.
+ */
+public class BinaryProtocolServer
+    implements Closeable
+{
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    // the biggest heap buffer the responses are moved to
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+    // the frames are received along with their length in a single buffer
+    public static final int MAX_FRAME_SIZE = MAX_BUFFER_SIZE - 4;
+
+    private final Logger log = LoggerFactory.getLogger( getClass() );
+
+    private final CacheService<? super String, ?> cacheService;
+
+    private String host;
+
+    private int port = BinaryProtocol.DEFAULT_PORT;
+
+    private int selectorThreads = Runtime.getRuntime().availableProcessors();
+
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    private int maxFrameSize = BinaryProtocol.DEFAULT_MAX_FRAME_SIZE;
+
+    private ServerSocketChannel serverChannel;
+
+    private SelectorLoop[] loops;
+
+    private volatile boolean running;
+
+    public BinaryProtocolServer( CacheService<? super String, ?> cacheService )
+    {
+        checkArgument( cacheService != null, "Impossible to serve a null CacheService" );
+        this.cacheService = cacheService;
+    }
+
+    /**
+     * @param host the address to listen on, null for all the addresses of the machine
+     */
+    public BinaryProtocolServer setHost( String host )
+    {
+        this.host = host;
+        return this;
+    }
+
+    /**
+     * @param port the port to listen on, 0 for any free port
+     */
+    public BinaryProtocolServer setPort( int port )
+    {
+        checkArgument( port >= 0, "Impossible to listen on the port %s", port );
+        this.port = port;
+        return this;
+    }
+
+    public BinaryProtocolServer setSelectorThreads( int selectorThreads )
+    {
+        checkArgument( selectorThreads > 0, "Impossible to serve the connections with %s threads", selectorThreads );
+        this.selectorThreads = selectorThreads;
+        return this;
+    }
+
+    /**
+     * @param bufferSize the size in bytes of the buffers of each connection
+     */
+    public BinaryProtocolServer setBufferSize( int bufferSize )
+    {
+        checkArgument( bufferSize >= 16, "Impossible to serve the connections with buffers of %s bytes", bufferSize );
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * @param maxFrameSize the size in bytes of the biggest request accepted and of the biggest response sent, which
+     *            bounds the size of the values, at most {@link #MAX_FRAME_SIZE}
+     */
+    public BinaryProtocolServer setMaxFrameSize( int maxFrameSize )
+    {
+        checkArgument( maxFrameSize > 0 && maxFrameSize <= MAX_FRAME_SIZE, "Impossible to accept frames of %s bytes",
+                       maxFrameSize );
+        this.maxFrameSize = maxFrameSize;
+        return this;
+    }
+
+    public synchronized BinaryProtocolServer start()
+        throws IOException
+    {
+        checkState( serverChannel == null, "The binary protocol server is already started" );
+
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().setReuseAddress( true );
+        serverChannel.socket().bind(
+            host == null ? new InetSocketAddress( port ) : new InetSocketAddress( host, port ) );
+        serverChannel.configureBlocking( false );
+
+        loops = new SelectorLoop[selectorThreads];
+        for ( int i = 0; i < loops.length; i++ )
+        {
+            loops[i] = new SelectorLoop( i );
+        }
+        // the first loop accepts the connections too
+        serverChannel.register( loops[0].selector, SelectionKey.OP_ACCEPT );
+
+        running = true;
+        for ( SelectorLoop loop : loops )
+        {
+            loop.thread.start();
+        }
+        log.info( "binary protocol server listening on {} with {} selector threads",
+                  serverChannel.socket().getLocalSocketAddress(), loops.length );
+        return this;
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public synchronized int getLocalPort()
+    {
+        checkState( serverChannel != null, "The binary protocol server is not started" );
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return the number of requests run since the start
+     */
+    public synchronized long getRequests()
+    {
+        long requests = 0;
+        for ( SelectorLoop loop : loops )
+        {
+            requests += loop.requests;
+        }
+        return requests;
+    }
+
+    /**
+     * @return the number of open connections
+     */
+    public synchronized int getConnections()
+    {
+        int connections = 0;
+        for ( SelectorLoop loop : loops )
+        {
+            connections += loop.connections;
+        }
+        return connections;
+    }
+
+    @Override
+    public synchronized void close()
+        throws IOException
+    {
+        if ( !running )
+        {
+            return;
+        }
+        running = false;
+        for ( SelectorLoop loop : loops )
+        {
+            loop.selector.wakeup();
+        }
+        for ( SelectorLoop loop : loops )
+        {
+            try
+            {
+                loop.thread.join();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        serverChannel.close();
+        log.info( "binary protocol server closed after {} requests", getRequests() );
+    }
+
+    private static void closeQuietly( Closeable closeable )
+    {
+        try
+        {
+            closeable.close();
+        }
+        catch ( IOException e )
+        {
+            // nothing to do
+        }
+    }
+
+    private final class SelectorLoop
+        implements Runnable
+    {
+
+        private final Selector selector;
+
+        private final Thread thread;
+
+        // the connections accepted by the first loop, waiting to be registered
+        private final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<SocketChannel>();
+
+        // written by the thread of the loop only
+        private volatile long requests;
+
+        private volatile int connections;
+
+        private int nextLoop;
+
+        SelectorLoop( int index )
+            throws IOException
+        {
+            selector = Selector.open();
+            thread = new Thread( this, "directmemory-binary-protocol-" + index );
+            thread.setDaemon( true );
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                while ( running )
+                {
+                    selector.select();
+
+                    SocketChannel channel;
+                    while ( ( channel = accepted.poll() ) != null )
+                    {
+                        final Connection connection = new Connection( channel );
+                        connection.key = channel.register( selector, SelectionKey.OP_READ, connection );
+                        connections++;
+                    }
+
+                    final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while ( keys.hasNext() )
+                    {
+                        final SelectionKey key = keys.next();
+                        keys.remove();
+                        if ( !key.isValid() )
+                        {
+                            continue;
+                        }
+                        if ( key.isAcceptable() )
+                        {
+                            try
+                            {
+                                accept();
+                            }
+                            catch ( IOException e )
+                            {
+                                // out of file descriptors or a connection reset while pending : keep accepting
+                                log.warn( "binary protocol server failed to accept a connection", e );
+                            }
+                        }
+                        else
+                        {
+                            ( (Connection) key.attachment() ).ready();
+                        }
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                log.error( "binary protocol selector failed", e );
+            }
+            finally
+            {
+                for ( SelectionKey key : selector.keys() )
+                {
+                    closeQuietly( key.channel() );
+                }
+                SocketChannel channel;
+                while ( ( channel = accepted.poll() ) != null )
+                {
+                    closeQuietly( channel );
+                }
+                closeQuietly( selector );
+            }
+        }
+
+        private void accept()
+            throws IOException
+        {
+            SocketChannel channel;
+            while ( ( channel = serverChannel.accept() ) != null )
+            {
+                try
+                {
+                    channel.configureBlocking( false );
+                    channel.socket().setTcpNoDelay( true );
+                }
+                catch ( IOException e )
+                {
+                    closeQuietly( channel );
+                    throw e;
+                }
+                final SelectorLoop loop = loops[nextLoop];
+                nextLoop = ( nextLoop + 1 ) % loops.length;
+                loop.accepted.add( channel );
+                loop.selector.wakeup();
+            }
+        }
+
+        private final class Connection
+        {
+
+            private final SocketChannel channel;
+
+            private SelectionKey key;
+
+            private final ByteBuffer defaultIn = ByteBuffer.allocateDirect( bufferSize );
+
+            private final ByteBuffer defaultOut = ByteBuffer.allocateDirect( bufferSize );
+
+            // the bytes received and not run yet, from 0 to the position
+            private ByteBuffer in = defaultIn;
+
+            // the responses not sent yet, from 0 to the position
+            private ByteBuffer out = defaultOut;
+
+            private final ResponseStream responseStream = new ResponseStream();
+
+            // true once a malformed request is answered, the connection closing when the error is sent
+            private boolean closing;
+
+            Connection( SocketChannel channel )
+            {
+                this.channel = channel;
+            }
+
+            void ready()
+            {
+                try
+                {
+                    if ( key.isReadable() && channel.read( in ) < 0 )
+                    {
+                        close();
+                        return;
+                    }
+                    do
+                    {
+                        run();
+                        flush();
+                    }
+                    while ( key.isValid() && !closing && out.position() < bufferSize && hasFrame() );
+                }
+                catch ( IOException e )
+                {
+                    log.debug( "binary protocol connection failed : {}", e.getMessage() );
+                    close();
+                }
+            }
+
+            private boolean hasFrame()
+            {
+                return in.position() >= 4 && in.position() - 4 >= in.getInt( 0 );
+            }
+
+            /**
+             * Runs the complete requests received, until the responses fill the output buffer.
+             */
+            private void run()
+                throws IOException
+            {
+                int needed = 0;
+                in.flip();
+                try
+                {
+                    while ( !closing && out.position() < bufferSize && in.remaining() >= 4 )
+                    {
+                        final int length = in.getInt( in.position() );
+                        if ( length < 1 || length > maxFrameSize )
+                        {
+                            error( out.position(), "Invalid frame length " + length );
+                            break;
+                        }
+                        if ( in.remaining() < 4 + length )
+                        {
+                            needed = 4 + length;
+                            break;
+                        }
+                        final ByteBuffer frame = in.duplicate();
+                        frame.position( in.position() + 4 );
+                        frame.limit( in.position() + 4 + length );
+                        in.position( frame.limit() );
+                        execute( frame );
+                        requests++;
+                    }
+                }
+                finally
+                {
+                    in.compact();
+                }
+
+                // a frame bigger than the buffer is received in a heap buffer of its size
+                final int capacity = Math.max( needed, bufferSize );
+                if ( in.capacity() != capacity && in.position() <= capacity )
+                {
+                    final ByteBuffer resized = capacity == bufferSize ? defaultIn : ByteBuffer.allocate( capacity );
+                    resized.clear();
+                    in.flip();
+                    resized.put( in );
+                    in = resized;
+                }
+            }
+
+            private void execute( ByteBuffer frame )
+                throws IOException
+            {
+                final int start = out.position();
+                try
+                {
+                    final byte operation = frame.get();
+                    switch ( operation )
+                    {
+                        case GET:
+                            get( key( frame ) );
+                            break;
+                        case PUT:
+                            put( frame );
+                            break;
+                        case DELETE:
+                            delete( key( frame ) );
+                            break;
+                        case MULTI_GET:
+                            multiGet( frame );
+                            break;
+                        default:
+                            error( start, "Unknown operation " + operation );
+                    }
+                }
+                catch ( BufferUnderflowException e )
+                {
+                    error( start, "Truncated frame" );
+                }
+                catch ( IllegalArgumentException e )
+                {
+                    error( start, e.getMessage() );
+                }
+                catch ( RuntimeException e )
+                {
+                    log.warn( "binary protocol request failed", e );
+                    error( start, String.valueOf( e ) );
+                }
+            }
+
+            private String key( ByteBuffer frame )
+                throws IOException
+            {
+                final int length = frame.getInt();
+                checkArgument( length >= 0 && length <= frame.remaining(), "Invalid key length %s", length );
+                final byte[] bytes = new byte[length];
+                frame.get( bytes );
+                return new String( bytes, KEY_CHARSET );
+            }
+
+            private void get( String key )
+                throws IOException
+            {
+                final int start = out.position();
+                reserve( 5 );
+                out.putInt( 0 );
+                out.put( FOUND );
+                final long length;
+                try
+                {
+                    length = retrieve( key, start );
+                }
+                catch ( FrameTooBigException e )
+                {
+                    reject( start, e.getMessage() );
+                    return;
+                }
+                if ( length < 0 )
+                {
+                    out.position( start );
+                    respond( NOT_FOUND );
+                }
+                else
+                {
+                    out.putInt( start, out.position() - start - 4 );
+                }
+            }
+
+            private void put( ByteBuffer frame )
+                throws IOException
+            {
+                final String key = key( frame );
+                final long expiresIn = frame.getLong();
+                checkArgument( expiresIn >= 0, "Invalid expiration delay %s", expiresIn );
+                final int length = frame.remaining();
+                final boolean stored =
+                    cacheService.putStream( key, new FrameInputStream( frame ), length, expiresIn ) != null;
+                respond( stored ? STORED : NOT_STORED );
+            }
+
+            private void delete( String key )
+            {
+                final boolean found = cacheService.getPointer( key ) != null;
+                if ( found )
+                {
+                    cacheService.free( key );
+                }
+                respond( found ? DELETED : NOT_FOUND );
+            }
+
+            private void multiGet( ByteBuffer frame )
+                throws IOException
+            {
+                final int count = frame.getInt();
+                checkArgument( count >= 0 && count <= frame.remaining() / 4, "Invalid key count %s", count );
+                final int start = out.position();
+                reserve( 9 );
+                out.putInt( 0 );
+                out.put( FOUND );
+                out.putInt( count );
+                try
+                {
+                    for ( int i = 0; i < count; i++ )
+                    {
+                        final String key = key( frame );
+                        final int position = out.position();
+                        checkFrameSize( start, 4 );
+                        reserve( 4 );
+                        out.putInt( -1 );
+                        if ( retrieve( key, start ) >= 0 )
+                        {
+                            out.putInt( position, out.position() - position - 4 );
+                        }
+                    }
+                }
+                catch ( FrameTooBigException e )
+                {
+                    reject( start, e.getMessage() );
+                    return;
+                }
+                out.putInt( start, out.position() - start - 4 );
+            }
+
+            /**
+             * Appends a value to the response started at the given position, as long as the response does not exceed
+             * the max frame size.
+             *
+             * @return the length of the value, -1 if the key is missing
+             * @throws FrameTooBigException if the value does not fit in the response
+             */
+            private long retrieve( String key, int start )
+                throws IOException
+            {
+                responseStream.limit = maxFrameSize - ( out.position() - start - 4 );
+                return cacheService.retrieveStream( key, responseStream );
+            }
+
+            private void checkFrameSize( int start, int bytes )
+                throws FrameTooBigException
+            {
+                if ( (long) out.position() - start - 4 + bytes > maxFrameSize )
+                {
+                    throw new FrameTooBigException( maxFrameSize );
+                }
+            }
+
+            private void respond( byte status )
+            {
+                reserve( 5 );
+                out.putInt( 1 );
+                out.put( status );
+            }
+
+            /**
+             * Replaces the response being written by an error, the connection closing once it is sent.
+             */
+            private void error( int start, String message )
+                throws IOException
+            {
+                reject( start, message );
+                closing = true;
+            }
+
+            /**
+             * Replaces the response being written by an error, the connection staying open as the request was read
+             * whole.
+             */
+            private void reject( int start, String message )
+                throws IOException
+            {
+                final byte[] bytes = String.valueOf( message ).getBytes( KEY_CHARSET );
+                out.position( start );
+                reserve( 5 + bytes.length );
+                out.putInt( 1 + bytes.length );
+                out.put( ERROR );
+                out.put( bytes );
+            }
+
+            /**
+             * Makes room for the given number of bytes in the output buffer, moving the responses to a bigger heap
+             * buffer if needed.
+             */
+            private void reserve( int bytes )
+            {
+                if ( out.remaining() < bytes )
+                {
+                    final long needed = (long) out.position() + bytes;
+                    if ( needed > MAX_BUFFER_SIZE )
+                    {
+                        throw new BufferOverflowException();
+                    }
+                    final long capacity = Math.max( Math.min( 2L * out.capacity(), MAX_BUFFER_SIZE ), needed );
+                    final ByteBuffer bigger = ByteBuffer.allocate( (int) capacity );
+                    out.flip();
+                    bigger.put( out );
+                    out = bigger;
+                }
+            }
+
+            private void flush()
+                throws IOException
+            {
+                if ( out.position() > 0 )
+                {
+                    out.flip();
+                    channel.write( out );
+                    out.compact();
+                }
+                if ( out.position() == 0 )
+                {
+                    if ( closing )
+                    {
+                        close();
+                        return;
+                    }
+                    if ( out != defaultOut )
+                    {
+                        defaultOut.clear();
+                        out = defaultOut;
+                    }
+                }
+                int interestOps = 0;
+                if ( out.position() > 0 )
+                {
+                    interestOps |= SelectionKey.OP_WRITE;
+                }
+                if ( !closing && out.position() < bufferSize )
+                {
+                    interestOps |= SelectionKey.OP_READ;
+                }
+                key.interestOps( interestOps );
+            }
+
+            private void close()
+            {
+                key.cancel();
+                closeQuietly( channel );
+                connections--;
+            }
+
+            /**
+             * Appends the bytes of a value to the responses, up to a limit.
+             */
+            private final class ResponseStream
+                extends OutputStream
+            {
+
+                // the number of bytes which can still be appended to the response
+                private long limit;
+
+                @Override
+                public void write( int b )
+                    throws IOException
+                {
+                    write( new byte[] { (byte) b }, 0, 1 );
+                }
+
+                @Override
+                public void write( byte[] b, int off, int len )
+                    throws IOException
+                {
+                    if ( len > limit )
+                    {
+                        throw new FrameTooBigException( maxFrameSize );
+                    }
+                    limit -= len;
+                    reserve( len );
+                    out.put( b, off, len );
+                }
+
+            }
+
+        }
+
+    }
+
+    /**
+     * Thrown when a response would exceed the max frame size, the request being answered by an error instead.
+     */
+    private static final class FrameTooBigException
+        extends IOException
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        FrameTooBigException( int maxFrameSize )
+        {
+            super( "The response exceeds the max frame size of " + maxFrameSize + " bytes" );
+        }
+
+    }
+
+    /**
+     * Reads the value at the end of a request frame.
+     */
+    private static final class FrameInputStream
+        extends InputStream
+    {
+
+        private final ByteBuffer frame;
+
+        FrameInputStream( ByteBuffer frame )
+        {
+            this.frame = frame;
+        }
+
+        @Override
+        public int read()
+        {
+            return frame.hasRemaining() ? frame.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len )
+        {
+            if ( len == 0 )
+            {
+                return 0;
+            }
+            if ( !frame.hasRemaining() )
+            {
+                return -1;
+            }
+            final int count = Math.min( len, frame.remaining() );
+            frame.get( b, off, count );
+            return count;
+        }
+
+        @Override
+        public int available()
+        {
+            return frame.remaining();
+        }
+
+    }
+
+}
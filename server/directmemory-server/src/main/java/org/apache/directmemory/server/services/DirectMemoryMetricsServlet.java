@@ -0,0 +1,237 @@
+package org.apache.directmemory.server.services;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.management.CacheServiceMXBean;
+import org.apache.directmemory.management.CacheServiceMXBeanImpl;
+import org.apache.directmemory.memory.FragmentationStatistics;
+import org.apache.directmemory.memory.allocator.Allocator;
+import org.apache.directmemory.memory.allocator.FreeBlockHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Exposes cache, allocator and request latency metrics using the Prometheus text exposition format. Figures are read
+ * from counters maintained by the cache and the allocators, no allocator lock is taken so the endpoint can be scraped
+ * every few seconds.
+ * <p/>
+ * Shares the {@link CacheService} created by the {@link DirectMemoryServlet} through the
+ * {@link javax.servlet.ServletContext} so the latter must be loaded first (load-on-startup).
+ */
+public class DirectMemoryMetricsServlet
+    extends HttpServlet
+{
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private Logger log = LoggerFactory.getLogger( getClass() );
+
+    @Override
+    protected void doGet( HttpServletRequest req, HttpServletResponse resp )
+        throws ServletException, IOException
+    {
+        CacheService<?, ?> cacheService =
+            (CacheService<?, ?>) getServletContext().getAttribute( DirectMemoryServlet.CACHE_SERVICE_ATTRIBUTE );
+
+        if ( cacheService == null )
+        {
+            log.warn( "no CacheService available, is DirectMemoryServlet initialized?" );
+            resp.sendError( HttpServletResponse.SC_SERVICE_UNAVAILABLE, "cache not initialized" );
+            return;
+        }
+
+        RequestMetrics requestMetrics =
+            (RequestMetrics) getServletContext().getAttribute( DirectMemoryServlet.REQUEST_METRICS_ATTRIBUTE );
+
+        StringBuilder sb = new StringBuilder( 4096 );
+        writeCacheMetrics( sb, cacheService );
+        writeAllocatorMetrics( sb, cacheService );
+        if ( requestMetrics != null )
+        {
+            writeRequestMetrics( sb, requestMetrics );
+        }
+
+        byte[] bytes = sb.toString().getBytes( "UTF-8" );
+        resp.setContentType( CONTENT_TYPE );
+        resp.setContentLength( bytes.length );
+        resp.getOutputStream().write( bytes );
+    }
+
+    protected void writeCacheMetrics( StringBuilder sb, CacheService<?, ?> cacheService )
+    {
+        CacheServiceMXBean cache = new CacheServiceMXBeanImpl( null, cacheService );
+
+        writeMetric( sb, "directmemory_cache_entries", "gauge", "Number of entries in the cache.",
+                     cache.getEntries() );
+        writeMetric( sb, "directmemory_cache_hits_total", "counter", "Number of retrievals which found an entry.",
+                     cache.getHits() );
+        writeMetric( sb, "directmemory_cache_misses_total", "counter",
+                     "Number of retrievals which did not find an entry.", cache.getMisses() );
+        writeMetric( sb, "directmemory_cache_hit_ratio", "gauge", "Ratio of hits over all the retrievals.",
+                     cache.getHitRatio() );
+        writeMetric( sb, "directmemory_cache_expirations_total", "counter", "Number of entries which expired.",
+                     cache.getExpirations() );
+        writeMetric( sb, "directmemory_cache_evictions_total", "counter",
+                     "Number of entries evicted to reclaim memory.", cache.getEvictions() );
+        writeMetric( sb, "directmemory_cache_undecodable_total", "counter",
+                     "Number of reads failing because the payload could not be decoded.", cache.getUndecodable() );
+        writeMetric( sb, "directmemory_cache_disposals_total", "counter", "Number of disposal runs.",
+                     cache.getDisposals() );
+        writeMetric( sb, "directmemory_cache_disposal_seconds_total", "counter", "Time spent in disposal runs.",
+                     cache.getTotalDisposalTime() / 1000.0 );
+        writeMetric( sb, "directmemory_memory_used_bytes", "gauge", "Off-heap memory used by the cache entries.",
+                     cache.getUsedMemory() );
+        writeMetric( sb, "directmemory_memory_capacity_bytes", "gauge", "Off-heap memory reserved by the cache.",
+                     cache.getCapacity() );
+
+        FragmentationStatistics fragmentation = cacheService.getMemoryManager().getFragmentationStatistics();
+        writeMetric( sb, "directmemory_memory_fragmentation_ratio", "gauge",
+                     "1 - largest free block / free bytes, 0 when the free space is not fragmented.",
+                     fragmentation.getFragmentation() );
+        writeMetric( sb, "directmemory_memory_store_failures_total", "counter",
+                     "Number of payloads which could not be stored.", fragmentation.getStoreFailures() );
+        writeMetric( sb, "directmemory_memory_fragmented_store_failures_total", "counter",
+                     "Number of payloads which could not be stored while enough bytes were free.",
+                     fragmentation.getFragmentedStoreFailures() );
+    }
+
+    protected void writeAllocatorMetrics( StringBuilder sb, CacheService<?, ?> cacheService )
+    {
+        Iterable<Allocator> allocators = cacheService.getMemoryManager().getAllocators();
+
+        writeHeader( sb, "directmemory_allocator_capacity_bytes", "gauge", "Capacity of the allocator." );
+        for ( Allocator allocator : allocators )
+        {
+            writeSample( sb, "directmemory_allocator_capacity_bytes", allocatorLabel( allocator ),
+                         allocator.getCapacity() );
+        }
+        writeHeader( sb, "directmemory_allocator_free_bytes", "gauge", "Free capacity of the allocator." );
+        for ( Allocator allocator : allocators )
+        {
+            writeSample( sb, "directmemory_allocator_free_bytes", allocatorLabel( allocator ),
+                         allocator.getFreeCapacity() );
+        }
+        writeHeader( sb, "directmemory_allocator_largest_free_block_bytes", "gauge",
+                     "Largest block the allocator can currently serve." );
+        for ( Allocator allocator : allocators )
+        {
+            writeSample( sb, "directmemory_allocator_largest_free_block_bytes", allocatorLabel( allocator ),
+                         allocator.getLargestFreeBlock() );
+        }
+        writeHeader( sb, "directmemory_allocator_allocation_failures_total", "counter",
+                     "Number of failed allocations." );
+        for ( Allocator allocator : allocators )
+        {
+            writeSample( sb, "directmemory_allocator_allocation_failures_total", allocatorLabel( allocator ),
+                         allocator.getAllocationFailures() );
+        }
+        writeHeader( sb, "directmemory_allocator_free_blocks", "gauge",
+                     "Number of free blocks by size, the size label is the lower bound of a power of two range." );
+        for ( Allocator allocator : allocators )
+        {
+            long[] histogram = allocator.getFreeBlockHistogram();
+            for ( int i = 0; i < histogram.length; i++ )
+            {
+                // empty ranges are skipped, there are FreeBlockHistogram.BUCKETS of them
+                if ( histogram[i] > 0 )
+                {
+                    writeSample( sb, "directmemory_allocator_free_blocks", allocatorLabel( allocator ) + ",size=\""
+                        + FreeBlockHistogram.lowerBoundOf( i ) + "\"", histogram[i] );
+                }
+            }
+        }
+    }
+
+    protected void writeRequestMetrics( StringBuilder sb, RequestMetrics requestMetrics )
+    {
+        String name = "directmemory_request_duration_seconds";
+        writeHeader( sb, name, "histogram", "Time spent serving cache requests." );
+        for ( Map.Entry<String, LatencyHistogram> entry : requestMetrics.getHistograms().entrySet() )
+        {
+            String method = "method=\"" + entry.getKey() + "\"";
+            LatencyHistogram histogram = entry.getValue();
+            double[] buckets = histogram.getBuckets();
+            long[] counts = histogram.getCumulativeCounts();
+            for ( int i = 0; i < buckets.length; i++ )
+            {
+                writeSample( sb, name + "_bucket", method + ",le=\"" + format( buckets[i] ) + "\"", counts[i] );
+            }
+            // the +Inf bucket is the total count, reuse it so _count is consistent with the buckets
+            long count = counts[buckets.length];
+            writeSample( sb, name + "_bucket", method + ",le=\"+Inf\"", count );
+            writeSample( sb, name + "_count", method, count );
+            writeSample( sb, name + "_sum", method, histogram.getSum() );
+        }
+    }
+
+    private static String allocatorLabel( Allocator allocator )
+    {
+        return "allocator=\"" + allocator.getNumber() + "\"";
+    }
+
+    private static void writeMetric( StringBuilder sb, String name, String type, String help, double value )
+    {
+        writeHeader( sb, name, type, help );
+        writeSample( sb, name, null, value );
+    }
+
+    private static void writeHeader( StringBuilder sb, String name, String type, String help )
+    {
+        sb.append( "# HELP " ).append( name ).append( ' ' ).append( help ).append( '\n' );
+        sb.append( "# TYPE " ).append( name ).append( ' ' ).append( type ).append( '\n' );
+    }
+
+    private static void writeSample( StringBuilder sb, String name, String labels, double value )
+    {
+        sb.append( name );
+        if ( labels != null )
+        {
+            sb.append( '{' ).append( labels ).append( '}' );
+        }
+        sb.append( ' ' ).append( format( value ) ).append( '\n' );
+    }
+
+    private static String format( double value )
+    {
+        if ( Double.isNaN( value ) )
+        {
+            return "NaN";
+        }
+        if ( Double.isInfinite( value ) )
+        {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if ( value == Math.rint( value ) && Math.abs( value ) < Long.MAX_VALUE )
+        {
+            return Long.toString( (long) value );
+        }
+        return BigDecimal.valueOf( value ).stripTrailingZeros().toPlainString();
+    }
+
+}
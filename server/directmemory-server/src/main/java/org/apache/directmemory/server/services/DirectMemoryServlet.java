@@ -23,6 +23,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.directmemory.DirectMemory;
 import org.apache.directmemory.cache.CacheService;
 import org.apache.directmemory.memory.Pointer;
+import org.apache.directmemory.server.binary.BinaryProtocolServer;
 import org.apache.directmemory.server.commons.DirectMemoryException;
 import org.apache.directmemory.server.commons.DirectMemoryHttpConstants;
 import org.apache.directmemory.server.commons.DirectMemoryRequest;
@@ -35,11 +36,13 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.MediaType;
+import java.io.EOFException;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
 import static java.lang.Integer.getInteger;
+import static java.lang.Long.getLong;
 import static org.apache.directmemory.DirectMemory.DEFAULT_CONCURRENCY_LEVEL;
 import static org.apache.directmemory.DirectMemory.DEFAULT_INITIAL_CAPACITY;
 
@@ -52,12 +55,25 @@ public class DirectMemoryServlet
     extends HttpServlet
 {
 
+    /**
+     * name of the {@link javax.servlet.ServletContext} attribute holding the {@link CacheService}
+     */
+    public static final String CACHE_SERVICE_ATTRIBUTE = "org.apache.directmemory.server.cacheService";
+
+    /**
+     * name of the {@link javax.servlet.ServletContext} attribute holding the {@link RequestMetrics}
+     */
+    public static final String REQUEST_METRICS_ATTRIBUTE = "org.apache.directmemory.server.requestMetrics";
+
     private Logger log = LoggerFactory.getLogger( getClass() );
 
     private CacheService<Object, Object> cacheService;
 
+    private RequestMetrics requestMetrics;
+
     private Map<String, ContentTypeHandler> contentTypeHandlers;
 
+    private BinaryProtocolServer binaryProtocolServer;
 
     @Override
     public void init( ServletConfig config )
@@ -65,21 +81,39 @@ public class DirectMemoryServlet
     {
         super.init( config );
         // TODO some configuration for cacheService.init( .... ); different from sysproperties
-        //int numberOfBuffers, int size, int initialCapacity, int concurrencyLevel
+        //int numberOfBuffers, long size, int initialCapacity, int concurrencyLevel
 
         cacheService = new DirectMemory<Object, Object>().setNumberOfBuffers(
             getInteger( "directMemory.numberOfBuffers", 10 ) ).setSize(
-            getInteger( "directMemory.size", 1000 ) ).setInitialCapacity(
+            getLong( "directMemory.size", 1000 ) ).setInitialCapacity(
             getInteger( "directMemory.initialCapacity", DEFAULT_INITIAL_CAPACITY ) ).setConcurrencyLevel(
             getInteger( "directMemory.concurrencyLevel", DEFAULT_CONCURRENCY_LEVEL ) ).newCacheService();
 
-        //
+        requestMetrics = new RequestMetrics();
+
+        // shared with DirectMemoryMetricsServlet
+        getServletContext().setAttribute( CACHE_SERVICE_ATTRIBUTE, cacheService );
+        getServletContext().setAttribute( REQUEST_METRICS_ATTRIBUTE, requestMetrics );
 
         contentTypeHandlers = new HashMap<String, ContentTypeHandler>( 2 );
         contentTypeHandlers.put( MediaType.APPLICATION_JSON, new JsonContentTypeHandler() );
         contentTypeHandlers.put( DirectMemoryHttpConstants.JAVA_SERIALIZED_OBJECT_CONTENT_TYPE_HEADER,
                                  new JavaSerializedContentTypeHandler() );
         contentTypeHandlers.put( MediaType.TEXT_PLAIN, new TextPlainContentTypeHandler() );
+
+        // the binary protocol serves the same cache, on its own port
+        Integer binaryPort = getInteger( "directMemory.binaryPort" );
+        if ( binaryPort != null )
+        {
+            try
+            {
+                binaryProtocolServer = new BinaryProtocolServer( cacheService ).setPort( binaryPort ).start();
+            }
+            catch ( IOException e )
+            {
+                throw new ServletException( "Impossible to start the binary protocol server", e );
+            }
+        }
         log.info( "DirectMemoryServlet initialized" );
 
     }
@@ -87,9 +121,37 @@ public class DirectMemoryServlet
     @Override
     public void destroy()
     {
+        if ( binaryProtocolServer != null )
+        {
+            try
+            {
+                binaryProtocolServer.close();
+            }
+            catch ( IOException e )
+            {
+                log.warn( "Impossible to close the binary protocol server", e );
+            }
+        }
+        getServletContext().removeAttribute( CACHE_SERVICE_ATTRIBUTE );
+        getServletContext().removeAttribute( REQUEST_METRICS_ATTRIBUTE );
         super.destroy();
     }
 
+    @Override
+    protected void service( HttpServletRequest req, HttpServletResponse resp )
+        throws ServletException, IOException
+    {
+        long start = System.nanoTime();
+        try
+        {
+            super.service( req, resp );
+        }
+        finally
+        {
+            requestMetrics.record( req.getMethod(), System.nanoTime() - start );
+        }
+    }
+
     @Override
     protected void doPost( HttpServletRequest req, HttpServletResponse resp )
         throws ServletException, IOException
@@ -120,6 +182,11 @@ public class DirectMemoryServlet
                             "Content-Type '" + contentType + "' not supported" );
             return;
         }
+        if ( contentTypeHandler instanceof JavaSerializedContentTypeHandler && req.getContentLength() >= 0 )
+        {
+            doPutStream( key, req, resp, (JavaSerializedContentTypeHandler) contentTypeHandler );
+            return;
+        }
         try
         {
             request = contentTypeHandler.handlePut( req, resp );
@@ -143,6 +210,34 @@ public class DirectMemoryServlet
         resp.addHeader( DirectMemoryHttpConstants.EXPIRES_SERIALIZE_SIZE, Integer.toString( bytes.length ) );
     }
 
+    /**
+     * The serialized objects are stored as they are sent, so they are streamed from the request to the off-heap memory
+     * instead of being copied on heap first.
+     */
+    protected void doPutStream( String key, HttpServletRequest req, HttpServletResponse resp,
+                                JavaSerializedContentTypeHandler contentTypeHandler )
+        throws IOException
+    {
+        int length = req.getContentLength();
+        Pointer p;
+        try
+        {
+            p = cacheService.putStream( key, req.getInputStream(), length, contentTypeHandler.getExpiresIn( req ) );
+        }
+        catch ( EOFException e )
+        {
+            resp.sendError( HttpServletResponse.SC_BAD_REQUEST, e.getMessage() );
+            return;
+        }
+        if ( p == null )
+        {
+            resp.sendError( HttpServletResponse.SC_NO_CONTENT, "Content not put in cache for key: " + key );
+            return;
+        }
+        log.debug( "put content for key {} size {}", key, length );
+        resp.addHeader( DirectMemoryHttpConstants.EXPIRES_SERIALIZE_SIZE, Integer.toString( length ) );
+    }
+
     protected ContentTypeHandler findPutCacheContentTypeHandler( HttpServletRequest req, HttpServletResponse response )
     {
 
@@ -213,6 +308,12 @@ public class DirectMemoryServlet
             return;
         }
 
+        if ( contentTypeHandler instanceof JavaSerializedContentTypeHandler )
+        {
+            doGetStream( key, resp );
+            return;
+        }
+
         byte[] bytes = cacheService.retrieveByteArray( key );
 
         log.debug( "return content size {} for key {}", ( bytes == null ? "null" : bytes.length ), key );
@@ -237,6 +338,25 @@ public class DirectMemoryServlet
 
     }
 
+    /**
+     * The serialized objects are returned as they were sent, so they are streamed from the off-heap memory to the
+     * response instead of being copied on heap first.
+     */
+    protected void doGetStream( String key, HttpServletResponse resp )
+        throws IOException
+    {
+        resp.setContentType( DirectMemoryHttpConstants.JAVA_SERIALIZED_OBJECT_CONTENT_TYPE_HEADER );
+
+        long length = cacheService.retrieveStream( key, resp.getOutputStream() );
+
+        log.debug( "return content size {} for key {}", length, key );
+
+        if ( length <= 0 )
+        {
+            resp.sendError( HttpServletResponse.SC_NO_CONTENT, "No content for key: " + key );
+        }
+    }
+
     protected ContentTypeHandler findGetCacheContentTypeHandler( HttpServletRequest req, HttpServletResponse response )
     {
 
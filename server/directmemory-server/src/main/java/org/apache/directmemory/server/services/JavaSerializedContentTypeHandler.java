@@ -51,11 +51,20 @@ public class JavaSerializedContentTypeHandler
     @Override
     public DirectMemoryRequest handlePut( HttpServletRequest request, HttpServletResponse response )
         throws DirectMemoryException, IOException
+    {
+        return new DirectMemoryRequest().setExpiresIn( getExpiresIn( request ) ).setCacheContent(
+            IOUtils.toByteArray( request.getInputStream() ) );
+    }
+
+    /**
+     * @return the expiration delay of the content put, read from the
+     *         {@link DirectMemoryHttpConstants#EXPIRES_IN_HTTP_HEADER} header
+     */
+    public int getExpiresIn( HttpServletRequest request )
     {
         String expiresInHeader = request.getHeader( DirectMemoryHttpConstants.EXPIRES_IN_HTTP_HEADER );
         int expiresIn = StringUtils.isEmpty( expiresInHeader ) ? 0 : Integer.valueOf( expiresInHeader );
         log.debug( "expiresIn: {} for header value: {}", expiresIn, expiresInHeader );
-        return new DirectMemoryRequest().setExpiresIn( expiresIn ).setCacheContent(
-            IOUtils.toByteArray( request.getInputStream() ) );
+        return expiresIn;
     }
 }
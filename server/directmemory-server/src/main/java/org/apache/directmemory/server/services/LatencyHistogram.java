@@ -0,0 +1,116 @@
+package org.apache.directmemory.server.services;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed buckets latency histogram. Recording is a couple of atomic increments, reading never blocks writers so it
+ * can be scraped as often as needed.
+ */
+public class LatencyHistogram
+{
+
+    /**
+     * upper bounds of the buckets, in seconds (the last, implicit, bucket is +Inf)
+     */
+    public static final double[] DEFAULT_BUCKETS =
+        { 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+
+    private final double[] buckets;
+
+    private final long[] bucketsInNanos;
+
+    private final AtomicLongArray counts;
+
+    private final AtomicLong sum = new AtomicLong();
+
+    public LatencyHistogram()
+    {
+        this( DEFAULT_BUCKETS );
+    }
+
+    public LatencyHistogram( double[] buckets )
+    {
+        this.buckets = buckets.clone();
+        this.bucketsInNanos = new long[buckets.length];
+        for ( int i = 0; i < buckets.length; i++ )
+        {
+            bucketsInNanos[i] = (long) ( buckets[i] * TimeUnit.SECONDS.toNanos( 1 ) );
+        }
+        // one more slot for the +Inf bucket
+        this.counts = new AtomicLongArray( buckets.length + 1 );
+    }
+
+    public void record( long elapsedNanos )
+    {
+        int i = 0;
+        while ( i < bucketsInNanos.length && elapsedNanos > bucketsInNanos[i] )
+        {
+            i++;
+        }
+        counts.incrementAndGet( i );
+        sum.addAndGet( elapsedNanos );
+    }
+
+    /**
+     * @return the upper bounds of the buckets in seconds, without the +Inf one
+     */
+    public double[] getBuckets()
+    {
+        return buckets.clone();
+    }
+
+    /**
+     * @return cumulative counts, one per bucket plus a last one for +Inf which is the total count
+     */
+    public long[] getCumulativeCounts()
+    {
+        long[] cumulative = new long[counts.length()];
+        long total = 0;
+        for ( int i = 0; i < cumulative.length; i++ )
+        {
+            total += counts.get( i );
+            cumulative[i] = total;
+        }
+        return cumulative;
+    }
+
+    public long getCount()
+    {
+        long total = 0;
+        for ( int i = 0; i < counts.length(); i++ )
+        {
+            total += counts.get( i );
+        }
+        return total;
+    }
+
+    /**
+     * @return sum of all the recorded latencies, in seconds
+     */
+    public double getSum()
+    {
+        return sum.get() / (double) TimeUnit.SECONDS.toNanos( 1 );
+    }
+
+}
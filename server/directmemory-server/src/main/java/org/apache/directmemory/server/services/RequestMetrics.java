@@ -0,0 +1,63 @@
+package org.apache.directmemory.server.services;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Request latencies of the {@link DirectMemoryServlet}, per HTTP method.
+ */
+public class RequestMetrics
+{
+
+    private final Map<String, LatencyHistogram> histograms;
+
+    public RequestMetrics()
+    {
+        Map<String, LatencyHistogram> map = new LinkedHashMap<String, LatencyHistogram>( 4 );
+        map.put( "GET", new LatencyHistogram() );
+        map.put( "PUT", new LatencyHistogram() );
+        map.put( "POST", new LatencyHistogram() );
+        map.put( "DELETE", new LatencyHistogram() );
+        // never modified after construction so can be read without synchronization
+        histograms = Collections.unmodifiableMap( map );
+    }
+
+    /**
+     * @param method HTTP method of the request, other methods than GET, PUT, POST and DELETE are ignored
+     * @param elapsedNanos time spent to serve the request
+     */
+    public void record( String method, long elapsedNanos )
+    {
+        LatencyHistogram histogram = histograms.get( method );
+        if ( histogram != null )
+        {
+            histogram.record( elapsedNanos );
+        }
+    }
+
+    public Map<String, LatencyHistogram> getHistograms()
+    {
+        return histograms;
+    }
+
+}
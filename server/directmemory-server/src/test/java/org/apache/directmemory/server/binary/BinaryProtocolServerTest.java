@@ -0,0 +1,310 @@
+package org.apache.directmemory.server.binary;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.directmemory.DirectMemory;
+import org.apache.directmemory.cache.CacheService;
+import org.apache.directmemory.measures.Ram;
+import org.apache.directmemory.server.client.binary.BinaryDirectMemoryClient;
+import org.apache.directmemory.server.commons.BinaryProtocol;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BinaryProtocolServerTest
+{
+
+    private CacheService<String, byte[]> cacheService;
+
+    private BinaryProtocolServer server;
+
+    @Before
+    public void start()
+        throws IOException
+    {
+        cacheService =
+            new DirectMemory<String, byte[]>().setNumberOfBuffers( 2 ).setSize( Ram.Mb( 8 ) ).newCacheService();
+        // small buffers, so that the frames and the pipelines overflow them
+        server = new BinaryProtocolServer( cacheService ).setHost( "localhost" ).setPort( 0 ).setSelectorThreads( 2 )
+            .setBufferSize( Ram.Kb( 1 ) ).setMaxFrameSize( Ram.Kb( 256 ) ).start();
+    }
+
+    @After
+    public void stop()
+        throws IOException
+    {
+        server.close();
+        cacheService.close();
+    }
+
+    private BinaryDirectMemoryClient connect()
+        throws IOException
+    {
+        return new BinaryDirectMemoryClient( "localhost", server.getLocalPort(), Ram.Kb( 1 ) );
+    }
+
+    @Test
+    public void valuesArePutRetrievedAndDeleted()
+        throws IOException
+    {
+        final BinaryDirectMemoryClient client = connect();
+        try
+        {
+            assertNull( client.get( "key" ) );
+            assertTrue( client.put( "key", new byte[] { 1, 2, 3 }, 0 ) );
+            assertArrayEquals( new byte[] { 1, 2, 3 }, client.get( "key" ) );
+            assertArrayEquals( new byte[] { 1, 2, 3 }, cacheService.retrieveByteArray( "key" ) );
+
+            assertTrue( client.put( "empty", new byte[0], 60000 ) );
+            assertArrayEquals( new byte[0], client.get( "empty" ) );
+            assertTrue( cacheService.getPointer( "empty" ).getExpiresIn() > 0 );
+
+            final List<byte[]> values = client.multiGet( Arrays.asList( "key", "missing", "empty" ) );
+            assertEquals( 3, values.size() );
+            assertArrayEquals( new byte[] { 1, 2, 3 }, values.get( 0 ) );
+            assertNull( values.get( 1 ) );
+            assertArrayEquals( new byte[0], values.get( 2 ) );
+            assertTrue( client.multiGet( Collections.<String>emptyList() ).isEmpty() );
+
+            assertTrue( client.delete( "key" ) );
+            assertFalse( client.delete( "key" ) );
+            assertNull( client.get( "key" ) );
+            assertEquals( 10, server.getRequests() );
+        }
+        finally
+        {
+            client.close();
+        }
+    }
+
+    @Test
+    public void valuesBiggerThanTheBuffersAreTransferred()
+        throws IOException
+    {
+        final byte[] value = new byte[Ram.Kb( 100 )];
+        for ( int i = 0; i < value.length; i++ )
+        {
+            value[i] = (byte) i;
+        }
+        final BinaryDirectMemoryClient client = connect();
+        try
+        {
+            assertTrue( client.put( "big", value, 0 ) );
+            assertArrayEquals( value, client.get( "big" ) );
+            assertArrayEquals( value, client.multiGet( Arrays.asList( "big", "big" ) ).get( 1 ) );
+            // the buffers shrink back once the big frames are gone
+            assertTrue( client.put( "small", new byte[] { 42 }, 0 ) );
+            assertArrayEquals( new byte[] { 42 }, client.get( "small" ) );
+        }
+        finally
+        {
+            client.close();
+        }
+    }
+
+    @Test
+    public void pipelinedResponsesComeInOrder()
+        throws IOException
+    {
+        final BinaryDirectMemoryClient client = connect();
+        try
+        {
+            final BinaryDirectMemoryClient.Pipeline pipeline = client.pipeline();
+            for ( int i = 0; i < 1000; i++ )
+            {
+                pipeline.put( "key" + i, ( "value" + i ).getBytes( "UTF-8" ), 0 ).get( "key" + i );
+            }
+            pipeline.delete( "key0" ).get( "key0" );
+
+            final List<Object> responses = pipeline.execute();
+            assertEquals( 2002, responses.size() );
+            for ( int i = 0; i < 1000; i++ )
+            {
+                assertEquals( Boolean.TRUE, responses.get( 2 * i ) );
+                assertArrayEquals( ( "value" + i ).getBytes( "UTF-8" ), (byte[]) responses.get( 2 * i + 1 ) );
+            }
+            assertEquals( Boolean.TRUE, responses.get( 2000 ) );
+            assertNull( responses.get( 2001 ) );
+            assertEquals( 999, cacheService.entries() );
+        }
+        finally
+        {
+            client.close();
+        }
+    }
+
+    @Test
+    public void concurrentClientsAreServed()
+        throws Exception
+    {
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final List<Thread> threads = new ArrayList<Thread>();
+        for ( int t = 0; t < 8; t++ )
+        {
+            final int first = t;
+            threads.add( new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        final BinaryDirectMemoryClient client = connect();
+                        try
+                        {
+                            for ( int i = first; i < 2000; i += 8 )
+                            {
+                                final byte[] value = ( "value" + i ).getBytes( "UTF-8" );
+                                assertTrue( client.put( "key" + i, value, 0 ) );
+                                assertArrayEquals( value, client.get( "key" + i ) );
+                            }
+                        }
+                        finally
+                        {
+                            client.close();
+                        }
+                    }
+                    catch ( Throwable e )
+                    {
+                        failure.set( e );
+                    }
+                }
+            } );
+        }
+        for ( Thread thread : threads )
+        {
+            thread.start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+        assertNull( failure.get() );
+        assertEquals( 2000, cacheService.entries() );
+        assertEquals( 4000, server.getRequests() );
+    }
+
+    @Test
+    public void malformedRequestsCloseTheConnection()
+        throws IOException
+    {
+        final Socket socket = new Socket( "localhost", server.getLocalPort() );
+        try
+        {
+            final DataOutputStream out = new DataOutputStream( socket.getOutputStream() );
+            out.writeInt( 1 );
+            out.writeByte( 42 );
+            out.flush();
+
+            final DataInputStream in = new DataInputStream( socket.getInputStream() );
+            final byte[] frame = new byte[in.readInt()];
+            in.readFully( frame );
+            assertEquals( BinaryProtocol.ERROR, frame[0] );
+            assertTrue( new String( frame, 1, frame.length - 1, "UTF-8" ).contains( "42" ) );
+            try
+            {
+                in.readByte();
+                fail( "The connection should be closed" );
+            }
+            catch ( EOFException e )
+            {
+                // expected
+            }
+        }
+        finally
+        {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void responsesBiggerThanTheMaxFrameSizeAreRejected()
+        throws IOException
+    {
+        cacheService.putByteArray( "huge", new byte[Ram.Kb( 300 )] );
+        cacheService.putByteArray( "big", new byte[Ram.Kb( 200 )] );
+        final BinaryDirectMemoryClient client = connect();
+        try
+        {
+            try
+            {
+                client.get( "huge" );
+                fail( "the value is bigger than the max frame size" );
+            }
+            catch ( IOException e )
+            {
+                assertTrue( e.getMessage(), e.getMessage().contains( "max frame size" ) );
+            }
+            try
+            {
+                client.multiGet( Arrays.asList( "big", "big" ) );
+                fail( "the values are bigger than the max frame size together" );
+            }
+            catch ( IOException e )
+            {
+                assertTrue( e.getMessage(), e.getMessage().contains( "max frame size" ) );
+            }
+
+            // the connection stays open and in step with the server
+            assertEquals( Ram.Kb( 200 ), client.get( "big" ).length );
+            try
+            {
+                client.pipeline().get( "huge" ).get( "big" ).execute();
+                fail( "the first value is bigger than the max frame size" );
+            }
+            catch ( IOException e )
+            {
+                assertTrue( e.getMessage(), e.getMessage().contains( "max frame size" ) );
+            }
+            assertTrue( client.put( "key", new byte[] { 1 }, 0 ) );
+            assertArrayEquals( new byte[] { 1 }, client.get( "key" ) );
+        }
+        finally
+        {
+            client.close();
+        }
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void framesBiggerThanAHeapBufferAreNotAccepted()
+    {
+        // the length of such frames would overflow once added to the length of their header
+        new BinaryProtocolServer( cacheService ).setMaxFrameSize( Integer.MAX_VALUE );
+    }
+
+}
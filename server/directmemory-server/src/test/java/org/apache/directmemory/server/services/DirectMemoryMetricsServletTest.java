@@ -0,0 +1,127 @@
+package org.apache.directmemory.server.services;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletConfig;
+import org.springframework.mock.web.MockServletContext;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.MediaType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DirectMemoryMetricsServletTest
+{
+
+    MockServletContext mockServletContext;
+
+    DirectMemoryServlet directMemoryServlet = new DirectMemoryServlet();
+
+    DirectMemoryMetricsServlet metricsServlet = new DirectMemoryMetricsServlet();
+
+    @Before
+    public void init()
+        throws Exception
+    {
+        mockServletContext = new MockServletContext();
+        mockServletContext.setContextPath( "direct-memory" );
+
+        directMemoryServlet.init( new MockServletConfig( mockServletContext ) );
+        metricsServlet.init( new MockServletConfig( mockServletContext ) );
+    }
+
+    @After
+    public void destroy()
+    {
+        directMemoryServlet.destroy();
+    }
+
+    @Test
+    public void cacheAndRequestMetrics()
+        throws Exception
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest( "GET", "/cache/foo" );
+        request.addHeader( "Accept", MediaType.TEXT_PLAIN );
+        request.setServletPath( "cache" );
+        request.setPathInfo( "/foo" );
+
+        directMemoryServlet.service( request, new MockHttpServletResponse() );
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        metricsServlet.doGet( new MockHttpServletRequest( "GET", "/metrics" ), response );
+
+        assertEquals( HttpServletResponse.SC_OK, response.getStatus() );
+        assertEquals( DirectMemoryMetricsServlet.CONTENT_TYPE, response.getContentType() );
+
+        String metrics = response.getContentAsString();
+
+        assertTrue( metrics.contains( "# TYPE directmemory_cache_misses_total counter\n" ) );
+        assertTrue( metrics.contains( "\ndirectmemory_cache_misses_total 1\n" ) );
+        assertTrue( metrics.contains( "\ndirectmemory_cache_hits_total 0\n" ) );
+        assertTrue( metrics.contains( "\ndirectmemory_cache_entries 0\n" ) );
+        assertTrue( metrics.contains( "\ndirectmemory_allocator_free_bytes{allocator=\"0\"} " ) );
+        assertTrue( metrics.contains( "\ndirectmemory_allocator_allocation_failures_total{allocator=\"0\"} 0\n" ) );
+        assertTrue( metrics.contains( "\ndirectmemory_allocator_free_blocks{allocator=\"0\",size=\"" ) );
+        assertTrue( metrics.contains( "\ndirectmemory_memory_store_failures_total 0\n" ) );
+        assertTrue( metrics.contains( "# TYPE directmemory_request_duration_seconds histogram\n" ) );
+        assertTrue( metrics.contains( "\ndirectmemory_request_duration_seconds_bucket{method=\"GET\",le=\"0.0001\"} " ) );
+        assertTrue( metrics.contains( "\ndirectmemory_request_duration_seconds_bucket{method=\"GET\",le=\"+Inf\"} 1\n" ) );
+        assertTrue( metrics.contains( "\ndirectmemory_request_duration_seconds_count{method=\"GET\"} 1\n" ) );
+        assertTrue( metrics.contains( "\ndirectmemory_request_duration_seconds_count{method=\"PUT\"} 0\n" ) );
+    }
+
+    @Test
+    public void histogramBuckets()
+    {
+        LatencyHistogram histogram = new LatencyHistogram( new double[]{ 0.001, 0.01 } );
+        histogram.record( 500000 );
+        histogram.record( 1000000 );
+        histogram.record( 5000000 );
+        histogram.record( 50000000 );
+
+        long[] counts = histogram.getCumulativeCounts();
+        assertEquals( 3, counts.length );
+        assertEquals( 2, counts[0] );
+        assertEquals( 3, counts[1] );
+        assertEquals( 4, counts[2] );
+        assertEquals( 4, histogram.getCount() );
+        assertEquals( 0.0565, histogram.getSum(), 0.000001 );
+    }
+
+    @Test
+    public void serviceUnavailableWithoutCache()
+        throws Exception
+    {
+        directMemoryServlet.destroy();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        metricsServlet.doGet( new MockHttpServletRequest( "GET", "/metrics" ), response );
+
+        assertEquals( HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus() );
+    }
+
+}
@@ -20,6 +20,7 @@ package org.apache.directmemory.server.services;
 
 import org.apache.directmemory.serialization.Serializer;
 import org.apache.directmemory.serialization.SerializerFactory;
+import org.apache.directmemory.server.commons.DirectMemoryHttpConstants;
 import org.apache.directmemory.server.commons.DirectMemoryParser;
 import org.apache.directmemory.server.commons.DirectMemoryRequest;
 import org.apache.directmemory.server.commons.DirectMemoryResponse;
@@ -38,6 +39,7 @@ import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.MediaType;
 import java.io.ByteArrayInputStream;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -159,6 +161,52 @@ public class DirectMemoryServletTest
 
     }
 
+    @Test
+    public void storeSerializedObject()
+        throws Exception
+    {
+
+        Serializer serializer = SerializerFactory.createNewSerializer();
+
+        byte[] bordeaux = serializer.serialize( new Wine( "Bordeaux", "very great wine" ) );
+
+        MockHttpServletRequest putRequest = new MockHttpServletRequest();
+
+        putRequest.setContentType( DirectMemoryHttpConstants.JAVA_SERIALIZED_OBJECT_CONTENT_TYPE_HEADER );
+
+        putRequest.setServletPath( "cache" );
+
+        putRequest.setPathInfo( "/bordeaux" );
+
+        putRequest.setContent( bordeaux );
+
+        MockHttpServletResponse putResponse = new MockHttpServletResponse();
+
+        directMemoryServlet.doPut( putRequest, putResponse );
+
+        assertEquals( HttpServletResponse.SC_OK, putResponse.getStatus() );
+
+        // now retrieve the content
+
+        MockHttpServletRequest getRequest = new MockHttpServletRequest();
+
+        getRequest.addHeader( "Accept", DirectMemoryHttpConstants.JAVA_SERIALIZED_OBJECT_CONTENT_TYPE_HEADER );
+
+        getRequest.setPathInfo( "/bordeaux" );
+
+        MockHttpServletResponse getResponse = new MockHttpServletResponse();
+
+        directMemoryServlet.doGet( getRequest, getResponse );
+
+        assertEquals( HttpServletResponse.SC_OK, getResponse.getStatus() );
+
+        assertEquals( DirectMemoryHttpConstants.JAVA_SERIALIZED_OBJECT_CONTENT_TYPE_HEADER,
+                      getResponse.getContentType() );
+
+        assertArrayEquals( bordeaux, getResponse.getContentAsByteArray() );
+
+    }
+
     @Test
     public void storeExpiredObject()
         throws Exception